@@ -0,0 +1,71 @@
+package eu.modernmt.aligner.fastalign;
+
+import eu.modernmt.aligner.Aligner;
+import eu.modernmt.model.Alignment;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A FastAlign model file: the vocabulary followed by the forward and backward models parameters
+ * and by their shared translation table.
+ */
+class BidirectionalModel {
+
+    private final Vocabulary vocabulary;
+    private final Model forward;
+    private final Model backward;
+
+    public static BidirectionalModel open(File file) throws IOException {
+        try (ModelReader reader = new ModelReader(file)) {
+            Vocabulary vocabulary = new Vocabulary(reader);
+
+            boolean useNull = reader.readBoolean();
+            boolean favorDiagonal = reader.readBoolean();
+            double probAlignNull = reader.readDouble();
+            double forwardDiagonalTension = reader.readDouble();
+            double backwardDiagonalTension = reader.readDouble();
+
+            long rows = reader.readLong();
+            TranslationTable table = new TranslationTable(rows, (int) Math.min(Integer.MAX_VALUE, rows));
+
+            while (reader.hasRemaining()) {
+                int source = reader.readInt();
+                long rowSize = reader.readLong();
+
+                for (long i = 0; i < rowSize; i++) {
+                    int target = reader.readInt();
+                    float forward = reader.readFloat();
+                    float backward = reader.readFloat();
+
+                    table.put(source, target, forward, backward);
+                }
+            }
+
+            return new BidirectionalModel(vocabulary,
+                    new Model(table, true, useNull, favorDiagonal, probAlignNull, forwardDiagonalTension),
+                    new Model(table, false, useNull, favorDiagonal, probAlignNull, backwardDiagonalTension));
+        }
+    }
+
+    private BidirectionalModel(Vocabulary vocabulary, Model forward, Model backward) {
+        this.vocabulary = vocabulary;
+        this.forward = forward;
+        this.backward = backward;
+    }
+
+    public Alignment getAlignment(String[] source, String[] target, Aligner.SymmetrizationStrategy strategy, boolean reversed, SymAlignment buffer) {
+        int[] sourceIds = vocabulary.encode(reversed ? target : source);
+        int[] targetIds = vocabulary.encode(reversed ? source : target);
+
+        buffer.reset(sourceIds.length, targetIds.length);
+
+        float forwardScore = forward.computeAlignment(sourceIds, targetIds, vocabulary, buffer, SymAlignment.FORWARD);
+        float backwardScore = backward.computeAlignment(sourceIds, targetIds, vocabulary, buffer, SymAlignment.BACKWARD);
+
+        buffer.symmetrize(strategy);
+
+        return buffer.toAlignment((forwardScore + backwardScore) / 2, reversed);
+    }
+
+}
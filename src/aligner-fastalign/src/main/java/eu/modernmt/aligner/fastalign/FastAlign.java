@@ -2,113 +2,57 @@ package eu.modernmt.aligner.fastalign;
 
 import eu.modernmt.aligner.Aligner;
 import eu.modernmt.aligner.AlignerException;
-import eu.modernmt.lang.Language;
 import eu.modernmt.lang.LanguagePair;
 import eu.modernmt.model.Alignment;
 import eu.modernmt.model.Sentence;
-import org.apache.commons.io.FilenameUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.*;
-import java.util.concurrent.*;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 public class FastAlign implements Aligner {
 
     private static final Logger logger = LogManager.getLogger(FastAlign.class);
+    private static final boolean nativeLibraryAvailable = loadNativeLibrary();
 
-    static {
+    private static boolean loadNativeLibrary() {
         try {
             System.loadLibrary("mmt_fastalign");
+            return true;
         } catch (Throwable e) {
-            logger.error("Unable to load library 'mmt_fastalign'", e);
-            throw e;
+            logger.warn("Unable to load library 'mmt_fastalign'", e);
+            return false;
         }
     }
 
-    private SymmetrizationStrategy strategy = SymmetrizationStrategy.GROW_DIAGONAL_FINAL_AND;
-    private final HashMap<LanguageKey, Long> models;
-
-    private static Collection<LanguagePair> parseLanguagesFromFilename(File file) throws IOException {
-        String encoded = FilenameUtils.removeExtension(file.getName());
-        String[] parts = encoded.split("__");
-        if (parts.length != 2)
-            throw new IOException("Invalid FastAlign model: " + file);
-
-        String[] sources = parts[0].split("_");
-        String[] targets = parts[1].split("_");
-        HashSet<LanguagePair> languages = new HashSet<>();
-
-        for (String source : sources) {
-            for (String target : targets) {
-                languages.add(new LanguagePair(Language.fromString(source), Language.fromString(target)));
-            }
-        }
-
-        return languages;
+    /**
+     * @return true if the native library has been loaded, otherwise only JavaFastAlign can be used
+     */
+    public static boolean isNativeLibraryAvailable() {
+        return nativeLibraryAvailable;
     }
 
-    private Map<File, Long> load(File[] paths) {
-        int nproc = Runtime.getRuntime().availableProcessors();
-        int threads = Math.min(paths.length, nproc);
-        int alignerThreads = Math.max(1, (int) (nproc * 3. / 4.));
-
-        ExecutorService executor = Executors.newFixedThreadPool(threads);
-
-        try {
-            Future<?>[] futures = new Future[paths.length];
-            for (int i = 0; i < futures.length; i++)
-                futures[i] = executor.submit(new InitTask(paths[i], alignerThreads));
-
-            HashMap<File, Long> models = new HashMap<>(paths.length);
-            for (int i = 0; i < futures.length; i++) {
-                try {
-                    models.put(paths[i], (Long) futures[i].get());
-                } catch (InterruptedException e) {
-                    throw new RuntimeException("Interrupted execution", e);
-                } catch (ExecutionException e) {
-                    Throwable cause = e.getCause();
-                    if (cause instanceof RuntimeException)
-                        throw (RuntimeException) cause;
-                    else
-                        throw new Error("Unexpected exception", cause);
-                }
-            }
-
-            return models;
-        } finally {
-            executor.shutdownNow();
-        }
-    }
+    private SymmetrizationStrategy strategy = SymmetrizationStrategy.GROW_DIAGONAL_FINAL_AND;
+    private final HashMap<LanguageKey, Long> models;
 
     public FastAlign(File modelPath) throws IOException {
-        if (!modelPath.isDirectory())
-            throw new IOException("Invalid model path: " + modelPath);
+        if (!nativeLibraryAvailable)
+            throw new IOException("Native library 'mmt_fastalign' is not available");
 
-        File[] paths = modelPath.listFiles(path -> path.isFile() && path.getName().endsWith(".mdl"));
-
-        if (paths == null || paths.length == 0)
-            throw new IOException("Could not load any FastAlign model from path " + modelPath);
+        File[] paths = XUtils.listModels(modelPath);
+        int alignerThreads = Math.max(1, (int) (Runtime.getRuntime().availableProcessors() * 3. / 4.));
 
         logger.info("Loading FastAlign models");
         long now = System.currentTimeMillis();
-        Map<File, Long> handlers = load(paths);
+        Map<File, Long> handlers = XUtils.load(paths, path -> instantiate(path.getAbsolutePath(), alignerThreads));
         logger.info("Loaded " + handlers.size() + " FastAlign models in " + (int) ((System.currentTimeMillis() - now) / 1000) + "s");
 
-        this.models = new HashMap<>(paths.length);
-        for (Map.Entry<File, Long> entry : handlers.entrySet()) {
-            File path = entry.getKey();
-            Long nativeHandle = entry.getValue();
-
-            for (LanguagePair pair : parseLanguagesFromFilename(path)) {
-                if (pair.source.getRegion() != null || pair.target.getRegion() != null)
-                    throw new IOException("Cannot specify region for model language tag in model: " + path);
-
-                this.models.put(LanguageKey.parse(pair), nativeHandle);
-            }
-        }
+        this.models = XUtils.indexByLanguage(handlers);
     }
 
     private native long instantiate(String modelFile, int threads);
@@ -212,58 +156,4 @@ public class FastAlign implements Aligner {
     }
 
     private native long dispose(long handle);
-
-    private static final class LanguageKey {
-
-        public static LanguageKey parse(LanguagePair pair) {
-            return new LanguageKey(pair.source.getLanguage(), pair.target.getLanguage());
-        }
-
-        private final String source;
-        private final String target;
-
-        public LanguageKey(String source, String target) {
-            this.source = source;
-            this.target = target;
-        }
-
-        public LanguageKey reversed() {
-            return new LanguageKey(target, source);
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-
-            LanguageKey that = (LanguageKey) o;
-
-            if (!source.equals(that.source)) return false;
-            return target.equals(that.target);
-        }
-
-        @Override
-        public int hashCode() {
-            int result = source.hashCode();
-            result = 31 * result + target.hashCode();
-            return result;
-        }
-    }
-
-    private final class InitTask implements Callable<Long> {
-
-        private final File path;
-        private final int threads;
-
-        private InitTask(File path, int threads) {
-            this.path = path;
-            this.threads = threads;
-        }
-
-        @Override
-        public Long call() {
-            return instantiate(path.getAbsolutePath(), threads);
-        }
-
-    }
 }
@@ -0,0 +1,156 @@
+package eu.modernmt.aligner.fastalign;
+
+import eu.modernmt.aligner.Aligner;
+import eu.modernmt.aligner.AlignerException;
+import eu.modernmt.lang.LanguagePair;
+import eu.modernmt.model.Alignment;
+import eu.modernmt.model.Sentence;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Pure Java implementation of the FastAlign inference: it reads the same model files of the native
+ * implementation and produces the same alignments, without requiring the 'mmt_fastalign' library.
+ */
+public class JavaFastAlign implements Aligner {
+
+    private static final Logger logger = LogManager.getLogger(JavaFastAlign.class);
+
+    private SymmetrizationStrategy strategy = SymmetrizationStrategy.GROW_DIAGONAL_FINAL_AND;
+    private final HashMap<LanguageKey, BidirectionalModel> models;
+    private final int threads;
+    private final ExecutorService executor;
+
+    public JavaFastAlign(File modelPath) throws IOException {
+        File[] paths = XUtils.listModels(modelPath);
+
+        logger.info("Loading FastAlign models (Java implementation)");
+        long now = System.currentTimeMillis();
+        Map<File, BidirectionalModel> models = XUtils.load(paths, BidirectionalModel::open);
+        logger.info("Loaded " + models.size() + " FastAlign models in " + (int) ((System.currentTimeMillis() - now) / 1000) + "s");
+
+        this.models = XUtils.indexByLanguage(models);
+        this.threads = Math.max(1, (int) (Runtime.getRuntime().availableProcessors() * 3. / 4.));
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "JavaFastAlign.align");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public boolean isSupported(LanguagePair direction) {
+        LanguageKey key = LanguageKey.parse(direction);
+        return models.containsKey(key) || models.containsKey(key.reversed());
+    }
+
+    @Override
+    public void setDefaultSymmetrizationStrategy(SymmetrizationStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    @Override
+    public SymmetrizationStrategy getDefaultSymmetrizationStrategy() {
+        return strategy;
+    }
+
+    @Override
+    public Alignment getAlignment(LanguagePair language, Sentence source, Sentence target) throws AlignerException {
+        return getAlignment(language, source, target, strategy);
+    }
+
+    @Override
+    public Alignment getAlignment(LanguagePair language, Sentence source, Sentence target, SymmetrizationStrategy strategy) throws AlignerException {
+        LanguageKey key = LanguageKey.parse(language);
+        BidirectionalModel model = models.get(key);
+        boolean reversed = false;
+
+        if (model == null) {
+            reversed = true;
+            model = models.get(key.reversed());
+        }
+
+        if (model == null)
+            throw new AlignerException("Language pair not supported: " + language);
+
+        return model.getAlignment(XUtils.toTokensArray(source), XUtils.toTokensArray(target), strategy, reversed, new SymAlignment());
+    }
+
+    @Override
+    public Alignment[] getAlignments(LanguagePair language, List<? extends Sentence> sources, List<? extends Sentence> targets) throws AlignerException {
+        return getAlignments(language, sources, targets, strategy);
+    }
+
+    @Override
+    public Alignment[] getAlignments(LanguagePair language, List<? extends Sentence> sources, List<? extends Sentence> targets, SymmetrizationStrategy strategy) throws AlignerException {
+        LanguageKey key = LanguageKey.parse(language);
+        BidirectionalModel model = models.get(key);
+        boolean reversed = false;
+
+        if (model == null) {
+            reversed = true;
+            model = models.get(key.reversed());
+        }
+
+        if (model == null)
+            throw new AlignerException("Language pair not supported: " + language);
+
+        String[][] sourceArray = new String[sources.size()][];
+        String[][] targetArray = new String[targets.size()][];
+
+        Iterator<? extends Sentence> sourceIterator = sources.iterator();
+        Iterator<? extends Sentence> targetIterator = targets.iterator();
+
+        int size = 0;
+        while (sourceIterator.hasNext() && targetIterator.hasNext()) {
+            sourceArray[size] = XUtils.toTokensArray(sourceIterator.next());
+            targetArray[size] = XUtils.toTokensArray(targetIterator.next());
+            size++;
+        }
+
+        Alignment[] alignments = new Alignment[size];
+
+        // Every task aligns a contiguous slice of the batch with its own buffers
+        int tasks = Math.min(threads, size);
+        List<Future<?>> futures = new ArrayList<>(tasks);
+
+        for (int t = 0; t < tasks; t++) {
+            int begin = (int) ((long) size * t / tasks);
+            int end = (int) ((long) size * (t + 1) / tasks);
+            BidirectionalModel _model = model;
+            boolean _reversed = reversed;
+
+            futures.add(executor.submit(() -> {
+                SymAlignment buffer = new SymAlignment();
+                for (int i = begin; i < end; i++)
+                    alignments[i] = _model.getAlignment(sourceArray[i], targetArray[i], strategy, _reversed, buffer);
+            }));
+        }
+
+        try {
+            for (Future<?> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            throw new AlignerException("Interrupted execution", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            else
+                throw new AlignerException(cause);
+        }
+
+        return alignments;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+}
@@ -0,0 +1,43 @@
+package eu.modernmt.aligner.fastalign;
+
+import eu.modernmt.lang.LanguagePair;
+
+/**
+ * Models are indexed by language only: regions are not relevant for word alignment.
+ */
+final class LanguageKey {
+
+    public static LanguageKey parse(LanguagePair pair) {
+        return new LanguageKey(pair.source.getLanguage(), pair.target.getLanguage());
+    }
+
+    private final String source;
+    private final String target;
+
+    public LanguageKey(String source, String target) {
+        this.source = source;
+        this.target = target;
+    }
+
+    public LanguageKey reversed() {
+        return new LanguageKey(target, source);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        LanguageKey that = (LanguageKey) o;
+
+        if (!source.equals(that.source)) return false;
+        return target.equals(that.target);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = source.hashCode();
+        result = 31 * result + target.hashCode();
+        return result;
+    }
+}
@@ -0,0 +1,130 @@
+package eu.modernmt.aligner.fastalign;
+
+/**
+ * IBM Model 2 with the diagonal alignment prior of fast_align, inference only: for every target word
+ * the most probable source word is selected. The translation table is shared by the forward and backward
+ * models, the backward one reads it with source and target swapped.
+ */
+class Model {
+
+    public static final double NULL_PROBABILITY = 1e-9;
+
+    private final TranslationTable table;
+    private final boolean reverse;
+    private final boolean useNull;
+    private final boolean favorDiagonal;
+    private final double probAlignNull;
+    private final double diagonalTension;
+
+    public Model(TranslationTable table, boolean forward, boolean useNull, boolean favorDiagonal, double probAlignNull, double diagonalTension) {
+        this.table = table;
+        this.reverse = !forward;
+        this.useNull = useNull;
+        this.favorDiagonal = favorDiagonal;
+        this.probAlignNull = probAlignNull;
+        this.diagonalTension = diagonalTension;
+    }
+
+    private double getProbability(int source, int target) {
+        if (reverse)
+            return table.get(target, source, true, NULL_PROBABILITY);
+        else
+            return table.get(source, target, false, NULL_PROBABILITY);
+    }
+
+    /**
+     * Computes the alignment of the sentence pair and adds its points to the output matrix with the given flag
+     *
+     * @return the alignment score, the geometric mean of the points probabilities weighted by the words IDF
+     */
+    public float computeAlignment(int[] source, int[] target, Vocabulary vocabulary, SymAlignment output, int flag) {
+        int[] src = reverse ? target : source;
+        int[] trg = reverse ? source : target;
+        int srcSize = src.length;
+        int trgSize = trg.length;
+
+        double[] probs = output.getProbabilitiesBuffer(srcSize + 1);
+
+        // Geometric mean of grouped data: antilog(sum(f * log x) / N)
+        double algProb = 0.0;
+        double algProbD = 0.0;
+
+        for (int j = 0; j < trgSize; j++) {
+            int f = trg[j];
+            double sum = 0;
+            double probAi = 1.0 / (srcSize + (useNull ? 1 : 0));
+
+            if (useNull) {
+                if (favorDiagonal)
+                    probAi = probAlignNull;
+                probs[0] = getProbability(Vocabulary.NULL_WORD, f) * probAi;
+                sum += probs[0];
+            }
+
+            double az = 0;
+            if (favorDiagonal)
+                az = computeZ(j + 1, trgSize, srcSize, diagonalTension) / (1. - probAlignNull);
+
+            for (int i = 1; i <= srcSize; i++) {
+                if (favorDiagonal)
+                    probAi = unnormalizedProb(j + 1, i, trgSize, srcSize, diagonalTension) / az;
+                probs[i] = getProbability(src[i - 1], f) * probAi;
+                sum += probs[i];
+            }
+
+            double maxP = -1;
+            int maxIndex = -1;
+
+            if (useNull) {
+                maxIndex = 0;
+                maxP = probs[0];
+            }
+
+            for (int i = 1; i <= srcSize; i++) {
+                if (probs[i] > maxP) {
+                    maxIndex = i;
+                    maxP = probs[i];
+                }
+            }
+
+            float wordScore = vocabulary.getProbability(trg[j], reverse);
+            algProb += wordScore * Math.log(maxP);
+            algProbD += wordScore;
+
+            if (maxIndex > 0) {
+                if (reverse)
+                    output.add(j, maxIndex - 1, flag);
+                else
+                    output.add(maxIndex - 1, j, flag);
+            }
+        }
+
+        return (float) (algProb / algProbD);
+    }
+
+    // Diagonal alignment: i = target index, j = source index, m = target length, n = source length
+
+    private static double feature(int i, int j, int m, int n) {
+        return -(((double) Math.abs(j * m - i * n)) / (m * n));
+    }
+
+    private static double unnormalizedProb(int i, int j, int m, int n, double alpha) {
+        return Math.exp(feature(i, j, m, n) * alpha);
+    }
+
+    private static double computeZ(int i, int m, int n, double alpha) {
+        double split = ((double) i) * n / m;
+        int floor = (int) split;
+        int ceil = floor + 1;
+        double ratio = Math.exp(-alpha / n);
+        int numTop = n - floor;
+        double ezt = 0;
+        double ezb = 0;
+        if (numTop != 0)
+            ezt = unnormalizedProb(i, ceil, m, n, alpha) * (1.0 - Math.pow(ratio, numTop)) / (1.0 - ratio);
+        if (floor != 0)
+            ezb = unnormalizedProb(i, floor, m, n, alpha) * (1.0 - Math.pow(ratio, floor)) / (1.0 - ratio);
+        return ezb + ezt;
+    }
+
+}
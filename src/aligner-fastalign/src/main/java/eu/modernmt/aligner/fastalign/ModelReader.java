@@ -0,0 +1,100 @@
+package eu.modernmt.aligner.fastalign;
+
+import eu.modernmt.io.UTF8Charset;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reader of the binary model files written by the native implementation: values are stored
+ * in little-endian order, size_t as 64 bits and word ids (word_t) as unsigned 32 bits.
+ */
+class ModelReader implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    public ModelReader(File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.buffer = ByteBuffer.allocateDirect(1024 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        this.buffer.flip();
+    }
+
+    private boolean fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes)
+            return true;
+
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0)
+                break;
+        }
+        buffer.flip();
+
+        return buffer.remaining() >= bytes;
+    }
+
+    private void require(int bytes) throws IOException {
+        if (!fill(bytes))
+            throw new EOFException("Unexpected end of model file");
+    }
+
+    public boolean hasRemaining() throws IOException {
+        return fill(1);
+    }
+
+    public boolean readBoolean() throws IOException {
+        require(1);
+        return buffer.get() != 0;
+    }
+
+    public int readInt() throws IOException {
+        require(4);
+        return buffer.getInt();
+    }
+
+    public long readLong() throws IOException {
+        require(8);
+        return buffer.getLong();
+    }
+
+    public float readFloat() throws IOException {
+        require(4);
+        return buffer.getFloat();
+    }
+
+    public double readDouble() throws IOException {
+        require(8);
+        return buffer.getDouble();
+    }
+
+    public String readString() throws IOException {
+        int size = readInt();
+        if (size < 0)
+            throw new IOException("Invalid string length: " + Integer.toUnsignedString(size));
+
+        byte[] bytes = new byte[size];
+        int offset = 0;
+
+        while (offset < size) {
+            require(1);
+            int length = Math.min(size - offset, buffer.remaining());
+            buffer.get(bytes, offset, length);
+            offset += length;
+        }
+
+        return new String(bytes, UTF8Charset.get());
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -0,0 +1,196 @@
+package eu.modernmt.aligner.fastalign;
+
+import eu.modernmt.aligner.Aligner;
+import eu.modernmt.model.Alignment;
+
+import java.util.Arrays;
+
+/**
+ * Symmetrization of the forward and backward alignments, same algorithms of the native implementation.
+ * Buffers are reused across calls, so an instance must be used by a single thread at a time.
+ */
+class SymAlignment {
+
+    public static final int FORWARD = 0x01;
+    public static final int BACKWARD = 0x02;
+    private static final int ADDED = 0x04;
+
+    private static final int[][] GROW_DIAGONAL_NEIGHBORS = {
+            // Grow
+            {-1, 0},
+            {0, -1},
+            {1, 0},
+            {0, 1},
+
+            // Diagonal
+            {-1, -1},
+            {-1, 1},
+            {1, -1},
+            {1, 1}
+    };
+
+    private int sourceLength = 0;
+    private int targetLength = 0;
+
+    private byte[] m = new byte[0];
+    private boolean[] srcCoverage = new boolean[0];
+    private boolean[] trgCoverage = new boolean[0];
+    private double[] probabilities = new double[0];
+
+    private static boolean isInIntersection(int a) {
+        return (a & 0x03) == 0x03;
+    }
+
+    private static boolean isInUnion(int a) {
+        return (a & 0x03) > 0;
+    }
+
+    private static boolean hasBeenAdded(int a) {
+        return (a & ADDED) == ADDED;
+    }
+
+    public void reset(int sourceLength, int targetLength) {
+        this.sourceLength = sourceLength;
+        this.targetLength = targetLength;
+
+        int size = sourceLength * targetLength;
+        if (m.length < size)
+            m = new byte[size];
+        else
+            Arrays.fill(m, 0, size, (byte) 0);
+
+        if (srcCoverage.length < sourceLength)
+            srcCoverage = new boolean[sourceLength];
+        else
+            Arrays.fill(srcCoverage, 0, sourceLength, false);
+
+        if (trgCoverage.length < targetLength)
+            trgCoverage = new boolean[targetLength];
+        else
+            Arrays.fill(trgCoverage, 0, targetLength, false);
+    }
+
+    double[] getProbabilitiesBuffer(int size) {
+        if (probabilities.length < size)
+            probabilities = new double[size];
+        return probabilities;
+    }
+
+    private int idx(int s, int t) {
+        return s * targetLength + t;
+    }
+
+    /**
+     * Adds a point of the forward or backward alignment, the forward points must be added first
+     */
+    public void add(int s, int t, int flag) {
+        int i = idx(s, t);
+        m[i] |= flag;
+
+        if (isInIntersection(m[i])) {
+            srcCoverage[s] = true;
+            trgCoverage[t] = true;
+        }
+    }
+
+    public void symmetrize(Aligner.SymmetrizationStrategy strategy) {
+        switch (strategy) {
+            case GROW_DIAGONAL_FINAL_AND:
+                grow(true, true);
+                break;
+            case GROW_DIAGONAL:
+                grow(true, false);
+                break;
+            case INTERSECT:
+                intersection();
+                break;
+            case UNION:
+                break;
+        }
+    }
+
+    private void intersection() {
+        for (int i = 0; i < sourceLength * targetLength; i++)
+            m[i] = (byte) (isInIntersection(m[i]) ? 1 : 0);
+    }
+
+    private void grow(boolean diagonal, boolean fin) {
+        int neighborsSize = diagonal ? 8 : 4;
+
+        boolean added = true;
+        while (added) {
+            added = false;
+
+            for (int t = 0; t < targetLength; t++) {
+                for (int s = 0; s < sourceLength; s++) {
+                    byte point = m[idx(s, t)];
+
+                    if (isInIntersection(point) || hasBeenAdded(point)) {
+                        for (int ni = 0; ni < neighborsSize; ni++) {
+                            int ns = s + GROW_DIAGONAL_NEIGHBORS[ni][0];
+                            int nt = t + GROW_DIAGONAL_NEIGHBORS[ni][1];
+
+                            if (ns < 0 || nt < 0 || ns >= sourceLength || nt >= targetLength)
+                                continue; // point is outside matrix
+
+                            if (!(srcCoverage[ns] && trgCoverage[nt]) && isInUnion(m[idx(ns, nt)])) {
+                                m[idx(ns, nt)] |= ADDED;
+                                srcCoverage[ns] = true;
+                                trgCoverage[nt] = true;
+                                added = true;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        if (fin) {
+            finalAnd(FORWARD);
+            finalAnd(BACKWARD);
+        }
+
+        for (int i = 0; i < sourceLength * targetLength; i++)
+            m[i] = (byte) (isInIntersection(m[i]) || hasBeenAdded(m[i]) ? 1 : 0);
+    }
+
+    private void finalAnd(int flag) {
+        for (int t = 0; t < targetLength; t++) {
+            for (int s = 0; s < sourceLength; s++) {
+                if ((m[idx(s, t)] & flag) > 0 && !(srcCoverage[s] || trgCoverage[t])) {
+                    m[idx(s, t)] |= ADDED;
+                    srcCoverage[s] = true;
+                    trgCoverage[t] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param reversed if true, source and target of every point are swapped
+     */
+    public Alignment toAlignment(float score, boolean reversed) {
+        int size = 0;
+        for (int i = 0; i < sourceLength * targetLength; i++) {
+            if (m[i] > 0)
+                size++;
+        }
+
+        int[] source = new int[size];
+        int[] target = new int[size];
+        int k = 0;
+
+        for (int s = 0; s < sourceLength; s++) {
+            for (int t = 0; t < targetLength; t++) {
+                if (m[idx(s, t)] > 0) {
+                    source[k] = reversed ? t : s;
+                    target[k] = reversed ? s : t;
+                    k++;
+                }
+            }
+        }
+
+        return new Alignment(source, target, score);
+    }
+
+}
@@ -0,0 +1,128 @@
+package eu.modernmt.aligner.fastalign;
+
+import java.util.Arrays;
+
+/**
+ * Lexical translation table shared by the forward and backward models: for every (source, target) pair
+ * of words it stores both the forward and the backward probability. Entries are kept in a single
+ * open-addressing hash table with linear probing, indexed by the two word ids packed in a long.
+ */
+class TranslationTable {
+
+    private static final long EMPTY = -1L;
+    private static final float LOAD_FACTOR = .5f;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final long rows;
+
+    private long[] keys;
+    private float[] forward;
+    private float[] backward;
+    private int mask;
+    private int size = 0;
+
+    public TranslationTable(long rows, int expectedSize) {
+        this.rows = rows;
+
+        int capacity = 16;
+        while (capacity < MAX_CAPACITY && capacity * LOAD_FACTOR < expectedSize)
+            capacity <<= 1;
+
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.forward = new float[capacity];
+        this.backward = new float[capacity];
+        this.mask = capacity - 1;
+
+        Arrays.fill(this.keys, EMPTY);
+    }
+
+    private static long key(int source, int target) {
+        return ((source & 0xFFFFFFFFL) << 32) | (target & 0xFFFFFFFFL);
+    }
+
+    private static int hash(long key) {
+        // MurmurHash3 64-bit finalizer
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private int indexOf(long key) {
+        int i = hash(key) & mask;
+
+        long current;
+        while ((current = keys[i]) != EMPTY) {
+            if (current == key)
+                return i;
+            i = (i + 1) & mask;
+        }
+
+        return -(i + 1);
+    }
+
+    public void put(int source, int target, float forward, float backward) {
+        long key = key(source, target);
+        int i = indexOf(key);
+
+        if (i < 0) {
+            if (size + 1 > keys.length * LOAD_FACTOR) {
+                if (keys.length == MAX_CAPACITY)
+                    throw new IllegalStateException("Translation table is full");
+
+                rehash(keys.length << 1);
+                i = indexOf(key);
+            }
+
+            i = -i - 1;
+            keys[i] = key;
+            size++;
+        }
+
+        this.forward[i] = forward;
+        this.backward[i] = backward;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = this.keys;
+        float[] oldForward = this.forward;
+        float[] oldBackward = this.backward;
+
+        allocate(capacity);
+
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == EMPTY)
+                continue;
+
+            int i = -indexOf(oldKeys[j]) - 1;
+            keys[i] = oldKeys[j];
+            forward[i] = oldForward[j];
+            backward[i] = oldBackward[j];
+        }
+    }
+
+    /**
+     * @return the probability of the pair of words, or the given default value if the pair is unknown
+     */
+    public double get(int source, int target, boolean backward, double defaultValue) {
+        if (rows == 0 || (source & 0xFFFFFFFFL) >= rows)
+            return defaultValue;
+
+        int i = indexOf(key(source, target));
+        if (i < 0)
+            return defaultValue;
+
+        return backward ? this.backward[i] : this.forward[i];
+    }
+
+    public int size() {
+        return size;
+    }
+
+}
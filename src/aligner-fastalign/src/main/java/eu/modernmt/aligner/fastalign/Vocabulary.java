@@ -0,0 +1,77 @@
+package eu.modernmt.aligner.fastalign;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * Vocabulary of a FastAlign model: words ids are assigned in order of appearance in the model file,
+ * starting from 2 (0 is the null word, 1 the unknown word).
+ */
+class Vocabulary {
+
+    public static final int NULL_WORD = 0;
+    public static final int UNKNOWN_WORD = 1;
+
+    private final boolean caseSensitive;
+    private final HashMap<String, Integer> vocabulary;
+    private final float[] sourceProbabilities;
+    private final float[] targetProbabilities;
+
+    public Vocabulary(ModelReader reader) throws IOException {
+        int size = -1;
+        boolean caseSensitive = true;
+
+        for (String property : reader.readString().trim().split("\\s+")) {
+            int separator = property.indexOf('=');
+            if (separator < 0)
+                continue;
+
+            String key = property.substring(0, separator);
+            String value = property.substring(separator + 1);
+
+            if ("size".equals(key))
+                size = Integer.parseInt(value);
+            else if ("case_sensitive".equals(key))
+                caseSensitive = value.startsWith("1");
+            else
+                throw new IOException("Invalid header key: " + key);
+        }
+
+        if (size < 0)
+            throw new IOException("Missing vocabulary size in model header");
+
+        this.caseSensitive = caseSensitive;
+        this.vocabulary = new HashMap<>(size * 4 / 3 + 1);
+        this.sourceProbabilities = new float[size + 2];
+        this.targetProbabilities = new float[size + 2];
+
+        for (int id = 2; id < size + 2; id++) {
+            sourceProbabilities[id] = reader.readFloat();
+            targetProbabilities[id] = reader.readFloat();
+            vocabulary.put(reader.readString(), id);
+        }
+    }
+
+    public int get(String term) {
+        Integer id = vocabulary.get(caseSensitive ? term : term.toLowerCase(Locale.ROOT));
+        return id == null ? UNKNOWN_WORD : id;
+    }
+
+    public int[] encode(String[] sentence) {
+        int[] result = new int[sentence.length];
+        for (int i = 0; i < sentence.length; i++)
+            result[i] = get(sentence[i]);
+        return result;
+    }
+
+    /**
+     * @return the smoothed inverse document frequency of the word, used to weight the alignment score
+     */
+    public float getProbability(int id, boolean isSource) {
+        if (id < 0 || id >= sourceProbabilities.length)
+            return 0.f;
+        return isSource ? sourceProbabilities[id] : targetProbabilities[id];
+    }
+
+}
@@ -2,8 +2,16 @@ package eu.modernmt.aligner.fastalign;
 
 import eu.modernmt.aligner.Aligner;
 import eu.modernmt.io.TokensOutputStream;
+import eu.modernmt.lang.Language;
+import eu.modernmt.lang.LanguagePair;
 import eu.modernmt.model.Alignment;
 import eu.modernmt.model.Sentence;
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Created by davide on 12/05/17.
@@ -44,4 +52,92 @@ class XUtils {
         return new Alignment(source, target, score);
     }
 
+    // Models loading
+
+    public interface ModelLoader<M> {
+
+        M load(File path) throws IOException;
+
+    }
+
+    public static File[] listModels(File modelPath) throws IOException {
+        if (!modelPath.isDirectory())
+            throw new IOException("Invalid model path: " + modelPath);
+
+        File[] paths = modelPath.listFiles(path -> path.isFile() && path.getName().endsWith(".mdl"));
+
+        if (paths == null || paths.length == 0)
+            throw new IOException("Could not load any FastAlign model from path " + modelPath);
+
+        return paths;
+    }
+
+    public static <M> Map<File, M> load(File[] paths, ModelLoader<M> loader) throws IOException {
+        int threads = Math.min(paths.length, Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            List<Future<M>> futures = new ArrayList<>(paths.length);
+            for (File path : paths)
+                futures.add(executor.submit(() -> loader.load(path)));
+
+            HashMap<File, M> models = new HashMap<>(paths.length);
+            for (int i = 0; i < paths.length; i++) {
+                try {
+                    models.put(paths[i], futures.get(i).get());
+                } catch (InterruptedException e) {
+                    throw new RuntimeException("Interrupted execution", e);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException)
+                        throw (IOException) cause;
+                    else if (cause instanceof RuntimeException)
+                        throw (RuntimeException) cause;
+                    else
+                        throw new Error("Unexpected exception", cause);
+                }
+            }
+
+            return models;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public static <M> HashMap<LanguageKey, M> indexByLanguage(Map<File, M> models) throws IOException {
+        HashMap<LanguageKey, M> result = new HashMap<>(models.size());
+
+        for (Map.Entry<File, M> entry : models.entrySet()) {
+            File path = entry.getKey();
+
+            for (LanguagePair pair : parseLanguagesFromFilename(path)) {
+                if (pair.source.getRegion() != null || pair.target.getRegion() != null)
+                    throw new IOException("Cannot specify region for model language tag in model: " + path);
+
+                result.put(LanguageKey.parse(pair), entry.getValue());
+            }
+        }
+
+        return result;
+    }
+
+    private static Collection<LanguagePair> parseLanguagesFromFilename(File file) throws IOException {
+        String encoded = FilenameUtils.removeExtension(file.getName());
+        String[] parts = encoded.split("__");
+        if (parts.length != 2)
+            throw new IOException("Invalid FastAlign model: " + file);
+
+        String[] sources = parts[0].split("_");
+        String[] targets = parts[1].split("_");
+        HashSet<LanguagePair> languages = new HashSet<>();
+
+        for (String source : sources) {
+            for (String target : targets) {
+                languages.add(new LanguagePair(Language.fromString(source), Language.fromString(target)));
+            }
+        }
+
+        return languages;
+    }
+
 }
@@ -0,0 +1,185 @@
+package eu.modernmt.aligner.fastalign;
+
+import eu.modernmt.aligner.Aligner;
+import eu.modernmt.aligner.AlignerException;
+import eu.modernmt.lang.Language;
+import eu.modernmt.lang.LanguagePair;
+import eu.modernmt.model.Alignment;
+import eu.modernmt.model.Sentence;
+import eu.modernmt.model.Word;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class JavaFastAlignTest {
+
+    private static final LanguagePair EN__IT = new LanguagePair(Language.ENGLISH, Language.ITALIAN);
+    private static final LanguagePair IT__EN = EN__IT.reversed();
+    private static final LanguagePair EN__FR = new LanguagePair(Language.ENGLISH, Language.FRENCH);
+
+    private static final String[] VOCABULARY = {"a", "b", "c", "x", "y", "z"};
+    private static final String[][] DICTIONARY = {{"a", "x"}, {"b", "y"}, {"c", "z"}};
+
+    private File workspace;
+    private JavaFastAlign aligner;
+
+    @Before
+    public void setup() throws IOException {
+        workspace = Files.createTempDirectory("JavaFastAlignTest").toFile();
+        writeModel(new File(workspace, "en__it.mdl"));
+
+        aligner = new JavaFastAlign(workspace);
+    }
+
+    @After
+    public void teardown() throws IOException {
+        aligner.close();
+        FileUtils.deleteDirectory(workspace);
+    }
+
+    // Writes a toy model in the binary format of the native implementation (little-endian)
+
+    private static void writeModel(File file) throws IOException {
+        HashMap<String, Integer> ids = new HashMap<>();
+
+        try (DataOutputStream output = new DataOutputStream(new FileOutputStream(file))) {
+            writeString(output, "size=" + VOCABULARY.length + " case_sensitive=0");
+            for (String word : VOCABULARY) {
+                ids.put(word, ids.size() + 2);
+                output.write(buffer(8).putFloat(1.f).putFloat(1.f).array());
+                writeString(output, word);
+            }
+
+            // use_null, favor_diagonal, prob_align_null, forward and backward diagonal tension
+            output.writeBoolean(true);
+            output.writeBoolean(true);
+            output.write(buffer(24).putDouble(.08).putDouble(4.).putDouble(4.).array());
+
+            output.write(buffer(8).putLong(VOCABULARY.length + 2).array());
+            for (String source : new String[]{"a", "b", "c"}) {
+                output.write(buffer(12).putInt(ids.get(source)).putLong(3).array());
+
+                for (String target : new String[]{"x", "y", "z"}) {
+                    float probability = isTranslation(source, target) ? .9f : .01f;
+                    output.write(buffer(12).putInt(ids.get(target)).putFloat(probability).putFloat(probability).array());
+                }
+            }
+        }
+    }
+
+    private static boolean isTranslation(String source, String target) {
+        for (String[] entry : DICTIONARY) {
+            if (entry[0].equals(source) && entry[1].equals(target))
+                return true;
+        }
+        return false;
+    }
+
+    private static ByteBuffer buffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void writeString(DataOutputStream output, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.write(buffer(4).putInt(bytes.length).array());
+        output.write(bytes);
+    }
+
+    private static Sentence sentence(String text) {
+        String[] tokens = text.split(" ");
+        Word[] words = new Word[tokens.length];
+        for (int i = 0; i < tokens.length; i++)
+            words[i] = new Word(tokens[i], " ");
+        return new Sentence(words);
+    }
+
+    private static Set<String> points(Alignment alignment) {
+        TreeSet<String> points = new TreeSet<>();
+        for (int[] point : alignment)
+            points.add(point[0] + "-" + point[1]);
+        return points;
+    }
+
+    private static Set<String> points(String... points) {
+        return new TreeSet<>(Arrays.asList(points));
+    }
+
+    @Test
+    public void supportedLanguages() {
+        assertTrue(aligner.isSupported(EN__IT));
+        assertTrue(aligner.isSupported(IT__EN));
+        assertFalse(aligner.isSupported(EN__FR));
+    }
+
+    @Test
+    public void alignWithDictionary() throws AlignerException {
+        Alignment alignment = aligner.getAlignment(EN__IT, sentence("a b c"), sentence("z x y"));
+        assertEquals(points("0-1", "1-2", "2-0"), points(alignment));
+    }
+
+    @Test
+    public void alignReversedDirection() throws AlignerException {
+        Alignment alignment = aligner.getAlignment(IT__EN, sentence("z x y"), sentence("a b c"));
+        assertEquals(points("0-2", "1-0", "2-1"), points(alignment));
+    }
+
+    @Test
+    public void alignCaseInsensitive() throws AlignerException {
+        Alignment alignment = aligner.getAlignment(EN__IT, sentence("A B C"), sentence("Z X Y"));
+        assertEquals(points("0-1", "1-2", "2-0"), points(alignment));
+    }
+
+    @Test
+    public void unknownWordsAreAlignedOnlyByDiagonal() throws AlignerException {
+        Alignment alignment = aligner.getAlignment(EN__IT, sentence("a q c"), sentence("x w z"),
+                Aligner.SymmetrizationStrategy.INTERSECT);
+        assertTrue(points(alignment).containsAll(points("0-0", "2-2")));
+    }
+
+    @Test
+    public void batchEqualsSingleAlignments() throws AlignerException {
+        List<Sentence> sources = new ArrayList<>();
+        List<Sentence> targets = new ArrayList<>();
+
+        Random random = new Random(42);
+        for (int i = 0; i < 50; i++) {
+            int length = 1 + random.nextInt(8);
+            StringBuilder source = new StringBuilder();
+            StringBuilder target = new StringBuilder();
+            for (int j = 0; j < length; j++) {
+                source.append(VOCABULARY[random.nextInt(3)]).append(' ');
+                target.append(VOCABULARY[3 + random.nextInt(3)]).append(' ');
+            }
+
+            sources.add(sentence(source.toString().trim()));
+            targets.add(sentence(target.toString().trim()));
+        }
+
+        for (Aligner.SymmetrizationStrategy strategy : Aligner.SymmetrizationStrategy.values()) {
+            Alignment[] batch = aligner.getAlignments(EN__IT, sources, targets, strategy);
+
+            assertEquals(sources.size(), batch.length);
+            for (int i = 0; i < batch.length; i++)
+                assertEquals(aligner.getAlignment(EN__IT, sources.get(i), targets.get(i), strategy), batch[i]);
+        }
+    }
+
+    @Test(expected = AlignerException.class)
+    public void unsupportedLanguagePair() throws AlignerException {
+        aligner.getAlignment(EN__FR, sentence("a b c"), sentence("x y z"));
+    }
+
+}
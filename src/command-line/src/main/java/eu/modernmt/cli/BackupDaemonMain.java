@@ -25,17 +25,20 @@ public class BackupDaemonMain {
             Option engine = Option.builder("e").longOpt("engine").hasArg().required().build();
             Option interval = Option.builder("i").longOpt("interval").hasArg().required().build();
             Option limit = Option.builder("l").longOpt("limit").hasArg().required().build();
+            Option online = Option.builder().longOpt("online").build();
 
             cliOptions = new Options();
             cliOptions.addOption(engine);
             cliOptions.addOption(interval);
             cliOptions.addOption(limit);
+            cliOptions.addOption(online);
         }
 
         public final String engine;
         public final NodeConfig config;
         public final int limit;
         public final long interval;
+        public final boolean online;
 
         public Args(String[] args) throws ParseException, ConfigException {
             CommandLineParser parser = new DefaultParser();
@@ -46,6 +49,7 @@ public class BackupDaemonMain {
             this.config.getEngineConfig().setName(this.engine);
             this.interval = Long.parseLong(cli.getOptionValue("interval")) * 1000L;
             this.limit = Integer.parseInt(cli.getOptionValue("limit"));
+            this.online = cli.hasOption("online");
         }
     }
 
@@ -59,7 +63,7 @@ public class BackupDaemonMain {
 
         FileLimitRetentionPolicy policy = new FileLimitRetentionPolicy(args.limit);
 
-        try (BackupDaemon daemon = new BackupDaemon(args.config, policy, args.interval)) {
+        try (BackupDaemon daemon = new BackupDaemon(args.config, policy, args.interval, args.online)) {
             daemon.runForever();
         }
 
@@ -37,6 +37,8 @@ public class CleaningPipelineMain {
             Option outputPath = Option.builder().longOpt("output").hasArg().required().build();
             Option outputFormat = Option.builder().longOpt("output-format").hasArgs().build();
             Option filters = Option.builder().longOpt("filters").hasArgs().build();
+            Option threads = Option.builder().longOpt("threads").hasArg().build();
+            Option spillDirectory = Option.builder().longOpt("spill-dir").hasArg().build();
 
             cliOptions = new Options();
             cliOptions.addOption(sourceLanguage);
@@ -45,6 +47,8 @@ public class CleaningPipelineMain {
             cliOptions.addOption(outputPath);
             cliOptions.addOption(outputFormat);
             cliOptions.addOption(filters);
+            cliOptions.addOption(threads);
+            cliOptions.addOption(spillDirectory);
         }
 
         public final Language source;
@@ -53,6 +57,8 @@ public class CleaningPipelineMain {
         public final File outputRoot;
         public final FileFormat outputFormat;
         public final Filter[] filters;
+        public final int threads;
+        public final File spillDirectory;
 
         public Args(String[] args) throws ParseException {
             CommandLineParser parser = new DefaultParser();
@@ -78,6 +84,10 @@ public class CleaningPipelineMain {
             } else {
                 filters = null;
             }
+
+            threads = cli.hasOption("threads") ?
+                    Integer.parseInt(cli.getOptionValue("threads")) : Runtime.getRuntime().availableProcessors();
+            spillDirectory = cli.hasOption("spill-dir") ? new File(cli.getOptionValue("spill-dir")) : null;
         }
 
     }
@@ -131,6 +141,8 @@ public class CleaningPipelineMain {
 
         Args args = new Args(_args);
         CorporaCleaning.Options options = getOptions(args.filters);
+        options.threads = args.threads;
+        options.spillDirectory = args.spillDirectory;
 
         FileUtils.deleteDirectory(args.outputRoot);
         FileUtils.forceMkdir(args.outputRoot);
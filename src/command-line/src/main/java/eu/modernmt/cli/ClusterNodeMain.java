@@ -57,6 +57,7 @@ public class ClusterNodeMain {
             Option databasePort = Option.builder().longOpt("db-port").hasArg().required(false).build();
 
             Option leader = Option.builder().longOpt("leader").hasArg().required(false).build();
+            Option snapshot = Option.builder().longOpt("snapshot").hasArg().required(false).build();
 
             Option verbosity = Option.builder("v").longOpt("verbosity").hasArg().type(Integer.class).required(false).build();
 
@@ -70,6 +71,7 @@ public class ClusterNodeMain {
             cliOptions.addOption(logFile);
             cliOptions.addOption(datastreamPort);
             cliOptions.addOption(databasePort);
+            cliOptions.addOption(snapshot);
         }
 
         public final String engine;
@@ -157,6 +159,13 @@ public class ClusterNodeMain {
                 streamConfig.setHost(leader);
                 dbConfig.setHost(leader);
             }
+
+            // ~~~~~~~~~~~~~~~~ SNAPSHOT ~~~~~~~~~~~~~~~~~~~
+            /* If a snapshot folder is passed by command line, the latest backup found there is installed
+            before loading the models, so that only the contributions after the backup are replayed. */
+            String snapshot = cli.getOptionValue("snapshot");
+            if (snapshot != null)
+                this.config.getEngineConfig().setSnapshotPath(snapshot);
         }
     }
 
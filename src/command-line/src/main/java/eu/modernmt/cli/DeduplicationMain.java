@@ -24,6 +24,8 @@ public class DeduplicationMain {
             Option lengthThreshold = Option.builder("l").hasArg().required(false).build();
             Option inputPath = Option.builder().longOpt("input").hasArgs().required().build();
             Option outputPath = Option.builder().longOpt("output").hasArg().required().build();
+            Option exact = Option.builder().longOpt("exact").build();
+            Option index = Option.builder().longOpt("index").hasArg().build();
 
             cliOptions = new Options();
             cliOptions.addOption(sourceLanguage);
@@ -31,12 +33,16 @@ public class DeduplicationMain {
             cliOptions.addOption(lengthThreshold);
             cliOptions.addOption(inputPath);
             cliOptions.addOption(outputPath);
+            cliOptions.addOption(exact);
+            cliOptions.addOption(index);
         }
 
         public final LanguagePair language;
         public final int lengthThreshold;
         public final File[] inputRoots;
         public final File outputRoot;
+        public final boolean exact;
+        public final File index;
 
         public Args(String[] args) throws ParseException {
             CommandLineParser parser = new DefaultParser();
@@ -53,6 +59,8 @@ public class DeduplicationMain {
                 inputRoots[i] = new File(roots[i]);
 
             outputRoot = new File(cli.getOptionValue("output"));
+            index = cli.hasOption("index") ? new File(cli.getOptionValue("index")) : null;
+            exact = cli.hasOption("exact") || index != null;
         }
 
     }
@@ -66,6 +74,6 @@ public class DeduplicationMain {
         if (corpora.isEmpty())
             throw new ParseException("Input path does not contains valid bilingual data");
 
-        ModernMT.training.deduplicate(corpora, args.outputRoot, args.lengthThreshold);
+        ModernMT.training.deduplicate(corpora, args.outputRoot, args.lengthThreshold, args.exact, args.index);
     }
 }
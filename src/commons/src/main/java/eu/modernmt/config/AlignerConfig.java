@@ -5,7 +5,12 @@ package eu.modernmt.config;
  */
 public class AlignerConfig {
 
+    public enum Implementation {
+        AUTO, NATIVE, JAVA
+    }
+
     protected boolean enabled = true;
+    protected Implementation implementation = Implementation.AUTO;
 
     public boolean isEnabled() {
         return enabled;
@@ -15,10 +20,19 @@ public class AlignerConfig {
         this.enabled = enabled;
     }
 
+    public Implementation getImplementation() {
+        return implementation;
+    }
+
+    public void setImplementation(Implementation implementation) {
+        this.implementation = implementation;
+    }
+
     @Override
     public String toString() {
         return "[AlignerConfig]\n" +
-                "  enabled = " + this.enabled;
+                "  enabled = " + this.enabled + "\n" +
+                "  implementation = " + this.implementation;
     }
 
 }
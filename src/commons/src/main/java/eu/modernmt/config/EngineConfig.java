@@ -11,6 +11,7 @@ public class EngineConfig {
     private LanguageIndex languageIndex = null;
     private DecoderConfig decoderConfig = new DecoderConfig();
     private AlignerConfig alignerConfig = new AlignerConfig();
+    private String snapshotPath = null;
 
     public String getName() {
         return name;
@@ -29,6 +30,15 @@ public class EngineConfig {
         this.languageIndex = languageIndex;
     }
 
+    public String getSnapshotPath() {
+        return snapshotPath;
+    }
+
+    public EngineConfig setSnapshotPath(String snapshotPath) {
+        this.snapshotPath = snapshotPath;
+        return this;
+    }
+
     public DecoderConfig getDecoderConfig() {
         return decoderConfig;
     }
@@ -42,6 +52,7 @@ public class EngineConfig {
         return "[Engine]\n" +
                 "  name = " + name + "\n" +
                 "  languages = " + languageIndex + "\n" +
+                "  snapshot = " + snapshotPath + "\n" +
                 "  " + decoderConfig.toString().replace("\n", "\n  ");
     }
 }
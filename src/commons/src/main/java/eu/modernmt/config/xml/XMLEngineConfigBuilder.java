@@ -44,6 +44,9 @@ class XMLEngineConfigBuilder extends XMLAbstractBuilder {
         if (config.getLanguageIndex() == null)
             throw new ConfigException("Missing language specification for <engine> element");
 
+        if (hasAttribute("snapshot"))
+            config.setSnapshotPath(getStringAttribute("snapshot"));
+
         decoderConfigBuilder.build(config.getDecoderConfig());
         alignerConfigBuilder.build(config.getAlignerConfig());
 
@@ -117,6 +120,8 @@ class XMLEngineConfigBuilder extends XMLAbstractBuilder {
         public AlignerConfig build(AlignerConfig config) {
             if (hasAttribute("enabled"))
                 config.setEnabled(getBooleanAttribute("enabled"));
+            if (hasAttribute("implementation"))
+                config.setImplementation(getEnumAttribute("implementation", AlignerConfig.Implementation.class));
 
             return config;
         }
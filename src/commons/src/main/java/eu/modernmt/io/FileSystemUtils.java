@@ -4,6 +4,7 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 
 import java.io.*;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
 
 import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
@@ -39,6 +40,33 @@ public class FileSystemUtils {
         }
     }
 
+    /**
+     * Creates a hard link to source; if the file system does not support hard links, source is copied instead.
+     * Hard links are safe only for files that are never modified in place.
+     */
+    public static void link(File source, File destination) throws IOException {
+        FileUtils.forceMkdir(destination.getParentFile());
+
+        try {
+            Files.createLink(destination.toPath(), source.toPath());
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            FileUtils.copyFile(source, destination, true);
+        }
+    }
+
+    /**
+     * Copies source to destination. If previous is a copy of source made by this method and source has not changed
+     * since then (same length and modification time), previous is hard-linked instead of copying source again.
+     */
+    public static void copyIfChanged(File source, File destination, File previous) throws IOException {
+        if (previous != null && previous.isFile() &&
+                previous.length() == source.length() && previous.lastModified() == source.lastModified()) {
+            link(previous, destination);
+        } else {
+            FileUtils.copyFile(source, destination, true);
+        }
+    }
+
     public static void fsync(FileOutputStream stream) throws IOException {
         stream.flush();
         stream.getFD().sync();
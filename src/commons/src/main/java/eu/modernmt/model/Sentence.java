@@ -3,6 +3,7 @@ package eu.modernmt.model;
 import eu.modernmt.xml.XMLUtils;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
@@ -67,6 +68,10 @@ public class Sentence implements Serializable, Iterable<Token> {
         annotations.add(annotation);
     }
 
+    public Set<String> getAnnotations() {
+        return annotations == null ? Collections.emptySet() : annotations;
+    }
+
     public boolean hasAnnotation(String annotation) {
         return annotations != null && annotations.contains(annotation);
     }
@@ -62,6 +62,10 @@ public class Tag extends Token implements Comparable<Tag> {
         return new Tag(name, text, leftSpace, rightSpace, position, type, dtd);
     }
 
+    public static Tag fromData(String name, String text, boolean leftSpace, String rightSpace, int position, Type type, boolean dtd) {
+        return new Tag(name, text, leftSpace, rightSpace, position, type, dtd);
+    }
+
     public static Tag fromTag(Tag other) {
         return new Tag(other.name, other.text, other.leftSpace, other.rightSpace, other.position, other.type, other.dtd);
     }
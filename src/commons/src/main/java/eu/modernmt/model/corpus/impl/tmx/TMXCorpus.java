@@ -6,6 +6,7 @@ import org.apache.commons.io.FilenameUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * Created by davide on 14/03/16.
@@ -54,6 +55,13 @@ public class TMXCorpus extends BaseMultilingualCorpus {
         return new TMXLineWriter(tmx);
     }
 
+    /**
+     * Writes a TMX document directly to the given stream, which is closed together with the writer
+     */
+    public static MultilingualLineWriter newContentWriter(OutputStream stream) throws IOException {
+        return new TMXLineWriter(stream);
+    }
+
     @Override
     public String toString() {
         return name + ".tmx";
@@ -26,16 +26,22 @@ class TMXLineWriter implements MultilingualCorpus.MultilingualLineWriter {
     private final XMLStreamWriter writer;
 
     public TMXLineWriter(FileProxy tmx) throws IOException {
+        this(tmx.getOutputStream(false), tmx.toString());
+    }
+
+    public TMXLineWriter(OutputStream stream) throws IOException {
+        this(stream, "stream");
+    }
+
+    private TMXLineWriter(OutputStream stream, String name) throws IOException {
         this.dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
 
-        OutputStream stream = null;
         XMLStreamWriter writer = null;
 
         try {
-            stream = tmx.getOutputStream(false);
             writer = XMLUtils.createStreamWriter(stream);
         } catch (XMLStreamException e) {
-            throw new IOException("Error while creating XMLStreamWriter for TMX " + tmx, e);
+            throw new IOException("Error while creating XMLStreamWriter for TMX " + name, e);
         } finally {
             if (writer == null)
                 IOUtils.closeQuietly(stream);
@@ -0,0 +1,187 @@
+package eu.modernmt.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive long keys to primitive int values.
+ * Missing keys are read as 0 unless a different default value is specified.
+ * This class is not thread-safe.
+ */
+public class LongIntHashMap {
+
+    public interface Visitor {
+
+        void visit(long key, int value);
+
+    }
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = .6f;
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int threshold;
+    private int size = 0;
+
+    // Key 0 is used to mark empty slots, so it is stored apart
+    private boolean hasEmptyKey = false;
+    private int emptyKeyValue = 0;
+
+    public LongIntHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long capacity = Math.max(2, (long) Math.ceil(expectedSize / LOAD_FACTOR));
+        capacity = Long.highestOneBit(capacity - 1) << 1;
+
+        if (capacity > (1 << 30))
+            throw new IllegalArgumentException("Map too large: " + expectedSize);
+
+        return (int) capacity;
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        this.threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int hash(long key) {
+        // Murmur3 finalizer
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private int slot(long key) {
+        int i = hash(key) & mask;
+        while (keys[i] != EMPTY && keys[i] != key)
+            i = (i + 1) & mask;
+        return i;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        if (key == EMPTY)
+            return hasEmptyKey;
+        return keys[slot(key)] != EMPTY;
+    }
+
+    public int get(long key) {
+        return get(key, 0);
+    }
+
+    public int get(long key, int defaultValue) {
+        if (key == EMPTY)
+            return hasEmptyKey ? emptyKeyValue : defaultValue;
+
+        int i = slot(key);
+        return keys[i] == EMPTY ? defaultValue : values[i];
+    }
+
+    public void put(long key, int value) {
+        if (key == EMPTY) {
+            if (!hasEmptyKey)
+                size++;
+
+            hasEmptyKey = true;
+            emptyKeyValue = value;
+            return;
+        }
+
+        int i = slot(key);
+
+        if (keys[i] == EMPTY) {
+            keys[i] = key;
+            size++;
+        }
+        values[i] = value;
+
+        if (size > threshold)
+            rehash(keys.length << 1);
+    }
+
+    /**
+     * Adds delta to the value of the given key (missing keys start from 0)
+     *
+     * @return the updated value
+     */
+    public int increment(long key, int delta) {
+        if (key == EMPTY) {
+            if (!hasEmptyKey)
+                size++;
+
+            hasEmptyKey = true;
+            emptyKeyValue += delta;
+            return emptyKeyValue;
+        }
+
+        int i = slot(key);
+
+        if (keys[i] == EMPTY) {
+            keys[i] = key;
+            values[i] = delta;
+            size++;
+
+            if (size > threshold)
+                rehash(keys.length << 1);
+
+            return delta;
+        } else {
+            return values[i] += delta;
+        }
+    }
+
+    public void forEach(Visitor visitor) {
+        if (hasEmptyKey)
+            visitor.visit(EMPTY, emptyKeyValue);
+
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY)
+                visitor.visit(keys[i], values[i]);
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        hasEmptyKey = false;
+        emptyKeyValue = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+
+        allocate(capacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+
+            if (key != EMPTY) {
+                int j = slot(key);
+                keys[j] = key;
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+}
@@ -4,6 +4,7 @@ import eu.modernmt.context.ContextAnalyzer;
 import eu.modernmt.context.ContextAnalyzerException;
 import eu.modernmt.context.lucene.analysis.ContextAnalyzerIndex;
 import eu.modernmt.context.lucene.analysis.DocumentBuilder;
+import eu.modernmt.context.lucene.analysis.TermFrequencies;
 import eu.modernmt.context.lucene.storage.Bucket;
 import eu.modernmt.context.lucene.storage.CorporaStorage;
 import eu.modernmt.data.DataListener;
@@ -14,6 +15,8 @@ import eu.modernmt.model.ContextVector;
 import eu.modernmt.model.corpus.Corpus;
 import eu.modernmt.model.corpus.impl.StringCorpus;
 import eu.modernmt.model.corpus.impl.parallel.FileCorpus;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.document.Document;
@@ -91,6 +94,21 @@ public class LuceneAnalyzer implements ContextAnalyzer, DataListenerProvider {
         logger.info("Memory forced merge completed in " + (elapsed / 1000.) + "s");
     }
 
+    /**
+     * Creates an online copy of the analyzer: the storage is copied before the index,
+     * so that the copied index is never behind the update marks of the copied storage.
+     *
+     * @param previous the same analyzer in the previous backup, or null
+     * @return the channel positions included in the copy
+     */
+    public Map<Short, Long> backup(File destination, File previous) throws IOException {
+        Map<Short, Long> positions = this.storage.backup(new File(destination, "storage"),
+                previous == null ? null : new File(previous, "storage"));
+        this.index.backup(new File(destination, "index"));
+
+        return positions;
+    }
+
     @Override
     public void close() throws IOException {
         try {
@@ -139,12 +157,14 @@ public class LuceneAnalyzer implements ContextAnalyzer, DataListenerProvider {
 
         index.flush();
 
-        for (AnalysisTask task : tasks) {
-            try {
-                storage.markUpdate(task.getBucket(), task.getSize());
-            } catch (IOException e) {
-                logger.error("Failed to mark update for bucket " + task.getBucket());
-            }
+        HashMap<Bucket, Long> marks = new HashMap<>(tasks.size());
+        for (AnalysisTask task : tasks)
+            marks.put(task.getBucket(), task.getSize());
+
+        try {
+            storage.markUpdates(marks);
+        } catch (IOException e) {
+            logger.error("Failed to mark update for " + marks.size() + " buckets", e);
         }
     }
 
@@ -226,15 +246,32 @@ public class LuceneAnalyzer implements ContextAnalyzer, DataListenerProvider {
             try {
                 long start = System.currentTimeMillis();
 
-                this.size = bucket.getSize();
+                Bucket.Position position = bucket.getPosition();
+                this.size = position.size;
 
                 if (this.size == 0) {
                     // Deleted
                     index.delete(bucket.getId());
+                    FileUtils.deleteQuietly(bucket.getAnalysisFile());
                 } else {
-                    Reader reader = new InputStreamReader(bucket.getContentStream(), UTF8Charset.get());
-                    Document document = DocumentBuilder.newInstance(bucket.getOwner(), bucket.getId(), bucket.getLanguage(), reader);
+                    TermFrequencies frequencies = TermFrequencies.load(bucket.getAnalysisFile());
+                    if (frequencies == null || !position.follows(frequencies.getPosition()))
+                        frequencies = new TermFrequencies();
+
+                    Reader reader = new InputStreamReader(
+                            bucket.getContentStream(frequencies.getPosition(), position), UTF8Charset.get());
+
+                    try {
+                        String fieldName = DocumentBuilder.makeContentFieldName(bucket.getLanguage());
+                        frequencies.add(index.getAnalyzer(), fieldName, reader, position);
+                    } finally {
+                        IOUtils.closeQuietly(reader);
+                    }
+
+                    Document document = DocumentBuilder.newInstance(bucket.getOwner(), bucket.getId(), bucket.getLanguage(), frequencies);
                     index.update(document);
+
+                    frequencies.save(bucket.getAnalysisFile());
                 }
 
                 long elapsed = (long) ((System.currentTimeMillis() - start) / 100.);
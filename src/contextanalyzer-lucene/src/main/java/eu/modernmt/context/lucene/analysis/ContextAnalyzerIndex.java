@@ -2,6 +2,7 @@ package eu.modernmt.context.lucene.analysis;
 
 import eu.modernmt.context.lucene.analysis.rescoring.CosineSimilarityRescorer;
 import eu.modernmt.context.lucene.analysis.rescoring.Rescorer;
+import eu.modernmt.io.FileSystemUtils;
 import eu.modernmt.lang.LanguagePair;
 import eu.modernmt.model.ContextVector;
 import eu.modernmt.model.corpus.Corpus;
@@ -15,6 +16,7 @@ import org.apache.lucene.search.*;
 import org.apache.lucene.search.similarities.DefaultSimilarity;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
 import org.apache.lucene.util.Version;
 
 import java.io.Closeable;
@@ -29,10 +31,12 @@ import java.util.UUID;
 public class ContextAnalyzerIndex implements Closeable {
 
     private static final int MIN_RESULT_BATCH = 20;
+    private static final int MIN_QUERY_WORD_LENGTH = 2;
 
     private final Directory indexDirectory;
     private final Analyzer analyzer;
     private final IndexWriter indexWriter;
+    private final SnapshotDeletionPolicy snapshotPolicy;
     private final Rescorer rescorer;
 
     private DirectoryReader _indexReader;
@@ -73,6 +77,9 @@ public class ContextAnalyzerIndex implements Closeable {
 
         });
 
+        this.snapshotPolicy = new SnapshotDeletionPolicy(new KeepOnlyLastCommitDeletionPolicy());
+        indexConfig.setIndexDeletionPolicy(this.snapshotPolicy);
+
         this.indexWriter = new IndexWriter(this.indexDirectory, indexConfig);
 
         // Ensure index exists
@@ -80,6 +87,10 @@ public class ContextAnalyzerIndex implements Closeable {
             this.indexWriter.commit();
     }
 
+    public Analyzer getAnalyzer() {
+        return analyzer;
+    }
+
     public synchronized IndexReader getIndexReader() throws IOException {
         if (this._indexReader == null) {
             this._indexReader = DirectoryReader.open(this.indexDirectory);
@@ -129,6 +140,32 @@ public class ContextAnalyzerIndex implements Closeable {
         this.indexWriter.commit();
     }
 
+    /**
+     * Creates an online copy of the last commit point of the index into the destination folder:
+     * segment files are never modified once written, so they are hard-linked if the file system allows it.
+     */
+    public void backup(File destination) throws IOException {
+        IndexCommit commit = this.snapshotPolicy.snapshot();
+
+        try {
+            FileUtils.forceMkdir(destination);
+
+            if (this.indexDirectory instanceof FSDirectory) {
+                File source = ((FSDirectory) this.indexDirectory).getDirectory();
+                for (String name : commit.getFileNames())
+                    FileSystemUtils.link(new File(source, name), new File(destination, name));
+            } else {
+                try (Directory target = FSDirectory.open(destination)) {
+                    for (String name : commit.getFileNames())
+                        this.indexDirectory.copy(target, name, name, IOContext.DEFAULT);
+                }
+            }
+        } finally {
+            this.snapshotPolicy.release(commit);
+            this.indexWriter.deleteUnusedFiles();
+        }
+    }
+
     public ContextVector getContextVector(UUID user, LanguagePair direction, Corpus queryDocument, int limit) throws IOException {
         return this.getContextVector(user, direction, queryDocument, limit, this.rescorer);
     }
@@ -143,44 +180,38 @@ public class ContextAnalyzerIndex implements Closeable {
 
         int rawLimit = limit < MIN_RESULT_BATCH ? MIN_RESULT_BATCH : limit;
 
-        MoreLikeThis mlt = new MoreLikeThis(reader);
-        mlt.setFieldNames(new String[]{contentFieldName});
-        mlt.setMinDocFreq(0);
-        mlt.setMinTermFreq(1);
-        mlt.setMinWordLen(2);
-        mlt.setBoost(true);
-        mlt.setAnalyzer(analyzer);
-
-        TopScoreDocCollector collector = TopScoreDocCollector.create(rawLimit, true);
-
+        QueryTermVector queryVector;
         Reader queryDocumentReader = queryDocument.getRawContentReader();
 
         try {
-            Query mltQuery = mlt.like(contentFieldName, queryDocumentReader);
-            BooleanQuery ownerQuery = new BooleanQuery();
-
-            if (user == null) {
-                ownerQuery.add(DocumentBuilder.makePublicOwnerMatchingQuery(), BooleanClause.Occur.MUST);
-            } else {
-                ownerQuery.add(DocumentBuilder.makePublicOwnerMatchingQuery(), BooleanClause.Occur.SHOULD);
-                ownerQuery.add(DocumentBuilder.makeOwnerMatchingQuery(user), BooleanClause.Occur.SHOULD);
-                ownerQuery.setMinimumNumberShouldMatch(1);
-            }
-
-            FilteredQuery query = new FilteredQuery(mltQuery, new QueryWrapperFilter(ownerQuery));
-            searcher.search(query, collector);
+            queryVector = QueryTermVector.analyze(analyzer, contentFieldName, queryDocumentReader,
+                    MoreLikeThis.DEFAULT_MAX_NUM_TOKENS_PARSED, MIN_QUERY_WORD_LENGTH);
         } finally {
             IOUtils.closeQuietly(queryDocumentReader);
         }
 
+        Query mltQuery = queryVector.createMoreLikeThisQuery(reader, contentFieldName,
+                MoreLikeThis.DEFAULT_MAX_QUERY_TERMS, new DefaultSimilarity());
+        BooleanQuery ownerQuery = new BooleanQuery();
+
+        if (user == null) {
+            ownerQuery.add(DocumentBuilder.makePublicOwnerMatchingQuery(), BooleanClause.Occur.MUST);
+        } else {
+            ownerQuery.add(DocumentBuilder.makePublicOwnerMatchingQuery(), BooleanClause.Occur.SHOULD);
+            ownerQuery.add(DocumentBuilder.makeOwnerMatchingQuery(user), BooleanClause.Occur.SHOULD);
+            ownerQuery.setMinimumNumberShouldMatch(1);
+        }
+
+        TopScoreDocCollector collector = TopScoreDocCollector.create(rawLimit, true);
+        FilteredQuery query = new FilteredQuery(mltQuery, new QueryWrapperFilter(ownerQuery));
+        searcher.search(query, collector);
+
         ScoreDoc[] topDocs = collector.topDocs().scoreDocs;
 
         // Rescore result
 
-        if (rescorer != null) {
-            Document referenceDocument = DocumentBuilder.newInstance(direction, queryDocument);
-            rescorer.rescore(reader, this.analyzer, topDocs, referenceDocument, contentFieldName);
-        }
+        if (rescorer != null)
+            rescorer.rescore(reader, topDocs, queryVector, contentFieldName);
 
         // Build result
 
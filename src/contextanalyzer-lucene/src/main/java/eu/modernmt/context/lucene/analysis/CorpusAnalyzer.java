@@ -9,7 +9,7 @@ import org.apache.lucene.analysis.standard.StandardAnalyzer;
 
 public class CorpusAnalyzer extends DelegatingAnalyzerWrapper {
 
-    private static final int MAX_INDEXED_WORDS_PER_DOCUMENT = 100000000;
+    static final int MAX_INDEXED_WORDS_PER_DOCUMENT = 100000000;
 
     public CorpusAnalyzer() {
         super(PER_FIELD_REUSE_STRATEGY);
@@ -34,6 +34,18 @@ public class DocumentBuilder {
     }
 
     public static Document newInstance(UUID owner, long memory, LanguagePair direction, Reader contentReader) {
+        Document document = newInstance(owner, memory, direction);
+        document.add(new CorpusContentField(makeContentFieldName(direction), contentReader));
+        return document;
+    }
+
+    public static Document newInstance(UUID owner, long memory, LanguagePair direction, TermFrequencies frequencies) {
+        Document document = newInstance(owner, memory, direction);
+        document.add(new CorpusContentField(makeContentFieldName(direction), frequencies.newTokenStream()));
+        return document;
+    }
+
+    private static Document newInstance(UUID owner, long memory, LanguagePair direction) {
         Document document = new Document();
         document.add(new StringField(DOC_ID_FIELD, makeId(memory, direction), Field.Store.NO));
         document.add(new LongField(MEMORY_FIELD, memory, Field.Store.YES));
@@ -46,8 +58,6 @@ public class DocumentBuilder {
             document.add(new LongField(OWNER_LSB_FIELD, 0L, Field.Store.NO));
         }
 
-        document.add(new CorpusContentField(makeContentFieldName(direction), contentReader));
-
         return document;
     }
 
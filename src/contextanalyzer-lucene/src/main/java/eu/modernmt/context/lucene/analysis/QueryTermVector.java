@@ -0,0 +1,179 @@
+package eu.modernmt.context.lucene.analysis;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.similarities.TFIDFSimilarity;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.PriorityQueue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+
+/**
+ * Term frequencies of a query document, computed with a single pass of the analyzer.
+ * Terms are sorted in index order, so they can be merged with the term vectors of the indexed documents.
+ * <p>
+ * The vector also keeps the candidate terms for a MoreLikeThis query: only the leading tokens of the document
+ * that are long enough, in the same order used by Lucene's MoreLikeThis, so that the query is the same.
+ */
+public class QueryTermVector {
+
+    private final BytesRef[] terms;
+    private final float[] frequencies;
+    private final double l2Norm;
+    private final HashMap<String, int[]> queryTerms;
+
+    private QueryTermVector(BytesRef[] terms, float[] frequencies, HashMap<String, int[]> queryTerms) {
+        this.terms = terms;
+        this.frequencies = frequencies;
+        this.queryTerms = queryTerms;
+
+        double norm = 0;
+        for (float value : frequencies)
+            norm += value * value;
+        this.l2Norm = Math.sqrt(norm);
+    }
+
+    /**
+     * @param maxQueryTokens      number of leading tokens used to select the query terms
+     * @param minQueryWordLength  minimum length of a query term
+     */
+    public static QueryTermVector analyze(Analyzer analyzer, String fieldName, Reader content,
+                                          int maxQueryTokens, int minQueryWordLength) throws IOException {
+        HashMap<String, int[]> counts = new HashMap<>();
+        HashMap<String, int[]> queryTerms = new HashMap<>();
+
+        TokenStream stream = null;
+
+        try {
+            stream = analyzer.tokenStream(fieldName, content);
+            stream.reset();
+
+            CharTermAttribute termAttribute = stream.addAttribute(CharTermAttribute.class);
+
+            int tokenCount = 0;
+            while (stream.incrementToken()) {
+                String term = termAttribute.toString();
+                increment(counts, term);
+
+                tokenCount++;
+                if (tokenCount <= maxQueryTokens && term.length() >= minQueryWordLength)
+                    increment(queryTerms, term);
+            }
+
+            stream.end();
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+
+        BytesRef[] terms = new BytesRef[counts.size()];
+        int i = 0;
+        for (String term : counts.keySet())
+            terms[i++] = new BytesRef(term);
+        Arrays.sort(terms);
+
+        float[] frequencies = new float[terms.length];
+        for (i = 0; i < terms.length; i++)
+            frequencies[i] = counts.get(terms[i].utf8ToString())[0];
+
+        return new QueryTermVector(terms, frequencies, queryTerms);
+    }
+
+    private static void increment(HashMap<String, int[]> counts, String term) {
+        int[] count = counts.get(term);
+        if (count == null)
+            counts.put(term, new int[]{1});
+        else
+            count[0]++;
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    public BytesRef getTerm(int i) {
+        return terms[i];
+    }
+
+    public float getFrequency(int i) {
+        return frequencies[i];
+    }
+
+    public double getL2Norm() {
+        return l2Norm;
+    }
+
+    /**
+     * Creates the same query of MoreLikeThis.like() with the given similarity: the top scoring terms by tf-idf,
+     * every one boosted by its score relative to the lowest one.
+     */
+    public Query createMoreLikeThisQuery(IndexReader reader, String fieldName, int maxQueryTerms, TFIDFSimilarity similarity) throws IOException {
+        int numDocs = reader.numDocs();
+        int limit = Math.min(maxQueryTerms, queryTerms.size());
+
+        PriorityQueue<ScoreTerm> queue = new PriorityQueue<ScoreTerm>(limit) {
+            @Override
+            protected boolean lessThan(ScoreTerm a, ScoreTerm b) {
+                return a.score < b.score;
+            }
+        };
+
+        for (Map.Entry<String, int[]> entry : queryTerms.entrySet()) {
+            String word = entry.getKey();
+            int tf = entry.getValue()[0];
+
+            int docFreq = reader.docFreq(new Term(fieldName, word));
+            if (docFreq == 0)
+                continue;
+
+            float score = tf * similarity.idf(docFreq, numDocs);
+
+            if (queue.size() < limit) {
+                queue.add(new ScoreTerm(word, score));
+            } else {
+                ScoreTerm top = queue.top();
+                if (top.score < score) {
+                    top.word = word;
+                    top.score = score;
+                    queue.updateTop();
+                }
+            }
+        }
+
+        BooleanQuery query = new BooleanQuery();
+        float bestScore = -1;
+
+        ScoreTerm scoreTerm;
+        while ((scoreTerm = queue.pop()) != null) {
+            if (bestScore == -1)
+                bestScore = scoreTerm.score;
+
+            TermQuery termQuery = new TermQuery(new Term(fieldName, scoreTerm.word));
+            termQuery.setBoost(scoreTerm.score / bestScore);
+            query.add(termQuery, BooleanClause.Occur.SHOULD);
+        }
+
+        return query;
+    }
+
+    private static final class ScoreTerm {
+
+        private String word;
+        private float score;
+
+        ScoreTerm(String word, float score) {
+            this.word = word;
+            this.score = score;
+        }
+    }
+
+}
@@ -0,0 +1,187 @@
+package eu.modernmt.context.lucene.analysis;
+
+import eu.modernmt.context.lucene.storage.Bucket;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Term frequencies of the content of a bucket up to a given position: new content is analyzed
+ * and added to the existing counts, so the cost of an update is proportional to the appended text only.
+ */
+public class TermFrequencies {
+
+    private static final int MAGIC = 0x4d4d5432; // "MMT2"
+
+    private final HashMap<String, int[]> frequencies;
+    private Bucket.Position position;
+    private long tokens;
+
+    public TermFrequencies() {
+        this(new Bucket.Position(0), 0L, new HashMap<>());
+    }
+
+    private TermFrequencies(Bucket.Position position, long tokens, HashMap<String, int[]> frequencies) {
+        this.position = position;
+        this.tokens = tokens;
+        this.frequencies = frequencies;
+    }
+
+    /**
+     * @return the term frequencies stored in file, or null if the file does not exist or it is not valid
+     */
+    public static TermFrequencies load(File file) {
+        if (!file.isFile())
+            return null;
+
+        DataInputStream input = null;
+
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+
+            if (input.readInt() != MAGIC)
+                return null;
+
+            Bucket.Position position = new Bucket.Position(input.readLong());
+            long tokens = input.readLong();
+            int size = input.readInt();
+
+            HashMap<String, int[]> frequencies = new HashMap<>(size * 4 / 3 + 1);
+            for (int i = 0; i < size; i++) {
+                String term = input.readUTF();
+                frequencies.put(term, new int[]{input.readInt()});
+            }
+
+            return new TermFrequencies(position, tokens, frequencies);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    public void save(File file) throws IOException {
+        FileUtils.forceMkdir(file.getParentFile());
+        File temp = new File(file.getParentFile(), "~" + file.getName());
+
+        try {
+            DataOutputStream output = null;
+
+            try {
+                output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 64 * 1024));
+                output.writeInt(MAGIC);
+                output.writeLong(position.size);
+                output.writeLong(tokens);
+                output.writeInt(frequencies.size());
+
+                for (Map.Entry<String, int[]> entry : frequencies.entrySet()) {
+                    output.writeUTF(entry.getKey());
+                    output.writeInt(entry.getValue()[0]);
+                }
+            } finally {
+                IOUtils.closeQuietly(output);
+            }
+
+            Files.move(temp.toPath(), file.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+        } finally {
+            FileUtils.deleteQuietly(temp);
+        }
+    }
+
+    public Bucket.Position getPosition() {
+        return position;
+    }
+
+    public int size() {
+        return frequencies.size();
+    }
+
+    public int get(String term) {
+        int[] count = frequencies.get(term);
+        return count == null ? 0 : count[0];
+    }
+
+    /**
+     * Analyzes the content and adds its terms to the frequencies; content must be the text
+     * appended to the bucket from the current position up to the given one.
+     */
+    public void add(Analyzer analyzer, String fieldName, Reader content, Bucket.Position position) throws IOException {
+        TokenStream stream = null;
+
+        try {
+            stream = analyzer.tokenStream(fieldName, content);
+            stream.reset();
+
+            CharTermAttribute termAttribute = stream.getAttribute(CharTermAttribute.class);
+
+            while (tokens < CorpusAnalyzer.MAX_INDEXED_WORDS_PER_DOCUMENT && stream.incrementToken()) {
+                String term = termAttribute.toString();
+
+                int[] count = frequencies.get(term);
+                if (count == null)
+                    frequencies.put(term, new int[]{1});
+                else
+                    count[0]++;
+
+                tokens++;
+            }
+
+            stream.end();
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+
+        this.position = position;
+    }
+
+    /**
+     * @return a stream that repeats every term as many times as its frequency, without any further analysis
+     */
+    public TokenStream newTokenStream() {
+        return new TokenStream() {
+
+            private final CharTermAttribute termAttribute = addAttribute(CharTermAttribute.class);
+            private Iterator<Map.Entry<String, int[]>> iterator;
+            private String term;
+            private int remaining;
+
+            @Override
+            public void reset() throws IOException {
+                super.reset();
+                iterator = frequencies.entrySet().iterator();
+                remaining = 0;
+            }
+
+            @Override
+            public boolean incrementToken() {
+                clearAttributes();
+
+                if (remaining == 0) {
+                    if (!iterator.hasNext())
+                        return false;
+
+                    Map.Entry<String, int[]> entry = iterator.next();
+                    term = entry.getKey();
+                    remaining = entry.getValue()[0];
+                }
+
+                termAttribute.setEmpty().append(term);
+                remaining--;
+
+                return true;
+            }
+        };
+    }
+
+}
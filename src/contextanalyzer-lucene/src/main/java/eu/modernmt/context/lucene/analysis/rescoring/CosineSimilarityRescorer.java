@@ -1,10 +1,13 @@
 package eu.modernmt.context.lucene.analysis.rescoring;
 
-import eu.modernmt.context.lucene.analysis.LuceneUtils;
-import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.document.Document;
+import eu.modernmt.context.lucene.analysis.QueryTermVector;
+import org.apache.lucene.index.DocsEnum;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.util.BytesRef;
 
 import java.io.IOException;
 import java.util.Map;
@@ -16,17 +19,13 @@ import java.util.concurrent.*;
 public class CosineSimilarityRescorer implements Rescorer {
 
     @Override
-    public void rescore(IndexReader reader, Analyzer analyzer, ScoreDoc[] topDocs, Document reference, String fieldName) throws IOException {
-        // Compute reference document stats
-        Map<String, Float> referenceTerms = LuceneUtils.getTermFrequencies(analyzer, reference, fieldName);
-        double referenceL2Norm = getL2Norm(referenceTerms);
-
+    public void rescore(IndexReader reader, ScoreDoc[] topDocs, QueryTermVector reference, String fieldName) throws IOException {
         // Calculate similarity with reference
         ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
         try {
             Future<?>[] tasks = new Future<?>[topDocs.length];
             for (int i = 0; i < tasks.length; i++)
-                tasks[i] = executor.submit(new RescoringTask(reader, fieldName, topDocs[i], referenceTerms, referenceL2Norm));
+                tasks[i] = executor.submit(new RescoringTask(reader, fieldName, topDocs[i], reference));
 
             for (Future<?> task : tasks) {
                 try {
@@ -63,36 +62,53 @@ public class CosineSimilarityRescorer implements Rescorer {
         private final IndexReader reader;
         private final String fieldName;
         private final ScoreDoc target;
-        private final Map<String, Float> referenceTerms;
-        private final double referenceL2Norm;
+        private final QueryTermVector reference;
 
-        public RescoringTask(IndexReader reader, String fieldName,
-                             ScoreDoc target, Map<String, Float> referenceTerms, double referenceL2Norm) {
+        public RescoringTask(IndexReader reader, String fieldName, ScoreDoc target, QueryTermVector reference) {
             this.reader = reader;
             this.fieldName = fieldName;
             this.target = target;
-            this.referenceTerms = referenceTerms;
-            this.referenceL2Norm = referenceL2Norm;
+            this.reference = reference;
         }
 
         @Override
         public Void call() throws IOException {
-            Map<String, Float> terms = LuceneUtils.getTermFrequencies(this.reader, this.target.doc, this.fieldName);
-
             double dotProduct = 0;
             double l2Norm = 0;
 
-            for (Float value : terms.values())
-                l2Norm += value * value;
-            l2Norm = Math.sqrt(l2Norm);
+            Terms vector = this.reader.getTermVector(this.target.doc, this.fieldName);
+
+            if (vector != null) {
+                // Both term vector and reference are sorted by term: merge them in a single scan
+                TermsEnum termsEnum = vector.iterator(null);
+                DocsEnum docsEnum = null;
+
+                int referenceSize = reference.size();
+                int i = 0;
+
+                BytesRef text;
+                while ((text = termsEnum.next()) != null) {
+                    float f = 0;
+                    docsEnum = termsEnum.docs(null, docsEnum);
+                    if (docsEnum.nextDoc() != DocIdSetIterator.NO_MORE_DOCS)
+                        f = docsEnum.freq();
 
-            for (Map.Entry<String, Float> entry : referenceTerms.entrySet()) {
-                Float otherFreq = terms.get(entry.getKey());
-                if (otherFreq != null)
-                    dotProduct += entry.getValue() * otherFreq;
+                    if (f <= 0)
+                        continue;
+
+                    l2Norm += f * f;
+
+                    while (i < referenceSize && reference.getTerm(i).compareTo(text) < 0)
+                        i++;
+
+                    if (i < referenceSize && reference.getTerm(i).bytesEquals(text))
+                        dotProduct += reference.getFrequency(i) * f;
+                }
             }
 
-            float similarity = (float) (dotProduct / (referenceL2Norm * l2Norm));
+            l2Norm = Math.sqrt(l2Norm);
+
+            float similarity = (float) (dotProduct / (reference.getL2Norm() * l2Norm));
 
             if (Float.isInfinite(similarity) || Float.isNaN(similarity))
                 this.target.score = 0.f;
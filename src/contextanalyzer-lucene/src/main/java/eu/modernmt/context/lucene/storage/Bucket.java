@@ -1,53 +1,83 @@
 package eu.modernmt.context.lucene.storage;
 
 import eu.modernmt.lang.LanguagePair;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.input.BoundedInputStream;
 
-import java.io.*;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.UUID;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.zip.GZIPInputStream;
 
 public class Bucket {
 
+    /**
+     * Position of the end of the bucket content: buckets are append-only, so the content up to a position
+     * never changes until the bucket is deleted.
+     */
+    public static final class Position {
+
+        public final long size;
+
+        public Position(long size) {
+            this.size = size;
+        }
+
+        /**
+         * @return true if this position could have been reached by appending content to the bucket at "previous"
+         */
+        public boolean follows(Position previous) {
+            return size >= previous.size;
+        }
+    }
+
+    private final BucketRegistry registry;
+    private final SegmentLog log;
+
+    private final long serial;
     private final long id;
     private final LanguagePair language;
     private final UUID owner;
 
-    private final Lock fileLock;
-    final File path;
-    final File gzPath;
+    private final Lock lock;
+    final File analysisPath;
 
-    long plainTextFileSize;
-    long compressedFileSize;
-    long virtualSize; // size of file including uncompressed bytes size of compressed content
+    long size;
+    long head;
+
+    // State of the bucket in the registry, accessed only by the registry
+    boolean persisted;
+    long committedSize;
 
     private BucketWriter writer = null;
 
-    Bucket(File folder, long id, LanguagePair language, UUID owner) {
+    Bucket(BucketRegistry registry, SegmentLog log, File folder, long serial, long id, LanguagePair language, UUID owner) {
+        this(registry, log, folder, serial, id, language, owner, 0L, SegmentLog.NONE);
+        this.persisted = false;
+    }
+
+    Bucket(BucketRegistry registry, SegmentLog log, File folder, long serial, long id, LanguagePair language, UUID owner, long size, long head) {
+        this.registry = registry;
+        this.log = log;
+        this.serial = serial;
         this.id = id;
         this.language = language;
         this.owner = owner;
 
         String key = Long.toString(id) + '_' + language.source.getLanguage() + '_' + language.target.getLanguage();
 
-        this.fileLock = new ReentrantLock();
-        this.path = new File(folder, key + ".txt");
-        this.gzPath = new File(folder, key + ".gz");
+        this.lock = new ReentrantLock();
+        this.analysisPath = new File(folder, key + ".tf");
 
-        this.plainTextFileSize = 0;
-        this.compressedFileSize = 0;
-        this.virtualSize = 0;
+        this.size = size;
+        this.head = head;
+        this.persisted = true;
+        this.committedSize = size;
     }
 
-    Bucket(File folder, long id, LanguagePair language, UUID owner, long plainTextFileSize, long compressedFileSize, long virtualSize) {
-        this(folder, id, language, owner);
-
-        this.plainTextFileSize = plainTextFileSize;
-        this.compressedFileSize = compressedFileSize;
-        this.virtualSize = virtualSize;
+    long getSerial() {
+        return serial;
     }
 
     public long getId() {
@@ -63,22 +93,39 @@ public class Bucket {
     }
 
     public long getSize() {
-        return virtualSize;
+        return size;
     }
 
-    void lockFiles() {
-        this.fileLock.lock();
+    /**
+     * @return the file where analysis state of this bucket can be stored, it is deleted together with the bucket
+     */
+    public File getAnalysisFile() {
+        return analysisPath;
     }
 
-    void unlockFiles() {
-        this.fileLock.unlock();
+    public Position getPosition() {
+        this.lock();
+
+        try {
+            return new Position(size);
+        } finally {
+            this.unlock();
+        }
+    }
+
+    void lock() {
+        this.lock.lock();
+    }
+
+    void unlock() {
+        this.lock.unlock();
     }
 
     BucketWriter getWriter() {
         if (writer == null) {
             synchronized (this) {
                 if (writer == null)
-                    writer = new BucketWriter(this);
+                    writer = new BucketWriter(this, log);
             }
         }
 
@@ -86,43 +133,30 @@ public class Bucket {
     }
 
     public InputStream getContentStream() throws IOException {
-        boolean success = false;
-
-        InputStream gzStream = null;
-        InputStream stream = null;
-
-        try {
-            this.lockFiles();
-
-            try {
-                if (gzPath.exists() && compressedFileSize > 0)
-                    gzStream = new GZIPInputStream(new BoundedInputStream(new FileInputStream(gzPath), compressedFileSize));
-
-                if (path.exists() && plainTextFileSize > 0)
-                    stream = new BoundedInputStream(new FileInputStream(path), plainTextFileSize);
-            } finally {
-                this.unlockFiles();
-            }
+        return getContentStream(new Position(0), getPosition());
+    }
 
-            success = true;
-
-            if (gzStream != null && stream != null)
-                return new SequenceInputStream(gzStream, stream);
-            else if (gzStream != null)
-                return gzStream;
-            else if (stream != null)
-                return stream;
-            else
-                return new InputStream() {
-                    @Override
-                    public int read() {
-                        return -1;
-                    }
-                };
-        } finally {
-            if (!success)
-                IOUtils.closeQuietly(gzStream);
-        }
+    /**
+     * Returns the content appended to the bucket between the two positions: only the blocks
+     * that contain the requested content are decompressed.
+     *
+     * @param from a previous position of the bucket; "to" must follow it
+     * @param to   the current position of the bucket
+     */
+    public InputStream getContentStream(Position from, Position to) throws IOException {
+        if (!to.follows(from))
+            throw new IllegalArgumentException("Position " + to.size + " does not follow " + from.size);
+
+        if (to.size == from.size)
+            return new ByteArrayInputStream(new byte[0]);
+
+        // Blocks can be relocated by compaction: the chain is always read from the latest committed head
+        return log.newInputStream(() -> {
+            long[] state = registry.getCommittedState(serial);
+            if (state == null || state[0] < to.size)
+                throw new IOException("Bucket " + this + " has been deleted");
+            return state[1];
+        }, from.size, to.size);
     }
 
     @Override
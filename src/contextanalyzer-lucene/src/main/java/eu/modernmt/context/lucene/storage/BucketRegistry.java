@@ -1,28 +1,44 @@
 package eu.modernmt.context.lucene.storage;
 
-import eu.modernmt.io.RuntimeIOException;
 import eu.modernmt.lang.Language;
 import eu.modernmt.lang.LanguagePair;
+import org.apache.commons.io.FileUtils;
 
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.sql.*;
 import java.util.*;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Registry of the buckets, stored in a SQLite database. The connection is guarded by its own lock,
+ * held only while executing statements: buckets are cached in a concurrent map and the buckets
+ * waiting for analysis are tracked by an in-memory index, so readers never wait for a batch to be written.
+ */
 public class BucketRegistry implements Closeable {
 
-    private static File getBucketFolder(File path, long id) {
+    static File getLegacyBucketFolder(File path, long id) {
         File parent = new File(path, Long.toString(id % 10000L));
         return new File(parent, Long.toString(id));
     }
 
+    private static File getAnalysisFolder(File path, long id) {
+        return new File(new File(path, "analysis"), Long.toString(id % 10000L));
+    }
+
     private final File root;
     private final boolean maskLanguageRegion;
     private final Connection connection;
-    private final HashMap<CacheKey, Bucket> cache = new HashMap<>();
+    private final ReentrantLock connectionLock = new ReentrantLock();
+    private final SegmentLog log;
+    private final ConcurrentHashMap<CacheKey, Bucket> cache = new ConcurrentHashMap<>();
+    private final MisalignmentIndex misalignments = new MisalignmentIndex();
+    private final AtomicLong nextSerial;
 
-    public BucketRegistry(File root, boolean maskLanguageRegion) throws IOException {
+    public BucketRegistry(File root, boolean maskLanguageRegion, long maxSegmentSize) throws IOException {
         this.root = root;
         this.maskLanguageRegion = maskLanguageRegion;
 
@@ -31,7 +47,13 @@ public class BucketRegistry implements Closeable {
             Class.forName("org.sqlite.JDBC");
             this.connection = DriverManager.getConnection("jdbc:sqlite:" + index.getAbsolutePath());
 
+            renameLegacyTable(connection);
             createDatabaseIfNotExists(connection);
+
+            this.nextSerial = new AtomicLong(selectLong(connection, "SELECT MAX(serial) FROM buckets") + 1);
+            this.log = new SegmentLog(new File(root, "segments"), maxSegmentSize, getSegments(connection));
+
+            loadMisalignments(connection, misalignments);
         } catch (SQLException e) {
             throw new IOException(e);
         } catch (ClassNotFoundException e) {
@@ -39,15 +61,49 @@ public class BucketRegistry implements Closeable {
         }
     }
 
+    SegmentLog getLog() {
+        return log;
+    }
+
+    /**
+     * Writes a consistent copy of the registry database into the given folder
+     */
+    public void backup(File destination) throws IOException {
+        FileUtils.forceMkdir(destination);
+        File index = new File(destination, "index");
+
+        Statement statement = null;
+        connectionLock.lock();
+
+        try {
+            statement = connection.createStatement();
+            statement.executeUpdate("backup to \"" + index.getAbsolutePath() + "\"");
+        } catch (SQLException e) {
+            throw new IOException(e);
+        } finally {
+            close(statement);
+            connectionLock.unlock();
+        }
+    }
+
     private static void createDatabaseIfNotExists(Connection connection) throws SQLException {
         Statement statement = connection.createStatement();
 
         try {
             String sql = "CREATE TABLE IF NOT EXISTS buckets (" +
-                    "id INTEGER, source TEXT, target TEXT, " +
+                    "serial INTEGER PRIMARY KEY, id INTEGER, source TEXT, target TEXT, " +
                     "owner_lsb INTEGER, owner_msb INTEGER, " +
-                    "size INTEGER, plain_size INTEGER, gz_size INTEGER, mark INTEGER DEFAULT 0, " +
-                    "PRIMARY KEY (id, source, target))";
+                    "size INTEGER, head INTEGER, mark INTEGER DEFAULT 0, " +
+                    "UNIQUE (id, source, target))";
+            statement.executeUpdate(sql);
+        } finally {
+            statement.close();
+        }
+
+        statement = connection.createStatement();
+
+        try {
+            String sql = "CREATE TABLE IF NOT EXISTS segments (id INTEGER PRIMARY KEY, size INTEGER, live INTEGER)";
             statement.executeUpdate(sql);
         } finally {
             statement.close();
@@ -63,9 +119,91 @@ public class BucketRegistry implements Closeable {
         }
     }
 
-    public synchronized int count() throws IOException {
+    /**
+     * Buckets of the previous storage format (plain text and gzip files) are moved to the "legacy_buckets"
+     * table, so that their content can be migrated to the segments log.
+     */
+    private static void renameLegacyTable(Connection connection) throws SQLException {
+        boolean legacy = false;
+
+        Statement statement = connection.createStatement();
+        ResultSet result = null;
+
+        try {
+            result = statement.executeQuery("PRAGMA table_info(buckets)");
+            while (result.next()) {
+                if ("gz_size".equals(result.getString("name")))
+                    legacy = true;
+            }
+        } finally {
+            if (result != null)
+                result.close();
+            statement.close();
+        }
+
+        if (legacy) {
+            statement = connection.createStatement();
+
+            try {
+                statement.executeUpdate("ALTER TABLE buckets RENAME TO legacy_buckets");
+            } finally {
+                statement.close();
+            }
+        }
+    }
+
+    private static long selectLong(Connection connection, String sql) throws SQLException {
+        Statement statement = connection.createStatement();
+        ResultSet result = null;
+
+        try {
+            result = statement.executeQuery(sql);
+            return result.next() ? result.getLong(1) : 0L;
+        } finally {
+            if (result != null)
+                result.close();
+            statement.close();
+        }
+    }
+
+    private static void loadMisalignments(Connection connection, MisalignmentIndex index) throws SQLException {
+        Statement statement = connection.createStatement();
+        ResultSet result = null;
+
+        try {
+            result = statement.executeQuery("SELECT serial, size, mark FROM buckets WHERE mark <> size");
+            while (result.next())
+                index.put(result.getLong(1), result.getLong(2), result.getLong(3));
+        } finally {
+            if (result != null)
+                result.close();
+            statement.close();
+        }
+    }
+
+    private static Map<Integer, long[]> getSegments(Connection connection) throws SQLException {
+        HashMap<Integer, long[]> segments = new HashMap<>();
+
+        Statement statement = connection.createStatement();
+        ResultSet result = null;
+
+        try {
+            result = statement.executeQuery("SELECT id, size, live FROM segments");
+            while (result.next())
+                segments.put(result.getInt(1), new long[]{result.getLong(2), result.getLong(3)});
+        } finally {
+            if (result != null)
+                result.close();
+            statement.close();
+        }
+
+        return segments;
+    }
+
+    public int count() throws IOException {
         Statement statement = null;
         ResultSet result = null;
+        connectionLock.lock();
 
         try {
             statement = connection.createStatement();
@@ -77,32 +215,32 @@ public class BucketRegistry implements Closeable {
         } finally {
             close(result);
             close(statement);
+            connectionLock.unlock();
         }
     }
 
-    public synchronized Bucket get(long id, LanguagePair language, UUID owner) throws IOException {
+    public Bucket get(long id, LanguagePair language, UUID owner) throws IOException {
         CacheKey key = new CacheKey(id, language, this.maskLanguageRegion);
 
-        try {
-            return cache.computeIfAbsent(key, arg -> {
-                try {
-                    Bucket bucket = retrieve(arg.id, arg.language);
-                    return bucket == null ? new Bucket(getBucketFolder(this.root, id), arg.id, arg.language, owner) : bucket;
-                } catch (IOException e) {
-                    throw new RuntimeIOException(e);
-                }
-            });
-        } catch (RuntimeIOException e) {
-            throw e.getCause();
-        }
+        Bucket bucket = cache.get(key);
+        if (bucket != null)
+            return bucket;
+
+        bucket = retrieve(key.id, key.language);
+        if (bucket == null)
+            bucket = new Bucket(this, log, getAnalysisFolder(root, key.id), nextSerial.getAndIncrement(), key.id, key.language, owner);
+
+        Bucket existent = cache.putIfAbsent(key, bucket);
+        return existent == null ? bucket : existent;
     }
 
-    private synchronized Bucket retrieve(long id, LanguagePair language) throws IOException {
+    private Bucket retrieve(long id, LanguagePair language) throws IOException {
         PreparedStatement statement = null;
         ResultSet result = null;
+        connectionLock.lock();
 
         try {
-            statement = connection.prepareStatement("SELECT owner_lsb, owner_msb, size, plain_size, gz_size " +
+            statement = connection.prepareStatement("SELECT serial, owner_lsb, owner_msb, size, head " +
                     "FROM buckets WHERE id = ? AND source = ? AND target = ?");
             statement.setLong(1, id);
             statement.setString(2, language.source.toString());
@@ -111,12 +249,12 @@ public class BucketRegistry implements Closeable {
             result = statement.executeQuery();
 
             if (result.next()) {
-                UUID owner = getUUID(result, 1, 2);
-                long size = result.getLong(3);
-                long plainSize = result.getLong(4);
-                long gzSize = result.getLong(5);
+                long serial = result.getLong(1);
+                UUID owner = getUUID(result, 2, 3);
+                long size = result.getLong(4);
+                long head = result.getLong(5);
 
-                return new Bucket(getBucketFolder(this.root, id), id, language, owner, plainSize, gzSize, size);
+                return new Bucket(this, log, getAnalysisFolder(root, id), serial, id, language, owner, size, head);
             } else {
                 return null;
             }
@@ -125,108 +263,165 @@ public class BucketRegistry implements Closeable {
         } finally {
             close(result);
             close(statement);
+            connectionLock.unlock();
         }
     }
 
-    public synchronized Set<Bucket> getAll(long id) throws IOException {
-        Set<Bucket> set = new HashSet<>();
+    private List<Bucket> retrieve(String condition) throws IOException {
+        ArrayList<Bucket> buckets = new ArrayList<>();
 
         Statement statement = null;
         ResultSet result = null;
+        connectionLock.lock();
 
         try {
             statement = connection.createStatement();
-            result = statement.executeQuery("SELECT source, target, owner_lsb, owner_msb, size, plain_size, gz_size FROM buckets WHERE id = " + id);
+            result = statement.executeQuery("SELECT serial, id, source, target, owner_lsb, owner_msb, size, head " +
+                    "FROM buckets WHERE " + condition);
 
             while (result.next()) {
-                final Language source = Language.fromString(result.getString(1));
-                final Language target = Language.fromString(result.getString(2));
-                final UUID owner = getUUID(result, 3, 4);
-                final long size = result.getLong(5);
-                final long plainSize = result.getLong(6);
-                final long gzSize = result.getLong(7);
-
-                CacheKey key = new CacheKey(id, new LanguagePair(source, target), this.maskLanguageRegion);
-                Bucket bucket = cache.computeIfAbsent(key,
-                        arg -> new Bucket(getBucketFolder(root, arg.id), arg.id, arg.language, owner, plainSize, gzSize, size));
-
-                set.add(bucket);
+                long serial = result.getLong(1);
+                long id = result.getLong(2);
+                Language source = Language.fromString(result.getString(3));
+                Language target = Language.fromString(result.getString(4));
+                UUID owner = getUUID(result, 5, 6);
+                long size = result.getLong(7);
+                long head = result.getLong(8);
+
+                buckets.add(new Bucket(this, log, getAnalysisFolder(root, id), serial, id,
+                        new LanguagePair(source, target), owner, size, head));
             }
 
-            return set;
+            return buckets;
         } catch (SQLException e) {
             throw new IOException(e);
         } finally {
             close(result);
             close(statement);
+            connectionLock.unlock();
+        }
+    }
+
+    private Bucket cached(Bucket bucket) {
+        CacheKey key = new CacheKey(bucket.getId(), bucket.getLanguage(), this.maskLanguageRegion);
+        Bucket existent = cache.putIfAbsent(key, bucket);
+        return existent == null ? bucket : existent;
+    }
+
+    public Set<Bucket> getAll(long id) throws IOException {
+        Set<Bucket> set = new HashSet<>();
+        for (Bucket bucket : retrieve("id = " + id))
+            set.add(cached(bucket));
+
+        return set;
+    }
+
+    /**
+     * Returns the buckets that need to be analyzed: the deleted ones and the ones that grew by at least
+     * minMisalignment bytes since their last mark, the most misaligned first. The returned buckets are
+     * a snapshot of the last update and they are not used for writing.
+     */
+    public Set<Bucket> getUpdated(long minMisalignment, int limit) throws IOException {
+        List<Long> serials = misalignments.getUpdated(minMisalignment, limit);
+        if (serials.isEmpty())
+            return new HashSet<>();
+
+        StringBuilder condition = new StringBuilder("serial IN (");
+        for (int i = 0; i < serials.size(); i++) {
+            if (i > 0)
+                condition.append(',');
+            condition.append(serials.get(i));
         }
+        condition.append(')');
+
+        return new HashSet<>(retrieve(condition.toString()));
     }
 
-    public synchronized Set<Bucket> getUpdated(long minMisalignment, int limit) throws IOException {
-        HashSet<Bucket> set = new HashSet<>();
+    /**
+     * @return the bucket with the given serial, or null if it does not exist
+     */
+    public Bucket getBySerial(long serial) throws IOException {
+        List<Bucket> buckets = retrieve("serial = " + serial);
+        return buckets.isEmpty() ? null : cached(buckets.get(0));
+    }
 
+    /**
+     * @return the size and the head of the bucket as stored in the last update, or null if it does not exist
+     */
+    long[] getCommittedState(long serial) throws IOException {
         Statement statement = null;
         ResultSet result = null;
+        connectionLock.lock();
 
         try {
             statement = connection.createStatement();
-            result = statement.executeQuery(
-                    "SELECT id, source, target, owner_lsb, owner_msb, size, plain_size, gz_size " +
-                            "FROM buckets " +
-                            "WHERE mark > size OR (size - mark) >= " + minMisalignment + " " +
-                            "ORDER BY ABS(mark - size) DESC " +
-                            "LIMIT " + limit);
-
-            while (result.next()) {
-                long id = result.getLong(1);
-                final Language source = Language.fromString(result.getString(2));
-                final Language target = Language.fromString(result.getString(3));
-                final UUID owner = getUUID(result, 4, 5);
-                final long size = result.getLong(6);
-                final long plainSize = result.getLong(7);
-                final long gzSize = result.getLong(8);
-
-                CacheKey key = new CacheKey(id, new LanguagePair(source, target), this.maskLanguageRegion);
-                Bucket bucket = cache.computeIfAbsent(key,
-                        arg -> new Bucket(getBucketFolder(root, arg.id), arg.id, arg.language, owner, plainSize, gzSize, size));
-
-                set.add(bucket);
-            }
+            result = statement.executeQuery("SELECT size, head FROM buckets WHERE serial = " + serial);
 
-            return set;
+            return result.next() ? new long[]{result.getLong(1), result.getLong(2)} : null;
         } catch (SQLException e) {
             throw new IOException(e);
-        } catch (RuntimeIOException e) {
-            throw e.getCause();
         } finally {
             close(result);
             close(statement);
+            connectionLock.unlock();
         }
     }
 
-    public synchronized void mark(Bucket bucket, long mark) throws IOException {
+    public void mark(Bucket bucket, long mark) throws IOException {
+        mark(Collections.singletonMap(bucket, mark));
+    }
+
+    /**
+     * Stores the analyzed size of all the given buckets with a single transaction
+     */
+    public void mark(Map<Bucket, Long> marks) throws IOException {
+        if (marks.isEmpty())
+            return;
+
+        boolean success = false;
         PreparedStatement statement = null;
+        connectionLock.lock();
 
         try {
-            statement = connection.prepareStatement("UPDATE buckets SET mark = ? WHERE id = ? AND source = ? AND target = ?");
-            statement.setLong(1, mark);
-            statement.setLong(2, bucket.getId());
-            statement.setString(3, bucket.getLanguage().source.toString());
-            statement.setString(4, bucket.getLanguage().target.toString());
+            connection.setAutoCommit(false);
+
+            statement = connection.prepareStatement("UPDATE buckets SET mark = ? WHERE serial = ?");
+
+            for (Map.Entry<Bucket, Long> entry : marks.entrySet()) {
+                statement.setLong(1, entry.getValue());
+                statement.setLong(2, entry.getKey().getSerial());
+                statement.addBatch();
+            }
+
+            statement.executeBatch();
+            connection.commit();
+            success = true;
+
+            for (Map.Entry<Bucket, Long> entry : marks.entrySet()) {
+                long serial = entry.getKey().getSerial();
+                long mark = entry.getValue();
 
-            statement.executeUpdate();
+                if (!misalignments.setMark(serial, mark)) {
+                    long[] state = getCommittedState(serial);
+                    if (state != null)
+                        misalignments.put(serial, state[0], mark);
+                }
+            }
         } catch (SQLException e) {
             throw new IOException(e);
         } finally {
+            finalizeTransaction(connection, success);
             close(statement);
+            connectionLock.unlock();
         }
     }
 
-    public synchronized Map<Short, Long> getChannels() throws IOException {
+    public Map<Short, Long> getChannels() throws IOException {
         HashMap<Short, Long> map = new HashMap<>();
 
         Statement statement = null;
         ResultSet result = null;
+        connectionLock.lock();
 
         try {
             statement = connection.createStatement();
@@ -245,56 +440,86 @@ public class BucketRegistry implements Closeable {
         } finally {
             close(result);
             close(statement);
+            connectionLock.unlock();
         }
     }
 
-    public synchronized void update(Map<Short, Long> channels, Set<Bucket> buckets) throws IOException {
+    /**
+     * Stores channels, buckets and segments state with a single transaction
+     */
+    public void update(Map<Short, Long> channels, Set<Bucket> buckets) throws IOException {
         boolean success = false;
 
         PreparedStatement channelStatement = null;
         PreparedStatement iBucketStatement = null;
         PreparedStatement uBucketStatement = null;
+        PreparedStatement segmentStatement = null;
+        Statement deleteStatement = null;
+
+        // Segments state is stored together with the buckets heads that reference it
+        Map<Integer, long[]> segments = log.getState();
+
+        connectionLock.lock();
 
         try {
             connection.setAutoCommit(false);
 
             channelStatement = connection.prepareStatement("INSERT OR REPLACE INTO channels(id, position) VALUES (?, ?)");
-            iBucketStatement = connection.prepareStatement("INSERT INTO buckets(id, source, target, owner_lsb, owner_msb, size, plain_size, gz_size) VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
-            uBucketStatement = connection.prepareStatement("UPDATE buckets SET size = ?, plain_size = ?, gz_size = ? WHERE id = ? AND source = ? AND target = ?");
+            iBucketStatement = connection.prepareStatement("INSERT INTO buckets(serial, id, source, target, owner_lsb, owner_msb, size, head) VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+            uBucketStatement = connection.prepareStatement("UPDATE buckets SET size = ?, head = ? WHERE serial = ?");
+            segmentStatement = connection.prepareStatement("INSERT INTO segments(id, size, live) VALUES (?, ?, ?)");
 
             for (Map.Entry<Short, Long> entry : channels.entrySet()) {
                 channelStatement.setShort(1, entry.getKey());
                 channelStatement.setLong(2, entry.getValue());
-                channelStatement.executeUpdate();
+                channelStatement.addBatch();
             }
 
             for (Bucket bucket : buckets) {
-                // Create or update
-                uBucketStatement.setLong(1, bucket.virtualSize);
-                uBucketStatement.setLong(2, bucket.plainTextFileSize);
-                uBucketStatement.setLong(3, bucket.compressedFileSize);
-                uBucketStatement.setLong(4, bucket.getId());
-                uBucketStatement.setString(5, bucket.getLanguage().source.toString());
-                uBucketStatement.setString(6, bucket.getLanguage().target.toString());
-
-                if (uBucketStatement.executeUpdate() == 0) {
+                if (bucket.persisted) {
+                    uBucketStatement.setLong(1, bucket.size);
+                    uBucketStatement.setLong(2, bucket.head);
+                    uBucketStatement.setLong(3, bucket.getSerial());
+                    uBucketStatement.addBatch();
+                } else {
                     UUID owner = bucket.getOwner();
 
-                    iBucketStatement.setLong(1, bucket.getId());
-                    iBucketStatement.setString(2, bucket.getLanguage().source.toString());
-                    iBucketStatement.setString(3, bucket.getLanguage().target.toString());
-                    iBucketStatement.setLong(4, owner == null ? 0L : owner.getLeastSignificantBits());
-                    iBucketStatement.setLong(5, owner == null ? 0L : owner.getMostSignificantBits());
-                    iBucketStatement.setLong(6, bucket.virtualSize);
-                    iBucketStatement.setLong(7, bucket.plainTextFileSize);
-                    iBucketStatement.setLong(8, bucket.compressedFileSize);
-
-                    iBucketStatement.executeUpdate();
+                    iBucketStatement.setLong(1, bucket.getSerial());
+                    iBucketStatement.setLong(2, bucket.getId());
+                    iBucketStatement.setString(3, bucket.getLanguage().source.toString());
+                    iBucketStatement.setString(4, bucket.getLanguage().target.toString());
+                    iBucketStatement.setLong(5, owner == null ? 0L : owner.getLeastSignificantBits());
+                    iBucketStatement.setLong(6, owner == null ? 0L : owner.getMostSignificantBits());
+                    iBucketStatement.setLong(7, bucket.size);
+                    iBucketStatement.setLong(8, bucket.head);
+                    iBucketStatement.addBatch();
                 }
             }
 
+            deleteStatement = connection.createStatement();
+            deleteStatement.executeUpdate("DELETE FROM segments");
+
+            for (Map.Entry<Integer, long[]> entry : segments.entrySet()) {
+                segmentStatement.setInt(1, entry.getKey());
+                segmentStatement.setLong(2, entry.getValue()[0]);
+                segmentStatement.setLong(3, entry.getValue()[1]);
+                segmentStatement.addBatch();
+            }
+
+            channelStatement.executeBatch();
+            uBucketStatement.executeBatch();
+            iBucketStatement.executeBatch();
+            segmentStatement.executeBatch();
+
             connection.commit();
             success = true;
+
+            for (Bucket bucket : buckets) {
+                misalignments.setSize(bucket.getSerial(), bucket.size, bucket.committedSize);
+
+                bucket.persisted = true;
+                bucket.committedSize = bucket.size;
+            }
         } catch (SQLException e) {
             throw new IOException(e);
         } finally {
@@ -303,6 +528,70 @@ public class BucketRegistry implements Closeable {
             close(channelStatement);
             close(iBucketStatement);
             close(uBucketStatement);
+            close(segmentStatement);
+            close(deleteStatement);
+
+            connectionLock.unlock();
+        }
+    }
+
+    // Legacy storage
+
+    public boolean hasLegacyBuckets() throws IOException {
+        connectionLock.lock();
+
+        try {
+            return selectLong(connection, "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = 'legacy_buckets'") > 0;
+        } catch (SQLException e) {
+            throw new IOException(e);
+        } finally {
+            connectionLock.unlock();
+        }
+    }
+
+    List<LegacyBucket> getLegacyBuckets() throws IOException {
+        ArrayList<LegacyBucket> buckets = new ArrayList<>();
+
+        Statement statement = null;
+        ResultSet result = null;
+        connectionLock.lock();
+
+        try {
+            statement = connection.createStatement();
+            result = statement.executeQuery("SELECT id, source, target, owner_lsb, owner_msb, size, plain_size, gz_size, mark " +
+                    "FROM legacy_buckets WHERE size > 0");
+
+            while (result.next()) {
+                long id = result.getLong(1);
+                Language source = Language.fromString(result.getString(2));
+                Language target = Language.fromString(result.getString(3));
+
+                buckets.add(new LegacyBucket(getLegacyBucketFolder(root, id), id, new LanguagePair(source, target),
+                        getUUID(result, 4, 5), result.getLong(7), result.getLong(8), result.getLong(9)));
+            }
+
+            return buckets;
+        } catch (SQLException e) {
+            throw new IOException(e);
+        } finally {
+            close(result);
+            close(statement);
+            connectionLock.unlock();
+        }
+    }
+
+    void dropLegacyBuckets() throws IOException {
+        Statement statement = null;
+        connectionLock.lock();
+
+        try {
+            statement = connection.createStatement();
+            statement.executeUpdate("DROP TABLE legacy_buckets");
+        } catch (SQLException e) {
+            throw new IOException(e);
+        } finally {
+            close(statement);
+            connectionLock.unlock();
         }
     }
 
@@ -351,12 +640,21 @@ public class BucketRegistry implements Closeable {
         return uuid;
     }
 
-    public synchronized void clearCache() {
+    public void clearCache() {
         this.cache.clear();
     }
 
+    /**
+     * Removes from the cache only the buckets of the given corpora
+     */
+    public void clearCache(Collection<Long> ids) {
+        this.cache.keySet().removeIf(key -> ids.contains(key.id));
+    }
+
     @Override
-    public synchronized void close() throws IOException {
+    public void close() throws IOException {
+        connectionLock.lock();
+
         try {
             for (Bucket bucket : cache.values())
                 bucket.getWriter().close();
@@ -367,10 +665,38 @@ public class BucketRegistry implements Closeable {
                 this.connection.close();
             } catch (SQLException e) {
                 // Ignore it
+            } finally {
+                connectionLock.unlock();
+                this.log.close();
             }
         }
     }
 
+    static final class LegacyBucket {
+
+        final long id;
+        final LanguagePair language;
+        final UUID owner;
+        final File path;
+        final File gzPath;
+        final long plainTextFileSize;
+        final long compressedFileSize;
+        final long mark;
+
+        LegacyBucket(File folder, long id, LanguagePair language, UUID owner, long plainTextFileSize, long compressedFileSize, long mark) {
+            String key = Long.toString(id) + '_' + language.source.getLanguage() + '_' + language.target.getLanguage();
+
+            this.id = id;
+            this.language = language;
+            this.owner = owner;
+            this.path = new File(folder, key + ".txt");
+            this.gzPath = new File(folder, key + ".gz");
+            this.plainTextFileSize = plainTextFileSize;
+            this.compressedFileSize = compressedFileSize;
+            this.mark = mark;
+        }
+    }
+
     private static class CacheKey {
 
         public long id;
@@ -1,112 +1,67 @@
 package eu.modernmt.context.lucene.storage;
 
-import eu.modernmt.io.FileSystemUtils;
 import eu.modernmt.io.UTF8Charset;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 
-import java.io.*;
-import java.nio.channels.FileChannel;
-import java.util.zip.GZIPOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 
 class BucketWriter implements Closeable {
 
-    private static final long COMPRESS_THRESHOLD = 50L * 1024L; // 50 Kb
-
-    private static FileOutputStream openStream(File path, long size) throws IOException {
-        File parent = path.getParentFile();
-        if (!parent.isDirectory())
-            FileUtils.forceMkdir(parent);
-
-        FileOutputStream stream = new FileOutputStream(path, true);
-
-        FileChannel channel = stream.getChannel();
-        channel.truncate(size);
-
-        return stream;
-    }
-
     private final Bucket bucket;
-    private FileOutputStream stream = null;
+    private final SegmentLog log;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
     private boolean deleted = false;
 
-    public BucketWriter(Bucket bucket) {
+    public BucketWriter(Bucket bucket, SegmentLog log) {
         this.bucket = bucket;
+        this.log = log;
     }
 
     public void append(String line) throws IOException {
         if (deleted)
             throw new FileNotFoundException("Bucket is deleted");
 
-        if (stream == null)
-            stream = openStream(bucket.path, bucket.plainTextFileSize);
-
-        stream.write(line.getBytes(UTF8Charset.get()));
-        stream.write('\n');
+        buffer.write(line.getBytes(UTF8Charset.get()));
+        buffer.write('\n');
     }
 
+    /**
+     * Appends the pending content to the log as a single block; the block is not durable
+     * until the log is synced.
+     */
     public void flush() throws IOException {
         if (deleted) {
-            this.bucket.lockFiles();
+            buffer.reset();
+
+            this.bucket.lock();
 
             try {
-                this.bucket.plainTextFileSize = 0;
-                this.bucket.compressedFileSize = 0;
-                this.bucket.virtualSize = 0;
+                log.release(this.bucket.head);
 
-                IOUtils.closeQuietly(this.stream);
-                this.stream = null;
+                this.bucket.size = 0;
+                this.bucket.head = SegmentLog.NONE;
 
-                FileUtils.deleteQuietly(this.bucket.gzPath);
-                FileUtils.deleteQuietly(this.bucket.path);
+                FileUtils.deleteQuietly(this.bucket.analysisPath);
             } finally {
-                this.bucket.unlockFiles();
-            }
-        } else if (stream != null) {
-            FileSystemUtils.fsync(stream);
-
-            long size = stream.getChannel().position();
-            bucket.virtualSize += size - bucket.plainTextFileSize;
-
-            // Compress if needed
-            if (size >= COMPRESS_THRESHOLD) {
-                this.bucket.lockFiles();
-
-                try {
-                    IOUtils.closeQuietly(this.stream);
-                    this.stream = null;
-
-                    bucket.compressedFileSize = compress();
-                    bucket.plainTextFileSize = 0;
-                } finally {
-                    this.bucket.unlockFiles();
-                }
-            } else {
-                bucket.plainTextFileSize = size;
+                this.bucket.unlock();
             }
-        }
-    }
-
-    private long compress() throws IOException {
-        GZIPOutputStream gzOutput = null;
-        FileInputStream input = null;
-
-        try {
-            FileOutputStream output = openStream(bucket.gzPath, bucket.compressedFileSize);
-            gzOutput = new GZIPOutputStream(output);
+        } else if (buffer.size() > 0) {
+            byte[] data = buffer.toByteArray();
+            buffer.reset();
 
-            input = new FileInputStream(bucket.path);
+            long head = log.append(bucket.getSerial(), bucket.size, bucket.head, data, data.length);
 
-            IOUtils.copy(input, gzOutput);
-            gzOutput.finish();
-            gzOutput.flush();
+            this.bucket.lock();
 
-            FileSystemUtils.fsync(output);
-
-            return output.getChannel().position();
-        } finally {
-            IOUtils.closeQuietly(input);
-            IOUtils.closeQuietly(gzOutput);
+            try {
+                this.bucket.head = head;
+                this.bucket.size += data.length;
+            } finally {
+                this.bucket.unlock();
+            }
         }
     }
 
@@ -115,9 +70,8 @@ class BucketWriter implements Closeable {
     }
 
     @Override
-    public void close() throws IOException {
-        if (stream != null)
-            stream.close();
+    public void close() {
+        buffer.reset();
     }
 
 }
@@ -4,30 +4,79 @@ import eu.modernmt.data.DataBatch;
 import eu.modernmt.data.DataListener;
 import eu.modernmt.data.Deletion;
 import eu.modernmt.data.TranslationUnit;
+import eu.modernmt.io.FileSystemUtils;
+import eu.modernmt.io.UTF8Charset;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
-import java.io.Closeable;
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
 import java.util.*;
-
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Storage of the corpora content. Writes to the buckets of a corpus are guarded by the lock of its stripe,
+ * held from the first append until the buckets state is stored in the registry: the corpora of a batch are
+ * written in parallel, and compaction relocates a corpus without blocking the writes to the others.
+ * Registry commits, segments removal and backups are serialized by a separate, short-lived lock.
+ */
 public class CorporaStorage implements DataListener, Closeable {
 
+    private static final long DEFAULT_SEGMENT_SIZE = 64L * 1024L * 1024L; // 64 Mb
+    private static final double MIN_LIVE_RATIO = .5;
+    private static final int COMPACTION_BLOCK_SIZE = 1024 * 1024; // 1 Mb
+    private static final int LOCK_STRIPES = 64;
+
+    private final Logger logger = LogManager.getLogger(CorporaStorage.class);
+
     protected final File path;
     protected final BucketRegistry buckets;
-    private boolean closed = false;
+    private final SegmentLog log;
+    private volatile boolean closed = false;
     private final Map<Short, Long> channels;
+    private final ExecutorService compaction;
+    private final ExecutorService flushExecutor;
+    private final AtomicBoolean compactionPending = new AtomicBoolean(false);
+    private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final Object compactionLock = new Object();
 
     public CorporaStorage(File path) throws IOException {
         this(path, true);
     }
 
     public CorporaStorage(File path, boolean maskLanguageRegion) throws IOException {
+        this(path, maskLanguageRegion, DEFAULT_SEGMENT_SIZE);
+    }
+
+    protected CorporaStorage(File path, boolean maskLanguageRegion, long maxSegmentSize) throws IOException {
         FileUtils.forceMkdir(path);
 
         this.path = path;
-        this.buckets = new BucketRegistry(path, maskLanguageRegion);
-        this.channels = buckets.getChannels();
+        this.buckets = new BucketRegistry(path, maskLanguageRegion, maxSegmentSize);
+        this.log = buckets.getLog();
+        this.channels = new ConcurrentHashMap<>(buckets.getChannels());
+        this.compaction = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "CorporaStorage.compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flushExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "CorporaStorage.flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (int i = 0; i < stripes.length; i++)
+            stripes[i] = new ReentrantLock();
+
+        if (buckets.hasLegacyBuckets())
+            migrateLegacyBuckets();
     }
 
     public int size() throws IOException {
@@ -42,6 +91,69 @@ public class CorporaStorage implements DataListener, Closeable {
         buckets.mark(bucket, size);
     }
 
+    public void markUpdates(Map<Bucket, Long> marks) throws IOException {
+        buckets.mark(marks);
+    }
+
+    /**
+     * Creates an online copy of the storage into the destination folder. Sealed segments are never modified,
+     * so they are hard-linked; the active segment is still appended, so it is copied (or linked from
+     * the previous backup if unchanged).
+     *
+     * @param previous the same storage in the previous backup, or null
+     * @return the channel positions included in the copy
+     */
+    public Map<Short, Long> backup(File destination, File previous) throws IOException {
+        // Registry and segments are copied with no commit in between: blocks appended meanwhile are not referenced
+        commitLock.lock();
+
+        try {
+            if (closed)
+                throw new IOException("Storage is closed");
+
+            buckets.backup(destination);
+            log.backup(new File(destination, "segments"), previous == null ? null : new File(previous, "segments"));
+
+            // Analysis files are always replaced, never modified in place
+            for (File file : FileUtils.listFiles(path, new String[]{"tf"}, true)) {
+                String relative = path.toPath().relativize(file.toPath()).toString();
+                FileSystemUtils.link(file, new File(destination, relative));
+            }
+
+            return new HashMap<>(channels);
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    private static int getStripe(long id) {
+        return (int) Math.floorMod(id ^ (id >>> 32), (long) LOCK_STRIPES);
+    }
+
+    /**
+     * Locks the stripes of the given corpora, always in ascending order to prevent deadlocks
+     *
+     * @return the locked stripes, to be passed to unlock()
+     */
+    private List<ReentrantLock> lock(Collection<Long> ids) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (long id : ids)
+            indexes.add(getStripe(id));
+
+        ArrayList<ReentrantLock> locked = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            stripes[index].lock();
+            locked.add(stripes[index]);
+        }
+
+        return locked;
+    }
+
+    private static void unlock(List<ReentrantLock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--)
+            locks.get(i).unlock();
+    }
+
     private boolean skipData(short channel, long position) {
         Long existent = this.channels.get(channel);
         return existent != null && position <= existent;
@@ -63,52 +175,326 @@ public class CorporaStorage implements DataListener, Closeable {
     }
 
     @Override
-    public synchronized void onDataReceived(DataBatch batch) throws IOException {
+    public void onDataReceived(DataBatch batch) throws IOException {
         if (closed)
             return;
 
-        HashSet<Bucket> pendingUpdatesBuckets = new HashSet<>();
-
-        // Apply changes
+        // Group changes by corpus, deletions are applied after the new units
 
+        HashMap<Long, List<TranslationUnit>> units = new HashMap<>();
         for (TranslationUnit unit : batch.getTranslationUnits()) {
-            if (skipData(unit.channel, unit.channelPosition))
-                continue;
+            if (!skipData(unit.channel, unit.channelPosition))
+                units.computeIfAbsent(unit.memory, k -> new ArrayList<>()).add(unit);
+        }
+
+        HashSet<Long> deletions = new HashSet<>();
+        for (Deletion deletion : batch.getDeletions()) {
+            if (!skipData(deletion.channel, deletion.channelPosition))
+                deletions.add(deletion.memory);
+        }
+
+        HashSet<Long> memories = new HashSet<>(units.keySet());
+        memories.addAll(deletions);
+
+        List<ReentrantLock> locks = lock(memories);
+
+        try {
+            if (closed)
+                return;
 
+            // Apply changes to every corpus in parallel, a single fsync for all the buckets
+
+            ArrayList<Callable<Set<Bucket>>> tasks = new ArrayList<>(memories.size());
+            for (Long memory : memories) {
+                List<TranslationUnit> memoryUnits = units.getOrDefault(memory, Collections.emptyList());
+                boolean delete = deletions.contains(memory);
+
+                tasks.add(() -> apply(memory, memoryUnits, delete));
+            }
+
+            HashSet<Bucket> pendingUpdatesBuckets = new HashSet<>();
+            for (Set<Bucket> updated : invokeAll(tasks))
+                pendingUpdatesBuckets.addAll(updated);
+
+            log.sync();
+
+            // Update index and finalize
+
+            commitLock.lock();
+
+            try {
+                Map<Short, Long> updatedChannels = advanceChannels(channels, batch.getChannelPositions());
+                buckets.update(updatedChannels, pendingUpdatesBuckets);
+                channels.putAll(updatedChannels);
+            } finally {
+                commitLock.unlock();
+            }
+
+            buckets.clearCache(memories);
+        } finally {
+            unlock(locks);
+        }
+
+        if (!compactionPending.get() && !log.getCompactionCandidates(MIN_LIVE_RATIO).isEmpty()) {
+            if (compactionPending.compareAndSet(false, true))
+                compaction.submit(this::compactInBackground);
+        }
+    }
+
+    /**
+     * Appends the units and applies the deletion of a single corpus; buckets writers are never shared
+     * between threads because every corpus is handled by a single task, under the lock of its stripe.
+     */
+    private Set<Bucket> apply(long memory, List<TranslationUnit> units, boolean delete) throws IOException {
+        HashSet<Bucket> updated = new HashSet<>();
+
+        for (TranslationUnit unit : units) {
             Bucket fwdBucket = buckets.get(unit.memory, unit.direction, unit.owner);
             fwdBucket.getWriter().append(unit.rawSentence);
-            pendingUpdatesBuckets.add(fwdBucket);
+            updated.add(fwdBucket);
 
             Bucket bwdBucket = buckets.get(unit.memory, unit.direction.reversed(), unit.owner);
             bwdBucket.getWriter().append(unit.rawTranslation);
-            pendingUpdatesBuckets.add(bwdBucket);
+            updated.add(bwdBucket);
         }
 
-        for (Deletion deletion : batch.getDeletions()) {
-            if (skipData(deletion.channel, deletion.channelPosition))
-                continue;
-
-            for (Bucket bucket : buckets.getAll(deletion.memory)) {
+        if (delete) {
+            for (Bucket bucket : buckets.getAll(memory)) {
                 bucket.getWriter().delete();
-                pendingUpdatesBuckets.add(bucket);
+                updated.add(bucket);
             }
         }
 
-        // Flush pending updates
-
-        for (Bucket bucket : pendingUpdatesBuckets) {
+        for (Bucket bucket : updated) {
             BucketWriter writer = bucket.getWriter();
             writer.flush();
             writer.close();
         }
 
-        // Update index and finalize
+        return updated;
+    }
+
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) throws IOException {
+        ArrayList<T> results = new ArrayList<>(tasks.size());
+
+        if (tasks.size() == 1) {
+            try {
+                results.add(tasks.get(0).call());
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new Error("Unexpected exception", e);
+            }
+
+            return results;
+        }
+
+        ArrayList<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks)
+            futures.add(flushExecutor.submit(task));
+
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("Interrupted while writing buckets");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+
+                if (cause instanceof IOException)
+                    throw (IOException) cause;
+                else if (cause instanceof RuntimeException)
+                    throw (RuntimeException) cause;
+                else
+                    throw new Error("Unexpected exception", cause);
+            }
+        }
+
+        return results;
+    }
+
+    private void compactInBackground() {
+        try {
+            compact();
+        } catch (Throwable e) {
+            logger.error("Failed to compact corpora storage", e);
+        }
+    }
+
+    /**
+     * Rewrites the buckets that still reference segments with few live bytes (mostly deleted buckets),
+     * then removes those segments. Every bucket is rewritten as a whole with large blocks; corpora are
+     * relocated one at a time, so writes to the other corpora are not blocked.
+     */
+    public void compact() throws IOException {
+        synchronized (compactionLock) {
+            compactionPending.set(false);
+
+            if (closed)
+                return;
+
+            List<Integer> segments = log.getCompactionCandidates(MIN_LIVE_RATIO);
+            if (segments.isEmpty())
+                return;
+
+            TreeMap<Long, Set<Long>> serials = new TreeMap<>();
+            for (Integer segment : segments) {
+                for (Long serial : log.getSerials(segment)) {
+                    Bucket bucket = buckets.getBySerial(serial);
+                    if (bucket != null)
+                        serials.computeIfAbsent(bucket.getId(), k -> new HashSet<>()).add(serial);
+                }
+            }
+
+            int count = 0;
+
+            for (Map.Entry<Long, Set<Long>> entry : serials.entrySet()) {
+                Long memory = entry.getKey();
+                List<ReentrantLock> locks = lock(Collections.singleton(memory));
+
+                try {
+                    if (closed)
+                        return;
+
+                    // Reload the buckets: writes applied meanwhile may have moved them
+                    HashSet<Bucket> relocated = new HashSet<>();
+                    for (Long serial : entry.getValue()) {
+                        Bucket bucket = buckets.getBySerial(serial);
+
+                        if (bucket == null || relocated.contains(bucket) || !log.isStoredIn(bucket.head, segments))
+                            continue;
+
+                        relocate(bucket);
+                        relocated.add(bucket);
+                    }
+
+                    if (relocated.isEmpty())
+                        continue;
+
+                    log.sync();
+
+                    commitLock.lock();
+
+                    try {
+                        buckets.update(channels, relocated);
+                    } finally {
+                        commitLock.unlock();
+                    }
+
+                    buckets.clearCache(Collections.singleton(memory));
+                    count += relocated.size();
+                } finally {
+                    unlock(locks);
+                }
+            }
+
+            List<Integer> dropped;
+
+            commitLock.lock();
+
+            try {
+                if (closed)
+                    return;
+
+                dropped = log.drop(segments);
+                buckets.update(channels, Collections.emptySet());
+            } finally {
+                commitLock.unlock();
+            }
+
+            if (logger.isDebugEnabled())
+                logger.debug("Compacted " + count + " buckets, removed " + dropped.size() + " segments");
+        }
+    }
 
-        Map<Short, Long> updatedChannels = advanceChannels(channels, batch.getChannelPositions());
-        buckets.update(updatedChannels, pendingUpdatesBuckets);
-        channels.putAll(updatedChannels);
+    private void relocate(Bucket bucket) throws IOException {
+        long size = bucket.size;
+        long oldHead = bucket.head;
+        long head = SegmentLog.NONE;
 
+        InputStream input = null;
+
+        try {
+            input = log.newInputStream(() -> oldHead, 0, size);
+
+            byte[] buffer = new byte[COMPACTION_BLOCK_SIZE];
+            long start = 0;
+
+            int length;
+            while ((length = IOUtils.read(input, buffer)) > 0) {
+                head = log.append(bucket.getSerial(), start, head, buffer, length);
+                start += length;
+            }
+
+            if (start != size)
+                throw new IOException("Unexpected size of bucket " + bucket + ": " + start + " instead of " + size);
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+
+        log.release(oldHead);
+
+        bucket.lock();
+
+        try {
+            bucket.head = head;
+        } finally {
+            bucket.unlock();
+        }
+    }
+
+    /**
+     * Moves the content of the buckets stored with plain text and gzip files into the segments log
+     */
+    private void migrateLegacyBuckets() throws IOException {
+        List<BucketRegistry.LegacyBucket> legacyBuckets = buckets.getLegacyBuckets();
+        HashSet<Bucket> migrated = new HashSet<>(legacyBuckets.size());
+
+        for (BucketRegistry.LegacyBucket legacy : legacyBuckets) {
+            Bucket bucket = buckets.get(legacy.id, legacy.language, legacy.owner);
+            BufferedReader reader = null;
+
+            try {
+                InputStream gzStream = legacy.compressedFileSize > 0 ?
+                        new GZIPInputStream(new BoundedInputStream(new FileInputStream(legacy.gzPath), legacy.compressedFileSize)) :
+                        new ByteArrayInputStream(new byte[0]);
+                InputStream stream = legacy.plainTextFileSize > 0 ?
+                        new BoundedInputStream(new FileInputStream(legacy.path), legacy.plainTextFileSize) :
+                        new ByteArrayInputStream(new byte[0]);
+
+                reader = new BufferedReader(new InputStreamReader(new SequenceInputStream(gzStream, stream), UTF8Charset.get()));
+
+                BucketWriter writer = bucket.getWriter();
+
+                String line;
+                while ((line = reader.readLine()) != null)
+                    writer.append(line);
+
+                writer.flush();
+                writer.close();
+            } finally {
+                IOUtils.closeQuietly(reader);
+            }
+
+            migrated.add(bucket);
+        }
+
+        log.sync();
+        buckets.update(channels, migrated);
+
+        for (BucketRegistry.LegacyBucket legacy : legacyBuckets)
+            buckets.mark(buckets.get(legacy.id, legacy.language, legacy.owner), legacy.mark);
+
+        buckets.dropLegacyBuckets();
         buckets.clearCache();
+
+        File[] folders = path.listFiles(file -> file.isDirectory() && file.getName().matches("[0-9]+"));
+        if (folders != null) {
+            for (File folder : folders)
+                FileUtils.deleteDirectory(folder);
+        }
+
+        logger.info("Migrated " + migrated.size() + " buckets to segments storage");
     }
 
     @Override
@@ -127,9 +513,31 @@ public class CorporaStorage implements DataListener, Closeable {
     }
 
     @Override
-    public synchronized void close() throws IOException {
-        closed = true;
-        buckets.close();
+    public void close() throws IOException {
+        compaction.shutdown();
+        flushExecutor.shutdown();
+
+        try {
+            compaction.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            // Ignore it
+        }
+
+        List<ReentrantLock> locks = new ArrayList<>(stripes.length);
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+            locks.add(stripe);
+        }
+
+        commitLock.lock();
+
+        try {
+            closed = true;
+            buckets.close();
+        } finally {
+            commitLock.unlock();
+            unlock(locks);
+        }
     }
 
 }
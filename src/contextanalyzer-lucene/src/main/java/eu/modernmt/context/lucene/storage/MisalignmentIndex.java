@@ -0,0 +1,106 @@
+package eu.modernmt.context.lucene.storage;
+
+import java.util.*;
+
+/**
+ * In-memory index of the buckets whose content changed since their last analysis (mark different from size),
+ * sorted by decreasing misalignment. Aligned buckets are not stored.
+ */
+class MisalignmentIndex {
+
+    private static final Comparator<Entry> COMPARATOR = (a, b) -> {
+        int cmp = Long.compare(b.misalignment, a.misalignment);
+        return cmp == 0 ? Long.compare(a.serial, b.serial) : cmp;
+    };
+
+    private final HashMap<Long, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> sorted = new TreeSet<>(COMPARATOR);
+    private int shrunk = 0; // number of entries with mark > size
+
+    synchronized void put(long serial, long size, long mark) {
+        Entry entry = entries.remove(serial);
+        if (entry != null)
+            remove(entry);
+
+        if (size != mark) {
+            entry = new Entry(serial, size, mark);
+            entries.put(serial, entry);
+            sorted.add(entry);
+
+            if (mark > size)
+                shrunk++;
+        }
+    }
+
+    /**
+     * @param markIfAbsent the mark of the bucket if it is not in the index, that is its previous size
+     */
+    synchronized void setSize(long serial, long size, long markIfAbsent) {
+        Entry entry = entries.get(serial);
+        put(serial, size, entry == null ? markIfAbsent : entry.mark);
+    }
+
+    /**
+     * @return false if the bucket is not in the index
+     */
+    synchronized boolean setMark(long serial, long mark) {
+        Entry entry = entries.get(serial);
+        if (entry == null)
+            return false;
+
+        put(serial, entry.size, mark);
+        return true;
+    }
+
+    /**
+     * @return the serials of the buckets that shrunk (deleted) or grew by at least minMisalignment,
+     * with the most misaligned first
+     */
+    synchronized List<Long> getUpdated(long minMisalignment, int limit) {
+        ArrayList<Long> result = new ArrayList<>(Math.min(limit, entries.size()));
+        int visitedShrunk = 0;
+
+        for (Entry entry : sorted) {
+            if (result.size() >= limit)
+                break;
+
+            if (entry.mark > entry.size) {
+                visitedShrunk++;
+                result.add(entry.serial);
+            } else if (entry.misalignment >= minMisalignment) {
+                result.add(entry.serial);
+            } else if (visitedShrunk == shrunk) {
+                break;
+            }
+        }
+
+        return result;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private void remove(Entry entry) {
+        sorted.remove(entry);
+
+        if (entry.mark > entry.size)
+            shrunk--;
+    }
+
+    private static final class Entry {
+
+        final long serial;
+        final long size;
+        final long mark;
+        final long misalignment;
+
+        Entry(long serial, long size, long mark) {
+            this.serial = serial;
+            this.size = size;
+            this.mark = mark;
+            this.misalignment = Math.abs(mark - size);
+        }
+    }
+
+}
@@ -0,0 +1,602 @@
+package eu.modernmt.context.lucene.storage;
+
+import eu.modernmt.io.FileSystemUtils;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the buckets content, split in segments of limited size.
+ * <p>
+ * Content is written in blocks, every block is compressed independently and points to the previous
+ * block of the same bucket, so a bucket is a chain of blocks that can be read from its head.
+ * Blocks are never modified: a sealed segment is memory-mapped, only the last segment is appended.
+ * <p>
+ * The size of the segments and the number of bytes still referenced by a bucket (live bytes) are stored
+ * in the registry together with the buckets heads; segments with few live bytes are compacted.
+ */
+class SegmentLog implements Closeable {
+
+    static final long NONE = -1L;
+
+    private static final String EXTENSION = ".log";
+    private static final int HEADER_SIZE = 8 + 8 + 8 + 4 + 4 + 1 + 4;
+    private static final byte RAW = 0;
+    private static final byte LZ4 = 1;
+
+    static long pointer(int segment, long offset) {
+        return (((long) segment) << 32) | offset;
+    }
+
+    private static int segmentOf(long pointer) {
+        return (int) (pointer >>> 32);
+    }
+
+    private static long offsetOf(long pointer) {
+        return pointer & 0xFFFFFFFFL;
+    }
+
+    private final File folder;
+    private final long maxSegmentSize;
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LZ4Compressor compressor;
+    private final LZ4FastDecompressor decompressor;
+    private Segment active;
+
+    /**
+     * @param state size and live bytes of every segment, as stored in the registry
+     */
+    SegmentLog(File folder, long maxSegmentSize, Map<Integer, long[]> state) throws IOException {
+        this.folder = folder;
+        this.maxSegmentSize = maxSegmentSize;
+
+        LZ4Factory factory = LZ4Factory.fastestInstance();
+        this.compressor = factory.fastCompressor();
+        this.decompressor = factory.fastDecompressor();
+
+        FileUtils.forceMkdir(folder);
+
+        // Segments not in registry were created by a batch that has not been committed
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(EXTENSION));
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                Integer id = Integer.parseInt(name.substring(0, name.length() - EXTENSION.length()));
+
+                if (!state.containsKey(id))
+                    FileUtils.deleteQuietly(file);
+            }
+        }
+
+        for (Map.Entry<Integer, long[]> entry : new TreeMap<>(state).entrySet()) {
+            int id = entry.getKey();
+            long[] sizes = entry.getValue();
+
+            Segment segment = new Segment(id, getSegmentFile(id), sizes[0], sizes[1]);
+            segments.put(id, segment);
+        }
+
+        Iterator<Segment> iterator = segments.values().iterator();
+        while (iterator.hasNext()) {
+            Segment segment = iterator.next();
+
+            if (iterator.hasNext())
+                segment.openSealed();
+            else
+                segment.openActive();
+        }
+
+        this.active = segments.isEmpty() ? createSegment(0) : segments.lastEntry().getValue();
+    }
+
+    private File getSegmentFile(int id) {
+        return new File(folder, String.format("%010d", id) + EXTENSION);
+    }
+
+    private Segment createSegment(int id) throws IOException {
+        Segment segment = new Segment(id, getSegmentFile(id), 0L, 0L);
+        segment.openActive();
+
+        lock.writeLock().lock();
+
+        try {
+            segments.put(id, segment);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        return segment;
+    }
+
+    // Writing - blocks are encoded concurrently, then written under the log monitor
+
+    /**
+     * Writes a new block of the given bucket; blocks of different buckets can be appended concurrently
+     *
+     * @param serial   the serial of the bucket
+     * @param start    the offset of the content in the bucket
+     * @param previous the pointer to the previous block of the bucket, or NONE
+     * @return the pointer to the new block
+     */
+    long append(long serial, long start, long previous, byte[] data, int length) throws IOException {
+        return write(encode(serial, start, previous, data, length));
+    }
+
+    private ByteBuffer encode(long serial, long start, long previous, byte[] data, int length) {
+        byte[] stored = new byte[compressor.maxCompressedLength(length)];
+        int storedLength = compressor.compress(data, 0, length, stored, 0, stored.length);
+        byte codec = LZ4;
+
+        if (storedLength >= length) {
+            stored = data;
+            storedLength = length;
+            codec = RAW;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(stored, 0, storedLength);
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + storedLength);
+        buffer.putLong(serial);
+        buffer.putLong(previous);
+        buffer.putLong(start);
+        buffer.putInt(length);
+        buffer.putInt(storedLength);
+        buffer.put(codec);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(stored, 0, storedLength);
+        buffer.flip();
+
+        return buffer;
+    }
+
+    private synchronized long write(ByteBuffer block) throws IOException {
+        int blockSize = block.remaining();
+
+        if (active.size > 0 && active.size + blockSize > maxSegmentSize) {
+            active.seal();
+            active = createSegment(active.id + 1);
+        }
+
+        long offset = active.size;
+        active.write(block, offset);
+        active.size += blockSize;
+        active.live += blockSize;
+
+        return pointer(active.id, offset);
+    }
+
+    /**
+     * Marks all the blocks of the chain as unreferenced
+     */
+    void release(long head) throws IOException {
+        ArrayList<Segment> releasedSegments = new ArrayList<>();
+        ArrayList<Integer> releasedSizes = new ArrayList<>();
+
+        lock.readLock().lock();
+
+        try {
+            long pointer = head;
+
+            while (pointer != NONE) {
+                Segment segment = getSegment(pointer);
+                BlockHeader header = readHeader(segment, offsetOf(pointer));
+
+                releasedSegments.add(segment);
+                releasedSizes.add(HEADER_SIZE + header.storedLength);
+                pointer = header.previous;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        synchronized (this) {
+            for (int i = 0; i < releasedSegments.size(); i++)
+                releasedSegments.get(i).live -= releasedSizes.get(i);
+        }
+    }
+
+    /**
+     * Makes all the appended blocks durable with a single fsync
+     */
+    void sync() throws IOException {
+        Segment segment;
+        synchronized (this) {
+            segment = active;
+        }
+
+        // Segments rolled during the batch have already been forced when sealed
+        segment.force();
+    }
+
+    /**
+     * @return the sealed segments whose live bytes are less than the given fraction of their size
+     */
+    synchronized List<Integer> getCompactionCandidates(double minLiveRatio) {
+        ArrayList<Integer> candidates = new ArrayList<>();
+
+        for (Segment segment : segments.values()) {
+            if (segment != active && segment.live < segment.size * minLiveRatio)
+                candidates.add(segment.id);
+        }
+
+        return candidates;
+    }
+
+    /**
+     * @return the serials of the buckets that have at least a block in the segment, live or not
+     */
+    Set<Long> getSerials(int segmentId) throws IOException {
+        Segment segment = segments.get(segmentId);
+        HashSet<Long> serials = new HashSet<>();
+
+        long offset = 0;
+        while (offset < segment.size) {
+            BlockHeader header = readHeader(segment, offset);
+            serials.add(header.serial);
+            offset += HEADER_SIZE + header.storedLength;
+        }
+
+        return serials;
+    }
+
+    /**
+     * @return true if at least a block of the chain is stored in one of the given segments
+     */
+    boolean isStoredIn(long head, Collection<Integer> segmentIds) throws IOException {
+        long pointer = head;
+
+        while (pointer != NONE) {
+            if (segmentIds.contains(segmentOf(pointer)))
+                return true;
+
+            pointer = readHeader(getSegment(pointer), offsetOf(pointer)).previous;
+        }
+
+        return false;
+    }
+
+    /**
+     * Removes the given segments from the log, no bucket must reference their blocks.
+     * Streams already opened on the segments can still be read.
+     *
+     * @return the segments that have been removed
+     */
+    synchronized List<Integer> drop(Collection<Integer> segmentIds) throws IOException {
+        ArrayList<Integer> dropped = new ArrayList<>(segmentIds.size());
+
+        lock.writeLock().lock();
+
+        try {
+            for (Integer id : segmentIds) {
+                Segment segment = segments.get(id);
+
+                if (segment == null || segment == active)
+                    continue;
+
+                segments.remove(id);
+                segment.close();
+                FileUtils.deleteQuietly(segment.file);
+
+                dropped.add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        return dropped;
+    }
+
+    synchronized Map<Integer, long[]> getState() {
+        HashMap<Integer, long[]> state = new HashMap<>(segments.size());
+        for (Segment segment : segments.values())
+            state.put(segment.id, new long[]{segment.size, segment.live});
+        return state;
+    }
+
+    /**
+     * Links the sealed segments and copies the active one in the destination folder
+     */
+    synchronized void backup(File destination, File previous) throws IOException {
+        FileUtils.forceMkdir(destination);
+
+        for (Segment segment : segments.values()) {
+            File target = new File(destination, segment.file.getName());
+
+            if (segment == active) {
+                FileSystemUtils.copyIfChanged(segment.file, target,
+                        previous == null ? null : new File(previous, segment.file.getName()));
+            } else {
+                FileSystemUtils.link(segment.file, target);
+            }
+        }
+    }
+
+    // Reading
+
+    /**
+     * Returns the content of the chain between the two offsets; the blocks are resolved
+     * while holding the read lock, so the segments can be dropped while reading the stream.
+     *
+     * @param head a function that returns the current head of the chain
+     */
+    InputStream newInputStream(HeadSupplier head, long from, long to) throws IOException {
+        ArrayList<BlockRef> blocks = new ArrayList<>();
+
+        lock.readLock().lock();
+
+        try {
+            long pointer = head.get();
+
+            while (pointer != NONE) {
+                Segment segment = getSegment(pointer);
+                long offset = offsetOf(pointer);
+                BlockHeader header = readHeader(segment, offset);
+
+                if (header.start < to)
+                    blocks.add(new BlockRef(segment, offset, header));
+
+                if (header.start <= from)
+                    break;
+
+                pointer = header.previous;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Collections.reverse(blocks);
+
+        if (!blocks.isEmpty() && blocks.get(0).header.start > from)
+            throw new IOException("Missing bucket content at offset " + from);
+
+        return new ChainInputStream(blocks, from, to);
+    }
+
+    private Segment getSegment(long pointer) throws IOException {
+        Segment segment = segments.get(segmentOf(pointer));
+        if (segment == null)
+            throw new FileNotFoundException("Missing segment " + segmentOf(pointer));
+        return segment;
+    }
+
+    private BlockHeader readHeader(Segment segment, long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        segment.read(buffer, offset);
+        buffer.flip();
+
+        return new BlockHeader(buffer.getLong(), buffer.getLong(), buffer.getLong(),
+                buffer.getInt(), buffer.getInt(), buffer.get(), buffer.getInt());
+    }
+
+    private byte[] readContent(BlockRef block) throws IOException {
+        BlockHeader header = block.header;
+
+        ByteBuffer buffer = ByteBuffer.allocate(header.storedLength);
+        block.segment.read(buffer, block.offset + HEADER_SIZE);
+        byte[] stored = buffer.array();
+
+        CRC32 crc = new CRC32();
+        crc.update(stored, 0, stored.length);
+        if ((int) crc.getValue() != header.checksum)
+            throw new IOException("Corrupted block in segment " + block.segment.file + " at offset " + block.offset);
+
+        if (header.codec == RAW)
+            return stored;
+
+        byte[] content = new byte[header.length];
+        decompressor.decompress(stored, 0, content, 0, header.length);
+        return content;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Segment segment : segments.values())
+            segment.close();
+        segments.clear();
+    }
+
+    interface HeadSupplier {
+
+        long get() throws IOException;
+
+    }
+
+    private static final class BlockHeader {
+
+        final long serial;
+        final long previous;
+        final long start;
+        final int length;
+        final int storedLength;
+        final byte codec;
+        final int checksum;
+
+        BlockHeader(long serial, long previous, long start, int length, int storedLength, byte codec, int checksum) {
+            this.serial = serial;
+            this.previous = previous;
+            this.start = start;
+            this.length = length;
+            this.storedLength = storedLength;
+            this.codec = codec;
+            this.checksum = checksum;
+        }
+    }
+
+    private static final class BlockRef {
+
+        final Segment segment;
+        final long offset;
+        final BlockHeader header;
+
+        BlockRef(Segment segment, long offset, BlockHeader header) {
+            this.segment = segment;
+            this.offset = offset;
+            this.header = header;
+        }
+    }
+
+    private final class ChainInputStream extends InputStream {
+
+        private final Iterator<BlockRef> blocks;
+        private final long from;
+        private final long to;
+
+        private byte[] content = null;
+        private int position = 0;
+        private int limit = 0;
+
+        ChainInputStream(List<BlockRef> blocks, long from, long to) {
+            this.blocks = blocks.iterator();
+            this.from = from;
+            this.to = to;
+        }
+
+        private boolean fill() throws IOException {
+            while (position >= limit) {
+                if (!blocks.hasNext())
+                    return false;
+
+                BlockRef block = blocks.next();
+                long start = block.header.start;
+
+                content = readContent(block);
+                position = (int) Math.max(0, from - start);
+                limit = (int) Math.min(content.length, to - start);
+            }
+
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return fill() ? content[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0)
+                return 0;
+            if (!fill())
+                return -1;
+
+            int count = Math.min(len, limit - position);
+            System.arraycopy(content, position, b, off, count);
+            position += count;
+
+            return count;
+        }
+
+        @Override
+        public void close() {
+            content = null;
+            position = limit = 0;
+        }
+    }
+
+    private static final class Segment {
+
+        final int id;
+        final File file;
+        long size;
+        long live;
+
+        private FileChannel channel = null;
+        private volatile MappedByteBuffer buffer = null;
+
+        Segment(int id, File file, long size, long live) {
+            this.id = id;
+            this.file = file;
+            this.size = size;
+            this.live = live;
+        }
+
+        void openActive() throws IOException {
+            if (!file.exists() && size > 0)
+                throw new FileNotFoundException(file.toString());
+
+            channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            // Content after size has been written by a batch that has not been committed
+            if (channel.size() > size)
+                channel.truncate(size);
+        }
+
+        void openSealed() throws IOException {
+            if (!file.isFile())
+                throw new FileNotFoundException(file.toString());
+
+            FileChannel channel = null;
+
+            try {
+                channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } finally {
+                IOUtils.closeQuietly(channel);
+            }
+        }
+
+        synchronized void write(ByteBuffer data, long offset) throws IOException {
+            while (data.hasRemaining())
+                offset += channel.write(data, offset);
+        }
+
+        synchronized void force() throws IOException {
+            if (channel != null)
+                channel.force(false);
+        }
+
+        synchronized void seal() throws IOException {
+            channel.force(true);
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            channel.close();
+            channel = null;
+        }
+
+        void read(ByteBuffer destination, long offset) throws IOException {
+            MappedByteBuffer mapped = this.buffer;
+
+            if (mapped == null) {
+                synchronized (this) {
+                    mapped = this.buffer;
+
+                    if (mapped == null) {
+                        while (destination.hasRemaining()) {
+                            int read = channel.read(destination, offset);
+                            if (read < 0)
+                                throw new EOFException("Unexpected end of segment " + file);
+                            offset += read;
+                        }
+
+                        return;
+                    }
+                }
+            }
+
+            ByteBuffer source = mapped.duplicate();
+            source.position((int) offset);
+            source.limit((int) offset + destination.remaining());
+            destination.put(source);
+        }
+
+        synchronized void close() {
+            IOUtils.closeQuietly(channel);
+            channel = null;
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package eu.modernmt.context.lucene;
+
+import eu.modernmt.model.Memory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Map;
+
+import static eu.modernmt.context.lucene.TestData.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class LuceneAnalyzerTest_backup {
+
+    private TLuceneAnalyzer analyzer;
+
+    @Before
+    public void setup() throws Throwable {
+        this.analyzer = new TLuceneAnalyzer();
+    }
+
+    @After
+    public void teardown() throws Throwable {
+        if (this.analyzer != null)
+            this.analyzer.close();
+        this.analyzer = null;
+    }
+
+    private static TLuceneAnalyzer open(File path) throws Throwable {
+        AnalysisOptions options = new AnalysisOptions();
+        options.enabled = false;
+
+        return new TLuceneAnalyzer(path, options);
+    }
+
+    @Test
+    public void incrementalBackup() throws Throwable {
+        DummyBilingualCorpus corpus = TestData.corpus("dummy", EN__IT);
+
+        analyzer.onDataReceived(new Memory(1), corpus);
+        analyzer.onDataReceived(new Memory(2), corpus);
+
+        File backup1 = Files.createTempDirectory("LuceneAnalyzerTest_backup").toFile();
+        Map<Short, Long> positions1 = analyzer.backup(backup1, null);
+
+        analyzer.onDelete(TestData.deletion(1));
+
+        File backup2 = Files.createTempDirectory("LuceneAnalyzerTest_backup").toFile();
+        Map<Short, Long> positions2 = analyzer.backup(backup2, backup1);
+
+        try (TLuceneAnalyzer restored = open(backup1)) {
+            assertEquals(4, restored.getIndexSize());
+            assertEquals(4, restored.getStorageSize());
+            assertEquals(positions1, restored.getLatestChannelPositions());
+            assertEquals(TestData.getContent(EN), restored.getEntry(1, EN__IT).content);
+            assertEquals(TestData.getContent(EN), restored.getEntry(2, EN__IT).content);
+        }
+
+        try (TLuceneAnalyzer restored = open(backup2)) {
+            assertEquals(2, restored.getStorageSize());
+            assertEquals(TestData.channels(20L, 0L), positions2);
+            assertEquals(positions2, restored.getLatestChannelPositions());
+            assertEquals(TestData.getContent(EN), restored.getEntry(2, EN__IT).content);
+            assertNull(restored.getEntry(1, EN__IT));
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+package eu.modernmt.context.lucene;
+
+import eu.modernmt.context.lucene.analysis.DocumentBuilder;
+import eu.modernmt.context.lucene.analysis.LuceneUtils;
+import eu.modernmt.data.TranslationUnit;
+import eu.modernmt.lang.LanguagePair;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static eu.modernmt.context.lucene.TestData.EN__IT;
+import static eu.modernmt.context.lucene.TestData.IT__EN;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class LuceneAnalyzerTest_incrementalAnalysis {
+
+    private TLuceneAnalyzer incremental;
+    private TLuceneAnalyzer full;
+
+    @Before
+    public void setup() throws Throwable {
+        this.incremental = new TLuceneAnalyzer();
+        this.full = new TLuceneAnalyzer();
+    }
+
+    @After
+    public void teardown() throws Throwable {
+        this.incremental.close();
+        this.full.close();
+    }
+
+    private static String sentence(Random random, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if (i > 0)
+                builder.append(' ');
+            builder.append("word").append(random.nextInt(2000));
+        }
+        return builder.toString();
+    }
+
+    private static List<TranslationUnit> units(Random random, long firstPosition, int size) {
+        List<TranslationUnit> units = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            units.add(TestData.tu(0, firstPosition + i, 1L, EN__IT,
+                    sentence(random, 20), sentence(random, 20), null));
+        }
+        return units;
+    }
+
+    private static Map<String, Float> getTermFrequencies(TLuceneAnalyzer analyzer, LanguagePair direction) throws IOException {
+        IndexSearcher searcher = analyzer.getIndex().getIndexSearcher();
+        TermQuery query = new TermQuery(DocumentBuilder.makeIdTerm(DocumentBuilder.makeId(1L, direction)));
+        TopDocs docs = searcher.search(query, 1);
+
+        assertEquals(1, docs.totalHits);
+
+        String fieldName = DocumentBuilder.makeContentFieldName(direction);
+        return LuceneUtils.getTermFrequencies(searcher.getIndexReader(), docs.scoreDocs[0].doc, fieldName);
+    }
+
+    @Test
+    public void sameFrequenciesAsFullAnalysis() throws Throwable {
+        Random random = new Random(42);
+
+        // Every batch is appended to the storage as a new block of the buckets
+        List<TranslationUnit> batch1 = units(random, 0, 500);
+        List<TranslationUnit> batch2 = units(random, 500, 10);
+        List<TranslationUnit> batch3 = units(random, 510, 500);
+        List<TranslationUnit> batch4 = units(random, 1010, 3);
+
+        List<TranslationUnit> all = new ArrayList<>();
+        all.addAll(batch1);
+        all.addAll(batch2);
+        all.addAll(batch3);
+        all.addAll(batch4);
+
+        incremental.onDataReceived(batch1);
+        incremental.onDataReceived(batch2);
+        incremental.onDataReceived(batch3);
+        incremental.onDataReceived(batch4);
+
+        full.onDataReceived(all);
+
+        for (LanguagePair direction : new LanguagePair[]{EN__IT, IT__EN}) {
+            Map<String, Float> expected = getTermFrequencies(full, direction);
+
+            assertFalse(expected.isEmpty());
+            assertEquals(expected, getTermFrequencies(incremental, direction));
+            assertEquals(full.getEntry(1, direction).content, incremental.getEntry(1, direction).content);
+        }
+    }
+
+    @Test
+    public void reanalysisAfterDeletion() throws Throwable {
+        Random random = new Random(7);
+
+        incremental.onDataReceived(units(random, 0, 500));
+        incremental.onDelete(TestData.deletion(500, 1L));
+
+        List<TranslationUnit> units = units(random, 501, 20);
+        incremental.onDataReceived(units);
+        full.onDataReceived(units);
+
+        assertEquals(getTermFrequencies(full, EN__IT), getTermFrequencies(incremental, EN__IT));
+    }
+
+}
@@ -0,0 +1,124 @@
+package eu.modernmt.context.lucene;
+
+import eu.modernmt.context.lucene.analysis.ContextAnalyzerIndex;
+import eu.modernmt.context.lucene.analysis.DocumentBuilder;
+import eu.modernmt.context.lucene.analysis.LuceneUtils;
+import eu.modernmt.context.lucene.analysis.QueryTermVector;
+import eu.modernmt.context.lucene.analysis.rescoring.CosineSimilarityRescorer;
+import eu.modernmt.data.TranslationUnit;
+import eu.modernmt.model.corpus.Corpus;
+import eu.modernmt.model.corpus.impl.StringCorpus;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.*;
+import org.apache.lucene.queries.mlt.MoreLikeThis;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.similarities.DefaultSimilarity;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static eu.modernmt.context.lucene.TestData.EN__IT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class LuceneAnalyzerTest_queryTermVector {
+
+    private TLuceneAnalyzer analyzer;
+
+    @Before
+    public void setup() throws Throwable {
+        this.analyzer = new TLuceneAnalyzer();
+
+        Random random = new Random(13);
+        for (int memory = 1; memory <= 5; memory++) {
+            List<TranslationUnit> units = new ArrayList<>();
+            for (int i = 0; i < 100; i++)
+                units.add(TestData.tu(0, memory * 1000L + i, memory, EN__IT, sentence(random, 15), sentence(random, 15), null));
+
+            this.analyzer.onDataReceived(units);
+        }
+    }
+
+    @After
+    public void teardown() throws Throwable {
+        this.analyzer.close();
+    }
+
+    private static String sentence(Random random, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if (i > 0)
+                builder.append(' ');
+            builder.append("w").append(random.nextInt(800));
+        }
+        return builder.toString();
+    }
+
+    private static Map<String, Float> frequencies(QueryTermVector vector) {
+        HashMap<String, Float> result = new HashMap<>();
+        for (int i = 0; i < vector.size(); i++)
+            result.put(vector.getTerm(i).utf8ToString(), vector.getFrequency(i));
+        return result;
+    }
+
+    private static Map<String, Float> indexFrequencies(Analyzer analyzer, Corpus corpus, String fieldName) throws IOException {
+        Document document = DocumentBuilder.newInstance(EN__IT, corpus);
+
+        try (RAMDirectory directory = new RAMDirectory()) {
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(Version.LUCENE_4_10_4, analyzer))) {
+                writer.addDocument(document);
+            }
+
+            try (IndexReader reader = DirectoryReader.open(directory)) {
+                return LuceneUtils.getTermFrequencies(reader, 0, fieldName);
+            }
+        }
+    }
+
+    @Test
+    public void sameResultsOfTemporaryIndexAndMoreLikeThis() throws Throwable {
+        ContextAnalyzerIndex index = analyzer.getIndex();
+        Analyzer luceneAnalyzer = index.getAnalyzer();
+        IndexReader reader = index.getIndexSearcher().getIndexReader();
+        String fieldName = DocumentBuilder.makeContentFieldName(EN__IT);
+
+        Random random = new Random(99);
+
+        // The longest query is larger than the number of tokens parsed by MoreLikeThis
+        for (int length : new int[]{1, 5, 40, 400, 8000}) {
+            Corpus query = new StringCorpus("query", EN__IT.source, sentence(random, length));
+
+            QueryTermVector vector = QueryTermVector.analyze(luceneAnalyzer, fieldName, query.getRawContentReader(),
+                    MoreLikeThis.DEFAULT_MAX_NUM_TOKENS_PARSED, 2);
+
+            Map<String, Float> expectedFrequencies = indexFrequencies(luceneAnalyzer, query, fieldName);
+            assertFalse(expectedFrequencies.isEmpty());
+            assertEquals(expectedFrequencies, frequencies(vector));
+            assertEquals(CosineSimilarityRescorer.getL2Norm(expectedFrequencies), vector.getL2Norm(), 0.);
+
+            MoreLikeThis mlt = new MoreLikeThis(reader);
+            mlt.setFieldNames(new String[]{fieldName});
+            mlt.setMinDocFreq(0);
+            mlt.setMinTermFreq(1);
+            mlt.setMinWordLen(2);
+            mlt.setBoost(true);
+            mlt.setAnalyzer(luceneAnalyzer);
+
+            Query expectedQuery = mlt.like(fieldName, query.getRawContentReader());
+            Query actualQuery = vector.createMoreLikeThisQuery(reader, fieldName, MoreLikeThis.DEFAULT_MAX_QUERY_TERMS, new DefaultSimilarity());
+
+            assertEquals(expectedQuery, actualQuery);
+        }
+    }
+
+}
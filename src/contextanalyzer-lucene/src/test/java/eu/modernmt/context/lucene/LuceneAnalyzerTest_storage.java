@@ -0,0 +1,249 @@
+package eu.modernmt.context.lucene;
+
+import eu.modernmt.context.lucene.storage.CorporaStorage;
+import eu.modernmt.data.DataBatch;
+import eu.modernmt.data.Deletion;
+import eu.modernmt.data.TranslationUnit;
+import eu.modernmt.io.UTF8Charset;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+import static eu.modernmt.context.lucene.TestData.EN__IT;
+import static eu.modernmt.context.lucene.TestData.IT__EN;
+import static org.junit.Assert.*;
+
+public class LuceneAnalyzerTest_storage {
+
+    private static final long SEGMENT_SIZE = 8 * 1024;
+
+    private File path;
+    private TLuceneAnalyzer analyzer;
+
+    @Before
+    public void setup() throws Throwable {
+        this.path = Files.createTempDirectory("LuceneAnalyzerTest_storage").toFile();
+    }
+
+    @After
+    public void teardown() throws Throwable {
+        if (this.analyzer != null)
+            this.analyzer.close();
+        this.analyzer = null;
+
+        FileUtils.deleteDirectory(this.path);
+    }
+
+    private static TLuceneAnalyzer open(File path) throws IOException {
+        AnalysisOptions options = new AnalysisOptions();
+        options.enabled = false;
+
+        return new TLuceneAnalyzer(path, new TLuceneAnalyzer.TCorporaStorage(new File(path, "storage"), SEGMENT_SIZE), options);
+    }
+
+    private static long getSegmentsSize(File path) {
+        return FileUtils.sizeOfDirectory(new File(new File(path, "storage"), "segments"));
+    }
+
+    @Test
+    public void compactionOfDeletedBuckets() throws Throwable {
+        analyzer = open(new File(path, "analyzer"));
+
+        Random random = new Random(3);
+        HashMap<Long, StringBuilder> sources = new HashMap<>();
+        long position = 0;
+
+        // Interleaved batches, so that every segment contains blocks of many buckets
+        for (int batch = 0; batch < 40; batch++) {
+            List<TranslationUnit> units = new ArrayList<>();
+
+            for (long memory = 1; memory <= 10; memory++) {
+                String source = "source " + memory + " " + random.nextInt(1000000);
+                String target = "target " + memory + " " + random.nextInt(1000000);
+
+                units.add(TestData.tu(0, position++, memory, EN__IT, source, target, null));
+                sources.computeIfAbsent(memory, key -> new StringBuilder()).append(source).append('\n');
+            }
+
+            analyzer.onDataReceived(units);
+        }
+
+        File analyzerPath = new File(path, "analyzer");
+        long sizeBeforeCompaction = getSegmentsSize(analyzerPath);
+
+        for (long memory = 1; memory <= 7; memory++)
+            analyzer.onDelete(TestData.deletion(position++, memory));
+
+        analyzer.getStorage().compact();
+
+        assertTrue(getSegmentsSize(analyzerPath) < sizeBeforeCompaction / 2);
+        assertEquals(6, analyzer.getStorageSize());
+
+        for (long memory = 1; memory <= 10; memory++) {
+            if (memory <= 7) {
+                assertNull(analyzer.getEntry(memory, EN__IT));
+            } else {
+                assertEquals(sources.get(memory).toString().trim(), analyzer.getEntry(memory, EN__IT).content);
+                assertNotNull(analyzer.getEntry(memory, IT__EN));
+            }
+        }
+
+        // Appending after compaction and reopening from a backup
+        analyzer.onDataReceived(Collections.singletonList(TestData.tu(0, position, 10L, EN__IT, "last source", "last target", null)));
+        sources.get(10L).append("last source\n");
+
+        File backup = new File(path, "backup");
+        analyzer.backup(backup, null);
+
+        try (TLuceneAnalyzer restored = open(backup)) {
+            assertEquals(6, restored.getStorageSize());
+            assertEquals(sources.get(8L).toString().trim(), restored.getEntry(8, EN__IT).content);
+            assertEquals(sources.get(10L).toString().trim(), restored.getEntry(10, EN__IT).content);
+        }
+    }
+
+    private static DataBatch batch(Collection<TranslationUnit> units, Collection<Deletion> deletions, int channel, long position) {
+        return new DataBatch() {
+            @Override
+            public Collection<TranslationUnit> getTranslationUnits() {
+                return units;
+            }
+
+            @Override
+            public Collection<Deletion> getDeletions() {
+                return deletions;
+            }
+
+            @Override
+            public Map<Short, Long> getChannelPositions() {
+                return Collections.singletonMap((short) channel, position);
+            }
+        };
+    }
+
+    @Test
+    public void concurrentWritesAndCompaction() throws Throwable {
+        analyzer = open(new File(path, "analyzer"));
+        CorporaStorage storage = analyzer.getStorage();
+
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+
+            // Every writer has its own channel and corpora, some of them deleted along the way
+            for (int writer = 0; writer < 4; writer++) {
+                int channel = writer;
+
+                futures.add(executor.submit(() -> {
+                    long position = 0;
+
+                    for (int batch = 0; batch < 30; batch++) {
+                        List<TranslationUnit> units = new ArrayList<>();
+                        for (long memory = 1; memory <= 5; memory++)
+                            units.add(TestData.tu(channel, position++, channel * 10 + memory, EN__IT,
+                                    "source " + batch, "target " + batch, null));
+
+                        storage.onDataReceived(batch(units, Collections.emptyList(), channel, position - 1));
+                    }
+
+                    Deletion deletion = new Deletion((short) channel, position, channel * 10 + 1);
+                    storage.onDataReceived(batch(Collections.emptyList(), Collections.singleton(deletion), channel, position));
+                    return null;
+                }));
+            }
+
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 20; i++) {
+                    storage.compact();
+                    Thread.sleep(5);
+                }
+                return null;
+            }));
+
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        StringBuilder content = new StringBuilder();
+        for (int batch = 0; batch < 30; batch++)
+            content.append("source ").append(batch).append('\n');
+
+        storage.compact();
+        analyzer.forceAnalysis();
+
+        assertEquals(4 * 4 * 2, analyzer.getStorageSize());
+
+        for (int channel = 0; channel < 4; channel++) {
+            assertEquals(150L, (long) analyzer.getLatestChannelPositions().get((short) channel));
+            assertNull(analyzer.getEntry(channel * 10 + 1, EN__IT));
+
+            for (long memory = 2; memory <= 5; memory++)
+                assertEquals(content.toString().trim(), analyzer.getEntry(channel * 10 + memory, EN__IT).content);
+        }
+    }
+
+    private static void write(File file, byte[] content, boolean compress) throws IOException {
+        FileUtils.forceMkdir(file.getParentFile());
+
+        try (OutputStream output = compress ? new GZIPOutputStream(new FileOutputStream(file)) : new FileOutputStream(file)) {
+            output.write(content);
+        }
+    }
+
+    @Test
+    public void migrationOfLegacyBuckets() throws Throwable {
+        File storage = new File(new File(path, "analyzer"), "storage");
+        FileUtils.forceMkdir(storage);
+
+        byte[] compressed = "hello world\nfirst line\n".getBytes(UTF8Charset.get());
+        byte[] plain = "second line\n".getBytes(UTF8Charset.get());
+
+        File folder = new File(new File(storage, "1"), "1");
+        write(new File(folder, "1_en_it.gz"), compressed, true);
+        write(new File(folder, "1_en_it.txt"), plain, false);
+        long gzSize = new File(folder, "1_en_it.gz").length();
+
+        Class.forName("org.sqlite.JDBC");
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + new File(storage, "index").getAbsolutePath());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE buckets (id INTEGER, source TEXT, target TEXT, " +
+                    "owner_lsb INTEGER, owner_msb INTEGER, size INTEGER, plain_size INTEGER, gz_size INTEGER, " +
+                    "mark INTEGER DEFAULT 0, PRIMARY KEY (id, source, target))");
+            statement.executeUpdate("INSERT INTO buckets VALUES (1, 'en', 'it', 0, 0, " +
+                    (compressed.length + plain.length) + ", " + plain.length + ", " + gzSize + ", 0)");
+            statement.executeUpdate("CREATE TABLE channels (id INTEGER PRIMARY KEY, position INTEGER)");
+            statement.executeUpdate("INSERT INTO channels VALUES (0, 12)");
+        }
+
+        analyzer = open(new File(path, "analyzer"));
+
+        assertEquals(1, analyzer.getStorageSize());
+        assertEquals(Collections.singletonMap((short) 0, 12L), analyzer.getLatestChannelPositions());
+        try (InputStream content = analyzer.getStorage().getBucket(1, EN__IT).getContentStream()) {
+            assertEquals("hello world\nfirst line\nsecond line\n", IOUtils.toString(content, UTF8Charset.get()));
+        }
+
+        assertFalse(new File(storage, "1").exists());
+    }
+
+}
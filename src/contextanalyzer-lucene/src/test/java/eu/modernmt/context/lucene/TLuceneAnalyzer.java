@@ -35,6 +35,10 @@ public class TLuceneAnalyzer extends LuceneAnalyzer {
             super(path);
         }
 
+        public TCorporaStorage(File path, long maxSegmentSize) throws IOException {
+            super(path, true, maxSegmentSize);
+        }
+
         public Bucket getBucket(long id, LanguagePair language) throws IOException {
             Bucket bucket = super.buckets.get(id, language, null);
             if (bucket != null && bucket.getSize() == 0)
@@ -57,8 +61,12 @@ public class TLuceneAnalyzer extends LuceneAnalyzer {
         this(getTempDirectory(), options);
     }
 
-    private TLuceneAnalyzer(File path, AnalysisOptions options) throws IOException {
-        super(new ContextAnalyzerIndex(new File(path, "index")), new TCorporaStorage(new File(path, "storage")), options);
+    public TLuceneAnalyzer(File path, AnalysisOptions options) throws IOException {
+        this(path, new TCorporaStorage(new File(path, "storage")), options);
+    }
+
+    public TLuceneAnalyzer(File path, TCorporaStorage storage, AnalysisOptions options) throws IOException {
+        super(new ContextAnalyzerIndex(new File(path, "index")), storage, options);
         this.path = path;
     }
 
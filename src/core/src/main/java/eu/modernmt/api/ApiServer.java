@@ -67,12 +67,12 @@ public class ApiServer {
         String contextPath = normalizeContextPath(options.contextPath);
         if (contextPath == null) {
             ServletHandler router = new ServletHandler();
-            router.addServletWithMapping(Router.class, "/*");
+            router.addServletWithMapping(Router.class, "/*").setAsyncSupported(true);
             rootHandler = router;
         } else {
             ServletContextHandler contextHandler = new ServletContextHandler();
             contextHandler.setContextPath(contextPath);
-            contextHandler.addServlet(Router.class, "/*");
+            contextHandler.addServlet(Router.class, "/*").setAsyncSupported(true);
             rootHandler = contextHandler;
         }
 
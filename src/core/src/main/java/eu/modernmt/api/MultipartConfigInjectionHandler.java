@@ -5,6 +5,8 @@ import org.eclipse.jetty.http.MultiPartFormInputStream;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.handler.HandlerWrapper;
 
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.MultipartConfigElement;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
@@ -49,12 +51,48 @@ class MultipartConfigInjectionHandler extends HandlerWrapper {
             super.handle(target, baseRequest, request, response);
         } finally {
             if (multipartRequest) {
-                MultiPartFormInputStream multipartInputStream = (MultiPartFormInputStream) request.getAttribute(MULTIPART);
-                if (multipartInputStream != null) {
-                    multipartInputStream.deleteParts();
-                }
+                if (request.isAsyncStarted())
+                    request.getAsyncContext().addListener(new DeletePartsListener(request));
+                else
+                    deleteParts(request);
             }
         }
     }
 
+    private static void deleteParts(ServletRequest request) {
+        MultiPartFormInputStream multipartInputStream = (MultiPartFormInputStream) request.getAttribute(MULTIPART);
+        if (multipartInputStream != null) {
+            multipartInputStream.deleteParts();
+        }
+    }
+
+    private static final class DeletePartsListener implements AsyncListener {
+
+        private final ServletRequest request;
+
+        DeletePartsListener(ServletRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            deleteParts(request);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            // Nothing to do, onComplete follows
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            // Nothing to do, onComplete follows
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Nothing to do
+        }
+    }
+
 }
@@ -0,0 +1,149 @@
+package eu.modernmt.api.actions.memory;
+
+import eu.modernmt.api.framework.HttpMethod;
+import eu.modernmt.api.framework.Parameters;
+import eu.modernmt.api.framework.RESTRequest;
+import eu.modernmt.api.framework.actions.StreamAction;
+import eu.modernmt.api.framework.actions.StreamActionResult;
+import eu.modernmt.api.framework.routing.Route;
+import eu.modernmt.api.framework.routing.TemplateException;
+import eu.modernmt.decoder.neural.memory.ScoreEntry;
+import eu.modernmt.facade.ModernMT;
+import eu.modernmt.facade.exceptions.FeatureNotSupportedException;
+import eu.modernmt.io.RuntimeIOException;
+import eu.modernmt.io.UTF8Charset;
+import eu.modernmt.lang.LanguagePair;
+import eu.modernmt.model.corpus.MultilingualCorpus;
+import eu.modernmt.model.corpus.impl.tmx.TMXCorpus;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.*;
+
+/**
+ * Streams the content of a memory, as stored by the translation memory of this node:
+ * entries are written as soon as they are read from the index, in no particular order.
+ */
+@Route(aliases = {"memories/:id/export", "domains/:id/export"}, method = HttpMethod.GET)
+public class ExportMemory extends StreamAction {
+
+    public enum Format {
+        TMX, COMPACT
+    }
+
+    @Override
+    protected StreamActionResult getResult(RESTRequest req, Parameters _params) throws Throwable {
+        Params params = (Params) _params;
+
+        if (ModernMT.memory.get(params.id) == null)
+            return null;
+
+        // Once the content is being streamed the request cannot fail anymore
+        ModernMT.memory.checkExportSupported();
+
+        return params.format == Format.TMX ? new TMXResult(params) : new CompactResult(params);
+    }
+
+    @Override
+    protected Parameters getParameters(RESTRequest req) throws Parameters.ParameterParsingException, TemplateException {
+        return new Params(req);
+    }
+
+    public static class Params extends Parameters {
+
+        private final long id;
+        private final LanguagePair direction;
+        private final Format format;
+
+        public Params(RESTRequest req) throws ParameterParsingException, TemplateException {
+            super(req);
+
+            id = req.getPathParameterAsLong("id");
+            direction = getLanguagePair("source", "target", null);
+            format = getEnum("format", Format.class, Format.TMX);
+        }
+    }
+
+    private interface EntryWriter {
+
+        void write(ScoreEntry entry) throws IOException;
+
+    }
+
+    private static void export(Params params, EntryWriter writer) throws IOException {
+        try {
+            ModernMT.memory.export(params.id, params.direction, entry -> {
+                try {
+                    writer.write(entry);
+                } catch (IOException e) {
+                    throw new RuntimeIOException(e);
+                }
+            });
+        } catch (RuntimeIOException e) {
+            throw e.getCause();
+        } catch (FeatureNotSupportedException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static class TMXResult extends StreamActionResult {
+
+        private final Params params;
+
+        TMXResult(Params params) {
+            this.params = params;
+        }
+
+        @Override
+        public String getContentType() {
+            return "application/xml; charset=utf-8";
+        }
+
+        @Override
+        public void write(OutputStream output) throws IOException {
+            MultilingualCorpus.MultilingualLineWriter writer = TMXCorpus.newContentWriter(output);
+
+            export(params, entry -> writer.write(new MultilingualCorpus.StringPair(entry.language,
+                    StringUtils.join(entry.sentence, ' '), StringUtils.join(entry.translation, ' '))));
+
+            // Document is completed only if all the entries have been written: a failure leaves it truncated
+            writer.close();
+        }
+
+    }
+
+    private static class CompactResult extends StreamActionResult {
+
+        private final Params params;
+
+        CompactResult(Params params) {
+            this.params = params;
+        }
+
+        @Override
+        public String getContentType() {
+            return "text/plain; charset=utf-8";
+        }
+
+        @Override
+        public void write(OutputStream output) throws IOException {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, UTF8Charset.get()), 64 * 1024);
+
+            export(params, entry -> {
+                writer.write(Long.toString(entry.memory));
+                writer.write('\t');
+                writer.write(entry.language.source.toLanguageTag());
+                writer.write('\t');
+                writer.write(entry.language.target.toLanguageTag());
+                writer.write('\t');
+                writer.write(StringUtils.join(entry.sentence, ' ').replace('\t', ' '));
+                writer.write('\t');
+                writer.write(StringUtils.join(entry.translation, ' ').replace('\t', ' '));
+                writer.write('\n');
+            });
+
+            writer.flush();
+        }
+
+    }
+
+}
@@ -0,0 +1,92 @@
+package eu.modernmt.api.actions.translation;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import eu.modernmt.aligner.Aligner;
+import eu.modernmt.aligner.AlignerException;
+import eu.modernmt.api.framework.HttpMethod;
+import eu.modernmt.api.framework.Parameters;
+import eu.modernmt.api.framework.RESTRequest;
+import eu.modernmt.api.framework.actions.CollectionAction;
+import eu.modernmt.api.framework.routing.Route;
+import eu.modernmt.api.model.ProjectedTranslation;
+import eu.modernmt.facade.ModernMT;
+import eu.modernmt.lang.LanguagePair;
+import eu.modernmt.model.Translation;
+import eu.modernmt.processing.ProcessingException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Projects the tags of a whole batch of pairs (i.e. all the segments of a document) with a single call:
+ * results are returned in the same order of the pairs.
+ */
+@Route(aliases = "tags-projection", method = HttpMethod.POST)
+public class BatchTagsProjection extends CollectionAction<ProjectedTranslation> {
+
+    @Override
+    protected Collection<ProjectedTranslation> execute(RESTRequest req, Parameters _params) throws AlignerException, ProcessingException {
+        Params params = (Params) _params;
+
+        Translation[] taggedTranslations = ModernMT.tags.project(params.direction, params.sentences, params.translations, params.symmetrizationStrategy);
+
+        ArrayList<ProjectedTranslation> result = new ArrayList<>(taggedTranslations.length);
+        for (Translation taggedTranslation : taggedTranslations)
+            result.add(TagsProjection.asProjectedTranslation(taggedTranslation, params.showDetails));
+
+        return result;
+    }
+
+    @Override
+    protected Parameters getParameters(RESTRequest req) throws Parameters.ParameterParsingException {
+        return new Params(req);
+    }
+
+    public static class Params extends Parameters {
+
+        public final LanguagePair direction;
+        public final List<String> sentences;
+        public final List<String> translations;
+        public final Aligner.SymmetrizationStrategy symmetrizationStrategy;
+        public final boolean showDetails;
+
+        public Params(RESTRequest req) throws ParameterParsingException {
+            super(req);
+
+            LanguagePair engineDirection = ModernMT.getNode().getEngine().getLanguageIndex().asSingleLanguagePair();
+            this.direction = engineDirection != null ?
+                    getLanguagePair("source", "target", engineDirection) :
+                    getLanguagePair("source", "target");
+            this.showDetails = getBoolean("verbose", false);
+            this.symmetrizationStrategy = getEnum("symmetrization", Aligner.SymmetrizationStrategy.class, null);
+
+            JsonArray pairs = getJSONArray("pairs");
+            this.sentences = new ArrayList<>(pairs.size());
+            this.translations = new ArrayList<>(pairs.size());
+
+            for (JsonElement element : pairs) {
+                JsonObject pair = element.isJsonObject() ? element.getAsJsonObject() : null;
+                String sentence = getNotEmptyString(pair, "text");
+                String translation = getNotEmptyString(pair, "translation");
+
+                if (sentence == null || translation == null)
+                    throw new ParameterParsingException("pairs", element.toString());
+
+                this.sentences.add(sentence);
+                this.translations.add(translation);
+            }
+        }
+
+        private static String getNotEmptyString(JsonObject object, String name) {
+            JsonElement element = object == null ? null : object.get(name);
+            if (element == null || !element.isJsonPrimitive())
+                return null;
+
+            String value = element.getAsString();
+            return value.trim().isEmpty() ? null : value;
+        }
+    }
+}
@@ -30,9 +30,13 @@ public class TagsProjection extends ObjectAction<ProjectedTranslation> {
         else
             taggedTranslation = ModernMT.tags.project(params.direction, params.sentence, params.translation);
 
+        return asProjectedTranslation(taggedTranslation, params.showDetails);
+    }
+
+    static ProjectedTranslation asProjectedTranslation(Translation taggedTranslation, boolean showDetails) {
         ProjectedTranslation result = new ProjectedTranslation(taggedTranslation.toString());
 
-        if (params.showDetails) {
+        if (showDetails) {
             result.setSourceTokens(stringifyTokens(taggedTranslation.getSource().getWords()));
             result.setTargetTokens(stringifyTokens(taggedTranslation.getWords()));
             result.setAlignment(taggedTranslation.getWordAlignment());
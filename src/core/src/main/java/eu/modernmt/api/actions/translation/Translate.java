@@ -4,49 +4,49 @@ import eu.modernmt.api.actions.util.ContextUtils;
 import eu.modernmt.api.framework.HttpMethod;
 import eu.modernmt.api.framework.Parameters;
 import eu.modernmt.api.framework.RESTRequest;
-import eu.modernmt.api.framework.actions.ObjectAction;
+import eu.modernmt.api.framework.actions.AsyncObjectAction;
 import eu.modernmt.api.framework.routing.Route;
 import eu.modernmt.api.model.TranslationResponse;
 import eu.modernmt.context.ContextAnalyzerException;
-import eu.modernmt.decoder.DecoderException;
 import eu.modernmt.facade.ModernMT;
 import eu.modernmt.facade.TranslationFacade;
 import eu.modernmt.lang.LanguagePair;
 import eu.modernmt.model.ContextVector;
 import eu.modernmt.persistence.PersistenceException;
-import eu.modernmt.processing.ProcessingException;
 
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Created by davide on 17/12/15.
  */
 @Route(aliases = "translate", method = HttpMethod.GET)
-public class Translate extends ObjectAction<TranslationResponse> {
+public class Translate extends AsyncObjectAction<TranslationResponse> {
 
     public static final int MAX_QUERY_LENGTH = 5000;
 
     @Override
-    protected TranslationResponse execute(RESTRequest req, Parameters _params) throws ContextAnalyzerException, PersistenceException, DecoderException, ProcessingException {
+    protected CompletableFuture<TranslationResponse> execute(RESTRequest req, Parameters _params) throws ContextAnalyzerException, PersistenceException {
         Params params = (Params) _params;
 
         TranslationResponse result = new TranslationResponse(params.priority);
         result.verbose = params.verbose;
 
-        if (params.context != null) {
-            result.translation = ModernMT.translation.get(params.user, params.direction, params.query, params.context, params.nbest, params.priority, params.timeout);
-        } else if (params.contextString != null) {
+        ContextVector context = params.context;
+
+        if (context == null && params.contextString != null) {
             result.context = ModernMT.translation.getContextVector(params.user, params.direction, params.contextString, params.contextLimit);
-            result.translation = ModernMT.translation.get(params.user, params.direction, params.query, result.context, params.nbest, params.priority, params.timeout);
-        } else {
-            result.translation = ModernMT.translation.get(params.user, params.direction, params.query, params.nbest, params.priority, params.timeout);
+            context = result.context;
         }
 
-
         if (result.context != null)
             ContextUtils.resolve(result.context);
 
-        return result;
+        return ModernMT.translation.getAsync(params.user, params.direction, params.query, context, params.nbest, params.priority, params.timeout)
+                .thenApply(translation -> {
+                    result.translation = translation;
+                    return result;
+                });
     }
 
     @Override
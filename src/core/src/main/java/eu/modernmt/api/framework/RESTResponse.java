@@ -7,6 +7,7 @@ import org.apache.logging.log4j.Logger;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 
 /**
@@ -30,6 +31,7 @@ public class RESTResponse {
 
     private HttpServletResponse response;
     private JsonObject content = null;
+    private boolean streaming = false;
 
     public RESTResponse(HttpServletResponse response) {
         this.response = response;
@@ -83,7 +85,34 @@ public class RESTResponse {
         output(HttpServletResponse.SC_SERVICE_UNAVAILABLE, null, e);
     }
 
+    /**
+     * Starts a successful response whose content is written directly to the returned stream
+     *
+     * @param contentType the content type of the response
+     * @return the output stream of the response
+     */
+    public OutputStream stream(String contentType) throws IOException {
+        if (content != null)
+            throw new IllegalStateException("Output has been already set");
+
+        content = new JsonObject();
+        content.addProperty("status", HttpServletResponse.SC_OK);
+        streaming = true;
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(contentType);
+        response.addHeader("Access-Control-Allow-Origin", "*");
+
+        return response.getOutputStream();
+    }
+
     private void output(int httpStatus, JsonElement json, Throwable throwable) {
+        if (streaming) {
+            // Status and part of the content have been already sent
+            logger.error("unable to send error response " + httpStatus + ", content has been truncated", throwable);
+            return;
+        }
+
         if (content != null)
             throw new IllegalStateException("Output has been already set");
 
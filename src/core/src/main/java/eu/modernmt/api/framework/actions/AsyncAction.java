@@ -0,0 +1,21 @@
+package eu.modernmt.api.framework.actions;
+
+import eu.modernmt.api.framework.RESTRequest;
+import eu.modernmt.api.framework.RESTResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * An action that can complete its response without holding the calling thread:
+ * the returned future is completed once the response has been written.
+ */
+public interface AsyncAction extends Action {
+
+    /**
+     * @param executor the executor that must write the response: the result future may be
+     *                 completed by a thread that is not allowed to block, such as a cluster callback
+     */
+    CompletableFuture<Void> executeAsync(RESTRequest request, RESTResponse response, Executor executor);
+
+}
@@ -0,0 +1,68 @@
+package eu.modernmt.api.framework.actions;
+
+import eu.modernmt.api.framework.Parameters;
+import eu.modernmt.api.framework.RESTRequest;
+import eu.modernmt.api.framework.RESTResponse;
+
+import java.lang.reflect.ParameterizedType;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+public abstract class AsyncObjectAction<M> extends JSONAction implements AsyncAction {
+
+    private final Class<M> objectClass;
+
+    @SuppressWarnings("unchecked")
+    protected AsyncObjectAction() {
+        objectClass = (Class<M>) ((ParameterizedType) getClass().getGenericSuperclass()).getActualTypeArguments()[0];
+    }
+
+    @Override
+    protected final ObjectActionResult getResult(RESTRequest req, Parameters params) throws Throwable {
+        try {
+            return wrap(execute(req, params).get());
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public final CompletableFuture<Void> executeAsync(RESTRequest req, RESTResponse resp, Executor executor) {
+        Parameters params;
+        CompletableFuture<M> future;
+
+        try {
+            params = getParameters(req);
+            future = execute(req, params);
+        } catch (Throwable e) {
+            onError(resp, e);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return future.handleAsync((object, error) -> {
+            if (error == null) {
+                try {
+                    output(req, resp, params, wrap(object));
+                } catch (Throwable e) {
+                    onError(resp, e);
+                }
+            } else {
+                onError(resp, error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }
+
+            return null;
+        }, executor);
+    }
+
+    private ObjectActionResult<M> wrap(M object) {
+        return object == null ? null : new ObjectActionResult<>(object, objectClass);
+    }
+
+    /**
+     * @return a future for the result of the action, completed without blocking the calling thread
+     */
+    protected abstract CompletableFuture<M> execute(RESTRequest req, Parameters params) throws Throwable;
+
+}
@@ -0,0 +1,74 @@
+package eu.modernmt.api.framework.actions;
+
+import eu.modernmt.cluster.error.SystemShutdownException;
+import eu.modernmt.decoder.DecoderUnavailableException;
+import eu.modernmt.facade.exceptions.AuthenticationException;
+import eu.modernmt.facade.exceptions.FeatureNotSupportedException;
+import eu.modernmt.facade.exceptions.TestFailedException;
+import eu.modernmt.lang.UnsupportedLanguageException;
+import eu.modernmt.api.framework.Parameters;
+import eu.modernmt.api.framework.RESTRequest;
+import eu.modernmt.api.framework.RESTResponse;
+import eu.modernmt.api.framework.routing.TemplateException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Common execution of the actions: parameters parsing and mapping of the errors to the HTTP responses
+ */
+public abstract class BaseAction implements Action {
+
+    protected final Logger logger = LogManager.getLogger(getClass());
+
+    @Override
+    public final void execute(RESTRequest req, RESTResponse resp) {
+        try {
+            unsecureExecute(req, resp);
+        } catch (Throwable e) {
+            onError(resp, e);
+        }
+    }
+
+    protected abstract void unsecureExecute(RESTRequest req, RESTResponse resp) throws Throwable;
+
+    protected final void onError(RESTResponse resp, Throwable e) {
+        if (e instanceof TemplateException) {
+            if (logger.isDebugEnabled())
+                logger.debug("Template exception while executing action " + this, e);
+            resp.resourceNotFound();
+        } else if (e instanceof Parameters.ParameterParsingException) {
+            resp.badRequest(e);
+        } else if (e instanceof FeatureNotSupportedException) {
+            if (logger.isDebugEnabled())
+                logger.debug("Unsupported request for action " + this, e);
+            resp.badRequest(e);
+        } else if (e instanceof UnsupportedLanguageException) {
+            if (logger.isDebugEnabled())
+                logger.debug("Language direction '" + ((UnsupportedLanguageException) e).getLanguagePair() + "' is not supported " + this, e);
+            resp.badRequest(e);
+        } else if (e instanceof AuthenticationException) {
+            if (logger.isDebugEnabled())
+                logger.debug("Authentication exception while executing action " + this, e);
+            resp.forbidden(e);
+        } else if (e instanceof SystemShutdownException) {
+            if (logger.isDebugEnabled())
+                logger.debug("Unable to complete action " + this + ": system is shutting down", e);
+            resp.unavailable(e);
+        } else if (e instanceof DecoderUnavailableException || e instanceof TestFailedException) {
+            resp.unavailable(e);
+        } else {
+            logger.error("Internal error while executing action " + this, e);
+            resp.unexpectedError(e);
+        }
+    }
+
+    protected Parameters getParameters(RESTRequest req) throws Parameters.ParameterParsingException, TemplateException {
+        return new Parameters(req);
+    }
+
+    @Override
+    public final String toString() {
+        return getClass().getSimpleName();
+    }
+
+}
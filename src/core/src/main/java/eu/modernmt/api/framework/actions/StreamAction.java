@@ -0,0 +1,26 @@
+package eu.modernmt.api.framework.actions;
+
+import eu.modernmt.api.framework.Parameters;
+import eu.modernmt.api.framework.RESTRequest;
+import eu.modernmt.api.framework.RESTResponse;
+
+/**
+ * Action whose result is streamed to the response: every check that can fail the request
+ * must be done by getResult(), before the response status is sent.
+ */
+public abstract class StreamAction extends BaseAction {
+
+    @Override
+    protected void unsecureExecute(RESTRequest req, RESTResponse resp) throws Throwable {
+        Parameters params = getParameters(req);
+        StreamActionResult result = getResult(req, params);
+
+        if (result == null)
+            resp.resourceNotFound();
+        else
+            result.write(resp.stream(result.getContentType()));
+    }
+
+    protected abstract StreamActionResult getResult(RESTRequest req, Parameters params) throws Throwable;
+
+}
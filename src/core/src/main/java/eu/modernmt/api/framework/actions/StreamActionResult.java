@@ -0,0 +1,16 @@
+package eu.modernmt.api.framework.actions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Result written incrementally to the response instead of being serialized as a whole:
+ * errors raised while writing can only truncate the content.
+ */
+public abstract class StreamActionResult {
+
+    public abstract String getContentType();
+
+    public abstract void write(OutputStream output) throws IOException;
+
+}
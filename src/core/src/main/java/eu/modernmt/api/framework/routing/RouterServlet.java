@@ -5,9 +5,11 @@ import eu.modernmt.api.framework.HttpMethod;
 import eu.modernmt.api.framework.RESTRequest;
 import eu.modernmt.api.framework.RESTResponse;
 import eu.modernmt.api.framework.actions.Action;
+import eu.modernmt.api.framework.actions.AsyncAction;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import javax.servlet.AsyncContext;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -15,6 +17,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.UnsupportedEncodingException;
 import java.util.Collection;
+import java.util.HashMap;
 
 public abstract class RouterServlet extends HttpServlet {
 
@@ -22,12 +25,14 @@ public abstract class RouterServlet extends HttpServlet {
 
     protected final Logger logger = LogManager.getLogger(getClass());
     private RouteTree routes;
+    private HashMap<Class<? extends Action>, Action> actions;
 
     @Override
     public void init(ServletConfig config) throws ServletException {
         super.init(config);
 
         routes = new RouteTree();
+        actions = new HashMap<>();
 
         for (Class<?> clazz : getDeclaredActions()) {
             if (!Action.class.isAssignableFrom(clazz))
@@ -39,6 +44,12 @@ public abstract class RouterServlet extends HttpServlet {
             if (route != null) {
                 HttpMethod method = route.method();
 
+                try {
+                    actions.put(actionClass, actionClass.newInstance());
+                } catch (ReflectiveOperationException e) {
+                    throw new ServletException("Unable to instantiate action " + actionClass.getSimpleName(), e);
+                }
+
                 for (String path : route.aliases()) {
                     RouteTemplate template = new RouteTemplate('/' + path, actionClass, method);
                     routes.add(template);
@@ -71,6 +82,7 @@ public abstract class RouterServlet extends HttpServlet {
         RESTResponse restResponse = new RESTResponse(resp);
 
         Route route = null;
+        boolean async = false;
 
         try {
             Class<? extends Action> actionClass = restRequest.getActionClass();
@@ -79,39 +91,70 @@ public abstract class RouterServlet extends HttpServlet {
             } else {
                 route = actionClass.getAnnotation(Route.class);
 
-                Action action = actionClass.newInstance();
-                action.execute(restRequest, restResponse);
+                Action action = actions.get(actionClass);
+
+                if (action instanceof AsyncAction && req.isAsyncSupported()) {
+                    executeAsync((AsyncAction) action, req, restRequest, restResponse, route, start);
+                    async = true;
+                } else {
+                    action.execute(restRequest, restResponse);
+                }
             }
         } catch (Throwable e) {
             logger.error("Unexpected exceptions", e);
             restResponse.unexpectedError(e);
         } finally {
-            long elapsedTime = System.currentTimeMillis() - start;
-
-            if (logger.isInfoEnabled() && route != null && route.log()) {
-                StringBuilder log = new StringBuilder();
-                log.append('"');
-                log.append(restRequest);
-                log.append("\" ");
-                log.append(restResponse.getHttpStatus());
-                log.append(' ');
-                log.append(elapsedTime);
-
-                if (logger.isDebugEnabled()) {
-                    JsonElement json = restResponse.getContent();
-
-                    if (json != null) {
-                        String content = json.toString();
-                        if (content.length() > 500)
-                            content = content.substring(0, 499) + "[...]";
-
-                        log.append(' ');
-                        log.append(content);
-                    }
+            if (!async)
+                log(restRequest, restResponse, route, start);
+        }
+    }
+
+    private void executeAsync(AsyncAction action, HttpServletRequest req, RESTRequest restRequest, RESTResponse restResponse, Route route, long start) {
+        AsyncContext context = req.startAsync();
+        context.setTimeout(0L); // Actions are responsible for their own timeouts
+
+        // Responses are serialized and written by the container thread pool, as synchronous ones
+        action.executeAsync(restRequest, restResponse, context::start).whenComplete((result, error) -> {
+            try {
+                if (error != null) {
+                    logger.error("Unexpected exceptions", error);
+                    if (restResponse.getContent() == null)
+                        restResponse.unexpectedError(error);
                 }
 
-                logger.info(log);
+                log(restRequest, restResponse, route, start);
+            } finally {
+                context.complete();
             }
+        });
+    }
+
+    private void log(RESTRequest restRequest, RESTResponse restResponse, Route route, long start) {
+        long elapsedTime = System.currentTimeMillis() - start;
+
+        if (logger.isInfoEnabled() && route != null && route.log()) {
+            StringBuilder log = new StringBuilder();
+            log.append('"');
+            log.append(restRequest);
+            log.append("\" ");
+            log.append(restResponse.getHttpStatus());
+            log.append(' ');
+            log.append(elapsedTime);
+
+            if (logger.isDebugEnabled()) {
+                JsonElement json = restResponse.getContent();
+
+                if (json != null) {
+                    String content = json.toString();
+                    if (content.length() > 500)
+                        content = content.substring(0, 499) + "[...]";
+
+                    log.append(' ');
+                    log.append(content);
+                }
+            }
+
+            logger.info(log);
         }
     }
 
@@ -9,6 +9,9 @@ import org.apache.logging.log4j.Logger;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.SynchronousQueue;
@@ -21,12 +24,22 @@ public class BackupDaemon implements Closeable {
     private final SynchronousQueue<Object> shutdown = new SynchronousQueue<>();
     private final RetentionPolicy policy;
     private final long interval;
+    private final boolean online;
     private final BackupEngine engine;
     private final File backups;
 
     public BackupDaemon(NodeConfig config, RetentionPolicy policy, long interval) {
+        this(config, policy, interval, false);
+    }
+
+    /**
+     * @param online if true, backups are taken while the engine keeps running, linking immutable files
+     *               and copying only the changed ones; otherwise the engine is stopped, optimized and copied
+     */
+    public BackupDaemon(NodeConfig config, RetentionPolicy policy, long interval, boolean online) {
         this.policy = policy;
         this.interval = interval;
+        this.online = online;
 
         File engineRoot = FileConst.getEngineRoot(config.getEngineConfig().getName());
         this.engine = new BackupEngine(config, new File(engineRoot, "models"));
@@ -38,34 +51,48 @@ public class BackupDaemon implements Closeable {
 
         long nextBackup = System.currentTimeMillis();
 
+        if (online)
+            this.engine.start();
+
         while (true) {
             // Start the engine
-            this.engine.start();
+            if (!online)
+                this.engine.start();
 
             // Await next backup
             nextBackup += this.interval;
-            long awaitFor = nextBackup - System.currentTimeMillis();
+            if (!await(nextBackup))
+                break;
+
+            // Drop a backup
+            if (online) {
+                this.onlineBackup();
+            } else {
+                this.engine.stop(true);
+                this.backup();
+            }
+        }
 
-            if (awaitFor > 0) {
-                logger.info("Next backup in " + (int) (awaitFor / 1000.) + "s");
+        logger.info("Exiting daemon main thread");
+    }
+
+    private boolean await(long nextBackup) {
+        long awaitFor = nextBackup - System.currentTimeMillis();
 
-                Object object;
-                try {
-                    object = shutdown.poll(awaitFor, TimeUnit.MILLISECONDS);
-                } catch (InterruptedException e) {
-                    break;
-                }
+        if (awaitFor > 0) {
+            logger.info("Next backup in " + (int) (awaitFor / 1000.) + "s");
 
-                if (object != null)
-                    break;
+            Object object;
+            try {
+                object = shutdown.poll(awaitFor, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return false;
             }
 
-            // Drop a backup
-            this.engine.stop(true);
-            this.backup();
+            return object == null;
         }
 
-        logger.info("Exiting daemon main thread");
+        return true;
     }
 
     private void backup() throws IOException {
@@ -77,7 +104,43 @@ public class BackupDaemon implements Closeable {
         // Copy models
         FileUtils.copyDirectory(this.engine.getModelsPath(), currentBackup.getPath(), true);
 
-        // Delete old backups
+        deleteOldBackups();
+
+        long elapsed = System.currentTimeMillis() - begin;
+        logger.info("Backup created in " + (elapsed / 1000.) + "s");
+    }
+
+    /*
+     * Backups share hard-linked files with the models and with each other:
+     * they must be restored by copying them, never by running an engine on the backup folder itself.
+     */
+    private void onlineBackup() throws IOException {
+        List<Backup> allBackups = Backup.list(backups);
+        Backup previousBackup = allBackups.isEmpty() ? null : Collections.max(allBackups);
+        Backup currentBackup = Backup.create(this.backups);
+
+        logger.info("Creating online backup: " + currentBackup +
+                (previousBackup == null ? "" : ", previous backup: " + previousBackup));
+        long begin = System.currentTimeMillis();
+
+        // The backup is written in a hidden folder and then renamed, so that it is never listed while incomplete
+        File temp = new File(backups, "." + currentBackup.getPath().getName());
+
+        try {
+            FileUtils.deleteDirectory(temp);
+            this.engine.backup(temp, previousBackup == null ? null : previousBackup.getPath());
+            Files.move(temp.toPath(), currentBackup.getPath().toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            FileUtils.deleteQuietly(temp);
+        }
+
+        deleteOldBackups();
+
+        long elapsed = System.currentTimeMillis() - begin;
+        logger.info("Backup created in " + (elapsed / 1000.) + "s");
+    }
+
+    private void deleteOldBackups() throws IOException {
         List<Backup> allBackups = Backup.list(backups);
         Set<Backup> retainBackups = policy.retain(allBackups);
 
@@ -87,9 +150,6 @@ public class BackupDaemon implements Closeable {
                 FileUtils.forceDelete(backup.getPath());
             }
         }
-
-        long elapsed = System.currentTimeMillis() - begin;
-        logger.info("Backup created in " + (elapsed / 1000.) + "s");
     }
 
     public void interrupt() {
@@ -8,8 +8,17 @@ import eu.modernmt.context.lucene.LuceneAnalyzer;
 import eu.modernmt.data.DataListener;
 import eu.modernmt.data.DataManager;
 import eu.modernmt.data.HostUnreachableException;
+import eu.modernmt.decoder.neural.ModelConfig;
+import eu.modernmt.decoder.neural.memory.TranslationMemory;
 import eu.modernmt.decoder.neural.memory.lucene.LuceneTranslationMemory;
+import eu.modernmt.decoder.neural.memory.lucene.ShardedTranslationMemory;
+import eu.modernmt.decoder.neural.memory.lucene.analysis.DefaultAnalyzerFactory;
+import eu.modernmt.decoder.neural.memory.lucene.query.DefaultQueryBuilder;
+import eu.modernmt.decoder.neural.memory.lucene.query.MinHashQueryBuilder;
+import eu.modernmt.decoder.neural.memory.lucene.query.QueryBuilder;
+import eu.modernmt.decoder.neural.memory.lucene.query.rescoring.F1BleuRescorer;
 import eu.modernmt.hw.NetworkUtils;
+import eu.modernmt.io.FileSystemUtils;
 import eu.modernmt.io.Paths;
 import eu.modernmt.processing.Preprocessor;
 import org.apache.commons.io.FileUtils;
@@ -32,7 +41,7 @@ public class BackupEngine {
     private final File models;
 
     private LuceneAnalyzer contextAnalyzer = null;
-    private LuceneTranslationMemory memory = null;
+    private TranslationMemory memory = null;
     private DataManager dataManager = null;
     private CorporaBackupStorage storage = null;
 
@@ -63,7 +72,7 @@ public class BackupEngine {
         long begin = System.currentTimeMillis();
 
         contextAnalyzer = new LuceneAnalyzer(Paths.join(models, "context"));
-        memory = new LuceneTranslationMemory(Paths.join(models, "memory"), 1);
+        memory = loadTranslationMemory(Paths.join(models, "memory"));
         storage = new CorporaBackupStorage(Paths.join(models, "storage"));
 
         dataManager = new KafkaDataManager(config.getEngineConfig().getLanguageIndex(), new Preprocessor(), null, uuid, config.getDataStreamConfig());
@@ -83,6 +92,57 @@ public class BackupEngine {
         logger.info("Backup engine started in " + (elapsed / 1000.) + "s, channels: " + positions);
     }
 
+    /**
+     * Opens the memory with the same layout and options of the engine decoder, so that backups can be
+     * installed in its models folder
+     */
+    private TranslationMemory loadTranslationMemory(File path) throws IOException {
+        File modelConfig = Paths.join(models, "decoder", "model.conf");
+        ModelConfig config = modelConfig.isFile() ? ModelConfig.load(modelConfig) : null;
+
+        QueryBuilder queryBuilder = config != null && config.isMemoryMinHashEnabled() ?
+                new MinHashQueryBuilder() : new DefaultQueryBuilder();
+
+        if (config != null && config.isMemorySharded())
+            return new ShardedTranslationMemory(path, queryBuilder, 1);
+        else
+            return new LuceneTranslationMemory(path, queryBuilder, new F1BleuRescorer(), new DefaultAnalyzerFactory(), 1);
+    }
+
+    /**
+     * Creates an online backup of the running engine into the destination folder, with the same layout of
+     * the models folder. Immutable files are hard-linked, mutable files are copied only if they changed
+     * since the previous backup. A "channels" file lists, for every channel, the position up to which
+     * all the models are included in the backup.
+     *
+     * @param previous the previous backup, or null
+     */
+    public void backup(File destination, File previous) throws IOException {
+        if (dataManager == null)
+            throw new IOException("Backup engine is not running");
+
+        Map<Short, Long> caPositions = contextAnalyzer.backup(Paths.join(destination, "context"),
+                previous == null ? null : Paths.join(previous, "context"));
+        Map<Short, Long> mPositions = memory.backup(Paths.join(destination, "memory"));
+        Map<Short, Long> sPositions = storage.backup(Paths.join(destination, "storage"),
+                previous == null ? null : Paths.join(previous, "storage"));
+
+        StringBuilder channels = new StringBuilder();
+        for (Map.Entry<Short, Long> entry : caPositions.entrySet()) {
+            Short channel = entry.getKey();
+            Long mPosition = mPositions.get(channel);
+            Long sPosition = sPositions.get(channel);
+
+            // Channels missing from any of the models must be replayed from the beginning
+            if (mPosition != null && sPosition != null) {
+                long position = Math.min(entry.getValue(), Math.min(mPosition, sPosition));
+                channels.append(channel).append(' ').append(position).append('\n');
+            }
+        }
+
+        FileSystemUtils.atomicWrite(new File(destination, "channels"), channels.toString());
+    }
+
     public void stop() throws IOException {
         this.stop(true);
     }
@@ -0,0 +1,167 @@
+package eu.modernmt.backup;
+
+import eu.modernmt.decoder.neural.ModelConfig;
+import eu.modernmt.decoder.neural.memory.lucene.ShardedTranslationMemory;
+import eu.modernmt.io.FileSystemUtils;
+import eu.modernmt.io.Paths;
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Installs the latest backup found in a (possibly shared) snapshot folder into the models folder of an engine,
+ * so that a new node has to replay only the contributions received after the snapshot.
+ * <p>
+ * Lucene index files are immutable and they are hard-linked whenever the file system allows it;
+ * the corpora storage is modified in place by the engine and it is always copied. A sharded memory is installed
+ * as a whole, shards and channels file, and only if the engine is configured with a sharded memory too.
+ */
+public class SnapshotInstaller {
+
+    private static final String INSTALLED_SNAPSHOT_FILE = "snapshot";
+
+    private final Logger logger = LogManager.getLogger(SnapshotInstaller.class);
+
+    private final File snapshots;
+    private final File models;
+
+    public SnapshotInstaller(File snapshots, File models) {
+        this.snapshots = snapshots;
+        this.models = models;
+    }
+
+    public Backup getLatestSnapshot() {
+        List<Backup> backups = Backup.list(snapshots);
+        return backups.isEmpty() ? null : Collections.max(backups);
+    }
+
+    public Backup getInstalledSnapshot() throws IOException {
+        File file = new File(models, INSTALLED_SNAPSHOT_FILE);
+        if (!file.isFile())
+            return null;
+
+        String name = FileUtils.readFileToString(file, "UTF-8").trim();
+        try {
+            return Backup.fromFile(new File(snapshots, name));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Installs the latest snapshot, unless it is already installed or no snapshot is available.
+     *
+     * @return the channel positions included in the installed snapshot, or null if nothing has been installed
+     */
+    public Map<Short, Long> install() throws IOException {
+        Backup latest = getLatestSnapshot();
+        if (latest == null) {
+            logger.info("No snapshot available in " + snapshots);
+            return null;
+        }
+
+        Backup installed = getInstalledSnapshot();
+        if (installed != null && installed.compareTo(latest) >= 0) {
+            logger.info("Snapshot " + installed + " already installed");
+            return null;
+        }
+
+        File snapshot = latest.getPath();
+        File context = new File(snapshot, "context");
+        File memory = new File(snapshot, "memory");
+        File decoder = new File(models, "decoder");
+
+        if (memory.isDirectory() && decoder.isDirectory())
+            checkMemoryLayout(memory, new File(decoder, "model.conf"));
+
+        if (context.isDirectory()) {
+            install(new File(context, "index"), Paths.join(models, "context", "index"), true);
+            install(new File(context, "storage"), Paths.join(models, "context", "storage"), false);
+        }
+
+        if (memory.isDirectory() && decoder.isDirectory())
+            install(memory, new File(decoder, "memory"), true);
+
+        FileSystemUtils.atomicWrite(new File(models, INSTALLED_SNAPSHOT_FILE), latest.toString());
+
+        Map<Short, Long> channels = readChannels(new File(snapshot, "channels"));
+        logger.info("Installed snapshot " + latest + ", channels: " + channels);
+
+        return channels;
+    }
+
+    /**
+     * A sharded memory cannot be opened as a single index or vice versa, so the snapshot must match the engine settings
+     */
+    private static void checkMemoryLayout(File memory, File modelConfig) throws IOException {
+        boolean engineSharded = modelConfig.isFile() && ModelConfig.load(modelConfig).isMemorySharded();
+        boolean snapshotSharded = ShardedTranslationMemory.isSharded(memory);
+
+        if (engineSharded && !snapshotSharded)
+            throw new IOException("Snapshot memory at " + memory + " is not sharded, but \"memory_sharded\" is enabled in " + modelConfig);
+        if (!engineSharded && snapshotSharded)
+            throw new IOException("Snapshot memory at " + memory + " is sharded, but \"memory_sharded\" is not enabled in " + modelConfig);
+    }
+
+    private static void install(File source, File destination, boolean link) throws IOException {
+        if (!source.isDirectory())
+            return;
+
+        File temp = new File(destination.getParentFile(), '.' + destination.getName() + ".snapshot");
+        FileUtils.deleteDirectory(temp);
+
+        try {
+            copyDirectory(source, temp, link);
+
+            FileUtils.deleteDirectory(destination);
+            Files.move(temp.toPath(), destination.toPath());
+        } finally {
+            FileUtils.deleteQuietly(temp);
+        }
+    }
+
+    private static void copyDirectory(File source, File destination, boolean link) throws IOException {
+        FileUtils.forceMkdir(destination);
+
+        File[] files = source.listFiles();
+        if (files == null)
+            throw new IOException("Unable to list files in " + source);
+
+        for (File file : files) {
+            File target = new File(destination, file.getName());
+
+            if (file.isDirectory())
+                copyDirectory(file, target, link);
+            else if (link)
+                FileSystemUtils.link(file, target);
+            else
+                FileUtils.copyFile(file, target, true);
+        }
+    }
+
+    private static Map<Short, Long> readChannels(File file) throws IOException {
+        HashMap<Short, Long> channels = new HashMap<>();
+        if (!file.isFile())
+            return channels;
+
+        for (String line : FileUtils.readLines(file, "UTF-8")) {
+            line = line.trim();
+            if (line.isEmpty())
+                continue;
+
+            String[] parts = line.split("\\s+");
+            channels.put(Short.parseShort(parts[0]), Long.parseLong(parts[1]));
+        }
+
+        return channels;
+    }
+
+}
@@ -4,21 +4,26 @@ import eu.modernmt.data.DataBatch;
 import eu.modernmt.data.DataListener;
 import eu.modernmt.data.Deletion;
 import eu.modernmt.data.TranslationUnit;
+import eu.modernmt.io.FileSystemUtils;
 import eu.modernmt.model.corpus.MultilingualCorpus;
+import org.apache.commons.io.FileUtils;
 
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Map;
 
 public class CorporaBackupStorage implements DataListener, Closeable {
 
+    private final File corpora;
     private final WritersCache writers;
     private final CorporaChannels channels;
     private boolean closed = false;
 
     public CorporaBackupStorage(File path) throws IOException {
-        this.writers = new WritersCache(new File(path, "corpora"), 512);
+        this.corpora = new File(path, "corpora");
+        this.writers = new WritersCache(corpora, 512);
         this.channels = new CorporaChannels(new File(path, "channels"));
     }
 
@@ -26,6 +31,43 @@ public class CorporaBackupStorage implements DataListener, Closeable {
         writers.optimize();
     }
 
+    /**
+     * Creates an online copy of the storage into the destination folder: plain corpora are appended
+     * after every batch, so they are copied (or linked from the previous backup if unchanged),
+     * while compressed corpora are replaced as a whole by optimize(), so they are hard-linked.
+     *
+     * @param previous the same storage in the previous backup, or null
+     * @return the channel positions included in the copy
+     */
+    public synchronized Map<Short, Long> backup(File destination, File previous) throws IOException {
+        if (closed)
+            throw new IOException("Storage is closed");
+
+        writers.flush();
+
+        File corporaDestination = new File(destination, corpora.getName());
+        File corporaPrevious = previous == null ? null : new File(previous, corpora.getName());
+
+        FileUtils.forceMkdir(corporaDestination);
+
+        if (corpora.isDirectory()) {
+            for (File file : FileUtils.listFiles(corpora, new String[]{"cfc", "gz"}, true)) {
+                String relative = corpora.toPath().relativize(file.toPath()).toString();
+                File target = new File(corporaDestination, relative);
+
+                if (file.getName().endsWith(".gz"))
+                    FileSystemUtils.link(file, target);
+                else
+                    FileSystemUtils.copyIfChanged(file, target,
+                            corporaPrevious == null ? null : new File(corporaPrevious, relative));
+            }
+        }
+
+        channels.copyTo(new File(destination, "channels"));
+
+        return new HashMap<>(channels.asMap());
+    }
+
     @Override
     public synchronized void onDataReceived(DataBatch batch) throws IOException {
         if (closed)
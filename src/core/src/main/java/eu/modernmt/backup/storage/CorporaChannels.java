@@ -46,11 +46,15 @@ class CorporaChannels {
                 updatedChannels.put(channel, position);
         }
 
-        storeChannels(updatedChannels);
+        store(file, updatedChannels);
         channels.putAll(updatedChannels);
     }
 
-    private void storeChannels(Map<Short, Long> channels) throws IOException {
+    public void copyTo(File file) throws IOException {
+        store(file, channels);
+    }
+
+    private static void store(File file, Map<Short, Long> channels) throws IOException {
         ArrayList<String> lines = new ArrayList<>(channels.size());
 
         for (Map.Entry<Short, Long> entry : channels.entrySet())
@@ -5,12 +5,15 @@ import com.hazelcast.config.TcpIpConfig;
 import com.hazelcast.config.XmlConfigBuilder;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.ICompletableFuture;
 import com.hazelcast.core.Member;
 import eu.modernmt.api.ApiServer;
+import eu.modernmt.backup.SnapshotInstaller;
 import eu.modernmt.cluster.cassandra.EmbeddedCassandra;
 import eu.modernmt.cluster.error.FailedToJoinClusterException;
 import eu.modernmt.cluster.kafka.EmbeddedKafka;
 import eu.modernmt.cluster.kafka.KafkaDataManager;
+import eu.modernmt.cluster.serialization.ModelSerializers;
 import eu.modernmt.cluster.services.TranslationService;
 import eu.modernmt.cluster.services.TranslationServiceProxy;
 import eu.modernmt.config.*;
@@ -23,6 +26,8 @@ import eu.modernmt.decoder.DecoderUnavailableException;
 import eu.modernmt.engine.BootstrapException;
 import eu.modernmt.engine.Engine;
 import eu.modernmt.hw.NetworkUtils;
+import eu.modernmt.io.FileConst;
+import eu.modernmt.io.Paths;
 import eu.modernmt.lang.LanguagePair;
 import eu.modernmt.lang.UnsupportedLanguageException;
 import eu.modernmt.model.Translation;
@@ -33,8 +38,9 @@ import eu.modernmt.persistence.mysql.MySQLDatabase;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -155,6 +161,24 @@ public class ClusterNode {
 
     // Cluster startup
 
+    /**
+     * Every model of an installed snapshot must be at least at the snapshot channel positions:
+     * a model behind them has not been installed, and it replays the missing contributions from the data stream.
+     */
+    private void checkSnapshotChannels(Engine engine, Map<Short, Long> snapshotChannels) {
+        for (DataListener listener : engine.getDataListeners()) {
+            Map<Short, Long> positions = listener.getLatestChannelPositions();
+
+            for (Map.Entry<Short, Long> entry : snapshotChannels.entrySet()) {
+                Long position = positions == null ? null : positions.get(entry.getKey());
+
+                if (position == null || position < entry.getValue())
+                    logger.warn(listener.getClass().getSimpleName() + " is behind the installed snapshot on channel " +
+                            entry.getKey() + " (" + position + " < " + entry.getValue() + ")");
+            }
+        }
+    }
+
     private static void addToDataManager(DataListener listener, DataManager manager) {
         if (listener != null)
             manager.addDataListener(listener);
@@ -169,6 +193,7 @@ public class ClusterNode {
 
     private Config getHazelcastConfig(NodeConfig nodeConfig, long interval, TimeUnit unit) {
         Config hazelcastConfig = new XmlConfigBuilder().build();
+        ModelSerializers.register(hazelcastConfig.getSerializationConfig());
 
         NetworkConfig networkConfig = nodeConfig.getNetworkConfig();
         if (unit != null && interval > 0L) {
@@ -271,13 +296,34 @@ public class ClusterNode {
             }
         }
 
+        // ===========  Snapshot bootstrap  =============
+
+        EngineConfig engineConfig = nodeConfig.getEngineConfig();
+        Map<Short, Long> snapshotChannels = null;
+
+        if (engineConfig.getSnapshotPath() != null) {
+            setStatus(Status.SYNCHRONIZING);
+            logger.info("Installing latest snapshot from " + engineConfig.getSnapshotPath());
+
+            timer.reset();
+            File models = Paths.join(FileConst.getEngineRoot(engineConfig.getName()), "models");
+            SnapshotInstaller installer = new SnapshotInstaller(new File(engineConfig.getSnapshotPath()), models);
+            try {
+                snapshotChannels = installer.install();
+            } catch (IOException e) {
+                throw new BootstrapException("Unable to install snapshot from " + engineConfig.getSnapshotPath(), e);
+            }
+            setStatus(Status.SYNCHRONIZED);
+            logger.info("Snapshot installed in " + (timer.time() / 1000.) + "s");
+        }
+
         // ===========  Model loading  =============
 
         setStatus(Status.LOADING);
         logger.info("Model loading started");
 
         timer.reset();
-        this.engine = Engine.load(nodeConfig.getEngineConfig());
+        this.engine = Engine.load(engineConfig);
         try {
             this.engine.getDecoder().setListener(new DecoderListener() {
                 @Override
@@ -296,6 +342,9 @@ public class ClusterNode {
         setStatus(Status.LOADED);
         logger.info("Model loaded in " + (timer.time() / 1000.) + "s");
 
+        if (snapshotChannels != null)
+            checkSnapshotChannels(this.engine, snapshotChannels);
+
 
         // ===========  Data stream bootstrap  =============
 
@@ -405,8 +454,11 @@ public class ClusterNode {
 
         translationService = hazelcast.getDistributedObject(TranslationService.SERVICE_NAME, "TranslationService");
 
+        long bootstrapTime = globalTimer.time();
+        NodeInfo.updateBootstrapTimeInMember(hazelcast.getCluster().getLocalMember(), bootstrapTime);
+
         setStatus(Status.RUNNING);
-        logger.info("Node started in " + (globalTimer.time() / 1000.) + "s");
+        logger.info("Node started in " + (bootstrapTime / 1000.) + "s");
     }
 
     private int countClusterMembers(boolean onlyRunning) {
@@ -459,7 +511,7 @@ public class ClusterNode {
         return NodeInfo.fromMember(member);
     }
 
-    public Future<Translation> submit(TranslationTask task) throws DecoderUnavailableException {
+    public ICompletableFuture<Translation> submit(TranslationTask task) throws DecoderUnavailableException {
         LanguagePair language = task.getLanguage();
 
         Set<Member> members = hazelcast.getCluster().getMembers();
@@ -14,12 +14,14 @@ public class NodeInfo {
     private static final String STATUS_ATTRIBUTE = "NodeInfo.STATUS_ATTRIBUTE";
     private static final String DATA_CHANNELS_ATTRIBUTE = "NodeInfo.DATA_CHANNELS_ATTRIBUTE";
     private static final String TRANSLATION_DIRECTIONS_ATTRIBUTE = "NodeInfo.TRANSLATION_DIRECTIONS_ATTRIBUTE";
+    private static final String BOOTSTRAP_TIME_ATTRIBUTE = "NodeInfo.BOOTSTRAP_TIME_ATTRIBUTE";
 
     public final String uuid;
     public final ClusterNode.Status status;
     public final Map<Short, Long> channels;
     public final Set<LanguagePair> languages;
     public final String address;
+    public final long bootstrapTime; // milliseconds from node start to RUNNING, 0 if not yet running
 
     static NodeInfo fromMember(Member member) {
         String uuid = member.getUuid();
@@ -27,16 +29,18 @@ public class NodeInfo {
         Map<Short, Long> positions = deserializeChannels(member.getStringAttribute(DATA_CHANNELS_ATTRIBUTE));
         Set<LanguagePair> languages = deserializeLanguages(member.getStringAttribute(TRANSLATION_DIRECTIONS_ATTRIBUTE));
         String address = member.getAddress().getHost();
+        Long bootstrapTime = member.getLongAttribute(BOOTSTRAP_TIME_ATTRIBUTE);
 
-        return new NodeInfo(uuid, status, positions, languages, address);
+        return new NodeInfo(uuid, status, positions, languages, address, bootstrapTime == null ? 0L : bootstrapTime);
     }
 
-    private NodeInfo(String uuid, ClusterNode.Status status, Map<Short, Long> channels, Set<LanguagePair> languages, String address) {
+    private NodeInfo(String uuid, ClusterNode.Status status, Map<Short, Long> channels, Set<LanguagePair> languages, String address, long bootstrapTime) {
         this.uuid = uuid;
         this.status = status;
         this.channels = channels;
         this.languages = languages;
         this.address = address;
+        this.bootstrapTime = bootstrapTime;
     }
 
     // Utils
@@ -65,6 +69,10 @@ public class NodeInfo {
         member.setStringAttribute(STATUS_ATTRIBUTE, status.name());
     }
 
+    static void updateBootstrapTimeInMember(Member member, long bootstrapTime) {
+        member.setLongAttribute(BOOTSTRAP_TIME_ATTRIBUTE, bootstrapTime);
+    }
+
     static void updateTranslationDirections(Member member, Set<LanguagePair> directions) {
         member.setStringAttribute(TRANSLATION_DIRECTIONS_ATTRIBUTE, serialize(directions));
     }
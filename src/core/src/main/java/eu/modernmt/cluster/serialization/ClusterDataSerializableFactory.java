@@ -0,0 +1,31 @@
+package eu.modernmt.cluster.serialization;
+
+import com.hazelcast.nio.serialization.DataSerializableFactory;
+import com.hazelcast.nio.serialization.IdentifiedDataSerializable;
+import eu.modernmt.cluster.services.TranslationOperation;
+import eu.modernmt.facade.TranslationFacade;
+
+/**
+ * Factory of the IdentifiedDataSerializable objects sent across the cluster:
+ * they are encoded with a numeric id instead of the class name and created without reflection.
+ */
+public class ClusterDataSerializableFactory implements DataSerializableFactory {
+
+    public static final int FACTORY_ID = 1000;
+
+    public static final int TRANSLATION_OPERATION_ID = 1;
+    public static final int TRANSLATION_TASK_ID = 2;
+
+    @Override
+    public IdentifiedDataSerializable create(int typeId) {
+        switch (typeId) {
+            case TRANSLATION_OPERATION_ID:
+                return new TranslationOperation();
+            case TRANSLATION_TASK_ID:
+                return new TranslationFacade.TranslationTaskImpl();
+            default:
+                return null;
+        }
+    }
+
+}
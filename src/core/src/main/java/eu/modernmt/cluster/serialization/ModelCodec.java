@@ -0,0 +1,269 @@
+package eu.modernmt.cluster.serialization;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import eu.modernmt.lang.Language;
+import eu.modernmt.lang.LanguagePair;
+import eu.modernmt.model.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Compact binary encoding of the model objects exchanged by cluster members during a translation.
+ * Strings are written with writeUTF, that supports null values.
+ */
+public final class ModelCodec {
+
+    private static final Tag.Type[] TAG_TYPES = Tag.Type.values();
+
+    private ModelCodec() {
+    }
+
+    // UUID
+
+    public static void writeUUID(ObjectDataOutput out, UUID uuid) throws IOException {
+        out.writeBoolean(uuid != null);
+        if (uuid != null) {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        }
+    }
+
+    public static UUID readUUID(ObjectDataInput in) throws IOException {
+        return in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+    }
+
+    // Language
+
+    public static void writeLanguage(ObjectDataOutput out, Language language) throws IOException {
+        out.writeUTF(language.getLanguage());
+        out.writeUTF(language.getRegion());
+    }
+
+    public static Language readLanguage(ObjectDataInput in) throws IOException {
+        return new Language(in.readUTF(), in.readUTF());
+    }
+
+    public static void writeLanguagePair(ObjectDataOutput out, LanguagePair pair) throws IOException {
+        writeLanguage(out, pair.source);
+        writeLanguage(out, pair.target);
+    }
+
+    public static LanguagePair readLanguagePair(ObjectDataInput in) throws IOException {
+        return new LanguagePair(readLanguage(in), readLanguage(in));
+    }
+
+    // ContextVector
+
+    public static void writeContextVector(ObjectDataOutput out, ContextVector context) throws IOException {
+        if (context == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        out.writeInt(context.size());
+        for (ContextVector.Entry entry : context) {
+            out.writeLong(entry.memory.getId());
+            writeUUID(out, entry.memory.getOwner());
+            out.writeUTF(entry.memory.getName());
+            out.writeFloat(entry.score);
+        }
+    }
+
+    public static ContextVector readContextVector(ObjectDataInput in) throws IOException {
+        int size = in.readInt();
+        if (size < 0)
+            return null;
+
+        ContextVector.Builder builder = new ContextVector.Builder(size);
+        for (int i = 0; i < size; i++) {
+            long id = in.readLong();
+            UUID owner = readUUID(in);
+            String name = in.readUTF();
+
+            builder.add(new Memory(id, owner, name), in.readFloat());
+        }
+
+        return builder.build();
+    }
+
+    // Alignment
+
+    public static void writeAlignment(ObjectDataOutput out, Alignment alignment) throws IOException {
+        out.writeBoolean(alignment != null);
+        if (alignment != null) {
+            out.writeIntArray(alignment.getSourceIndexes());
+            out.writeIntArray(alignment.getTargetIndexes());
+            out.writeFloat(alignment.getScore());
+        }
+    }
+
+    public static Alignment readAlignment(ObjectDataInput in) throws IOException {
+        if (!in.readBoolean())
+            return null;
+
+        int[] sourceIndexes = in.readIntArray();
+        int[] targetIndexes = in.readIntArray();
+        return new Alignment(sourceIndexes, targetIndexes, in.readFloat());
+    }
+
+    // Sentence
+
+    public static void writeSentence(ObjectDataOutput out, Sentence sentence) throws IOException {
+        writeWords(out, sentence.getWords());
+        writeTags(out, sentence.getTags());
+        writeAnnotations(out, sentence.getAnnotations());
+    }
+
+    public static Sentence readSentence(ObjectDataInput in) throws IOException {
+        Sentence sentence = new Sentence(readWords(in), readTags(in));
+        readAnnotations(in, sentence);
+        return sentence;
+    }
+
+    // Translation
+
+    public static void writeTranslation(ObjectDataOutput out, Translation translation) throws IOException {
+        writeSentence(out, translation.getSource());
+        writeTranslation(out, translation, translation.getSource());
+    }
+
+    public static Translation readTranslation(ObjectDataInput in) throws IOException {
+        Sentence source = readSentence(in);
+        return readTranslation(in, source);
+    }
+
+    // Hypotheses of the n-best list usually share the source sentence with the main translation
+    private static void writeTranslation(ObjectDataOutput out, Translation translation, Sentence source) throws IOException {
+        boolean sharedSource = translation.getSource() == source;
+        out.writeBoolean(sharedSource);
+        if (!sharedSource)
+            writeSentence(out, translation.getSource());
+
+        writeWords(out, translation.getWords());
+        writeTags(out, translation.getTags());
+        writeAnnotations(out, translation.getAnnotations());
+        writeAlignment(out, translation.getWordAlignment());
+
+        out.writeLong(translation.getMemoryLookupTime());
+        out.writeLong(translation.getDecodeTime());
+        out.writeLong(translation.getQueueTime());
+        out.writeInt(translation.getQueueLength());
+
+        List<Translation> nbest = translation.getNbest();
+        if (nbest == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(nbest.size());
+            for (Translation hypothesis : nbest)
+                writeTranslation(out, hypothesis, translation.getSource());
+        }
+    }
+
+    private static Translation readTranslation(ObjectDataInput in, Sentence source) throws IOException {
+        if (!in.readBoolean())
+            source = readSentence(in);
+
+        Word[] words = readWords(in);
+        Tag[] tags = readTags(in);
+
+        Translation translation = new Translation(words, tags, source, null);
+        readAnnotations(in, translation);
+        translation.setWordAlignment(readAlignment(in));
+
+        translation.setMemoryLookupTime(in.readLong());
+        translation.setDecodeTime(in.readLong());
+        translation.setQueueTime(in.readLong());
+        translation.setQueueLength(in.readInt());
+
+        int nbestSize = in.readInt();
+        if (nbestSize >= 0) {
+            List<Translation> nbest = new ArrayList<>(nbestSize);
+            for (int i = 0; i < nbestSize; i++)
+                nbest.add(readTranslation(in, source));
+            translation.setNbest(nbest);
+        }
+
+        return translation;
+    }
+
+    // Tokens
+
+    private static void writeWords(ObjectDataOutput out, Word[] words) throws IOException {
+        out.writeInt(words.length);
+        for (Word word : words) {
+            out.writeUTF(word.getText());
+            out.writeUTF(word.getPlaceholder());
+            out.writeUTF(word.getRightSpace());
+            out.writeBoolean(word.isRightSpaceRequired());
+        }
+    }
+
+    private static Word[] readWords(ObjectDataInput in) throws IOException {
+        Word[] words = new Word[in.readInt()];
+        for (int i = 0; i < words.length; i++) {
+            String text = in.readUTF();
+            String placeholder = in.readUTF();
+            String rightSpace = in.readUTF();
+
+            words[i] = new Word(text, placeholder, rightSpace, in.readBoolean());
+        }
+
+        return words;
+    }
+
+    private static void writeTags(ObjectDataOutput out, Tag[] tags) throws IOException {
+        out.writeInt(tags.length);
+        for (Tag tag : tags) {
+            out.writeUTF(tag.getName());
+            out.writeUTF(tag.getText());
+            out.writeUTF(tag.getPlaceholder());
+            out.writeUTF(tag.getRightSpace());
+            out.writeBoolean(tag.hasLeftSpace());
+            out.writeInt(tag.getPosition());
+            out.writeByte(tag.getType().ordinal());
+            out.writeBoolean(tag.isDTD());
+        }
+    }
+
+    private static Tag[] readTags(ObjectDataInput in) throws IOException {
+        Tag[] tags = new Tag[in.readInt()];
+        for (int i = 0; i < tags.length; i++) {
+            String name = in.readUTF();
+            String text = in.readUTF();
+            String placeholder = in.readUTF();
+            String rightSpace = in.readUTF();
+            boolean leftSpace = in.readBoolean();
+            int position = in.readInt();
+            Tag.Type type = TAG_TYPES[in.readByte()];
+            boolean dtd = in.readBoolean();
+
+            tags[i] = Tag.fromData(name, text, leftSpace, rightSpace, position, type, dtd);
+            tags[i].setPlaceholder(placeholder);
+        }
+
+        return tags;
+    }
+
+    private static void writeAnnotations(ObjectDataOutput out, Set<String> annotations) throws IOException {
+        out.writeInt(annotations.size());
+        for (String annotation : annotations)
+            out.writeUTF(annotation);
+    }
+
+    private static void readAnnotations(ObjectDataInput in, Sentence sentence) throws IOException {
+        int size = in.readInt();
+        if (size > 0) {
+            Set<String> annotations = new HashSet<>(size);
+            for (int i = 0; i < size; i++)
+                annotations.add(in.readUTF());
+            sentence.addAnnotations(annotations);
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+package eu.modernmt.cluster.serialization;
+
+import com.hazelcast.config.SerializationConfig;
+import com.hazelcast.config.SerializerConfig;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.StreamSerializer;
+import eu.modernmt.model.Alignment;
+import eu.modernmt.model.ContextVector;
+import eu.modernmt.model.Sentence;
+import eu.modernmt.model.Translation;
+
+import java.io.IOException;
+
+/**
+ * Hazelcast serializers for the model classes, that would otherwise be sent with Java serialization.
+ */
+public class ModelSerializers {
+
+    private static final int TRANSLATION_TYPE_ID = 1001;
+    private static final int SENTENCE_TYPE_ID = 1002;
+    private static final int CONTEXT_VECTOR_TYPE_ID = 1003;
+    private static final int ALIGNMENT_TYPE_ID = 1004;
+
+    public static void register(SerializationConfig config) {
+        config.addDataSerializableFactory(ClusterDataSerializableFactory.FACTORY_ID, new ClusterDataSerializableFactory());
+
+        config.addSerializerConfig(new SerializerConfig()
+                .setTypeClass(Translation.class).setImplementation(new TranslationSerializer()));
+        config.addSerializerConfig(new SerializerConfig()
+                .setTypeClass(Sentence.class).setImplementation(new SentenceSerializer()));
+        config.addSerializerConfig(new SerializerConfig()
+                .setTypeClass(ContextVector.class).setImplementation(new ContextVectorSerializer()));
+        config.addSerializerConfig(new SerializerConfig()
+                .setTypeClass(Alignment.class).setImplementation(new AlignmentSerializer()));
+    }
+
+    private static abstract class BaseSerializer<T> implements StreamSerializer<T> {
+
+        private final int typeId;
+
+        protected BaseSerializer(int typeId) {
+            this.typeId = typeId;
+        }
+
+        @Override
+        public final int getTypeId() {
+            return typeId;
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+
+    private static class TranslationSerializer extends BaseSerializer<Translation> {
+
+        TranslationSerializer() {
+            super(TRANSLATION_TYPE_ID);
+        }
+
+        @Override
+        public void write(ObjectDataOutput out, Translation translation) throws IOException {
+            ModelCodec.writeTranslation(out, translation);
+        }
+
+        @Override
+        public Translation read(ObjectDataInput in) throws IOException {
+            return ModelCodec.readTranslation(in);
+        }
+    }
+
+    private static class SentenceSerializer extends BaseSerializer<Sentence> {
+
+        SentenceSerializer() {
+            super(SENTENCE_TYPE_ID);
+        }
+
+        @Override
+        public void write(ObjectDataOutput out, Sentence sentence) throws IOException {
+            ModelCodec.writeSentence(out, sentence);
+        }
+
+        @Override
+        public Sentence read(ObjectDataInput in) throws IOException {
+            return ModelCodec.readSentence(in);
+        }
+    }
+
+    private static class ContextVectorSerializer extends BaseSerializer<ContextVector> {
+
+        ContextVectorSerializer() {
+            super(CONTEXT_VECTOR_TYPE_ID);
+        }
+
+        @Override
+        public void write(ObjectDataOutput out, ContextVector context) throws IOException {
+            ModelCodec.writeContextVector(out, context);
+        }
+
+        @Override
+        public ContextVector read(ObjectDataInput in) throws IOException {
+            return ModelCodec.readContextVector(in);
+        }
+    }
+
+    private static class AlignmentSerializer extends BaseSerializer<Alignment> {
+
+        AlignmentSerializer() {
+            super(ALIGNMENT_TYPE_ID);
+        }
+
+        @Override
+        public void write(ObjectDataOutput out, Alignment alignment) throws IOException {
+            ModelCodec.writeAlignment(out, alignment);
+        }
+
+        @Override
+        public Alignment read(ObjectDataInput in) throws IOException {
+            return ModelCodec.readAlignment(in);
+        }
+    }
+
+}
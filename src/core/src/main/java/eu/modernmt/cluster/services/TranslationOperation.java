@@ -2,13 +2,14 @@ package eu.modernmt.cluster.services;
 
 import com.hazelcast.nio.ObjectDataInput;
 import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.IdentifiedDataSerializable;
 import com.hazelcast.spi.Operation;
 import com.hazelcast.spi.impl.operationservice.impl.OperationServiceImpl;
 import com.hazelcast.spi.impl.operationservice.impl.responses.ErrorResponse;
 import com.hazelcast.spi.impl.operationservice.impl.responses.NormalResponse;
 import eu.modernmt.cluster.TranslationTask;
+import eu.modernmt.cluster.serialization.ClusterDataSerializableFactory;
 import eu.modernmt.model.Translation;
-import org.apache.commons.lang.SerializationUtils;
 
 import java.io.IOException;
 import java.util.concurrent.ExecutorService;
@@ -19,7 +20,7 @@ import java.util.concurrent.ExecutorService;
  * <p>
  * A cluster member can ask other members to perform TranslationOperations
  */
-class TranslationOperation extends Operation {
+public class TranslationOperation extends Operation implements IdentifiedDataSerializable {
 
     /**
      * A TranslationOperation.TranslationRunnable is a Runnable built specifically to contain and handle a TranslationTask.
@@ -89,14 +90,22 @@ class TranslationOperation extends Operation {
 
     @Override
     protected void writeInternal(ObjectDataOutput out) throws IOException {
-        byte[] taskBytes = SerializationUtils.serialize(this.task);
-        out.writeByteArray(taskBytes);
+        out.writeObject(this.task);
     }
 
     @Override
     protected void readInternal(ObjectDataInput in) throws IOException {
-        byte[] taskBytes = in.readByteArray();
-        this.task = (TranslationTask) SerializationUtils.deserialize(taskBytes);
+        this.task = in.readObject();
+    }
+
+    @Override
+    public int getFactoryId() {
+        return ClusterDataSerializableFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getId() {
+        return ClusterDataSerializableFactory.TRANSLATION_OPERATION_ID;
     }
 
     @Override
@@ -1,5 +1,6 @@
 package eu.modernmt.cluster.services;
 
+import com.hazelcast.core.ICompletableFuture;
 import com.hazelcast.nio.Address;
 import com.hazelcast.spi.AbstractDistributedObject;
 import com.hazelcast.spi.NodeEngine;
@@ -8,7 +9,6 @@ import eu.modernmt.cluster.TranslationTask;
 import eu.modernmt.model.Translation;
 
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -49,7 +49,7 @@ public class TranslationServiceProxy extends AbstractDistributedObject<Translati
      * @param address the Address of the Member that should run this task
      * @return a Future for the Translation that this task will output
      */
-    public Future<Translation> submit(TranslationTask task, Address address) {
+    public ICompletableFuture<Translation> submit(TranslationTask task, Address address) {
         OperationService localOperationService = getNodeEngine().getOperationService();
         TranslationOperation operation = new TranslationOperation(task);
         return localOperationService.invokeOnTarget(getServiceName(), operation, address);
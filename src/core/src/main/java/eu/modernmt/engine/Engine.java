@@ -2,6 +2,8 @@ package eu.modernmt.engine;
 
 import eu.modernmt.aligner.Aligner;
 import eu.modernmt.aligner.fastalign.FastAlign;
+import eu.modernmt.aligner.fastalign.JavaFastAlign;
+import eu.modernmt.config.AlignerConfig;
 import eu.modernmt.config.DecoderConfig;
 import eu.modernmt.config.EngineConfig;
 import eu.modernmt.context.ContextAnalyzer;
@@ -30,6 +32,10 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Created by davide on 19/04/16.
@@ -52,6 +58,16 @@ public class Engine implements Closeable, DataListenerProvider {
     private final ContextAnalyzer contextAnalyzer;
     private final Decoder decoder;
 
+    private interface ComponentLoader<T> {
+
+        T load() throws BootstrapException;
+
+    }
+
+    /**
+     * Loads all the engine components concurrently: decoder processes are the slowest to start,
+     * so they are submitted first. If a component fails, the others are closed once loaded.
+     */
     public static Engine load(EngineConfig config) throws BootstrapException {
         DecoderConfig decoderConfig = config.getDecoderConfig();
 
@@ -60,69 +76,170 @@ public class Engine implements Closeable, DataListenerProvider {
 
         File models = Paths.join(FileConst.getEngineRoot(name), "models");
 
-        Preprocessor preprocessor;
-        try {
-            preprocessor = new Preprocessor();
-        } catch (IOException e) {
-            throw new BootstrapException("Failed to load pre-processor", e);
-        }
+        ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "Engine.load");
+            thread.setDaemon(true);
+            return thread;
+        });
 
-        Postprocessor postprocessor;
         try {
-            postprocessor = new Postprocessor();
-        } catch (IOException e) {
-            throw new BootstrapException("Failed to load post-processor", e);
-        }
+            Future<Decoder> decoder = decoderConfig.isEnabled() ?
+                    submit(executor, "decoder", () -> loadDecoder(new File(models, "decoder"), decoderConfig)) : null;
+            Future<ContextAnalyzer> contextAnalyzer = submit(executor, "context analyzer", () -> {
+                try {
+                    return new LuceneAnalyzer(Paths.join(models, "context"));
+                } catch (IOException e) {
+                    throw new BootstrapException("Failed to instantiate context analyzer", e);
+                }
+            });
+            Future<Aligner> aligner = config.getAlignerConfig().isEnabled() ?
+                    submit(executor, "aligner", () -> loadAligner(Paths.join(models, "aligner"), config.getAlignerConfig())) : null;
+            Future<Preprocessor> preprocessor = submit(executor, "pre-processor", () -> {
+                try {
+                    return new Preprocessor();
+                } catch (IOException e) {
+                    throw new BootstrapException("Failed to load pre-processor", e);
+                }
+            });
+            Future<Postprocessor> postprocessor = submit(executor, "post-processor", () -> {
+                try {
+                    return new Postprocessor();
+                } catch (IOException e) {
+                    throw new BootstrapException("Failed to load post-processor", e);
+                }
+            });
+
+            Throwable error = null;
+
+            Decoder decoderInstance = null;
+            ContextAnalyzer contextAnalyzerInstance = null;
+            Aligner alignerInstance = null;
+            Preprocessor preprocessorInstance = null;
+            Postprocessor postprocessorInstance = null;
+
+            // Wait for all the components, even after a failure, so that every loaded one can be closed
+
+            try {
+                decoderInstance = get(decoder);
+            } catch (Throwable e) {
+                error = e;
+            }
+
+            try {
+                contextAnalyzerInstance = get(contextAnalyzer);
+            } catch (Throwable e) {
+                error = error == null ? e : error;
+            }
+
+            try {
+                alignerInstance = get(aligner);
+            } catch (Throwable e) {
+                error = error == null ? e : error;
+            }
 
-        Aligner aligner = null;
-        if (config.getAlignerConfig().isEnabled()) {
             try {
-                aligner = new FastAlign(Paths.join(models, "aligner"));
-            } catch (IOException e) {
-                throw new BootstrapException("Failed to instantiate aligner", e);
+                preprocessorInstance = get(preprocessor);
+            } catch (Throwable e) {
+                error = error == null ? e : error;
             }
+
+            try {
+                postprocessorInstance = get(postprocessor);
+            } catch (Throwable e) {
+                error = error == null ? e : error;
+            }
+
+            if (error != null) {
+                IOUtils.closeQuietly(decoderInstance);
+                IOUtils.closeQuietly(contextAnalyzerInstance);
+                IOUtils.closeQuietly(alignerInstance);
+                IOUtils.closeQuietly(preprocessorInstance);
+                IOUtils.closeQuietly(postprocessorInstance);
+
+                if (error instanceof BootstrapException)
+                    throw (BootstrapException) error;
+                else if (error instanceof RuntimeException)
+                    throw (RuntimeException) error;
+                else if (error instanceof Error)
+                    throw (Error) error;
+                else
+                    throw new BootstrapException(error);
+            }
+
+            return new Engine(name, languageIndex, alignerInstance, preprocessorInstance, postprocessorInstance,
+                    contextAnalyzerInstance, decoderInstance);
+        } finally {
+            executor.shutdownNow();
         }
+    }
+
+    private static <T> Future<T> submit(ExecutorService executor, String component, ComponentLoader<T> loader) {
+        return executor.submit(() -> {
+            long begin = System.currentTimeMillis();
+            T result = loader.load();
+            long elapsed = System.currentTimeMillis() - begin;
+
+            LogManager.getLogger(Engine.class).info("Loaded " + component + " in " + (elapsed / 1000.) + "s");
+
+            return result;
+        });
+    }
+
+    private static <T> T get(Future<T> future) throws Throwable {
+        if (future == null)
+            return null;
 
-        ContextAnalyzer contextAnalyzer;
         try {
-            contextAnalyzer = new LuceneAnalyzer(Paths.join(models, "context"));
-        } catch (IOException e) {
-            throw new BootstrapException("Failed to instantiate context analyzer", e);
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new BootstrapException("Interrupted while loading engine", e);
+        } catch (ExecutionException e) {
+            throw e.getCause();
         }
+    }
 
-        Decoder decoder = null;
-        if (decoderConfig.isEnabled()) {
-            try {
-                File decoderModel = new File(models, "decoder");
-                String decoderClass = decoderConfig.getDecoderClass();
-
-                if (decoderClass == null) {
-                    decoder = new NeuralDecoder(decoderModel, decoderConfig);
-                } else {
-                    ClassLoader classLoader = ClassLoader.getSystemClassLoader();
-                    Class<?> decoderCls = classLoader.loadClass(decoderClass);
-                    Constructor<?> constructor = decoderCls.getConstructor(File.class, DecoderConfig.class);
-                    decoder = (Decoder) constructor.newInstance(decoderModel, decoderConfig);
-                }
-            } catch (ClassNotFoundException e) {
-                throw new BootstrapException("Decoder class not found", e);
-            } catch (NoSuchMethodException | IllegalAccessException e) {
-                throw new BootstrapException("Invalid decoder class specified: missing constructor", e);
-            } catch (DecoderException e) {
-                throw new BootstrapException("Failed to instantiate decoder", e);
-            } catch (InstantiationException e) {
-                throw new BootstrapException("Invalid decoder class specified: class is abstract", e);
-            } catch (InvocationTargetException e) {
-                Throwable cause = e.getCause();
-                if (cause instanceof RuntimeException) {
-                    throw (RuntimeException) cause;
-                } else if (cause instanceof DecoderException) {
-                    throw new BootstrapException("Failed to instantiate decoder", cause);
-                }
+    private static Decoder loadDecoder(File model, DecoderConfig config) throws BootstrapException {
+        try {
+            String decoderClass = config.getDecoderClass();
+
+            if (decoderClass == null) {
+                return new NeuralDecoder(model, config);
+            } else {
+                ClassLoader classLoader = ClassLoader.getSystemClassLoader();
+                Class<?> decoderCls = classLoader.loadClass(decoderClass);
+                Constructor<?> constructor = decoderCls.getConstructor(File.class, DecoderConfig.class);
+                return (Decoder) constructor.newInstance(model, config);
             }
+        } catch (ClassNotFoundException e) {
+            throw new BootstrapException("Decoder class not found", e);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new BootstrapException("Invalid decoder class specified: missing constructor", e);
+        } catch (DecoderException e) {
+            throw new BootstrapException("Failed to instantiate decoder", e);
+        } catch (InstantiationException e) {
+            throw new BootstrapException("Invalid decoder class specified: class is abstract", e);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            else
+                throw new BootstrapException("Failed to instantiate decoder", cause);
         }
+    }
 
-        return new Engine(name, languageIndex, aligner, preprocessor, postprocessor, contextAnalyzer, decoder);
+    private static Aligner loadAligner(File model, AlignerConfig config) throws BootstrapException {
+        try {
+            switch (config.getImplementation()) {
+                case NATIVE:
+                    return new FastAlign(model);
+                case JAVA:
+                    return new JavaFastAlign(model);
+                default:
+                    return FastAlign.isNativeLibraryAvailable() ? new FastAlign(model) : new JavaFastAlign(model);
+            }
+        } catch (IOException e) {
+            throw new BootstrapException("Failed to instantiate aligner", e);
+        }
     }
 
     protected Engine(String name, LanguageIndex languageIndex,
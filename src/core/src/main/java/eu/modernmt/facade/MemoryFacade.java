@@ -7,6 +7,11 @@ import eu.modernmt.cluster.NodeInfo;
 import eu.modernmt.data.DataManager;
 import eu.modernmt.data.DataManagerException;
 import eu.modernmt.data.EmptyCorpusException;
+import eu.modernmt.decoder.Decoder;
+import eu.modernmt.decoder.neural.NeuralDecoder;
+import eu.modernmt.decoder.neural.memory.ScoreEntry;
+import eu.modernmt.decoder.neural.memory.TranslationMemory;
+import eu.modernmt.facade.exceptions.FeatureNotSupportedException;
 import eu.modernmt.lang.LanguagePair;
 import eu.modernmt.model.ImportJob;
 import eu.modernmt.model.Memory;
@@ -14,7 +19,9 @@ import eu.modernmt.model.corpus.MultilingualCorpus;
 import eu.modernmt.persistence.*;
 import org.apache.commons.io.IOUtils;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -246,6 +253,33 @@ public class MemoryFacade {
         }
     }
 
+    /**
+     * Passes the entries of a memory stored by this node to the consumer one by one, in no particular order.
+     *
+     * @param memoryId  the id of the memory to export
+     * @param direction the language pair of the entries to export, or null for all the languages
+     * @param consumer  the consumer of the entries
+     * @throws FeatureNotSupportedException if the decoder of this node has no translation memory
+     */
+    public void export(long memoryId, LanguagePair direction, Consumer<ScoreEntry> consumer) throws FeatureNotSupportedException, IOException {
+        getTranslationMemory().dump(memoryId, direction, consumer);
+    }
+
+    /**
+     * @throws FeatureNotSupportedException if the decoder of this node has no translation memory to export
+     */
+    public void checkExportSupported() throws FeatureNotSupportedException {
+        getTranslationMemory();
+    }
+
+    private static TranslationMemory getTranslationMemory() throws FeatureNotSupportedException {
+        Decoder decoder = ModernMT.getNode().getEngine().getDecoder();
+        if (!(decoder instanceof NeuralDecoder))
+            throw new FeatureNotSupportedException("Decoder '" + decoder.getClass().getSimpleName() + "' does not support memory export.");
+
+        return ((NeuralDecoder) decoder).getTranslationMemory();
+    }
+
     public ImportJob getImportJob(UUID id) throws PersistenceException {
         ImportJob job = ImportJob.fromEphemeralUUID(id);
 
@@ -13,6 +13,9 @@ import eu.modernmt.processing.Preprocessor;
 import eu.modernmt.processing.ProcessingException;
 import eu.modernmt.processing.xml.XMLTagProjector;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Created by davide on 20/04/16.
  */
@@ -47,4 +50,41 @@ public class TagFacade {
         return tagProjector.project(new Translation(translation.getWords(), sentence, alignment));
     }
 
+    /**
+     * Projects the tags of a batch of pairs: sentences and translations are preprocessed as two batches,
+     * aligned with a single aligner call and projected in parallel.
+     */
+    public Translation[] project(LanguagePair direction, List<String> sentenceStrings, List<String> translationStrings,
+                                 Aligner.SymmetrizationStrategy strategy) throws AlignerException, ProcessingException {
+        if (sentenceStrings.size() != translationStrings.size())
+            throw new IllegalArgumentException("Sentences and translations must have the same size");
+
+        ClusterNode node = ModernMT.getNode();
+        Engine engine = node.getEngine();
+        Aligner aligner = engine.getAligner();
+        Preprocessor preprocessor = engine.getPreprocessor();
+
+        if (!aligner.isSupported(direction))
+            throw new UnsupportedLanguageException(direction);
+
+        if (sentenceStrings.isEmpty())
+            return new Translation[0];
+
+        List<Sentence> sentences = preprocessor.process(direction, sentenceStrings);
+        List<Sentence> translations = preprocessor.process(direction.reversed(), translationStrings);
+
+        Alignment[] alignments;
+
+        if (strategy != null)
+            alignments = aligner.getAlignments(direction, sentences, translations, strategy);
+        else
+            alignments = aligner.getAlignments(direction, sentences, translations);
+
+        Translation[] result = new Translation[alignments.length];
+        Arrays.parallelSetAll(result, i ->
+                tagProjector.project(new Translation(translations.get(i).getWords(), sentences.get(i), alignments[i])));
+
+        return result;
+    }
+
 }
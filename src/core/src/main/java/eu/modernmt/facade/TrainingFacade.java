@@ -12,6 +12,8 @@ import eu.modernmt.training.LazyWriterCorpus;
 import eu.modernmt.training.LazyWriterMultilingualCorpus;
 import eu.modernmt.training.PreprocessingPipeline;
 import eu.modernmt.training.filters.CorporaBloomFilter;
+import eu.modernmt.training.filters.CorporaDeduplicationFilter;
+import eu.modernmt.training.filters.CorporaHashSet;
 import eu.modernmt.training.partitioning.CorporaPartition;
 import org.apache.commons.io.FileUtils;
 
@@ -102,12 +104,13 @@ public class TrainingFacade {
         if (multilingualCorpora != null) {
             for (MultilingualCorpus corpus : multilingualCorpora) {
                 long fileSize = Corpora.fileSize(corpus);
-                corpus = CorporaCleaning.wrap(corpus, options);
 
+                // Small corpora are already cleaned concurrently by the copy process,
+                // large ones are cleaned one at a time with all the configured threads
                 if (fileSize < sizeThreshold)
-                    parallelCopyProcess.add(corpus);
+                    parallelCopyProcess.add(CorporaCleaning.wrap(corpus, options, 1));
                 else
-                    serializedCopyProcess.add(corpus);
+                    serializedCopyProcess.add(CorporaCleaning.wrap(corpus, options));
             }
         }
 
@@ -154,30 +157,43 @@ public class TrainingFacade {
 
     // - Deduplicate ---------------------------------------------------------------------------------------------------
 
-    private static class BloomFilterFactory implements BatchCopyProcess.OutputCorpusFactory {
+    private static class DeduplicationFilterFactory implements BatchCopyProcess.OutputCorpusFactory {
 
-        private final CorporaBloomFilter bloomFilter;
+        private final CorporaDeduplicationFilter filter;
         private final int lengthThreshold;
         private final File outputDirectory;
 
-        public BloomFilterFactory(CorporaBloomFilter bloomFilter, int lengthThreshold, File outputDirectory) {
-            this.bloomFilter = bloomFilter;
+        public DeduplicationFilterFactory(CorporaDeduplicationFilter filter, int lengthThreshold, File outputDirectory) {
+            this.filter = filter;
             this.lengthThreshold = lengthThreshold;
             this.outputDirectory = outputDirectory;
         }
 
         @Override
         public MultilingualCorpus getOutput(MultilingualCorpus corpus) {
-            return bloomFilter.wrap(Corpora.rename(corpus, outputDirectory), lengthThreshold);
+            return filter.wrap(Corpora.rename(corpus, outputDirectory), lengthThreshold);
         }
 
         @Override
         public Corpus getOutput(Corpus corpus) {
-            return bloomFilter.wrap(Corpora.rename(corpus, outputDirectory), lengthThreshold);
+            return filter.wrap(Corpora.rename(corpus, outputDirectory), lengthThreshold);
         }
     }
 
     public void deduplicate(List<MultilingualCorpus> corpora, File outputDirectory, int lengthThreshold) throws IOException {
+        deduplicate(corpora, outputDirectory, lengthThreshold, false, null);
+    }
+
+    /**
+     * @param exact if true, pairs are deduplicated with a set of 128 bit hashes instead of a Bloom filter
+     * @param index if not null (exact mode only), the hash set is loaded from this file if it exists,
+     *              and it is saved back at the end, so that subsequent runs are deduplicated against this one
+     */
+    public void deduplicate(List<MultilingualCorpus> corpora, File outputDirectory, int lengthThreshold,
+                            boolean exact, File index) throws IOException {
+        if (index != null && !exact)
+            throw new IllegalArgumentException("Index file is supported in exact mode only");
+
         long lines = 0;
         for (long count : IOCorporaUtils.countLines(corpora).values())
             lines += count;
@@ -185,13 +201,23 @@ public class TrainingFacade {
         FileUtils.deleteDirectory(outputDirectory);
         FileUtils.forceMkdir(outputDirectory);
 
-        CorporaBloomFilter bloomFilter = new CorporaBloomFilter(lines);
+        CorporaDeduplicationFilter filter;
+        if (!exact)
+            filter = new CorporaBloomFilter(lines);
+        else if (index != null && index.isFile())
+            filter = CorporaHashSet.load(index);
+        else
+            filter = new CorporaHashSet(lines);
 
         BatchCopyProcess copyProcess = new BatchCopyProcess(
-                new LazyWriterFactory(new BloomFilterFactory(bloomFilter, lengthThreshold, outputDirectory)));
+                new LazyWriterFactory(new DeduplicationFilterFactory(filter, lengthThreshold, outputDirectory)));
+        copyProcess.setIoThreads(Math.max(copyProcess.getIoThreads(), Runtime.getRuntime().availableProcessors()));
         for (MultilingualCorpus corpus : corpora)
             copyProcess.add(corpus);
         copyProcess.run();
+
+        if (index != null)
+            ((CorporaHashSet) filter).save(index);
     }
 
 }
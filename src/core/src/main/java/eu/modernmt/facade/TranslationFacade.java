@@ -1,9 +1,14 @@
 package eu.modernmt.facade;
 
+import com.hazelcast.core.ExecutionCallback;
 import com.hazelcast.core.HazelcastException;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
 import eu.modernmt.cluster.ClusterNode;
 import eu.modernmt.cluster.TranslationTask;
 import eu.modernmt.cluster.error.SystemShutdownException;
+import eu.modernmt.cluster.serialization.ClusterDataSerializableFactory;
+import eu.modernmt.cluster.serialization.ModelCodec;
 import eu.modernmt.context.ContextAnalyzer;
 import eu.modernmt.context.ContextAnalyzerException;
 import eu.modernmt.decoder.Decoder;
@@ -30,9 +35,9 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
+import java.util.concurrent.*;
 
 /**
  * Created by davide on 31/01/17.
@@ -50,6 +55,13 @@ public class TranslationFacade {
     }
 
     private static final Logger logger = LogManager.getLogger(TranslationFacade.class);
+    private static final long RETRY_DELAY = 50L;
+
+    private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TranslationFacade.retry");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     // =============================
     //  Translation
@@ -68,37 +80,8 @@ public class TranslationFacade {
     }
 
     public Translation get(UUID user, LanguagePair direction, String sentence, ContextVector translationContext, int nbest, Priority priority, long timeout) throws ProcessingException, DecoderException {
-        direction = mapLanguagePair(direction);
-        if (nbest > 0)
-            ensureDecoderSupportsNBest();
-
-        long expirationTimestamp = timeout > 0 ? (System.currentTimeMillis() + timeout) : 0L;
-
         try {
-            return insecureGet(user, direction, sentence, translationContext, nbest, priority, expirationTimestamp);
-        } catch (DecoderException | HazelcastException e) {
-            logger.warn("Translation failed, retry after delay", e);
-
-            try {
-                Thread.sleep(50);
-            } catch (InterruptedException e1) {
-                // Ignore it
-            }
-
-            return insecureGet(user, direction, sentence, translationContext, nbest, priority, expirationTimestamp);
-        }
-    }
-
-    private Translation insecureGet(UUID user, LanguagePair direction, String sentence, ContextVector translationContext, int nbest, Priority priority, long expirationTimestamp) throws ProcessingException, DecoderException {
-        if (expirationTimestamp > 0 && expirationTimestamp < System.currentTimeMillis())
-            throw new TimeoutException();
-
-        try {
-            ClusterNode node = ModernMT.getNode();
-
-            TranslationTask task = new TranslationTaskImpl(user, direction, sentence, translationContext, nbest, priority, expirationTimestamp);
-            Future<Translation> future = node.submit(task);
-            return future.get();
+            return getAsync(user, direction, sentence, translationContext, nbest, priority, timeout).get();
         } catch (InterruptedException e) {
             throw new SystemShutdownException(e);
         } catch (ExecutionException e) {
@@ -110,11 +93,68 @@ public class TranslationFacade {
                 throw (DecoderException) cause;
             else if (cause instanceof RuntimeException)
                 throw (RuntimeException) cause;
+            else if (cause instanceof Error)
+                throw (Error) cause;
             else
                 throw new Error("Unexpected exception thrown: " + cause.getMessage(), cause);
         }
     }
 
+    /**
+     * Submits the translation to the cluster without blocking the calling thread: the returned future is
+     * completed by the cluster callback, and a failed attempt is retried once after a short delay.
+     * Cluster callbacks run on a small shared pool: callers must not block in synchronous stages of the future.
+     */
+    public CompletableFuture<Translation> getAsync(UUID user, LanguagePair direction, String sentence, ContextVector translationContext, int nbest, Priority priority, long timeout) {
+        direction = mapLanguagePair(direction);
+        if (nbest > 0)
+            ensureDecoderSupportsNBest();
+
+        long expirationTimestamp = timeout > 0 ? (System.currentTimeMillis() + timeout) : 0L;
+
+        CompletableFuture<Translation> result = new CompletableFuture<>();
+        TranslationTask task = new TranslationTaskImpl(user, direction, sentence, translationContext, nbest, priority, expirationTimestamp);
+        insecureGet(task, expirationTimestamp, true, result);
+
+        return result;
+    }
+
+    private void insecureGet(TranslationTask task, long expirationTimestamp, boolean retry, CompletableFuture<Translation> result) {
+        if (expirationTimestamp > 0 && expirationTimestamp < System.currentTimeMillis()) {
+            result.completeExceptionally(new TimeoutException());
+            return;
+        }
+
+        ExecutionCallback<Translation> callback = new ExecutionCallback<Translation>() {
+
+            @Override
+            public void onResponse(Translation translation) {
+                result.complete(translation);
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                if (retry && (e instanceof DecoderException || e instanceof HazelcastException)) {
+                    logger.warn("Translation failed, retry after delay", e);
+
+                    try {
+                        retryScheduler.schedule(() -> insecureGet(task, expirationTimestamp, false, result), RETRY_DELAY, TimeUnit.MILLISECONDS);
+                    } catch (RejectedExecutionException e1) {
+                        result.completeExceptionally(new SystemShutdownException(e1));
+                    }
+                } else {
+                    result.completeExceptionally(e);
+                }
+            }
+        };
+
+        try {
+            ModernMT.getNode().submit(task).andThen(callback);
+        } catch (Throwable e) {
+            callback.onFailure(e);
+        }
+    }
+
     // =============================
     //  Context Vector
     // =============================
@@ -186,17 +226,23 @@ public class TranslationFacade {
     //  Internal Operations
     // -----------------------------
 
-    private static class TranslationTaskImpl implements TranslationTask {
+    public static class TranslationTaskImpl implements TranslationTask {
+
+        private static final Priority[] PRIORITIES = Priority.values();
 
-        public final UUID user;
-        public final LanguagePair direction;
-        public final String text;
-        public final ContextVector context;
-        public final int nbest;
-        public final Priority priority;
+        private UUID user;
+        private LanguagePair direction;
+        private String text;
+        private ContextVector context;
+        private int nbest;
+        private Priority priority;
         private int queueLength;
-        private final long creationTimestamp;
-        private final long expirationTimestamp;
+        private long creationTimestamp;
+        private long expirationTimestamp;
+
+        // necessary for deserialization
+        public TranslationTaskImpl() {
+        }
 
         public TranslationTaskImpl(UUID user, LanguagePair direction, String text, ContextVector context, int nbest, Priority priority, long expirationTimestamp) {
             this.user = user;
@@ -311,5 +357,39 @@ public class TranslationFacade {
             return direction;
         }
 
+        @Override
+        public int getFactoryId() {
+            return ClusterDataSerializableFactory.FACTORY_ID;
+        }
+
+        @Override
+        public int getId() {
+            return ClusterDataSerializableFactory.TRANSLATION_TASK_ID;
+        }
+
+        @Override
+        public void writeData(ObjectDataOutput out) throws IOException {
+            ModelCodec.writeUUID(out, user);
+            ModelCodec.writeLanguagePair(out, direction);
+            out.writeUTF(text);
+            ModelCodec.writeContextVector(out, context);
+            out.writeInt(nbest);
+            out.writeByte(priority.ordinal());
+            out.writeLong(creationTimestamp);
+            out.writeLong(expirationTimestamp);
+        }
+
+        @Override
+        public void readData(ObjectDataInput in) throws IOException {
+            user = ModelCodec.readUUID(in);
+            direction = ModelCodec.readLanguagePair(in);
+            text = in.readUTF();
+            context = ModelCodec.readContextVector(in);
+            nbest = in.readInt();
+            priority = PRIORITIES[in.readByte()];
+            creationTimestamp = in.readLong();
+            expirationTimestamp = in.readLong();
+        }
+
     }
 }
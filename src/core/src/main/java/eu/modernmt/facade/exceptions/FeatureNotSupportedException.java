@@ -0,0 +1,9 @@
+package eu.modernmt.facade.exceptions;
+
+public class FeatureNotSupportedException extends Exception {
+
+    public FeatureNotSupportedException(String message) {
+        super(message);
+    }
+
+}
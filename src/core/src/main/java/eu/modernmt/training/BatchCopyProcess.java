@@ -22,14 +22,14 @@ public class BatchCopyProcess {
 
     }
 
-    private static final int MAX_IO_THREADS = 10;
+    private static final int DEFAULT_IO_THREADS = 10;
 
     private ArrayList<MultilingualCorpus> multilingualCorpora = new ArrayList<>();
     private ArrayList<Corpus> monolingualCorpora = new ArrayList<>();
 
     private final OutputCorpusFactory outputFactory;
 
-    private int ioThreads = MAX_IO_THREADS;
+    private int ioThreads = DEFAULT_IO_THREADS;
 
     public BatchCopyProcess(OutputCorpusFactory outputFactory) {
         this.outputFactory = outputFactory;
@@ -59,7 +59,7 @@ public class BatchCopyProcess {
             return;
 
         int totalCorporaCount = this.multilingualCorpora.size() + this.monolingualCorpora.size();
-        int ioThreads = Math.min(Math.min(this.ioThreads, MAX_IO_THREADS), totalCorporaCount);
+        int ioThreads = Math.min(this.ioThreads, totalCorporaCount);
 
         ExecutorService executor = Executors.newFixedThreadPool(ioThreads);
         List<Future<?>> futures = new ArrayList<>(totalCorporaCount);
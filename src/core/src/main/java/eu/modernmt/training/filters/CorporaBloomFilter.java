@@ -1,156 +1,73 @@
 package eu.modernmt.training.filters;
 
-import com.google.common.hash.BloomFilter;
-import com.google.common.hash.Funnel;
-import com.google.common.hash.PrimitiveSink;
-import eu.modernmt.io.LineReader;
-import eu.modernmt.io.LineWriter;
-import eu.modernmt.io.UTF8Charset;
-import eu.modernmt.lang.Language;
-import eu.modernmt.model.corpus.BaseMultilingualCorpus;
-import eu.modernmt.model.corpus.Corpus;
-import eu.modernmt.model.corpus.MultilingualCorpus;
+import java.util.concurrent.atomic.AtomicLongArray;
 
-import java.io.IOException;
-import java.io.Reader;
+/**
+ * Concurrent Bloom filter: bits are set with CAS on an AtomicLongArray,
+ * bit indexes are derived from the two halves of the 128 bit hash (same strategy as Guava's MURMUR128_MITZ_64).
+ * <p>
+ * The test-and-set of a line holds the lock of a small stripe selected by its hash, so concurrent insertions
+ * of the very same line are serialized and only one of them reports the line as new.
+ */
+public class CorporaBloomFilter extends CorporaDeduplicationFilter {
 
-public class CorporaBloomFilter {
+    private static final int STRIPE_BITS = 10;
 
-    private final BloomFilter<String> bloomFilter;
+    private final Object[] stripes = new Object[1 << STRIPE_BITS];
+    private final AtomicLongArray bits;
+    private final long bitSize;
+    private final int numHashFunctions;
 
     public CorporaBloomFilter(long expectedEntries) {
         this(expectedEntries, 1. / 1000000.);
     }
 
     public CorporaBloomFilter(long expectedEntries, double fpp) {
-        this.bloomFilter = BloomFilter.create(new StringFunnel(), expectedEntries, fpp);
-    }
-
-    public MultilingualCorpus wrap(final MultilingualCorpus corpus, final int lengthThreshold) {
-        return new BaseMultilingualCorpus() {
-
-            @Override
-            public String getName() {
-                return corpus.getName();
-            }
-
-            @Override
-            public MultilingualLineReader getContentReader() {
-                throw new UnsupportedOperationException();
-            }
-
-            @Override
-            public MultilingualLineWriter getContentWriter(boolean append) throws IOException {
-                return new MultilingualLineWriter() {
-
-                    private final MultilingualLineWriter writer = corpus.getContentWriter(append);
+        if (expectedEntries < 0)
+            throw new IllegalArgumentException("Invalid expected entries: " + expectedEntries);
+        if (fpp <= 0 || fpp >= 1)
+            throw new IllegalArgumentException("Invalid false positive probability: " + fpp);
 
-                    @Override
-                    public void write(StringPair pair) throws IOException {
-                        boolean write;
+        expectedEntries = Math.max(1, expectedEntries);
 
-                        if (lengthThreshold > 0 &&
-                                pair.source.length() < lengthThreshold && pair.target.length() < lengthThreshold) {
-                            write = true;
-                        } else {
-                            synchronized (CorporaBloomFilter.this) {
-                                // This is not thread safe, even in v24
-                                write = bloomFilter.put(StringFunnel.toString(pair));
-                            }
-                        }
+        long bits = (long) (-expectedEntries * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        long words = Math.max(1, (bits + 63) >>> 6);
+        if (words > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Bloom filter too large: " + expectedEntries + " entries");
 
-                        if (write)
-                            writer.write(pair);
-                    }
+        this.bits = new AtomicLongArray((int) words);
+        this.bitSize = words * 64L;
+        this.numHashFunctions = Math.max(1, (int) Math.round((double) bitSize / expectedEntries * Math.log(2)));
 
-                    @Override
-                    public void flush() throws IOException {
-                        writer.flush();
-                    }
-
-                    @Override
-                    public void close() throws IOException {
-                        writer.close();
-                    }
-                };
-            }
-
-        };
+        for (int i = 0; i < stripes.length; i++)
+            stripes[i] = new Object();
     }
 
-    public Corpus wrap(final Corpus corpus, final int lengthThreshold) {
-        return new Corpus() {
-
-            @Override
-            public String getName() {
-                return corpus.getName();
-            }
-
-            @Override
-            public Language getLanguage() {
-                return corpus.getLanguage();
-            }
-
-            @Override
-            public LineReader getContentReader() {
-                throw new UnsupportedOperationException();
+    @Override
+    protected boolean add(long h1, long h2) {
+        // Words are shared by lines of different stripes, so bits are still set with CAS
+        synchronized (stripes[(int) (h1 >>> (64 - STRIPE_BITS))]) {
+            boolean changed = false;
+            long combined = h1;
+
+            for (int i = 0; i < numHashFunctions; i++) {
+                long index = (combined & Long.MAX_VALUE) % bitSize;
+                changed |= set((int) (index >>> 6), 1L << index);
+                combined += h2;
             }
 
-            @Override
-            public Reader getRawContentReader() {
-                throw new UnsupportedOperationException();
-            }
-
-            @Override
-            public LineWriter getContentWriter(boolean append) throws IOException {
-                return new LineWriter() {
-
-                    private final LineWriter writer = corpus.getContentWriter(append);
-
-                    @Override
-                    public void writeLine(String line) throws IOException {
-                        boolean write;
-
-                        if (lengthThreshold > 0 && line.length() < lengthThreshold) {
-                            write = true;
-                        } else {
-                            synchronized (CorporaBloomFilter.this) {
-                                // This is not thread safe, even in v24
-                                write = bloomFilter.put(line);
-                            }
-                        }
-
-                        if (write)
-                            writer.writeLine(line);
-                    }
-
-                    @Override
-                    public void flush() throws IOException {
-                        writer.flush();
-                    }
-
-                    @Override
-                    public void close() throws IOException {
-                        writer.close();
-                    }
-                };
-            }
-
-        };
-    }
-
-    private static final class StringFunnel implements Funnel<String> {
-
-        public static String toString(MultilingualCorpus.StringPair pair) {
-            return pair.language.toString() + '\n' +
-                    pair.source.replace('\n', ' ') + '\n' +
-                    pair.target.replace('\n', ' ');
+            return changed;
         }
+    }
 
-        @Override
-        public void funnel(String from, PrimitiveSink into) {
-            into.putString(from, UTF8Charset.get());
+    private boolean set(int word, long mask) {
+        while (true) {
+            long value = bits.get(word);
+            if ((value & mask) != 0)
+                return false;
+            if (bits.compareAndSet(word, value, value | mask))
+                return true;
         }
-
     }
+
 }
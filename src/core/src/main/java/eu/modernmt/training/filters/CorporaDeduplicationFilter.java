@@ -0,0 +1,147 @@
+package eu.modernmt.training.filters;
+
+import eu.modernmt.io.LineReader;
+import eu.modernmt.io.LineWriter;
+import eu.modernmt.lang.Language;
+import eu.modernmt.model.corpus.BaseMultilingualCorpus;
+import eu.modernmt.model.corpus.Corpus;
+import eu.modernmt.model.corpus.MultilingualCorpus;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Base class for filters that drop the lines (or pairs) already written through any of the wrapped corpora.
+ * Lines are identified by their 128 bit MurmurHash3; implementations must be safe for concurrent use.
+ */
+public abstract class CorporaDeduplicationFilter {
+
+    /**
+     * Adds the given 128 bit hash to the filter
+     *
+     * @return true if the hash was not already present
+     */
+    protected abstract boolean add(long h1, long h2);
+
+    public final boolean add(String line) {
+        Murmur3Hash128 hash = new Murmur3Hash128().putLine(line).finish();
+        return add(hash.h1(), hash.h2());
+    }
+
+    public final boolean add(MultilingualCorpus.StringPair pair) {
+        Murmur3Hash128 hash = new Murmur3Hash128()
+                .put(pair.language.source.toLanguageTag()).put(' ')
+                .put(pair.language.target.toLanguageTag()).put('\n')
+                .putLine(pair.source).put('\n')
+                .putLine(pair.target)
+                .finish();
+        return add(hash.h1(), hash.h2());
+    }
+
+    public MultilingualCorpus wrap(final MultilingualCorpus corpus, final int lengthThreshold) {
+        return new BaseMultilingualCorpus() {
+
+            @Override
+            public String getName() {
+                return corpus.getName();
+            }
+
+            @Override
+            public MultilingualLineReader getContentReader() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public MultilingualLineWriter getContentWriter(boolean append) throws IOException {
+                return new MultilingualLineWriter() {
+
+                    private final MultilingualLineWriter writer = corpus.getContentWriter(append);
+
+                    @Override
+                    public void write(StringPair pair) throws IOException {
+                        boolean write;
+
+                        if (lengthThreshold > 0 &&
+                                pair.source.length() < lengthThreshold && pair.target.length() < lengthThreshold) {
+                            write = true;
+                        } else {
+                            write = add(pair);
+                        }
+
+                        if (write)
+                            writer.write(pair);
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        writer.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        writer.close();
+                    }
+                };
+            }
+
+        };
+    }
+
+    public Corpus wrap(final Corpus corpus, final int lengthThreshold) {
+        return new Corpus() {
+
+            @Override
+            public String getName() {
+                return corpus.getName();
+            }
+
+            @Override
+            public Language getLanguage() {
+                return corpus.getLanguage();
+            }
+
+            @Override
+            public LineReader getContentReader() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Reader getRawContentReader() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public LineWriter getContentWriter(boolean append) throws IOException {
+                return new LineWriter() {
+
+                    private final LineWriter writer = corpus.getContentWriter(append);
+
+                    @Override
+                    public void writeLine(String line) throws IOException {
+                        boolean write;
+
+                        if (lengthThreshold > 0 && line.length() < lengthThreshold)
+                            write = true;
+                        else
+                            write = add(line);
+
+                        if (write)
+                            writer.writeLine(line);
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        writer.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        writer.close();
+                    }
+                };
+            }
+
+        };
+    }
+
+}
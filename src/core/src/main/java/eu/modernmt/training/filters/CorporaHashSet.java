@@ -0,0 +1,159 @@
+package eu.modernmt.training.filters;
+
+import java.io.*;
+
+/**
+ * Exact deduplication filter: the 128 bit hash of every line is kept in a set
+ * split into independently locked stripes, so concurrent writers rarely contend.
+ * Each entry takes 16 bytes in open-addressing tables.
+ * <p>
+ * The set can be saved to disk and loaded back in order to deduplicate new corpora against previous ones.
+ */
+public class CorporaHashSet extends CorporaDeduplicationFilter {
+
+    private static final int STRIPE_BITS = 8;
+    private static final int MAGIC = 0x4d4d5448; // "MMTH"
+
+    private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+
+    public CorporaHashSet(long expectedEntries) {
+        int stripeSize = (int) Math.min(1 << 24, Math.max(16, expectedEntries >>> STRIPE_BITS));
+
+        for (int i = 0; i < stripes.length; i++)
+            stripes[i] = new Stripe(stripeSize);
+    }
+
+    public static CorporaHashSet load(File file) throws IOException {
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+            if (input.readInt() != MAGIC)
+                throw new IOException("Invalid hash set file: " + file);
+
+            long size = input.readLong();
+            CorporaHashSet set = new CorporaHashSet(size);
+
+            for (long i = 0; i < size; i++)
+                set.add(input.readLong(), input.readLong());
+
+            return set;
+        }
+    }
+
+    /**
+     * Writes the set to the given file; it must not be called while lines are being added.
+     */
+    public void save(File file) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), 64 * 1024))) {
+            output.writeInt(MAGIC);
+            output.writeLong(size());
+
+            for (Stripe stripe : stripes)
+                stripe.writeTo(output);
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes)
+            size += stripe.size();
+        return size;
+    }
+
+    @Override
+    protected boolean add(long h1, long h2) {
+        return stripes[(int) (h1 >>> (64 - STRIPE_BITS))].add(h1, h2);
+    }
+
+    private static final class Stripe {
+
+        private static final float LOAD_FACTOR = .6f;
+
+        // Entries are stored as (h1, h2) couples, (0, 0) marks an empty slot and is stored apart
+        private long[] table;
+        private int mask;
+        private int size = 0;
+        private boolean hasZero = false;
+
+        Stripe(int expectedSize) {
+            allocate(Integer.highestOneBit((int) (expectedSize / LOAD_FACTOR)) << 1);
+        }
+
+        private void allocate(int capacity) {
+            this.table = new long[capacity * 2];
+            this.mask = capacity - 1;
+        }
+
+        public synchronized int size() {
+            return size;
+        }
+
+        public synchronized boolean add(long h1, long h2) {
+            if (h1 == 0 && h2 == 0) {
+                if (hasZero)
+                    return false;
+
+                hasZero = true;
+                size++;
+                return true;
+            }
+
+            int i = slot(h1, h2);
+            if (table[i] != 0 || table[i + 1] != 0)
+                return false;
+
+            table[i] = h1;
+            table[i + 1] = h2;
+            size++;
+
+            if (size > (mask + 1) * LOAD_FACTOR)
+                rehash();
+
+            return true;
+        }
+
+        // The stripe is selected by the highest bits of h1, so the slot is derived from h2
+        private int slot(long h1, long h2) {
+            int i = (int) h2 & mask;
+
+            while (true) {
+                long a = table[i * 2];
+                long b = table[i * 2 + 1];
+
+                if ((a == 0 && b == 0) || (a == h1 && b == h2))
+                    return i * 2;
+
+                i = (i + 1) & mask;
+            }
+        }
+
+        private void rehash() {
+            long[] old = table;
+            allocate((mask + 1) * 2);
+
+            for (int i = 0; i < old.length; i += 2) {
+                if (old[i] != 0 || old[i + 1] != 0) {
+                    int j = slot(old[i], old[i + 1]);
+                    table[j] = old[i];
+                    table[j + 1] = old[i + 1];
+                }
+            }
+        }
+
+        public synchronized void writeTo(DataOutputStream output) throws IOException {
+            if (hasZero) {
+                output.writeLong(0L);
+                output.writeLong(0L);
+            }
+
+            for (int i = 0; i < table.length; i += 2) {
+                if (table[i] != 0 || table[i + 1] != 0) {
+                    output.writeLong(table[i]);
+                    output.writeLong(table[i + 1]);
+                }
+            }
+        }
+
+    }
+
+}
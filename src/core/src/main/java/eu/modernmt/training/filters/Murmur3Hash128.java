@@ -0,0 +1,123 @@
+package eu.modernmt.training.filters;
+
+/**
+ * Streaming MurmurHash3 (x64, 128 bit) over UTF-16 chars.
+ * The result is the same as Guava's murmur3_128() fed with putUnencodedChars(),
+ * but chars are consumed directly from the input sequences without intermediate strings or buffers.
+ */
+final class Murmur3Hash128 {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private long h1 = 0;
+    private long h2 = 0;
+    private long k1 = 0;
+    private long k2 = 0;
+    private int chars = 0; // chars buffered in k1, k2
+    private long length = 0; // bytes
+
+    public long h1() {
+        return h1;
+    }
+
+    public long h2() {
+        return h2;
+    }
+
+    public Murmur3Hash128 put(char c) {
+        long v = c & 0xFFFFL;
+
+        if (chars < 4)
+            k1 |= v << (16 * chars);
+        else
+            k2 |= v << (16 * (chars - 4));
+
+        length += 2;
+
+        if (++chars == 8) {
+            mix(k1, k2);
+            k1 = k2 = 0;
+            chars = 0;
+        }
+
+        return this;
+    }
+
+    public Murmur3Hash128 put(CharSequence string) {
+        for (int i = 0; i < string.length(); i++)
+            put(string.charAt(i));
+        return this;
+    }
+
+    /**
+     * Same as put(string), but every new-line char is replaced by a space
+     */
+    public Murmur3Hash128 putLine(CharSequence string) {
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            put(c == '\n' ? ' ' : c);
+        }
+        return this;
+    }
+
+    private void mix(long k1, long k2) {
+        h1 ^= mixK1(k1);
+
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+
+        h2 ^= mixK2(k2);
+
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    public Murmur3Hash128 finish() {
+        if (chars > 0) {
+            if (chars > 4)
+                h2 ^= mixK2(k2);
+            h1 ^= mixK1(k1);
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+
+        h1 += h2;
+        h2 += h1;
+
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+
+        h1 += h2;
+        h2 += h1;
+
+        return this;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        return k1;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        return k2;
+    }
+
+}
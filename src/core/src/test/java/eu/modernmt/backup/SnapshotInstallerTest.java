@@ -0,0 +1,135 @@
+package eu.modernmt.backup;
+
+import eu.modernmt.io.Paths;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SnapshotInstallerTest {
+
+    private File snapshots;
+    private File models;
+
+    @Before
+    public void setup() throws Throwable {
+        File root = Files.createTempDirectory("SnapshotInstallerTest").toFile();
+        this.snapshots = new File(root, "snapshots");
+        this.models = new File(root, "models");
+
+        FileUtils.forceMkdir(new File(models, "decoder"));
+        FileUtils.write(Paths.join(models, "context", "index", "_0.cfs"), "old", "UTF-8");
+    }
+
+    @After
+    public void teardown() throws Throwable {
+        FileUtils.deleteDirectory(this.snapshots.getParentFile());
+    }
+
+    private void createSnapshot(String name, String content, String channels) throws Throwable {
+        File snapshot = new File(snapshots, name);
+        FileUtils.write(Paths.join(snapshot, "context", "index", "_1.cfs"), content, "UTF-8");
+        FileUtils.write(Paths.join(snapshot, "context", "storage", "index"), content, "UTF-8");
+        FileUtils.write(Paths.join(snapshot, "memory", "_1.cfs"), content, "UTF-8");
+        FileUtils.write(new File(snapshot, "channels"), channels, "UTF-8");
+    }
+
+    private String read(String... path) throws Throwable {
+        return FileUtils.readFileToString(Paths.join(models, path), "UTF-8");
+    }
+
+    @Test
+    public void noSnapshot() throws Throwable {
+        assertNull(new SnapshotInstaller(snapshots, models).install());
+        assertEquals("old", read("context", "index", "_0.cfs"));
+    }
+
+    @Test
+    public void installLatest() throws Throwable {
+        createSnapshot("20190101T000000", "first", "0 10\n");
+        createSnapshot("20190102T000000", "second", "0 20\n1 5\n");
+
+        SnapshotInstaller installer = new SnapshotInstaller(snapshots, models);
+
+        Map<Short, Long> expected = new HashMap<>();
+        expected.put((short) 0, 20L);
+        expected.put((short) 1, 5L);
+
+        assertEquals(expected, installer.install());
+        assertFalse(Paths.join(models, "context", "index", "_0.cfs").exists());
+        assertEquals("second", read("context", "index", "_1.cfs"));
+        assertEquals("second", read("context", "storage", "index"));
+        assertEquals("second", read("decoder", "memory", "_1.cfs"));
+        assertEquals("20190102T000000", installer.getInstalledSnapshot().toString());
+
+        // already installed
+        assertNull(installer.install());
+
+        // storage is copied, so the engine can modify it without touching the snapshot
+        FileUtils.write(Paths.join(models, "context", "storage", "index"), "updated", "UTF-8");
+        assertEquals("second", FileUtils.readFileToString(
+                Paths.join(snapshots, "20190102T000000", "context", "storage", "index"), "UTF-8"));
+    }
+
+    private void createShardedSnapshot(String name) throws Throwable {
+        File snapshot = new File(snapshots, name);
+        FileUtils.write(Paths.join(snapshot, "context", "index", "_1.cfs"), name, "UTF-8");
+        FileUtils.write(Paths.join(snapshot, "memory", "en__it", "_1.cfs"), name, "UTF-8");
+        FileUtils.write(Paths.join(snapshot, "memory", "en__fr", "_1.cfs"), name, "UTF-8");
+        FileUtils.write(Paths.join(snapshot, "memory", "channels"), name, "UTF-8");
+        FileUtils.write(new File(snapshot, "channels"), "0 10\n", "UTF-8");
+    }
+
+    private void setMemorySharded(boolean sharded) throws Throwable {
+        FileUtils.write(Paths.join(models, "decoder", "model.conf"),
+                "[settings]\nmemory_sharded = " + sharded + "\n", "UTF-8");
+    }
+
+    @Test
+    public void installShardedMemory() throws Throwable {
+        setMemorySharded(true);
+        createShardedSnapshot("20190101T000000");
+
+        assertEquals(Collections.singletonMap((short) 0, 10L), new SnapshotInstaller(snapshots, models).install());
+        assertEquals("20190101T000000", read("decoder", "memory", "en__it", "_1.cfs"));
+        assertEquals("20190101T000000", read("decoder", "memory", "en__fr", "_1.cfs"));
+        assertEquals("20190101T000000", read("decoder", "memory", "channels"));
+    }
+
+    @Test
+    public void rejectMismatchingMemoryLayout() throws Throwable {
+        createShardedSnapshot("20190101T000000");
+
+        try {
+            new SnapshotInstaller(snapshots, models).install();
+            fail("Sharded snapshot installed on a single index memory");
+        } catch (IOException e) {
+            // Expected
+        }
+
+        // Nothing has been installed
+        assertEquals("old", read("context", "index", "_0.cfs"));
+        assertFalse(Paths.join(models, "decoder", "memory").exists());
+
+        FileUtils.deleteDirectory(snapshots);
+        createSnapshot("20190102T000000", "single", "0 20\n");
+        setMemorySharded(true);
+
+        try {
+            new SnapshotInstaller(snapshots, models).install();
+            fail("Single index snapshot installed on a sharded memory");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+package eu.modernmt.cluster.serialization;
+
+import com.hazelcast.config.SerializationConfig;
+import com.hazelcast.internal.serialization.InternalSerializationService;
+import com.hazelcast.internal.serialization.impl.DefaultSerializationServiceBuilder;
+import eu.modernmt.cluster.TranslationTask;
+import eu.modernmt.facade.TranslationFacade;
+import eu.modernmt.lang.Language;
+import eu.modernmt.lang.LanguagePair;
+import eu.modernmt.model.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class ModelSerializersTest {
+
+    private InternalSerializationService service;
+
+    @Before
+    public void setup() {
+        SerializationConfig config = new SerializationConfig();
+        ModelSerializers.register(config);
+
+        service = new DefaultSerializationServiceBuilder().setConfig(config).build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T roundTrip(T object) {
+        return (T) service.toObject(service.toData(object));
+    }
+
+    private static Sentence source() {
+        Word[] words = new Word[]{
+                new Word("Hello", "Hello", " "),
+                new Word("world", "world", null, false),
+        };
+        Tag[] tags = new Tag[]{
+                Tag.fromText("<b>", true, null, 1),
+                Tag.fromText("</b>", false, " ", 2),
+        };
+
+        Sentence sentence = new Sentence(words, tags);
+        sentence.addAnnotation("test");
+        return sentence;
+    }
+
+    private static Translation translation(Sentence source, String... tokens) {
+        Word[] words = new Word[tokens.length];
+        for (int i = 0; i < words.length; i++)
+            words[i] = new Word(tokens[i], " ");
+
+        return new Translation(words, new Tag[]{Tag.fromText("<br/>", false, null, 0)}, source,
+                new Alignment(new int[]{0, 1}, new int[]{0, 1}, .5f));
+    }
+
+    private static void assertSentenceEquals(Sentence expected, Sentence actual) {
+        assertArrayEquals(expected.getWords(), actual.getWords());
+        assertArrayEquals(expected.getTags(), actual.getTags());
+        assertEquals(expected.getAnnotations(), actual.getAnnotations());
+
+        for (int i = 0; i < expected.getWords().length; i++) {
+            assertEquals(expected.getWords()[i].isRightSpaceRequired(), actual.getWords()[i].isRightSpaceRequired());
+        }
+    }
+
+    @Test
+    public void sentence() {
+        Sentence sentence = source();
+        Sentence copy = roundTrip(sentence);
+
+        assertSentenceEquals(sentence, copy);
+        assertEquals(sentence.toString(), copy.toString());
+    }
+
+    @Test
+    public void translationWithNBest() {
+        Sentence source = source();
+
+        Translation translation = translation(source, "Ciao", "mondo");
+        translation.setNbest(Arrays.asList(translation(source, "Ciao", "mondo"), translation(source, "Salve", "mondo")));
+        translation.setDecodeTime(12);
+        translation.setMemoryLookupTime(3);
+        translation.setQueueTime(4);
+        translation.setQueueLength(5);
+
+        Translation copy = roundTrip(translation);
+
+        assertSentenceEquals(translation, copy);
+        assertSentenceEquals(source, copy.getSource());
+        assertEquals(translation.getWordAlignment(), copy.getWordAlignment());
+        assertEquals(translation.getSentenceAlignment(), copy.getSentenceAlignment());
+        assertEquals(12, copy.getDecodeTime());
+        assertEquals(3, copy.getMemoryLookupTime());
+        assertEquals(4, copy.getQueueTime());
+        assertEquals(5, copy.getQueueLength());
+
+        assertEquals(2, copy.getNbest().size());
+        for (int i = 0; i < 2; i++) {
+            assertSentenceEquals(translation.getNbest().get(i), copy.getNbest().get(i));
+            assertSame(copy.getSource(), copy.getNbest().get(i).getSource());
+        }
+    }
+
+    @Test
+    public void contextVector() {
+        ContextVector context = new ContextVector.Builder()
+                .add(new Memory(1, UUID.randomUUID(), "first"), .9f)
+                .add(new Memory(2), .5f)
+                .build();
+
+        ContextVector copy = roundTrip(context);
+        assertEquals(context.size(), copy.size());
+
+        Iterator<ContextVector.Entry> iterator = copy.iterator();
+        for (ContextVector.Entry expected : context) {
+            ContextVector.Entry actual = iterator.next();
+
+            assertEquals(expected, actual);
+            assertEquals(expected.memory.getOwner(), actual.memory.getOwner());
+            assertEquals(expected.memory.getName(), actual.memory.getName());
+        }
+    }
+
+    @Test
+    public void translationTask() {
+        LanguagePair direction = new LanguagePair(Language.ENGLISH, new Language("pt", "BR"));
+        TranslationTask task = new TranslationFacade.TranslationTaskImpl(UUID.randomUUID(), direction, "Hello world",
+                null, 0, TranslationFacade.Priority.BACKGROUND, 0L);
+
+        TranslationTask copy = roundTrip(task);
+
+        assertEquals(direction, copy.getLanguage());
+        assertEquals("pt-BR", copy.getLanguage().target.toLanguageTag());
+        assertEquals(TranslationFacade.Priority.BACKGROUND.intValue, copy.getPriority());
+    }
+
+}
@@ -0,0 +1,162 @@
+package eu.modernmt.training.cleaning;
+
+import eu.modernmt.cleaning.ChainedMultilingualCorpusFilter;
+import eu.modernmt.cleaning.CorporaCleaning;
+import eu.modernmt.cleaning.FilteredMultilingualCorpus;
+import eu.modernmt.cleaning.MultilingualCorpusFilterAdapter;
+import eu.modernmt.cleaning.filters.draft.DraftFilter;
+import eu.modernmt.cleaning.filters.lang.OptimaizeLanguageFilter;
+import eu.modernmt.lang.Language;
+import eu.modernmt.lang.LanguagePair;
+import eu.modernmt.model.corpus.MultilingualCorpus;
+import eu.modernmt.training.MockMultilingualCorpus;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class ParallelCleaningTest {
+
+    private static final String[] WORDS = new String[]{
+            "the", "house", "is", "red", "and", "blue", "with", "a", "small", "garden", "near", "river",
+            "we", "walk", "every", "day", "to", "school", "zqxj", "kkwv", "<b>", "</b>", "&amp;", "42"
+    };
+
+    private static MultilingualCorpus.StringPair[] generate(int size, long seed) {
+        Random random = new Random(seed);
+        MultilingualCorpus.StringPair[] pairs = new MultilingualCorpus.StringPair[size];
+
+        for (int i = 0; i < size; i++) {
+            // Frequent repetitions make drafts appear across shards boundaries
+            String source = sentence(random, random.nextInt(size / 20));
+            String target = sentence(random, random.nextInt());
+
+            if (random.nextInt(4) == 0) {
+                pairs[i] = MockMultilingualCorpus.pair(source, target, i + random.nextInt(50) * 60L * 24L);
+            } else {
+                pairs[i] = MockMultilingualCorpus.pair(source, target, 0);
+                pairs[i].timestamp = null;
+            }
+        }
+
+        return pairs;
+    }
+
+    private static String sentence(Random random, int seed) {
+        Random words = new Random(seed);
+        int length = 3 + words.nextInt(12);
+
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append(WORDS[words.nextInt(WORDS.length)]);
+            builder.append(random.nextInt(10) == 0 ? "  " : " ");
+        }
+
+        return builder.toString();
+    }
+
+    private static MockMultilingualCorpus copy(MultilingualCorpus.StringPair[] pairs) {
+        MultilingualCorpus.StringPair[] copy = new MultilingualCorpus.StringPair[pairs.length];
+        for (int i = 0; i < pairs.length; i++)
+            copy[i] = new MultilingualCorpus.StringPair(pairs[i].language, pairs[i].source, pairs[i].target, pairs[i].timestamp);
+
+        return new MockMultilingualCorpus(copy);
+    }
+
+    private static CorporaCleaning.Options options() {
+        CorporaCleaning.Options options = new CorporaCleaning.Options();
+        options.eraseXml = true;
+        options.filterBrokenUTF8 = true;
+        options.filterByPunctuation = true;
+        options.filterOddSentences = true;
+        options.filterDrafts = true;
+        options.filterNumericSentences = true;
+        options.filterVerbatimTranslations = true;
+        return options;
+    }
+
+    @Test
+    public void testDraftFilterAcrossShards() throws IOException {
+        MultilingualCorpus.StringPair[] pairs = generate(35000, 1L);
+
+        MockMultilingualCorpus expected = MockMultilingualCorpus.drain(
+                new FilteredMultilingualCorpus(copy(pairs), null, new DraftFilter()).getContentReader());
+        MockMultilingualCorpus output = MockMultilingualCorpus.drain(
+                new FilteredMultilingualCorpus(copy(pairs), null, new DraftFilter(), 4).getContentReader());
+
+        assertNotEquals(copy(pairs), expected);
+        assertEquals(expected, output);
+    }
+
+    @Test
+    public void testChainedFilterAcrossShards() throws IOException {
+        MultilingualCorpus.StringPair[] pairs = generate(35000, 2L);
+
+        ChainedMultilingualCorpusFilter sequentialFilter = CorporaCleaning.makeMultilingualFilter(options());
+        ChainedMultilingualCorpusFilter parallelFilter = CorporaCleaning.makeMultilingualFilter(options());
+
+        MockMultilingualCorpus expected = MockMultilingualCorpus.drain(
+                new FilteredMultilingualCorpus(copy(pairs), sequentialFilter, sequentialFilter).getContentReader());
+        MockMultilingualCorpus output = MockMultilingualCorpus.drain(
+                new FilteredMultilingualCorpus(copy(pairs), parallelFilter, parallelFilter, 4).getContentReader());
+
+        assertEquals(expected, output);
+    }
+
+    private static final String[] EN_WORDS = new String[]{
+            "the", "house", "is", "very", "old", "and", "we", "would", "like", "to", "buy", "it", "before",
+            "winter", "because", "our", "children", "need", "more", "space", "for", "their", "friends"
+    };
+    private static final String[] IT_WORDS = new String[]{
+            "la", "casa", "molto", "vecchia", "vorremmo", "comprarla", "prima", "dell'inverno", "perché",
+            "nostri", "bambini", "hanno", "bisogno", "di", "spazio", "per", "loro", "amici", "della", "questa"
+    };
+    private static final String[] DE_WORDS = new String[]{
+            "das", "haus", "ist", "sehr", "alt", "und", "wir", "möchten", "es", "vor", "dem", "winter",
+            "kaufen", "weil", "unsere", "kinder", "mehr", "platz", "für", "ihre", "freunde", "brauchen"
+    };
+
+    private static String sentence(Random random, String[] words) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 6 + random.nextInt(8); i++) {
+            if (i > 0)
+                builder.append(' ');
+            builder.append(words[random.nextInt(words.length)]);
+        }
+
+        return builder.toString();
+    }
+
+    @Test
+    public void testLanguageFilterAcrossShards() throws IOException {
+        LanguagePair enIt = new LanguagePair(Language.ENGLISH, Language.ITALIAN);
+        LanguagePair deEn = new LanguagePair(Language.fromString("de"), Language.ENGLISH);
+
+        // A rare direction has less lines than a language batch in every shard:
+        // its batches span shards boundaries, and the first one is not in the declared language
+        Random random = new Random(3L);
+        MultilingualCorpus.StringPair[] pairs = new MultilingualCorpus.StringPair[35000];
+        int rare = 0;
+
+        for (int i = 0; i < pairs.length; i++) {
+            if (i % 300 == 0) {
+                String source = sentence(random, rare++ < 100 ? IT_WORDS : DE_WORDS);
+                pairs[i] = new MultilingualCorpus.StringPair(deEn, source, sentence(random, EN_WORDS));
+            } else {
+                pairs[i] = new MultilingualCorpus.StringPair(enIt, sentence(random, EN_WORDS), sentence(random, IT_WORDS));
+            }
+        }
+
+        MockMultilingualCorpus expected = MockMultilingualCorpus.drain(new FilteredMultilingualCorpus(copy(pairs), null,
+                new MultilingualCorpusFilterAdapter(OptimaizeLanguageFilter.class)).getContentReader());
+        MockMultilingualCorpus output = MockMultilingualCorpus.drain(new FilteredMultilingualCorpus(copy(pairs), null,
+                new MultilingualCorpusFilterAdapter(OptimaizeLanguageFilter.class), 4).getContentReader());
+
+        assertNotEquals(copy(pairs), expected);
+        assertEquals(expected, output);
+    }
+
+}
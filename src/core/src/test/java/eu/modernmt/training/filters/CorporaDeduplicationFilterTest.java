@@ -0,0 +1,115 @@
+package eu.modernmt.training.filters;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CorporaDeduplicationFilterTest {
+
+    @Test
+    public void murmur3SameAsGuava() {
+        StringBuilder builder = new StringBuilder();
+
+        for (int length = 0; length < 40; length++) {
+            String string = builder.toString();
+
+            HashCode expected = Hashing.murmur3_128().hashUnencodedChars(string);
+            Murmur3Hash128 hash = new Murmur3Hash128().put(string).finish();
+
+            ByteBuffer buffer = ByteBuffer.wrap(expected.asBytes()).order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals(buffer.getLong(), hash.h1());
+            assertEquals(buffer.getLong(), hash.h2());
+
+            builder.append((char) ('a' + length * 7919 % 1000));
+        }
+    }
+
+    private static String line(int i) {
+        return "This is the sentence number " + i;
+    }
+
+    private static int concurrentAdd(CorporaDeduplicationFilter filter, int lines, int copies) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(copies);
+        AtomicInteger accepted = new AtomicInteger();
+
+        try {
+            List<Future<?>> futures = new ArrayList<>(copies);
+            for (int t = 0; t < copies; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < lines; i++) {
+                        if (filter.add(line(i)))
+                            accepted.incrementAndGet();
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return accepted.get();
+    }
+
+    @Test
+    public void hashSetIsExactUnderConcurrency() throws Exception {
+        CorporaHashSet set = new CorporaHashSet(10);
+
+        assertEquals(50000, concurrentAdd(set, 50000, 4));
+        assertEquals(50000, set.size());
+        assertFalse(set.add(line(42)));
+        assertTrue(set.add(line(50000)));
+    }
+
+    @Test
+    public void bloomFilter() throws Exception {
+        CorporaBloomFilter filter = new CorporaBloomFilter(50000);
+
+        int accepted = concurrentAdd(filter, 50000, 1);
+        assertTrue(accepted > 49990);
+        assertFalse(filter.add(line(42)));
+    }
+
+    @Test
+    public void bloomFilterAcceptsEveryLineOnceUnderConcurrency() throws Exception {
+        CorporaBloomFilter filter = new CorporaBloomFilter(50000);
+
+        int accepted = concurrentAdd(filter, 50000, 4);
+        assertTrue(accepted > 49990);
+        assertTrue(accepted <= 50000);
+    }
+
+    @Test
+    public void hashSetSaveAndLoad() throws IOException {
+        CorporaHashSet set = new CorporaHashSet(1000);
+        for (int i = 0; i < 1000; i++)
+            set.add(line(i));
+
+        File file = File.createTempFile("CorporaHashSet", ".bin");
+
+        try {
+            set.save(file);
+            CorporaHashSet loaded = CorporaHashSet.load(file);
+
+            assertEquals(1000, loaded.size());
+            for (int i = 0; i < 1000; i++)
+                assertFalse(loaded.add(line(i)));
+            assertTrue(loaded.add(line(1000)));
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+}
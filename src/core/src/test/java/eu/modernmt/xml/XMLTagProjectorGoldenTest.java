@@ -0,0 +1,238 @@
+package eu.modernmt.xml;
+
+import eu.modernmt.model.*;
+import eu.modernmt.processing.xml.XMLTagProjector;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class XMLTagProjectorGoldenTest {
+
+    private static final String[][] TAGS = {
+            {"<b>", "</b>"},
+            {"<i>", "</i>"},
+            {"<a href=\"#\">", "</a>"},
+            {"<br/>", null},
+            {"<!-- note -->", null},
+            {null, "</span>"},
+    };
+
+    private static Translation randomTranslation(Random random) {
+        int sourceLength = 1 + random.nextInt(15);
+        int targetLength = 1 + random.nextInt(15);
+
+        Word[] sourceWords = new Word[sourceLength];
+        for (int i = 0; i < sourceLength; i++)
+            sourceWords[i] = new Word("s" + i, random.nextBoolean() ? " " : null);
+
+        Word[] targetWords = new Word[targetLength];
+        for (int i = 0; i < targetLength; i++)
+            targetWords[i] = new Word("t" + i, random.nextBoolean() ? " " : null);
+
+        ArrayList<Tag> tags = new ArrayList<>();
+        int count = random.nextInt(8);
+        for (int i = 0; i < count; i++) {
+            String[] pair = TAGS[random.nextInt(TAGS.length)];
+            int position = random.nextInt(sourceLength + 1);
+
+            if (pair[0] != null)
+                tags.add(Tag.fromText(pair[0], random.nextBoolean(), random.nextBoolean() ? " " : null, position));
+            if (pair[1] != null && (pair[0] == null || random.nextInt(4) > 0))
+                tags.add(Tag.fromText(pair[1], random.nextBoolean(), random.nextBoolean() ? " " : null,
+                        position + random.nextInt(sourceLength + 1 - position)));
+        }
+        tags.sort(Comparator.comparingInt(Tag::getPosition));
+
+        int points = random.nextInt(sourceLength + targetLength + 1);
+        int[][] alignment = new int[points][];
+        for (int i = 0; i < points; i++)
+            alignment[i] = new int[]{random.nextInt(sourceLength), random.nextInt(targetLength)};
+
+        Sentence source = new Sentence(sourceWords, tags.toArray(new Tag[tags.size()]));
+        return new Translation(targetWords, source, Alignment.fromAlignmentPairs(alignment));
+    }
+
+    @Test
+    public void projectionIsIdenticalToReferenceImplementation() {
+        for (int i = 0; i < 5000; i++) {
+            Translation expected = randomTranslation(new Random(i));
+            Translation actual = randomTranslation(new Random(i));
+
+            LegacyXMLTagProjector.project(expected);
+            new XMLTagProjector().project(actual);
+
+            String message = "Seed " + i + ": " + expected.getSource();
+            assertArrayEquals(message, expected.getTags(), actual.getTags());
+            assertEquals(message, expected.toString(), actual.toString());
+        }
+    }
+
+    /**
+     * Tags mapping as implemented before the alignment pre-indexing, used as ground truth
+     */
+    private static final class LegacyXMLTagProjector {
+
+        static void project(Translation translation) {
+            Sentence source = translation.getSource();
+            if (source.hasTags()) {
+                if (source.hasWords()) {
+                    if (translation.hasAlignment()) {
+                        mapTags(translation);
+                        XMLTagProjector.simpleSpaceAnalysis(translation);
+                    }
+                } else {
+                    Tag[] tags = source.getTags();
+                    translation.setTags(Arrays.copyOf(tags, tags.length));
+                }
+            }
+        }
+
+        private static void mapTags(Translation translation) {
+            Tag[] sourceTags = translation.getSource().getTags();
+            Token[] targetTokens = translation.getWords();
+            Alignment alignment = translation.getWordAlignment();
+            List<Object[]> translationTags = new ArrayList<>(sourceTags.length);
+            Map<Integer, Integer> closing2opening = new HashMap<>();
+
+            Set<Integer> sourceLeftToken = new HashSet<>();
+            Set<Integer> sourceRightToken = new HashSet<>();
+            Set<Integer> targetLeftToken = new HashSet<>();
+            Set<Integer> targetRightToken = new HashSet<>();
+            Set<Integer> leftTokenIntersection = new HashSet<>();
+            Set<Integer> rightTokenIntersection = new HashSet<>();
+
+            Set<Integer> alignedTags = new HashSet<>();
+
+            for (int tagIndex = 0; tagIndex < sourceTags.length; tagIndex++) {
+                Tag sourceTag = sourceTags[tagIndex];
+                if (alignedTags.contains(tagIndex))
+                    continue;
+
+                int sourcePosition = sourceTag.getPosition();
+                boolean singleTag = false;
+
+                int closingTagIndex = getClosingTagIndex(sourceTag, tagIndex, sourceTags);
+                if (closingTagIndex != -1) {
+                    Tag closingTag = sourceTags[closingTagIndex];
+                    int closePosition = closingTag.getPosition();
+                    int minPos = Integer.MAX_VALUE;
+                    int maxPos = -1;
+
+                    for (int[] align : alignment) {
+                        if (align[0] >= sourcePosition && align[0] < closePosition) {
+                            minPos = Math.min(minPos, align[1]);
+                            maxPos = Math.max(maxPos, align[1]);
+                        }
+                    }
+
+                    if (minPos == Integer.MAX_VALUE || maxPos == -1) {
+                        singleTag = true;
+                    } else {
+                        maxPos += 1;
+                        Tag targetTag = Tag.fromTag(sourceTag);
+                        targetTag.setPosition(minPos);
+                        translationTags.add(new Object[]{targetTag, tagIndex});
+
+                        Tag closingTargetTag = Tag.fromTag(closingTag);
+                        closingTargetTag.setPosition(maxPos);
+                        translationTags.add(new Object[]{closingTargetTag, closingTagIndex});
+
+                        alignedTags.add(tagIndex);
+                        alignedTags.add(closingTagIndex);
+                    }
+                } else {
+                    singleTag = true;
+                }
+
+                if (singleTag) {
+                    sourceLeftToken.clear();
+                    sourceRightToken.clear();
+                    for (int[] align : alignment) {
+                        if (align[0] < sourcePosition) {
+                            if (!sourceRightToken.contains(align[1]))
+                                sourceLeftToken.add(align[1]);
+                        } else {
+                            if (!sourceLeftToken.contains(align[1]))
+                                sourceRightToken.add(align[1]);
+                        }
+                    }
+                    boolean openingTag = sourceTag.isOpeningTag();
+                    targetLeftToken.clear();
+                    targetRightToken.clear();
+                    leftTokenIntersection.clear();
+                    rightTokenIntersection.clear();
+
+                    for (int i = 0; i < targetTokens.length; i++)
+                        targetRightToken.add(i);
+                    rightTokenIntersection.addAll(sourceRightToken);
+                    rightTokenIntersection.retainAll(targetRightToken);
+                    int maxScore = rightTokenIntersection.size();
+                    int bestPosition = 0;
+
+                    int actualPosition = 0;
+                    for (int i = 0; i < targetTokens.length; i++) {
+                        actualPosition++;
+
+                        targetLeftToken.add(i);
+                        targetRightToken.remove(i);
+                        leftTokenIntersection.clear();
+                        rightTokenIntersection.clear();
+
+                        leftTokenIntersection.addAll(sourceLeftToken);
+                        leftTokenIntersection.retainAll(targetLeftToken);
+                        rightTokenIntersection.addAll(sourceRightToken);
+                        rightTokenIntersection.retainAll(targetRightToken);
+                        int score = leftTokenIntersection.size() + rightTokenIntersection.size();
+
+                        if ((openingTag && score >= maxScore) || (!openingTag && score > maxScore)) {
+                            maxScore = score;
+                            bestPosition = actualPosition;
+                        }
+                    }
+                    Integer openingPosition = closing2opening.get(tagIndex);
+                    if (openingPosition != null) {
+                        bestPosition = Math.max(openingPosition, bestPosition);
+                    } else if (closingTagIndex != -1) {
+                        closing2opening.put(closingTagIndex, bestPosition);
+                    }
+                    Tag targetTag = Tag.fromTag(sourceTag);
+                    targetTag.setPosition(bestPosition);
+                    translationTags.add(new Object[]{targetTag, tagIndex});
+                    alignedTags.add(tagIndex);
+                }
+            }
+
+            translationTags.sort((a, b) -> {
+                int c = ((Tag) a[0]).compareTo((Tag) b[0]);
+                return c == 0 ? (Integer) a[1] - (Integer) b[1] : c;
+            });
+
+            Tag[] result = new Tag[translationTags.size()];
+            for (int i = 0; i < translationTags.size(); i++)
+                result[i] = (Tag) translationTags.get(i)[0];
+            translation.setTags(result);
+        }
+
+        private static int getClosingTagIndex(Tag openingTag, int tagIndex, Tag[] tags) {
+            int open = 1;
+            for (int index = tagIndex + 1; index < tags.length; index++) {
+                Tag tag = tags[index];
+                if (openingTag == tag)
+                    continue;
+                if (openingTag.getName().equals(tag.getName()) && tag.isOpeningTag())
+                    open++;
+                if (openingTag.opens(tag)) {
+                    open--;
+                    if (open == 0)
+                        return index;
+                }
+            }
+            return -1;
+        }
+
+    }
+
+}
@@ -19,6 +19,7 @@ public class ModelConfig {
 
     private final int DEFAULT_SUGGESTIONS_LIMIT = 1;
     private final int DEFAULT_QUERY_MIN_RESULTS = 10;
+    private final int DEFAULT_FILTER_CACHE_MB = 64;
 
     private final HierarchicalINIConfiguration config;
     private final File basePath;
@@ -92,4 +93,35 @@ public class ModelConfig {
         }
     }
 
+    public boolean isMemorySharded() {
+        try {
+            SubnodeConfiguration settings = config.configurationAt("settings");
+            return settings.getBoolean("memory_sharded", false);
+        } catch (IllegalArgumentException iex) {
+            return false;
+        }
+    }
+
+    public boolean isMemoryMinHashEnabled() {
+        try {
+            SubnodeConfiguration settings = config.configurationAt("settings");
+            return settings.getBoolean("memory_minhash", false);
+        } catch (IllegalArgumentException iex) {
+            return false;
+        }
+    }
+
+    public long getMemoryFilterCacheSize() {
+        int mb;
+
+        try {
+            SubnodeConfiguration settings = config.configurationAt("settings");
+            mb = settings.getInt("memory_filter_cache_mb", DEFAULT_FILTER_CACHE_MB);
+        } catch (IllegalArgumentException iex) {
+            mb = DEFAULT_FILTER_CACHE_MB;
+        }
+
+        return mb * 1024L * 1024L;
+    }
+
 }
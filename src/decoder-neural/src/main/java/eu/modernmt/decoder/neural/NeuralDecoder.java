@@ -14,6 +14,13 @@ import eu.modernmt.decoder.neural.execution.impl.PythonDecoderImpl;
 import eu.modernmt.decoder.neural.memory.ScoreEntry;
 import eu.modernmt.decoder.neural.memory.TranslationMemory;
 import eu.modernmt.decoder.neural.memory.lucene.LuceneTranslationMemory;
+import eu.modernmt.decoder.neural.memory.lucene.ShardedTranslationMemory;
+import eu.modernmt.decoder.neural.memory.lucene.analysis.DefaultAnalyzerFactory;
+import eu.modernmt.decoder.neural.memory.lucene.query.DefaultQueryBuilder;
+import eu.modernmt.decoder.neural.memory.lucene.query.FilterCache;
+import eu.modernmt.decoder.neural.memory.lucene.query.MinHashQueryBuilder;
+import eu.modernmt.decoder.neural.memory.lucene.query.QueryBuilder;
+import eu.modernmt.decoder.neural.memory.lucene.query.rescoring.F1BleuRescorer;
 import eu.modernmt.io.TokensOutputStream;
 import eu.modernmt.lang.LanguagePair;
 import eu.modernmt.lang.UnsupportedLanguageException;
@@ -86,7 +93,13 @@ public class NeuralDecoder extends Decoder implements DecoderWithNBest, DataList
     }
 
     protected TranslationMemory loadTranslationMemory(ModelConfig config, File model) throws IOException {
-        return new LuceneTranslationMemory(model, config.getQueryMinimumResults());
+        FilterCache filters = new FilterCache(FilterCache.DEFAULT_CAPACITY, config.getMemoryFilterCacheSize());
+        QueryBuilder queryBuilder = config.isMemoryMinHashEnabled() ? new MinHashQueryBuilder(filters) : new DefaultQueryBuilder(filters);
+
+        if (config.isMemorySharded())
+            return new ShardedTranslationMemory(model, queryBuilder, config.getQueryMinimumResults());
+        else
+            return new LuceneTranslationMemory(model, queryBuilder, new F1BleuRescorer(), new DefaultAnalyzerFactory(), config.getQueryMinimumResults());
     }
 
     protected DecoderQueue loadDecoderQueue(ModelConfig modelConfig, DecoderConfig decoderConfig, File model) throws DecoderException {
@@ -240,6 +253,10 @@ public class NeuralDecoder extends Decoder implements DecoderWithNBest, DataList
         }
     }
 
+    public TranslationMemory getTranslationMemory() {
+        return memory;
+    }
+
     // DataListenerProvider
 
     @Override
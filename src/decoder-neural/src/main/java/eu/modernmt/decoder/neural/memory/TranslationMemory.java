@@ -6,8 +6,11 @@ import eu.modernmt.model.ContextVector;
 import eu.modernmt.model.Sentence;
 
 import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * Created by davide on 23/05/17.
@@ -18,4 +21,23 @@ public interface TranslationMemory extends Closeable, DataListener {
 
     ScoreEntry[] search(UUID user, LanguagePair direction, Sentence source, ContextVector contextVector, int limit) throws IOException;
 
+    /**
+     * Passes the entries of the memory to the consumer one by one, without collecting them.
+     *
+     * @param memory    the id of the memory to dump, or 0 to dump all the memories
+     * @param direction the language pair of the entries to dump, or null to dump all the languages;
+     *                  if specified, entries are oriented accordingly
+     * @param consumer  the consumer of the entries
+     */
+    void dump(long memory, LanguagePair direction, Consumer<ScoreEntry> consumer) throws IOException;
+
+    void optimize() throws IOException;
+
+    /**
+     * Creates an online copy of the memory into the destination folder, with the same layout of the memory folder.
+     *
+     * @return the channel positions included in the copy
+     */
+    Map<Short, Long> backup(File destination) throws IOException;
+
 }
@@ -6,19 +6,17 @@ import eu.modernmt.io.TokensOutputStream;
 import eu.modernmt.lang.Language;
 import eu.modernmt.lang.LanguagePair;
 import org.apache.lucene.document.*;
-import org.apache.lucene.index.IndexableField;
-import org.apache.lucene.index.Term;
-import org.apache.lucene.search.BooleanClause;
-import org.apache.lucene.search.BooleanQuery;
-import org.apache.lucene.search.Query;
-import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.*;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.lucene.util.NumericUtils;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
 
 /**
@@ -28,17 +26,25 @@ public class DocumentBuilder {
 
     // Factory methods
 
-    public static Document newInstance(TranslationUnit unit) {
+    public static Document newInstance(TranslationUnit unit, boolean minHash) {
         String sentence = TokensOutputStream.serialize(unit.sentence, false, true);
         String translation = TokensOutputStream.serialize(unit.translation, false, true);
         String hash = HashGenerator.hash(unit.rawSentence, unit.rawTranslation);
 
-        return newInstance(unit.direction, unit.owner, unit.memory, sentence, translation, hash);
+        return newInstance(unit.direction, unit.owner, unit.memory, sentence, translation, hash, minHash);
     }
 
     public static Document newInstance(LanguagePair direction, UUID owner, long memory, String sentence, String translation, String hash) {
+        return newInstance(direction, owner, memory, sentence, translation, hash, false);
+    }
+
+    /**
+     * @param minHash if true, the MinHash bands terms of both sentence and translation are indexed
+     */
+    public static Document newInstance(LanguagePair direction, UUID owner, long memory, String sentence, String translation, String hash, boolean minHash) {
         Document document = new Document();
         document.add(new LongField(MEMORY_FIELD, memory, Field.Store.YES));
+        document.add(new NumericDocValuesField(MEMORY_FIELD, memory));
 
         if (owner == null) {
             document.add(new LongField(OWNER_MSB_FIELD, 0L, Field.Store.NO));
@@ -49,14 +55,36 @@ public class DocumentBuilder {
         }
 
         document.add(new HashField(HASH_FIELD, hash, Field.Store.NO));
+        document.add(new StringField(MEMORY_HASH_FIELD, makeMemoryHashTerm(memory, hash).text(), Field.Store.NO));
+        document.add(new StringField(EXACT_HASH_FIELD, HashGenerator.exactHash(makeContentFieldName(direction), sentence), Field.Store.NO));
+        document.add(new StringField(EXACT_HASH_FIELD, HashGenerator.exactHash(makeContentFieldName(direction.reversed()), translation), Field.Store.NO));
+        if (minHash) {
+            for (Term term : makeMinHashTerms(direction, sentence.split(" ")))
+                document.add(new StringField(MINHASH_FIELD, term.text(), Field.Store.NO));
+            for (Term term : makeMinHashTerms(direction.reversed(), translation.split(" ")))
+                document.add(new StringField(MINHASH_FIELD, term.text(), Field.Store.NO));
+        }
         document.add(new StringField(makeLanguageFieldName(direction.source), direction.source.toLanguageTag(), Field.Store.YES));
         document.add(new StringField(makeLanguageFieldName(direction.target), direction.target.toLanguageTag(), Field.Store.YES));
         document.add(new TextField(makeContentFieldName(direction), sentence, Field.Store.YES));
         document.add(new TextField(makeContentFieldName(direction.reversed()), translation, Field.Store.YES));
+        document.add(new BinaryDocValuesField(makeContentFieldName(direction), new BytesRef(sentence)));
+        document.add(new BinaryDocValuesField(makeContentFieldName(direction.reversed()), new BytesRef(translation)));
 
         return document;
     }
 
+    /**
+     * Re-creates a document of a previous index format from its stored fields, owner and hash terms
+     */
+    public static Document newInstance(Document stored, UUID owner, String hash, boolean minHash) {
+        LanguagePair direction = asEntry(stored).language;
+        String sentence = stored.get(makeContentFieldName(direction));
+        String translation = stored.get(makeContentFieldName(direction.reversed()));
+
+        return newInstance(direction, owner, getMemory(stored), sentence, translation, hash, minHash);
+    }
+
     public static Document newChannelsInstance(Map<Short, Long> channels) {
         ByteBuffer buffer = ByteBuffer.allocate(10 * channels.size());
         for (Map.Entry<Short, Long> entry : channels.entrySet()) {
@@ -76,6 +104,9 @@ public class DocumentBuilder {
     private static final String OWNER_MSB_FIELD = "owner_msb";
     private static final String OWNER_LSB_FIELD = "owner_lsb";
     private static final String HASH_FIELD = "hash";
+    private static final String MEMORY_HASH_FIELD = "memory_hash";
+    private static final String EXACT_HASH_FIELD = "exact_hash";
+    private static final String MINHASH_FIELD = "minhash";
     private static final String LANGUAGE_PREFIX_FIELD = "lang_";
     private static final String CONTENT_PREFIX_FIELD = "content_";
 
@@ -85,6 +116,97 @@ public class DocumentBuilder {
         return Long.parseLong(self.get(MEMORY_FIELD));
     }
 
+    /**
+     * @return the memory of every document of the reader, read from the doc values (0 for the channels document)
+     */
+    public static NumericDocValues getMemoryValues(IndexReader reader) throws IOException {
+        NumericDocValues values = MultiDocValues.getNumericValues(reader, MEMORY_FIELD);
+        return values == null ? DocValues.emptyNumeric() : values;
+    }
+
+    /**
+     * @return the content in the given direction of every document of the reader, read from the doc values
+     */
+    public static BinaryDocValues getContentValues(IndexReader reader, LanguagePair direction) throws IOException {
+        BinaryDocValues values = MultiDocValues.getBinaryValues(reader, makeContentFieldName(direction));
+        return values == null ? DocValues.emptyBinary() : values;
+    }
+
+    public static String[] getContent(BinaryDocValues values, int doc) {
+        return values.get(doc).utf8ToString().split(" ");
+    }
+
+    public static boolean hasContent(BinaryDocValues values, int doc, String sentence) {
+        return values.get(doc).bytesEquals(new BytesRef(sentence));
+    }
+
+    /**
+     * @return the owner of every document of the segment, read from the indexed terms (owners are not stored)
+     */
+    public static UUID[] getOwners(AtomicReader reader) throws IOException {
+        long[] msb = readLongTerms(reader, OWNER_MSB_FIELD);
+        long[] lsb = readLongTerms(reader, OWNER_LSB_FIELD);
+
+        UUID[] owners = new UUID[reader.maxDoc()];
+        for (int i = 0; i < owners.length; i++) {
+            if (msb[i] != 0L || lsb[i] != 0L)
+                owners[i] = new UUID(msb[i], lsb[i]);
+        }
+
+        return owners;
+    }
+
+    private static long[] readLongTerms(AtomicReader reader, String field) throws IOException {
+        long[] values = new long[reader.maxDoc()];
+
+        Terms terms = reader.terms(field);
+        if (terms == null)
+            return values;
+
+        TermsEnum iterator = terms.iterator(null);
+        DocsEnum docs = null;
+        BytesRef term;
+
+        while ((term = iterator.next()) != null) {
+            if (NumericUtils.getPrefixCodedLongShift(term) != 0)
+                continue;
+
+            long value = NumericUtils.prefixCodedToLong(term);
+            docs = iterator.docs(null, docs, DocsEnum.FLAG_NONE);
+
+            int doc;
+            while ((doc = docs.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS)
+                values[doc] = value;
+        }
+
+        return values;
+    }
+
+    /**
+     * @return the hash of the document, read from its term vector (hashes are not stored)
+     */
+    public static String getHash(AtomicReader reader, int doc) throws IOException {
+        Terms terms = reader.getTermVector(doc, HASH_FIELD);
+        if (terms == null)
+            return null;
+
+        TreeMap<Integer, String> tokens = new TreeMap<>();
+        TermsEnum iterator = terms.iterator(null);
+        DocsAndPositionsEnum positions = null;
+        BytesRef term;
+
+        while ((term = iterator.next()) != null) {
+            String token = term.utf8ToString();
+            positions = iterator.docsAndPositions(null, positions);
+            positions.nextDoc();
+
+            for (int i = 0; i < positions.freq(); i++)
+                tokens.put(positions.nextPosition(), token);
+        }
+
+        return String.join(" ", tokens.values());
+    }
+
     public static String getSourceLanguage(String fieldName) {
         if (!fieldName.startsWith(CONTENT_PREFIX_FIELD))
             throw new IllegalArgumentException("Unexpected field name: " + fieldName);
@@ -181,6 +303,37 @@ public class DocumentBuilder {
         return new Term(HASH_FIELD, h);
     }
 
+    /**
+     * @return the term matching the documents of a memory with the given hash, the same documents of QueryBuilder.getByHash()
+     */
+    public static Term makeMemoryHashTerm(long memory, String hash) {
+        return new Term(MEMORY_HASH_FIELD, Long.toString(memory) + ' ' + hash);
+    }
+
+    public static Term makeExactHashTerm(LanguagePair direction, String sentence) {
+        return new Term(EXACT_HASH_FIELD, HashGenerator.exactHash(makeContentFieldName(direction), sentence));
+    }
+
+    public static Term[] makeMinHashTerms(LanguagePair direction, String[] tokens) {
+        String[] bands = MinHashGenerator.bands(makeContentFieldName(direction), tokens);
+
+        Term[] terms = new Term[bands.length];
+        for (int i = 0; i < bands.length; i++)
+            terms[i] = new Term(MINHASH_FIELD, bands[i]);
+
+        return terms;
+    }
+
+    /**
+     * @return a query matching all the entries of the index, the channels document excluded
+     */
+    public static Query makeEntriesQuery() {
+        BooleanQuery query = new BooleanQuery();
+        query.add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST);
+        query.add(new TermQuery(makeChannelsTerm()), BooleanClause.Occur.MUST_NOT);
+        return query;
+    }
+
     public static Term makeMemoryTerm(long memory) {
         return makeLongTerm(memory, MEMORY_FIELD);
     }
@@ -206,6 +359,19 @@ public class DocumentBuilder {
         return makeMemoryTerm(0L);
     }
 
+    /**
+     * @return a query matching the documents with the languages of the direction, regardless of their regions
+     */
+    public static Query makeLanguagesMatchingQuery(LanguagePair direction) {
+        String source = makeLanguageFieldName(direction.source);
+        String target = makeLanguageFieldName(direction.target);
+
+        BooleanQuery query = new BooleanQuery();
+        query.add(new TermRangeQuery(source, null, null, true, true), BooleanClause.Occur.MUST);
+        query.add(new TermRangeQuery(target, null, null, true, true), BooleanClause.Occur.MUST);
+        return query;
+    }
+
     public static Term makeLanguageTerm(Language language) {
         return new Term(makeLanguageFieldName(language), language.toLanguageTag());
     }
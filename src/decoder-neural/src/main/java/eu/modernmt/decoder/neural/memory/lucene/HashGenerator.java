@@ -37,6 +37,33 @@ class HashGenerator {
         return new String(string);
     }
 
+    /**
+     * @return the 64-bit hash of the sentence in the given field, as a 16 chars hex string
+     */
+    public static String exactHash(String field, String sentence) {
+        long hash = FNV_1a(FNV_OFFSET_BASIS, field);
+        hash ^= '\n';
+        hash *= FNV_PRIME;
+        hash = FNV_1a(hash, sentence);
+
+        char[] string = new char[16];
+        toHex((int) ((hash >>> 44) & 0xFFFFF), string, 0);
+        toHex((int) ((hash >>> 24) & 0xFFFFF), string, 5);
+        toHex((int) ((hash >>> 4) & 0xFFFFF), string, 10);
+        string[15] = CHARS.charAt((int) (hash & 0xF));
+
+        return new String(string);
+    }
+
+    private static long FNV_1a(long hash, String string) {
+        for (byte b : string.getBytes(UTF8Charset.get())) {
+            hash ^= (b & 0xff);
+            hash *= FNV_PRIME;
+        }
+
+        return hash;
+    }
+
     private static long FNV_1a_lazy_mod_mapping(String sentence) {
         long hash = FNV_OFFSET_BASIS;
         for (byte b : sentence.getBytes(UTF8Charset.get())) {
@@ -11,6 +11,8 @@ import eu.modernmt.decoder.neural.memory.lucene.query.DefaultQueryBuilder;
 import eu.modernmt.decoder.neural.memory.lucene.query.QueryBuilder;
 import eu.modernmt.decoder.neural.memory.lucene.query.rescoring.F1BleuRescorer;
 import eu.modernmt.decoder.neural.memory.lucene.query.rescoring.Rescorer;
+import eu.modernmt.io.FileSystemUtils;
+import eu.modernmt.io.TokensOutputStream;
 import eu.modernmt.lang.LanguagePair;
 import eu.modernmt.model.ContextVector;
 import eu.modernmt.model.Sentence;
@@ -20,21 +22,17 @@ import org.apache.logging.log4j.Logger;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.DelegatingAnalyzerWrapper;
 import org.apache.lucene.document.Document;
-import org.apache.lucene.index.DirectoryReader;
-import org.apache.lucene.index.IndexReader;
-import org.apache.lucene.index.IndexWriter;
-import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.*;
 import org.apache.lucene.search.*;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.Version;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
+import java.util.*;
 import java.util.function.Consumer;
 
 import static org.apache.lucene.analysis.Analyzer.PER_FIELD_REUSE_STRATEGY;
@@ -44,6 +42,10 @@ import static org.apache.lucene.analysis.Analyzer.PER_FIELD_REUSE_STRATEGY;
  */
 public class LuceneTranslationMemory implements TranslationMemory {
 
+    private static final String INDEX_FORMAT_KEY = "index_format";
+    private static final String INDEX_FORMAT = "2"; // exact match hash, memory hash, doc values
+    private static final String MINHASH_KEY = "minhash";
+
     private final Logger logger = LogManager.getLogger(LuceneTranslationMemory.class);
 
     private final int minQuerySize;
@@ -54,6 +56,7 @@ public class LuceneTranslationMemory implements TranslationMemory {
     private final Analyzer shortQueryAnalyzer;
     private final Analyzer longQueryAnalyzer;
     private final IndexWriter indexWriter;
+    private final SnapshotDeletionPolicy snapshotPolicy;
 
     private DirectoryReader _indexReader;
     private IndexSearcher _indexSearcher;
@@ -110,11 +113,27 @@ public class LuceneTranslationMemory implements TranslationMemory {
         indexConfig.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
         indexConfig.setSimilarity(analyzerFactory.createSimilarity());
 
+        this.snapshotPolicy = new SnapshotDeletionPolicy(new KeepOnlyLastCommitDeletionPolicy());
+        indexConfig.setIndexDeletionPolicy(this.snapshotPolicy);
+
         this.indexWriter = new IndexWriter(this.indexDirectory, indexConfig);
 
-        // Ensure index exists
-        if (!DirectoryReader.indexExists(directory))
+        // Ensure index exists and it is up to date: MinHash bands are indexed only if required by the query builder
+        if (!DirectoryReader.indexExists(directory)) {
+            this.indexWriter.setCommitData(makeCommitData());
             this.indexWriter.commit();
+        } else {
+            Map<String, String> commitData = this.indexWriter.getCommitData();
+
+            if (!INDEX_FORMAT.equals(commitData.get(INDEX_FORMAT_KEY)) ||
+                    (this.queryBuilder.requiresMinHash() && !commitData.containsKey(MINHASH_KEY))) {
+                this.migrate();
+            } else if (!makeCommitData().equals(commitData)) {
+                // New entries will not have MinHash bands: an index that has them is no longer complete
+                this.indexWriter.setCommitData(makeCommitData());
+                this.indexWriter.commit();
+            }
+        }
 
         // Read channels status
         IndexSearcher searcher = this.getIndexSearcher();
@@ -130,6 +149,65 @@ public class LuceneTranslationMemory implements TranslationMemory {
         }
     }
 
+    private Map<String, String> makeCommitData() {
+        HashMap<String, String> commitData = new HashMap<>(2);
+        commitData.put(INDEX_FORMAT_KEY, INDEX_FORMAT);
+        if (this.queryBuilder.requiresMinHash())
+            commitData.put(MINHASH_KEY, "true");
+
+        return commitData;
+    }
+
+    /**
+     * Re-indexes the documents of a previous index format: stored fields are copied,
+     * while owner and hash are recovered from the indexed terms. Doc values cannot be queried,
+     * so all the entries are replaced with their re-indexed copy read from the last commit.
+     */
+    private void migrate() throws IOException {
+        logger.info("Migrating memory index to format " + INDEX_FORMAT);
+        long begin = System.currentTimeMillis();
+        int count = 0;
+
+        boolean success = false;
+
+        try {
+            try (DirectoryReader reader = DirectoryReader.open(this.indexDirectory)) {
+                // Deletions apply only to the documents added before them
+                this.indexWriter.deleteDocuments(DocumentBuilder.makeEntriesQuery());
+
+                for (AtomicReaderContext leaf : reader.leaves()) {
+                    AtomicReader segment = leaf.reader();
+                    Bits liveDocs = segment.getLiveDocs();
+                    UUID[] owners = DocumentBuilder.getOwners(segment);
+
+                    for (int doc = 0; doc < segment.maxDoc(); doc++) {
+                        if (liveDocs != null && !liveDocs.get(doc))
+                            continue;
+
+                        Document stored = segment.document(doc);
+                        if (DocumentBuilder.getMemory(stored) == 0L)
+                            continue;
+
+                        String hash = DocumentBuilder.getHash(segment, doc);
+                        this.indexWriter.addDocument(DocumentBuilder.newInstance(stored, owners[doc], hash, this.queryBuilder.requiresMinHash()));
+                        count++;
+                    }
+                }
+            }
+
+            this.indexWriter.setCommitData(makeCommitData());
+            this.indexWriter.commit();
+
+            success = true;
+        } finally {
+            if (!success)
+                this.indexWriter.rollback();
+        }
+
+        long elapsed = System.currentTimeMillis() - begin;
+        logger.info("Memory index migration completed in " + (elapsed / 1000.) + "s, " + count + " entries migrated");
+    }
+
     protected synchronized IndexReader getIndexReader() throws IOException {
         if (this._indexReader == null) {
             this._indexReader = DirectoryReader.open(this.indexDirectory);
@@ -161,24 +239,60 @@ public class LuceneTranslationMemory implements TranslationMemory {
     }
 
     public void dump(Consumer<ScoreEntry> consumer) throws IOException {
-        IndexSearcher searcher = getIndexSearcher();
-        IndexReader reader = getIndexReader();
-
-        int size = reader.numDocs();
-        if (size == 0)
-            return;
+        dump(0L, null, consumer);
+    }
 
-        TopDocs docs = searcher.search(new MatchAllDocsQuery(), size);
+    /**
+     * Entries are read segment by segment in index order: no result set is allocated,
+     * and when a filter is specified only the matching documents are visited.
+     */
+    @Override
+    public void dump(long memory, LanguagePair direction, Consumer<ScoreEntry> consumer) throws IOException {
+        BooleanQuery query = new BooleanQuery();
+        if (memory > 0)
+            query.add(new TermQuery(DocumentBuilder.makeMemoryTerm(memory)), BooleanClause.Occur.MUST);
+        if (direction != null)
+            query.add(DocumentBuilder.makeLanguagesMatchingQuery(direction), BooleanClause.Occur.MUST);
+
+        Filter filter = query.clauses().isEmpty() ? null : new QueryWrapperFilter(query);
+
+        IndexReader reader;
+        synchronized (this) {
+            reader = getIndexReader();
+            reader.incRef();
+        }
 
-        for (ScoreDoc scoreDoc : docs.scoreDocs) {
-            Document document = reader.document(scoreDoc.doc);
-            if (DocumentBuilder.getMemory(document) > 0) {
-                ScoreEntry entry = DocumentBuilder.asEntry(document);
-                consumer.accept(entry);
+        try {
+            for (AtomicReaderContext leaf : reader.leaves()) {
+                AtomicReader segment = leaf.reader();
+                Bits liveDocs = segment.getLiveDocs();
+
+                if (filter == null) {
+                    for (int doc = 0; doc < segment.maxDoc(); doc++) {
+                        if (liveDocs == null || liveDocs.get(doc))
+                            dump(segment.document(doc), direction, consumer);
+                    }
+                } else {
+                    DocIdSet docs = filter.getDocIdSet(leaf, liveDocs);
+                    DocIdSetIterator iterator = docs == null ? null : docs.iterator();
+                    if (iterator == null)
+                        continue;
+
+                    int doc;
+                    while ((doc = iterator.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS)
+                        dump(segment.document(doc), direction, consumer);
+                }
             }
+        } finally {
+            reader.decRef();
         }
     }
 
+    private static void dump(Document document, LanguagePair direction, Consumer<ScoreEntry> consumer) {
+        if (DocumentBuilder.getMemory(document) > 0)
+            consumer.accept(direction == null ? DocumentBuilder.asEntry(document) : DocumentBuilder.asEntry(document, direction));
+    }
+
     // TranslationMemory
 
     @Override
@@ -196,32 +310,158 @@ public class LuceneTranslationMemory implements TranslationMemory {
     }
 
     public ScoreEntry[] search(UUID user, LanguagePair direction, Sentence source, ContextVector contextVector, Rescorer rescorer, int limit) throws IOException {
-        Analyzer analyzer = this.queryBuilder.isLongQuery(source.getWords().length) ? longQueryAnalyzer : shortQueryAnalyzer;
-        Query query = this.queryBuilder.bestMatchingSuggestion(analyzer, user, direction, source, contextVector);
-
         IndexSearcher searcher = getIndexSearcher();
+        IndexReader reader = searcher.getIndexReader();
 
-        int queryLimit = Math.max(this.minQuerySize, limit * 2);
-        ScoreDoc[] docs = searcher.search(query, queryLimit).scoreDocs;
+        // Candidates are read from the doc values, only the final entries are loaded from the stored fields
+        NumericDocValues memories = DocumentBuilder.getMemoryValues(reader);
+        BinaryDocValues sentences = DocumentBuilder.getContentValues(reader, direction);
 
-        ScoreEntry[] entries = new ScoreEntry[docs.length];
-        for (int i = 0; i < docs.length; i++) {
-            entries[i] = DocumentBuilder.asEntry(searcher.doc(docs[i].doc), direction);
-            entries[i].score = docs[i].score;
+        // Exact matches come first, the remaining slots are filled with the best fuzzy matches
+        int[] exactMatches = searchExactMatches(searcher, memories, sentences, user, direction, source, contextVector, limit);
+        ScoreEntry[] entries = new ScoreEntry[0];
+        IdentityHashMap<ScoreEntry, Integer> ids = new IdentityHashMap<>();
+
+        if (exactMatches.length < limit) {
+            Analyzer analyzer = this.queryBuilder.isLongQuery(source.getWords().length) ? longQueryAnalyzer : shortQueryAnalyzer;
+            Query query = this.queryBuilder.bestMatchingSuggestion(analyzer, user, direction, source, contextVector);
+
+            int queryLimit = Math.max(this.minQuerySize, limit * 2);
+            ScoreDoc[] docs = searcher.search(query, queryLimit).scoreDocs;
+
+            HashSet<Integer> excluded = new HashSet<>(exactMatches.length);
+            for (int doc : exactMatches)
+                excluded.add(doc);
+
+            ArrayList<ScoreEntry> candidates = new ArrayList<>(docs.length);
+            for (ScoreDoc doc : docs) {
+                if (excluded.contains(doc.doc))
+                    continue;
+
+                ScoreEntry entry = new ScoreEntry(memories.get(doc.doc), direction, DocumentBuilder.getContent(sentences, doc.doc), null);
+                entry.score = doc.score;
+                ids.put(entry, doc.doc);
+                candidates.add(entry);
+            }
+
+            entries = candidates.toArray(new ScoreEntry[candidates.size()]);
+            if (rescorer != null)
+                entries = rescorer.rescore(direction, source, entries, contextVector);
         }
 
-        if (rescorer != null)
-            entries = rescorer.rescore(direction, source, entries, contextVector);
+        ScoreEntry[] result = new ScoreEntry[exactMatches.length + Math.min(entries.length, limit - exactMatches.length)];
+        for (int i = 0; i < exactMatches.length; i++) {
+            result[i] = DocumentBuilder.asEntry(searcher.doc(exactMatches[i]), direction);
+            result[i].score = 1.f;
+        }
+        for (int i = exactMatches.length; i < result.length; i++) {
+            ScoreEntry entry = entries[i - exactMatches.length];
 
-        if (entries.length > limit) {
-            ScoreEntry[] temp = new ScoreEntry[limit];
-            System.arraycopy(entries, 0, temp, 0, limit);
-            entries = temp;
+            result[i] = DocumentBuilder.asEntry(searcher.doc(ids.get(entry)), direction);
+            result[i].score = entry.score;
+            result[i].auxiliaryScore = entry.auxiliaryScore;
         }
 
-        return entries;
+        return result;
     }
 
+    /**
+     * Looks up the entries whose source is identical to the given sentence: they are perfect matches,
+     * so scoring and rescoring are skipped. Every match is ranked by the context score of its memory,
+     * but only the best ones are kept: highly repeated sentences cost a doc values read per match.
+     *
+     * @return the documents of the best exact matches, sorted by context score
+     */
+    private int[] searchExactMatches(IndexSearcher searcher, NumericDocValues memories, BinaryDocValues sentences,
+                                     UUID user, LanguagePair direction, Sentence source, ContextVector contextVector, int limit) throws IOException {
+        if (limit < 1)
+            return new int[0];
+
+        Query query = this.queryBuilder.getByExactMatch(user, direction, source, contextVector);
+
+        HashMap<Long, Float> contextScores = new HashMap<>();
+        if (contextVector != null) {
+            for (ContextVector.Entry ce : contextVector)
+                contextScores.put(ce.memory.getId(), ce.score);
+        }
+
+        String text = TokensOutputStream.serialize(source, false, true);
+        ExactMatchCollector collector = new ExactMatchCollector(memories, sentences, text, contextScores, limit);
+        searcher.search(query, collector);
+
+        return collector.getDocs();
+    }
+
+    /**
+     * Collects the top exact matches by context score in a queue of fixed size. Ties are resolved
+     * in index order, and the content of a document is compared with the sentence only if it would
+     * enter the queue: a full queue rejects most of the duplicates with a single numeric read.
+     */
+    private static final class ExactMatchCollector extends Collector {
+
+        private final NumericDocValues memories;
+        private final BinaryDocValues sentences;
+        private final String text;
+        private final Map<Long, Float> contextScores;
+        private final int limit;
+        private final PriorityQueue<ScoreDoc> queue;
+
+        private int docBase = 0;
+
+        ExactMatchCollector(NumericDocValues memories, BinaryDocValues sentences, String text, Map<Long, Float> contextScores, int limit) {
+            this.memories = memories;
+            this.sentences = sentences;
+            this.text = text;
+            this.contextScores = contextScores;
+            this.limit = limit;
+            this.queue = new PriorityQueue<>(limit, (a, b) -> a.score == b.score ? Integer.compare(b.doc, a.doc) : Float.compare(a.score, b.score));
+        }
+
+        @Override
+        public void setScorer(Scorer scorer) {
+            // Query score is not used
+        }
+
+        @Override
+        public void collect(int doc) {
+            doc += docBase;
+
+            float score = contextScores.getOrDefault(memories.get(doc), 0.f);
+
+            // Documents are collected in index order: a tie never beats the queued document
+            if (queue.size() == limit && score <= queue.peek().score)
+                return;
+
+            // Hash collisions are filtered out
+            if (!DocumentBuilder.hasContent(sentences, doc, text))
+                return;
+
+            if (queue.size() == limit)
+                queue.poll();
+            queue.add(new ScoreDoc(doc, score));
+        }
+
+        @Override
+        public void setNextReader(AtomicReaderContext context) {
+            this.docBase = context.docBase;
+        }
+
+        @Override
+        public boolean acceptsDocsOutOfOrder() {
+            return false;
+        }
+
+        int[] getDocs() {
+            int[] docs = new int[queue.size()];
+            for (int i = docs.length - 1; i >= 0; i--)
+                docs[i] = queue.poll().doc;
+
+            return docs;
+        }
+
+    }
+
+    @Override
     public synchronized void optimize() throws IOException {
         logger.info("Starting memory forced merge");
         long begin = System.currentTimeMillis();
@@ -231,6 +471,50 @@ public class LuceneTranslationMemory implements TranslationMemory {
         logger.info("Memory forced merge completed in " + (elapsed / 1000.) + "s");
     }
 
+    /**
+     * Creates an online copy of the last commit point of the index into the destination folder:
+     * segment files are never modified once written, so they are hard-linked if the file system allows it.
+     *
+     * @return the channel positions included in the copied commit
+     */
+    @Override
+    public Map<Short, Long> backup(File destination) throws IOException {
+        IndexCommit commit;
+        Map<Short, Long> positions;
+
+        synchronized (this) {
+            if (closed)
+                throw new IOException("Translation memory is closed");
+
+            commit = this.snapshotPolicy.snapshot();
+            positions = new HashMap<>(this.channels);
+        }
+
+        try {
+            FileUtils.forceMkdir(destination);
+
+            if (this.indexDirectory instanceof FSDirectory) {
+                File source = ((FSDirectory) this.indexDirectory).getDirectory();
+                for (String name : commit.getFileNames())
+                    FileSystemUtils.link(new File(source, name), new File(destination, name));
+            } else {
+                try (Directory target = FSDirectory.open(destination)) {
+                    for (String name : commit.getFileNames())
+                        this.indexDirectory.copy(target, name, name, IOContext.DEFAULT);
+                }
+            }
+        } finally {
+            synchronized (this) {
+                this.snapshotPolicy.release(commit);
+
+                if (!closed)
+                    this.indexWriter.deleteUnusedFiles();
+            }
+        }
+
+        return positions;
+    }
+
     // DataListener
 
     @Override
@@ -241,8 +525,11 @@ public class LuceneTranslationMemory implements TranslationMemory {
         boolean success = false;
 
         try {
-            this.onTranslationUnitsReceived(batch.getTranslationUnits());
-            this.onDeletionsReceived(batch.getDeletions());
+            PendingDeletions deletions = new PendingDeletions();
+
+            this.onTranslationUnitsReceived(batch.getTranslationUnits(), deletions);
+            this.onDeletionsReceived(batch.getDeletions(), deletions);
+            deletions.apply(this.indexWriter);
 
             // Writing channels
             HashMap<Short, Long> newChannels = new HashMap<>(this.channels);
@@ -277,31 +564,58 @@ public class LuceneTranslationMemory implements TranslationMemory {
         return false;
     }
 
-    private void onTranslationUnitsReceived(Collection<TranslationUnit> units) throws IOException {
+    private void onTranslationUnitsReceived(Collection<TranslationUnit> units, PendingDeletions deletions) throws IOException {
         for (TranslationUnit unit : units) {
             Long currentPosition = this.channels.get(unit.channel);
 
             if (currentPosition == null || currentPosition < unit.channelPosition) {
                 if (unit.rawPreviousSentence != null && unit.rawPreviousTranslation != null) {
                     String hash = HashGenerator.hash(unit.rawPreviousSentence, unit.rawPreviousTranslation);
-                    Query hashQuery = this.queryBuilder.getByHash(unit.memory, hash);
-
-                    this.indexWriter.deleteDocuments(hashQuery);
+                    deletions.add(DocumentBuilder.makeMemoryHashTerm(unit.memory, hash));
                 }
 
-                Document document = DocumentBuilder.newInstance(unit);
+                String hash = HashGenerator.hash(unit.rawSentence, unit.rawTranslation);
+                if (deletions.contains(DocumentBuilder.makeMemoryHashTerm(unit.memory, hash)))
+                    deletions.apply(this.indexWriter);
+
+                Document document = DocumentBuilder.newInstance(unit, this.queryBuilder.requiresMinHash());
                 this.indexWriter.addDocument(document);
             }
         }
     }
 
-    private void onDeletionsReceived(Collection<Deletion> deletions) throws IOException {
+    private void onDeletionsReceived(Collection<Deletion> deletions, PendingDeletions pending) {
         for (Deletion deletion : deletions) {
             Long currentPosition = this.channels.get(deletion.channel);
 
             if (currentPosition == null || currentPosition < deletion.channelPosition)
-                this.indexWriter.deleteDocuments(DocumentBuilder.makeMemoryTerm(deletion.memory));
+                pending.add(DocumentBuilder.makeMemoryTerm(deletion.memory));
+        }
+    }
+
+    /**
+     * Deletions of a batch, applied to the index with a single call. A deletion only affects the documents
+     * added before it, so pending deletions must be applied before adding a document that one of them matches.
+     */
+    private static final class PendingDeletions {
+
+        private final LinkedHashSet<Term> terms = new LinkedHashSet<>();
+
+        void add(Term term) {
+            terms.add(term);
         }
+
+        boolean contains(Term term) {
+            return terms.contains(term);
+        }
+
+        void apply(IndexWriter writer) throws IOException {
+            if (!terms.isEmpty()) {
+                writer.deleteDocuments(terms.toArray(new Term[terms.size()]));
+                terms.clear();
+            }
+        }
+
     }
 
     @Override
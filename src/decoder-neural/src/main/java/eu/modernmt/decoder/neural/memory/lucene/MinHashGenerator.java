@@ -0,0 +1,97 @@
+package eu.modernmt.decoder.neural.memory.lucene;
+
+import eu.modernmt.io.UTF8Charset;
+
+/**
+ * MinHash signature of the token bigrams of a sentence, split in LSH bands: two sentences share
+ * at least one band term with probability 1 - (1 - J^ROWS)^BANDS, where J is the Jaccard similarity
+ * of their bigram sets.
+ */
+class MinHashGenerator {
+
+    public static final int BANDS = 16;
+    public static final int ROWS = 2;
+
+    private static final long FNV_PRIME = 1099511628211L;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final String CHARS = "0123456789ABCDEF";
+
+    /**
+     * @param field  the content field of the sentence, so that bands of different directions never match
+     * @param tokens the tokens of the sentence
+     * @return the BANDS terms of the sentence, as 18 chars hex strings (band index and band hash)
+     */
+    public static String[] bands(String field, String[] tokens) {
+        long[] signature = signature(tokens);
+        long seed = FNV_1a(FNV_OFFSET_BASIS, field);
+
+        String[] bands = new String[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            long hash = seed;
+            for (int row = 0; row < ROWS; row++) {
+                hash ^= signature[band * ROWS + row];
+                hash *= FNV_PRIME;
+            }
+
+            bands[band] = toHex(band, mix(hash));
+        }
+
+        return bands;
+    }
+
+    private static long[] signature(String[] tokens) {
+        long[] signature = new long[BANDS * ROWS];
+        for (int i = 0; i < signature.length; i++)
+            signature[i] = Long.MAX_VALUE;
+
+        // Sentences of a single token are represented by the token itself
+        int shingles = tokens.length == 1 ? 1 : tokens.length - 1;
+
+        for (int i = 0; i < shingles; i++) {
+            long shingle = FNV_1a(FNV_OFFSET_BASIS, tokens[i]);
+            if (i + 1 < tokens.length) {
+                shingle ^= ' ';
+                shingle *= FNV_PRIME;
+                shingle = FNV_1a(shingle, tokens[i + 1]);
+            }
+
+            for (int k = 0; k < signature.length; k++) {
+                long value = mix(shingle + (k + 1) * GOLDEN_GAMMA);
+                if (value < signature[k])
+                    signature[k] = value;
+            }
+        }
+
+        return signature;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    private static long FNV_1a(long hash, String string) {
+        for (byte b : string.getBytes(UTF8Charset.get())) {
+            hash ^= (b & 0xff);
+            hash *= FNV_PRIME;
+        }
+
+        return hash;
+    }
+
+    private static String toHex(int band, long hash) {
+        char[] string = new char[18];
+        string[0] = CHARS.charAt((band >>> 4) & 0xF);
+        string[1] = CHARS.charAt(band & 0xF);
+
+        for (int i = 17; i > 1; i--) {
+            string[i] = CHARS.charAt((int) (hash & 0xF));
+            hash >>>= 4;
+        }
+
+        return new String(string);
+    }
+
+}
@@ -0,0 +1,362 @@
+package eu.modernmt.decoder.neural.memory.lucene;
+
+import eu.modernmt.data.DataBatch;
+import eu.modernmt.data.Deletion;
+import eu.modernmt.data.TranslationUnit;
+import eu.modernmt.decoder.neural.memory.ScoreEntry;
+import eu.modernmt.decoder.neural.memory.TranslationMemory;
+import eu.modernmt.decoder.neural.memory.lucene.analysis.DefaultAnalyzerFactory;
+import eu.modernmt.decoder.neural.memory.lucene.query.DefaultQueryBuilder;
+import eu.modernmt.decoder.neural.memory.lucene.query.QueryBuilder;
+import eu.modernmt.decoder.neural.memory.lucene.query.rescoring.F1BleuRescorer;
+import eu.modernmt.lang.LanguagePair;
+import eu.modernmt.model.ContextVector;
+import eu.modernmt.model.Sentence;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Translation memory split in one index per language family: the two languages of a direction,
+ * without region and in alphabetical order. A query only visits the content of its own languages,
+ * and the updates of different shards are applied in parallel.
+ * <p>
+ * Every shard skips the data it already contains by its own channel positions; the positions of the
+ * whole memory are stored separately, and only after all the shards of a batch have been committed.
+ */
+public class ShardedTranslationMemory implements TranslationMemory {
+
+    private static final String CHANNELS_FILE = "channels";
+
+    private final Logger logger = LogManager.getLogger(ShardedTranslationMemory.class);
+
+    private final File path;
+    private final QueryBuilder queryBuilder;
+    private final int minQuerySize;
+    private final ConcurrentHashMap<String, LuceneTranslationMemory> shards = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Short, Long> channels;
+    private final ExecutorService executor;
+
+    private boolean closed = false;
+
+    /**
+     * A sharded memory always has the channels file: it is written with the first batch and by every backup
+     */
+    public static boolean isSharded(File path) {
+        return new File(path, CHANNELS_FILE).isFile();
+    }
+
+    public static String getShardName(LanguagePair direction) {
+        String source = direction.source.getLanguage();
+        String target = direction.target.getLanguage();
+
+        return source.compareTo(target) < 0 ? source + "__" + target : target + "__" + source;
+    }
+
+    public ShardedTranslationMemory(File path, int minQuerySize) throws IOException {
+        this(path, new DefaultQueryBuilder(), minQuerySize);
+    }
+
+    /**
+     * @param queryBuilder the query builder shared by all the shards
+     */
+    public ShardedTranslationMemory(File path, QueryBuilder queryBuilder, int minQuerySize) throws IOException {
+        FileUtils.forceMkdir(path);
+
+        try (Directory directory = FSDirectory.open(path)) {
+            if (DirectoryReader.indexExists(directory))
+                throw new IOException("Memory at " + path + " is not sharded");
+        }
+
+        this.path = path;
+        this.queryBuilder = queryBuilder;
+        this.minQuerySize = minQuerySize;
+        this.channels = new ConcurrentHashMap<>(readChannels(new File(path, CHANNELS_FILE)));
+
+        File[] folders = path.listFiles(File::isDirectory);
+        if (folders != null) {
+            for (File folder : folders)
+                shards.put(folder.getName(), newShard(folder));
+        }
+
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "ShardedTranslationMemory.update");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static Map<Short, Long> readChannels(File file) throws IOException {
+        HashMap<Short, Long> result = new HashMap<>();
+
+        if (!file.isFile())
+            return result;
+
+        DataInputStream input = null;
+
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+            int size = input.readInt();
+            for (int i = 0; i < size; i++)
+                result.put(input.readShort(), input.readLong());
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+
+        return result;
+    }
+
+    private static void writeChannels(File file, Map<Short, Long> channels) throws IOException {
+        File temp = new File(file.getParentFile(), "~" + file.getName());
+
+        try {
+            DataOutputStream output = null;
+
+            try {
+                output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+
+                output.writeInt(channels.size());
+                for (Map.Entry<Short, Long> entry : channels.entrySet()) {
+                    output.writeShort(entry.getKey());
+                    output.writeLong(entry.getValue());
+                }
+            } finally {
+                IOUtils.closeQuietly(output);
+            }
+
+            Files.move(temp.toPath(), file.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+        } finally {
+            FileUtils.deleteQuietly(temp);
+        }
+    }
+
+    private LuceneTranslationMemory newShard(File folder) throws IOException {
+        return new LuceneTranslationMemory(folder, queryBuilder, new F1BleuRescorer(), new DefaultAnalyzerFactory(), minQuerySize);
+    }
+
+    public LuceneTranslationMemory getShard(LanguagePair direction) {
+        return shards.get(getShardName(direction));
+    }
+
+    public Collection<LuceneTranslationMemory> getShards() {
+        return Collections.unmodifiableCollection(shards.values());
+    }
+
+    private LuceneTranslationMemory getOrCreateShard(String name) throws IOException {
+        LuceneTranslationMemory shard = shards.get(name);
+
+        if (shard == null) {
+            shard = newShard(new File(path, name));
+            shards.put(name, shard);
+        }
+
+        return shard;
+    }
+
+    // TranslationMemory
+
+    @Override
+    public ScoreEntry[] search(UUID user, LanguagePair direction, Sentence source, int limit) throws IOException {
+        return search(user, direction, source, null, limit);
+    }
+
+    @Override
+    public ScoreEntry[] search(UUID user, LanguagePair direction, Sentence source, ContextVector contextVector, int limit) throws IOException {
+        LuceneTranslationMemory shard = getShard(direction);
+        return shard == null ? new ScoreEntry[0] : shard.search(user, direction, source, contextVector, limit);
+    }
+
+    @Override
+    public void dump(long memory, LanguagePair direction, Consumer<ScoreEntry> consumer) throws IOException {
+        if (direction == null) {
+            for (LuceneTranslationMemory shard : shards.values())
+                shard.dump(memory, null, consumer);
+        } else {
+            LuceneTranslationMemory shard = getShard(direction);
+            if (shard != null)
+                shard.dump(memory, direction, consumer);
+        }
+    }
+
+    @Override
+    public synchronized void optimize() throws IOException {
+        for (LuceneTranslationMemory shard : shards.values())
+            shard.optimize();
+    }
+
+    /**
+     * Copies every shard into a sub-folder of the destination, plus the channels file; no batch is applied
+     * meanwhile, so all the shards contain at least the channel positions of the whole memory.
+     */
+    @Override
+    public synchronized Map<Short, Long> backup(File destination) throws IOException {
+        if (closed)
+            throw new IOException("Translation memory is closed");
+
+        FileUtils.forceMkdir(destination);
+
+        for (Map.Entry<String, LuceneTranslationMemory> entry : shards.entrySet())
+            entry.getValue().backup(new File(destination, entry.getKey()));
+
+        HashMap<Short, Long> positions = new HashMap<>(this.channels);
+        writeChannels(new File(destination, CHANNELS_FILE), positions);
+
+        return positions;
+    }
+
+    // DataListener
+
+    @Override
+    public synchronized void onDataReceived(DataBatch batch) throws IOException {
+        if (closed)
+            return;
+
+        HashMap<String, List<TranslationUnit>> units = new HashMap<>();
+        for (TranslationUnit unit : batch.getTranslationUnits())
+            units.computeIfAbsent(getShardName(unit.direction), key -> new ArrayList<>()).add(unit);
+
+        for (String name : units.keySet())
+            getOrCreateShard(name);
+
+        // Deletions are sent to every shard, the others only receive their own units
+
+        Collection<Deletion> deletions = batch.getDeletions();
+        Map<Short, Long> positions = batch.getChannelPositions();
+
+        ArrayList<Future<Void>> futures = new ArrayList<>(shards.size());
+        for (Map.Entry<String, LuceneTranslationMemory> entry : shards.entrySet()) {
+            List<TranslationUnit> shardUnits = units.get(entry.getKey());
+            if (shardUnits == null && deletions.isEmpty())
+                continue;
+
+            DataBatch shardBatch = new ShardBatch(shardUnits == null ? Collections.emptyList() : shardUnits, deletions, positions);
+            LuceneTranslationMemory shard = entry.getValue();
+
+            futures.add(executor.submit(() -> {
+                shard.onDataReceived(shardBatch);
+                return null;
+            }));
+        }
+
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("Interrupted while updating memory shards");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+
+                if (cause instanceof IOException)
+                    throw (IOException) cause;
+                else if (cause instanceof RuntimeException)
+                    throw (RuntimeException) cause;
+                else
+                    throw new Error("Unexpected exception", cause);
+            }
+        }
+
+        // All shards committed, now the batch can be marked as stored
+
+        HashMap<Short, Long> newChannels = new HashMap<>(this.channels);
+        for (Map.Entry<Short, Long> entry : positions.entrySet()) {
+            Long position = entry.getValue();
+            Long existingPosition = newChannels.get(entry.getKey());
+
+            if (existingPosition == null || existingPosition < position)
+                newChannels.put(entry.getKey(), position);
+        }
+
+        writeChannels(new File(path, CHANNELS_FILE), newChannels);
+        this.channels.putAll(newChannels);
+    }
+
+    @Override
+    public Map<Short, Long> getLatestChannelPositions() {
+        return channels;
+    }
+
+    @Override
+    public boolean needsProcessing() {
+        return true;
+    }
+
+    @Override
+    public boolean needsAlignment() {
+        return false;
+    }
+
+    // Closeable
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+        }
+
+        executor.shutdown();
+
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            // Ignore it
+        }
+
+        IOException error = null;
+
+        for (LuceneTranslationMemory shard : shards.values()) {
+            try {
+                shard.close();
+            } catch (IOException e) {
+                logger.error("Failed to close memory shard", e);
+                if (error == null)
+                    error = e;
+            }
+        }
+
+        if (error != null)
+            throw error;
+    }
+
+    private static final class ShardBatch implements DataBatch {
+
+        private final Collection<TranslationUnit> units;
+        private final Collection<Deletion> deletions;
+        private final Map<Short, Long> positions;
+
+        ShardBatch(Collection<TranslationUnit> units, Collection<Deletion> deletions, Map<Short, Long> positions) {
+            this.units = units;
+            this.deletions = deletions;
+            this.positions = positions;
+        }
+
+        @Override
+        public Collection<TranslationUnit> getTranslationUnits() {
+            return units;
+        }
+
+        @Override
+        public Collection<Deletion> getDeletions() {
+            return deletions;
+        }
+
+        @Override
+        public Map<Short, Long> getChannelPositions() {
+            return positions;
+        }
+    }
+
+}
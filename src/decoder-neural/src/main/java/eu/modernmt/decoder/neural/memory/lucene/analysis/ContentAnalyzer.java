@@ -7,9 +7,14 @@ import org.apache.lucene.analysis.core.WhitespaceTokenizer;
 import org.apache.lucene.analysis.shingle.ShingleFilter;
 
 import java.io.Reader;
+import java.util.ArrayList;
 
 public class ContentAnalyzer extends Analyzer {
 
+    private static final int MAX_TOKEN_LENGTH = 255;
+    private static final String FILLER_TOKEN = ShingleFilter.DEFAULT_FILLER_TOKEN;
+    private static final String TOKEN_SEPARATOR = ShingleFilter.DEFAULT_TOKEN_SEPARATOR;
+
     private final int shingleSize;
     private final boolean outputUnigrams;
 
@@ -36,4 +41,74 @@ public class ContentAnalyzer extends Analyzer {
         return new TokenStreamComponents(tokenizer, filter);
     }
 
+    /**
+     * Returns the terms that this analyzer would produce for the tokens joined by spaces, in the same order,
+     * without reading and tokenizing the text again.
+     *
+     * @return the terms, or null if the tokens cannot be analyzed directly (tokens with whitespaces or too long,
+     * shingles longer than two tokens)
+     */
+    public String[] getTerms(String[] tokens) {
+        if (shingleSize != 0 && shingleSize != 2)
+            return null;
+
+        // Words not filtered, a null element marks the position of the filtered tokens
+        ArrayList<String> words = new ArrayList<>(tokens.length + 1);
+        boolean gap = false;
+
+        for (String token : tokens) {
+            if (!isPlainToken(token))
+                return null;
+
+            if (PunctuationFilter.isPunctuation(token)) {
+                gap = true;
+            } else {
+                if (gap && shingleSize > 0)
+                    words.add(null);
+
+                words.add(token);
+                gap = false;
+            }
+        }
+
+        if (words.isEmpty())
+            return new String[0];
+
+        if (shingleSize == 0)
+            return words.toArray(new String[words.size()]);
+
+        if (gap)
+            words.add(null);
+
+        ArrayList<String> terms = new ArrayList<>(words.size() * 2);
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+
+            if (outputUnigrams && word != null)
+                terms.add(word);
+
+            if (i + 1 < words.size()) {
+                String next = words.get(i + 1);
+                terms.add((word == null ? FILLER_TOKEN : word) + TOKEN_SEPARATOR + (next == null ? FILLER_TOKEN : next));
+            }
+        }
+
+        return terms.toArray(new String[terms.size()]);
+    }
+
+    private static boolean isPlainToken(String token) {
+        if (token.isEmpty() || token.length() >= MAX_TOKEN_LENGTH)
+            return false;
+
+        for (int i = 0; i < token.length(); ) {
+            int codePoint = token.codePointAt(i);
+            if (Character.isWhitespace(codePoint))
+                return false;
+
+            i += Character.charCount(codePoint);
+        }
+
+        return true;
+    }
+
 }
@@ -16,9 +16,13 @@ public class PunctuationFilter extends FilteringTokenFilter {
         super(in);
     }
 
+    static boolean isPunctuation(CharSequence term) {
+        return REGEX.matcher(term).matches();
+    }
+
     @Override
     protected boolean accept() {
-        return !REGEX.matcher(termAtt).matches();
+        return !isPunctuation(termAtt);
     }
 
 }
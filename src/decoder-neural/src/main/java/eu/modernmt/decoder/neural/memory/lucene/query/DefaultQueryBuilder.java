@@ -1,7 +1,7 @@
 package eu.modernmt.decoder.neural.memory.lucene.query;
 
 import eu.modernmt.decoder.neural.memory.lucene.DocumentBuilder;
-import eu.modernmt.decoder.neural.memory.lucene.analysis.AnalyzerFactory;
+import eu.modernmt.decoder.neural.memory.lucene.analysis.ContentAnalyzer;
 import eu.modernmt.io.TokensOutputStream;
 import eu.modernmt.lang.LanguagePair;
 import eu.modernmt.model.ContextVector;
@@ -22,11 +22,26 @@ public class DefaultQueryBuilder implements QueryBuilder {
 
     public static final int SHORT_QUERY_SIZE = 4;
 
+    protected final FilterCache filters;
+
+    public DefaultQueryBuilder() {
+        this(new FilterCache());
+    }
+
+    public DefaultQueryBuilder(FilterCache filters) {
+        this.filters = filters;
+    }
+
     @Override
     public boolean isLongQuery(int queryLength) {
         return queryLength > SHORT_QUERY_SIZE;
     }
 
+    @Override
+    public boolean requiresMinHash() {
+        return false;
+    }
+
     @Override
     public Query getByHash(long memory, String hash) {
         PhraseQuery hashQuery = new PhraseQuery();
@@ -42,6 +57,14 @@ public class DefaultQueryBuilder implements QueryBuilder {
         return query;
     }
 
+    @Override
+    public Query getByExactMatch(UUID user, LanguagePair direction, Sentence sentence, ContextVector context) {
+        String text = TokensOutputStream.serialize(sentence, false, true);
+        TermQuery hashQuery = new TermQuery(DocumentBuilder.makeExactHashTerm(direction, text));
+
+        return new FilteredQuery(hashQuery, filters.getPrivacyFilter(user, context), PrivacyFilter.STRATEGY);
+    }
+
     @Override
     public Query bestMatchingSuggestion(Analyzer analyzer, UUID user, LanguagePair direction, Sentence sentence, ContextVector context) {
         int length = sentence.getWords().length;
@@ -51,32 +74,11 @@ public class DefaultQueryBuilder implements QueryBuilder {
         BooleanQuery termsQuery = makeTermsQuery(direction, sentence, analyzer);
         termsQuery.setMinimumNumberShouldMatch(minMatches);
 
-        // Owner filter
-        BooleanQuery privacyQuery = makePrivacyQuery(user, context);
+        // Owner filter, cached per index segment
+        Filter privacyFilter = filters.getPrivacyFilter(user, context);
 
         // Result
-        return new FilteredQuery(termsQuery, new QueryWrapperFilter(privacyQuery));
-    }
-
-    protected static BooleanQuery makePrivacyQuery(UUID user, ContextVector context) {
-        BooleanQuery privacyQuery = new BooleanQuery();
-
-        if (user == null) {
-            privacyQuery.add(DocumentBuilder.makePublicOwnerMatchingQuery(), BooleanClause.Occur.SHOULD);
-        } else {
-            privacyQuery.add(DocumentBuilder.makePublicOwnerMatchingQuery(), BooleanClause.Occur.SHOULD);
-            privacyQuery.add(DocumentBuilder.makeOwnerMatchingQuery(user), BooleanClause.Occur.SHOULD);
-        }
-
-        if (context != null) {
-            for (ContextVector.Entry entry : context) {
-                privacyQuery.add(new TermQuery(DocumentBuilder.makeMemoryTerm(entry.memory.getId())), BooleanClause.Occur.SHOULD);
-            }
-        }
-
-        privacyQuery.setMinimumNumberShouldMatch(1);
-
-        return privacyQuery;
+        return new FilteredQuery(termsQuery, privacyFilter, PrivacyFilter.STRATEGY);
     }
 
     protected static BooleanQuery makeTermsQuery(LanguagePair direction, Sentence sentence, Analyzer analyzer) {
@@ -86,6 +88,17 @@ public class DefaultQueryBuilder implements QueryBuilder {
     }
 
     private static void loadTerms(String fieldName, Sentence sentence, Analyzer analyzer, BooleanQuery output) {
+        // Sentence is already tokenized: the default analyzers terms can be built directly from its words
+        if (analyzer instanceof ContentAnalyzer) {
+            String[] terms = ((ContentAnalyzer) analyzer).getTerms(TokensOutputStream.tokens(sentence, false, true));
+
+            if (terms != null) {
+                for (String term : terms)
+                    output.add(new TermQuery(new Term(fieldName, term)), BooleanClause.Occur.SHOULD);
+                return;
+            }
+        }
+
         String text = TokensOutputStream.serialize(sentence, false, true);
 
         try {
@@ -0,0 +1,177 @@
+package eu.modernmt.decoder.neural.memory.lucene.query;
+
+import eu.modernmt.decoder.neural.memory.lucene.DocumentBuilder;
+import eu.modernmt.model.ContextVector;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.search.*;
+import org.apache.lucene.util.FixedBitSet;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Per-segment cache of the privacy filters: the public filter, one filter per owner and one filter
+ * per set of context memories. Cached document sets are bound to the segment core, so they are reused
+ * across reader reopens and released with the segment.
+ * <p>
+ * The unions of these filters are cached too, per user and set of context memories: they are dense bitsets
+ * of the whole segment, so their cache is bounded by memory instead of number of entries.
+ */
+public class FilterCache {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final long DEFAULT_UNIONS_CACHE_SIZE = 64L * 1024L * 1024L;
+
+    private final Filter publicFilter;
+    private final LinkedHashMap<UUID, Filter> owners;
+    private final LinkedHashMap<MemorySet, Filter> memories;
+    private final Filter publicPrivacyFilter;
+    private final LinkedHashMap<PrivacyKey, Filter> privacyFilters;
+    private final UnionCache unions;
+
+    public FilterCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_UNIONS_CACHE_SIZE);
+    }
+
+    /**
+     * @param capacity         the maximum number of cached owner, memories and privacy filters
+     * @param unionsCacheSize  the maximum memory in bytes of the cached unions, across all the segments
+     */
+    public FilterCache(int capacity, long unionsCacheSize) {
+        // The public filter is used by every query, it is cached as a plain bitset so that unions are fast
+        this.publicFilter = new CachingWrapperFilter(new QueryWrapperFilter(DocumentBuilder.makePublicOwnerMatchingQuery())) {
+
+            @Override
+            protected DocIdSet cacheImpl(DocIdSetIterator iterator, AtomicReader reader) throws IOException {
+                FixedBitSet bits = new FixedBitSet(reader.maxDoc());
+                bits.or(iterator);
+                return bits;
+            }
+
+        };
+        this.owners = newLRUMap(capacity);
+        this.memories = newLRUMap(capacity);
+        this.unions = new UnionCache(unionsCacheSize);
+        this.publicPrivacyFilter = new PrivacyFilter(unions, publicFilter);
+        this.privacyFilters = newLRUMap(capacity);
+    }
+
+    private static <K> LinkedHashMap<K, Filter> newLRUMap(int capacity) {
+        return new LinkedHashMap<K, Filter>(capacity + 1, 1.f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Filter> eldest) {
+                return size() > capacity;
+            }
+
+        };
+    }
+
+    /**
+     * @return the filter that matches the documents visible to the user with the given context
+     */
+    public Filter getPrivacyFilter(UUID user, ContextVector context) {
+        MemorySet memorySet = context == null || context.size() == 0 ? null : new MemorySet(context);
+
+        if (user == null && memorySet == null)
+            return publicPrivacyFilter;
+
+        synchronized (this) {
+            return privacyFilters.computeIfAbsent(new PrivacyKey(user, memorySet), key -> {
+                Filter ownerFilter = key.user == null ? null : getOwnerFilter(key.user);
+                Filter memoriesFilter = key.memories == null ? null : getMemoriesFilter(key.memories);
+
+                if (memoriesFilter == null)
+                    return new PrivacyFilter(unions, publicFilter, ownerFilter);
+                else if (ownerFilter == null)
+                    return new PrivacyFilter(unions, publicFilter, memoriesFilter);
+                else
+                    return new PrivacyFilter(unions, publicFilter, ownerFilter, memoriesFilter);
+            });
+        }
+    }
+
+    /**
+     * @return the memory in bytes of the cached unions
+     */
+    public long getUnionsCacheSize() {
+        return unions.size();
+    }
+
+    private synchronized Filter getOwnerFilter(UUID user) {
+        return owners.computeIfAbsent(user, key ->
+                new CachingWrapperFilter(new QueryWrapperFilter(DocumentBuilder.makeOwnerMatchingQuery(key))));
+    }
+
+    private synchronized Filter getMemoriesFilter(MemorySet memorySet) {
+        return memories.computeIfAbsent(memorySet, key -> {
+            BooleanQuery query = new BooleanQuery();
+            for (long memory : key.memories)
+                query.add(new TermQuery(DocumentBuilder.makeMemoryTerm(memory)), BooleanClause.Occur.SHOULD);
+
+            return new CachingWrapperFilter(new QueryWrapperFilter(query));
+        });
+    }
+
+    private static final class PrivacyKey {
+
+        private final UUID user;
+        private final MemorySet memories;
+
+        PrivacyKey(UUID user, MemorySet memories) {
+            this.user = user;
+            this.memories = memories;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            PrivacyKey that = (PrivacyKey) o;
+            return Objects.equals(user, that.user) && Objects.equals(memories, that.memories);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(user, memories);
+        }
+    }
+
+    private static final class MemorySet {
+
+        private final long[] memories;
+        private final int hash;
+
+        MemorySet(ContextVector context) {
+            long[] memories = new long[context.size()];
+
+            int i = 0;
+            for (ContextVector.Entry entry : context)
+                memories[i++] = entry.memory.getId();
+
+            Arrays.sort(memories);
+
+            this.memories = memories;
+            this.hash = Arrays.hashCode(memories);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            return Arrays.equals(memories, ((MemorySet) o).memories);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
@@ -0,0 +1,46 @@
+package eu.modernmt.decoder.neural.memory.lucene.query;
+
+import eu.modernmt.decoder.neural.memory.lucene.DocumentBuilder;
+import eu.modernmt.io.TokensOutputStream;
+import eu.modernmt.lang.LanguagePair;
+import eu.modernmt.model.ContextVector;
+import eu.modernmt.model.Sentence;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+
+import java.util.UUID;
+
+/**
+ * Query builder that retrieves the suggestion candidates by their MinHash LSH bands instead of their terms:
+ * candidates are the entries that share at least one band with the sentence, ranked by the number
+ * of shared bands (an estimate of the n-grams overlap), regardless of the terms frequencies.
+ */
+public class MinHashQueryBuilder extends DefaultQueryBuilder {
+
+    public MinHashQueryBuilder() {
+        super();
+    }
+
+    public MinHashQueryBuilder(FilterCache filters) {
+        super(filters);
+    }
+
+    @Override
+    public boolean requiresMinHash() {
+        return true;
+    }
+
+    @Override
+    public Query bestMatchingSuggestion(Analyzer analyzer, UUID user, LanguagePair direction, Sentence sentence, ContextVector context) {
+        String[] tokens = TokensOutputStream.tokens(sentence, false, true);
+
+        // Every shared band counts the same
+        BooleanQuery bandsQuery = new BooleanQuery(true);
+        for (Term term : DocumentBuilder.makeMinHashTerms(direction, tokens))
+            bandsQuery.add(new ConstantScoreQuery(new TermQuery(term)), BooleanClause.Occur.SHOULD);
+
+        return new FilteredQuery(bandsQuery, filters.getPrivacyFilter(user, context), PrivacyFilter.STRATEGY);
+    }
+
+}
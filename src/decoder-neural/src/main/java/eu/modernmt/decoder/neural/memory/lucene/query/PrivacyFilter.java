@@ -0,0 +1,201 @@
+package eu.modernmt.decoder.neural.memory.lucene.query;
+
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.search.*;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Union of the cached privacy filters (public content, user content, context memories)
+ * that a translation memory query is allowed to match. Unions are cached per segment core and deletions
+ * in a cache shared by all the instances of a FilterCache, that bounds their memory.
+ */
+class PrivacyFilter extends Filter {
+
+    /**
+     * The filter is evaluated first (leap-frog) only when it matches a small fraction of the documents
+     * that the terms query would visit, otherwise the terms query drives the iteration and
+     * the filter is checked by random access.
+     */
+    static final FilteredQuery.FilterStrategy STRATEGY = new FilteredQuery.FilterStrategy() {
+
+        private static final int FILTER_FIRST_RATIO = 8;
+
+        @Override
+        public Scorer filteredScorer(AtomicReaderContext context, Weight weight, DocIdSet docIdSet) throws IOException {
+            if (!(docIdSet instanceof FixedBitSet))
+                return FilteredQuery.RANDOM_ACCESS_FILTER_STRATEGY.filteredScorer(context, weight, docIdSet);
+
+            FixedBitSet filter = (FixedBitSet) docIdSet;
+            Scorer scorer = weight.scorer(context, filter);
+            if (scorer == null)
+                return null;
+
+            if ((long) filter.cardinality() * FILTER_FIRST_RATIO < scorer.cost())
+                return new FilterFirstScorer(weight, filter.iterator(), scorer);
+            else
+                return scorer;
+        }
+
+    };
+
+    /**
+     * Leap-frog between the filter, that leads, and the scorer built for the random access strategy:
+     * the scorer is built only once, whatever the strategy.
+     */
+    private static final class FilterFirstScorer extends Scorer {
+
+        private final DocIdSetIterator filter;
+        private final Scorer scorer;
+        private int doc = -1;
+
+        FilterFirstScorer(Weight weight, DocIdSetIterator filter, Scorer scorer) {
+            super(weight);
+            this.filter = filter;
+            this.scorer = scorer;
+        }
+
+        private int leapFrog(int filterDoc) throws IOException {
+            int scorerDoc = scorer.docID();
+
+            while (filterDoc != NO_MORE_DOCS) {
+                if (scorerDoc < filterDoc)
+                    scorerDoc = scorer.advance(filterDoc);
+
+                if (scorerDoc == filterDoc)
+                    return doc = filterDoc;
+
+                filterDoc = filter.advance(scorerDoc);
+            }
+
+            return doc = NO_MORE_DOCS;
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            return leapFrog(filter.nextDoc());
+        }
+
+        @Override
+        public int advance(int target) throws IOException {
+            return leapFrog(filter.advance(target));
+        }
+
+        @Override
+        public int docID() {
+            return doc;
+        }
+
+        @Override
+        public float score() throws IOException {
+            return scorer.score();
+        }
+
+        @Override
+        public int freq() throws IOException {
+            return scorer.freq();
+        }
+
+        @Override
+        public long cost() {
+            return Math.min(filter.cost(), scorer.cost());
+        }
+
+        @Override
+        public Collection<ChildScorer> getChildren() {
+            return Collections.singleton(new ChildScorer(scorer, "FILTERED"));
+        }
+
+    }
+
+    private static final FixedBitSet EMPTY = new FixedBitSet(0);
+
+    private final UnionCache cache;
+    private final Filter[] clauses;
+
+    PrivacyFilter(UnionCache cache, Filter... clauses) {
+        this.cache = cache;
+        this.clauses = clauses;
+    }
+
+    @Override
+    public DocIdSet getDocIdSet(AtomicReaderContext context, Bits acceptDocs) throws IOException {
+        AtomicReader reader = context.reader();
+
+        // Cached unions exclude the deleted documents: any other accept set is applied to a new union
+        if (acceptDocs != reader.getLiveDocs())
+            return union(context, acceptDocs);
+
+        FixedBitSet result = cache.get(this, reader);
+
+        if (result == null) {
+            result = union(context, acceptDocs);
+            cache.put(this, reader, result == null ? EMPTY : result);
+        }
+
+        return result == EMPTY ? null : result;
+    }
+
+    private FixedBitSet union(AtomicReaderContext context, Bits acceptDocs) throws IOException {
+        int maxDoc = context.reader().maxDoc();
+        if (maxDoc == 0)
+            return null;
+
+        FixedBitSet result = null;
+
+        for (Filter clause : clauses) {
+            DocIdSet set = clause.getDocIdSet(context, null);
+            if (set == null)
+                continue;
+
+            if (result == null)
+                result = new FixedBitSet(maxDoc);
+
+            if (set instanceof FixedBitSet) {
+                result.or((FixedBitSet) set);
+            } else {
+                DocIdSetIterator iterator = set.iterator();
+                if (iterator != null)
+                    result.or(iterator);
+            }
+        }
+
+        if (result == null)
+            return null;
+
+        // Deleted documents are removed here, so that the set can be iterated without checking acceptDocs
+        if (acceptDocs instanceof FixedBitSet) {
+            result.and((FixedBitSet) acceptDocs);
+        } else if (acceptDocs != null) {
+            for (int doc = result.nextSetBit(0); doc != -1; doc = doc + 1 < maxDoc ? result.nextSetBit(doc + 1) : -1) {
+                if (!acceptDocs.get(doc))
+                    result.clear(doc);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        return Arrays.equals(clauses, ((PrivacyFilter) o).clauses);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(clauses);
+    }
+
+    @Override
+    public String toString() {
+        return "PrivacyFilter" + Arrays.toString(clauses);
+    }
+
+}
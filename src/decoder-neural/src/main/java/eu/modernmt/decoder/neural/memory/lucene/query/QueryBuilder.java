@@ -15,8 +15,15 @@ public interface QueryBuilder {
 
     boolean isLongQuery(int queryLength);
 
+    /**
+     * @return true if the documents must be indexed with their MinHash bands terms
+     */
+    boolean requiresMinHash();
+
     Query getByHash(long memory, String hash);
 
+    Query getByExactMatch(UUID user, LanguagePair direction, Sentence sentence, ContextVector context);
+
     Query bestMatchingSuggestion(Analyzer analyzer, UUID user, LanguagePair direction, Sentence sentence, ContextVector context);
 
 }
@@ -0,0 +1,98 @@
+package eu.modernmt.decoder.neural.memory.lucene.query;
+
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.util.FixedBitSet;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * LRU cache of the privacy filter unions, bounded by the memory of the cached bitsets: a union is a dense
+ * bitset of the whole segment, whatever the number of documents it matches. Unions are keyed by segment core
+ * and number of deleted documents, so that a union is never pinning the reader it has been computed with,
+ * and they are released as soon as their segment core is closed.
+ */
+class UnionCache implements AtomicReader.CoreClosedListener {
+
+    private final long maxSize;
+    private final LinkedHashMap<Key, FixedBitSet> unions = new LinkedHashMap<>(16, .75f, true);
+    private long size = 0L;
+
+    UnionCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    synchronized FixedBitSet get(PrivacyFilter filter, AtomicReader reader) {
+        return unions.get(new Key(filter, reader));
+    }
+
+    void put(PrivacyFilter filter, AtomicReader reader, FixedBitSet union) {
+        long unionSize = union.ramBytesUsed();
+        if (unionSize > maxSize)
+            return;
+
+        // Listeners are notified while holding the core lock, so the listener is registered outside this one
+        reader.addCoreClosedListener(this);
+
+        synchronized (this) {
+            FixedBitSet previous = unions.put(new Key(filter, reader), union);
+            if (previous != null)
+                size -= previous.ramBytesUsed();
+            size += unionSize;
+
+            Iterator<FixedBitSet> eldest = unions.values().iterator();
+            while (size > maxSize) {
+                size -= eldest.next().ramBytesUsed();
+                eldest.remove();
+            }
+        }
+    }
+
+    synchronized long size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void onClose(Object ownerCoreCacheKey) {
+        Iterator<Map.Entry<Key, FixedBitSet>> iterator = unions.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, FixedBitSet> entry = iterator.next();
+
+            if (entry.getKey().core == ownerCoreCacheKey) {
+                size -= entry.getValue().ramBytesUsed();
+                iterator.remove();
+            }
+        }
+    }
+
+    private static final class Key {
+
+        private final PrivacyFilter filter;
+        private final Object core;
+        private final int deletions;
+
+        Key(PrivacyFilter filter, AtomicReader reader) {
+            this.filter = filter;
+            // Deletions only grow for a segment core: their count identifies the live documents
+            this.core = reader.getCoreCacheKey();
+            this.deletions = reader.numDeletedDocs();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key key = (Key) o;
+            return deletions == key.deletions && filter == key.filter && core == key.core;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(filter), System.identityHashCode(core), deletions);
+        }
+    }
+
+}
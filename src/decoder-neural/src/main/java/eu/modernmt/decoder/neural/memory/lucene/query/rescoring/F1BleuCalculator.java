@@ -1,53 +1,121 @@
 package eu.modernmt.decoder.neural.memory.lucene.query.rescoring;
 
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Map;
 
+/**
+ * F1-BLEU between a reference and many hypotheses. The n-grams of the reference are interned once
+ * in a trie of int ids, so that scoring an hypothesis only walks its tokens over primitive arrays;
+ * hypothesis n-grams that do not appear in the reference are never materialized.
+ * <p>
+ * Instances are not thread-safe: count buffers are reused across calls to calc().
+ */
 public class F1BleuCalculator {
 
     private static final int N = 4;
     private static final double EPSILON = 0.1;
-    private final String[] reference;
-    private final HashMap<NGram, Counter> referenceNGrams;
+
+    private final int referenceLength;
+    private final HashMap<String, Integer> vocabulary;
+    private final NGramTrie trie;
+    private final int[] referenceCounts;
+    private final int[] orders;
+
+    private final int[] hypothesisCounts;
+    private int[] touched;
+    private int[] tokens = new int[32];
 
     public F1BleuCalculator(String[] reference) {
-        this.reference = reference;
-        this.referenceNGrams = split(this.reference, N);
-    }
+        this.referenceLength = reference.length;
+        this.vocabulary = new HashMap<>(reference.length * 4 / 3 + 1);
 
-    public float calc(String[] hyp) {
-        HashMap<NGram, Counter> hypNGrams = split(hyp, N);
-        return getF1BleuScore(this.referenceNGrams, this.reference.length, hypNGrams, hyp.length);
-    }
+        int[] ids = new int[reference.length];
+        for (int i = 0; i < reference.length; i++)
+            ids[i] = intern(vocabulary, reference[i]);
 
-    private static HashMap<NGram, Counter> split(String[] sentence, int order) {
-        HashMap<NGram, Counter> counts = new HashMap<>(sentence.length * order);
+        int capacity = reference.length * N;
+        int[] counts = new int[capacity];
+        int[] orders = new int[capacity];
 
-        for (int offset = 0; offset < sentence.length; offset++) {
-            int maxOrder = sentence.length - offset;
+        this.trie = new NGramTrie(capacity);
 
-            for (int o = 1; o <= Math.min(order, maxOrder); o++) {
-                NGram ngram = new NGram(sentence, offset, o);
-                counts.computeIfAbsent(ngram, key -> new Counter()).value++;
+        for (int offset = 0; offset < ids.length; offset++) {
+            int maxOrder = Math.min(N, ids.length - offset);
+            int node = NGramTrie.ROOT;
+
+            for (int o = 0; o < maxOrder; o++) {
+                int token = ids[offset + o];
+                if (token < 0)
+                    break; // null tokens never match, not even with each other
+
+                node = trie.add(node, token);
+                counts[node]++;
+                orders[node] = o;
             }
         }
 
-        return counts;
+        this.referenceCounts = Arrays.copyOf(counts, trie.size());
+        this.orders = Arrays.copyOf(orders, trie.size());
+        this.hypothesisCounts = new int[trie.size()];
+        this.touched = new int[Math.max(16, trie.size())];
+    }
+
+    private static int intern(HashMap<String, Integer> vocabulary, String token) {
+        if (token == null)
+            return -1;
+
+        Integer id = vocabulary.get(token);
+        if (id == null) {
+            id = vocabulary.size();
+            vocabulary.put(token, id);
+        }
+
+        return id;
     }
 
-    private static float getF1BleuScore(HashMap<NGram, Counter> sentence, int sentenceLength, HashMap<NGram, Counter> suggestion, int suggestionLength) {
+    public float calc(String[] hyp) {
+        if (tokens.length < hyp.length)
+            tokens = new int[Math.max(hyp.length, tokens.length * 2)];
+
+        for (int i = 0; i < hyp.length; i++) {
+            Integer id = hyp[i] == null ? null : vocabulary.get(hyp[i]);
+            tokens[i] = id == null ? -1 : id;
+        }
+
         int numerators[] = new int[N];
+        int touchedSize = 0;
+
+        for (int offset = 0; offset < hyp.length; offset++) {
+            int maxOrder = Math.min(N, hyp.length - offset);
+            int node = NGramTrie.ROOT;
+
+            for (int o = 0; o < maxOrder; o++) {
+                int token = tokens[offset + o];
+                if (token < 0)
+                    break;
 
-        for (Map.Entry<NGram, Counter> entry : sentence.entrySet()) {
-            NGram ngram = entry.getKey();
+                node = trie.get(node, token);
+                if (node < 0)
+                    break; // no longer n-gram from this offset can be in the reference
 
-            int order = ngram.getOrder();
-            int count = entry.getValue().value;
-            int suggestionCount = suggestion.getOrDefault(ngram, Counter.ZERO).value;
+                if (hypothesisCounts[node]++ == 0) {
+                    if (touchedSize == touched.length)
+                        touched = Arrays.copyOf(touched, touched.length * 2);
+                    touched[touchedSize++] = node;
+                }
+            }
+        }
 
-            numerators[order - 1] += Math.min(count, suggestionCount);
+        for (int i = 0; i < touchedSize; i++) {
+            int node = touched[i];
+            numerators[orders[node]] += Math.min(referenceCounts[node], hypothesisCounts[node]);
+            hypothesisCounts[node] = 0;
         }
 
+        return getF1BleuScore(numerators, referenceLength, hyp.length);
+    }
+
+    private static float getF1BleuScore(int[] numerators, int sentenceLength, int suggestionLength) {
         double precision = 0;
         double recall = 0;
 
@@ -67,78 +135,69 @@ public class F1BleuCalculator {
         return (num + EPSILON) / (den + count * EPSILON);
     }
 
-    private static final class Counter {
+    /**
+     * Open-addressing map from (parent node, token) to child node: every node is an n-gram of the reference,
+     * with consecutive ids starting from 0.
+     */
+    private static final class NGramTrie {
 
-        public static final Counter ZERO = new Counter();
+        static final int ROOT = -1;
+        private static final long EMPTY = -1L;
 
-        public int value = 0;
-    }
-
-    private static final class NGram {
+        private final long[] keys;
+        private final int[] values;
+        private final int mask;
+        private int size = 0;
 
-        private final String[] sentence;
-        private final int offset;
-        private final int order;
+        NGramTrie(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2) - 1) << 1;
 
-        private int hash = 0;
+            this.keys = new long[capacity];
+            this.values = new int[capacity];
+            this.mask = capacity - 1;
 
-        public NGram(String[] sentence, int offset, int order) {
-            this.sentence = sentence;
-            this.offset = offset;
-            this.order = order;
+            Arrays.fill(keys, EMPTY);
         }
 
-        public int getOrder() {
-            return order;
+        int size() {
+            return size;
         }
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-
-            NGram ngram = (NGram) o;
+        private static long key(int parent, int token) {
+            return ((long) (parent + 1) << 32) | (token & 0xFFFFFFFFL);
+        }
 
-            if (order != ngram.order) return false;
+        private static int hash(long key) {
+            key *= 0x9E3779B97F4A7C15L;
+            return (int) (key ^ (key >>> 32));
+        }
 
-            for (int i = 0; i < order; i++) {
-                String a = sentence[i + offset];
-                String b = ngram.sentence[i + ngram.offset];
+        int get(int parent, int token) {
+            long key = key(parent, token);
 
-                if (!(a != null && b != null && a.equals(b)))
-                    return false;
+            for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+                long k = keys[i];
+                if (k == key)
+                    return values[i];
+                if (k == EMPTY)
+                    return -1;
             }
-
-            return true;
         }
 
-        @Override
-        public int hashCode() {
-            if (hash == 0) {
-                int result = 1;
+        int add(int parent, int token) {
+            long key = key(parent, token);
 
-                for (int i = 0; i < order; i++) {
-                    String element = sentence[i + offset];
-                    result = 31 * result + (element == null ? 0 : element.hashCode());
-                }
-
-                hash = result;
-            }
+            for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+                long k = keys[i];
+                if (k == key)
+                    return values[i];
 
-            return hash;
-        }
-
-        @Override
-        public String toString() {
-            StringBuilder string = new StringBuilder("(");
-            for (int i = 0; i < order; i++) {
-                if (i > 0)
-                    string.append(' ');
-                string.append(sentence[i + offset]);
+                if (k == EMPTY) {
+                    keys[i] = key;
+                    values[i] = size;
+                    return size++;
+                }
             }
-            string.append(')');
-
-            return string.toString();
         }
 
     }
@@ -10,6 +10,10 @@ import eu.modernmt.model.Sentence;
  */
 public interface Rescorer {
 
+    /**
+     * Entries are read from the index doc values: only memory, sentence and score are available,
+     * the translation is loaded afterwards for the entries that are returned.
+     */
     ScoreEntry[] rescore(LanguagePair direction, Sentence input, ScoreEntry[] entries, ContextVector context);
 
 }
@@ -72,6 +72,9 @@ class TransformerDecoder(object):
         def __init__(self):
             self.memory_suggestions_limit = None  # Ignore
             self.memory_query_min_results = None  # Ignore
+            self.memory_sharded = None  # Ignore
+            self.memory_minhash = None  # Ignore
+            self.memory_filter_cache_mb = None  # Ignore
             self.tuning_max_epochs = 5
             self.tuning_max_learning_rate = .0002
             self.tuning_max_batch_size = None
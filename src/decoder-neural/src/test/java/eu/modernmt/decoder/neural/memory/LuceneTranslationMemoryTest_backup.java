@@ -0,0 +1,71 @@
+package eu.modernmt.decoder.neural.memory;
+
+import eu.modernmt.data.TranslationUnit;
+import eu.modernmt.decoder.neural.memory.lucene.LuceneTranslationMemory;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static eu.modernmt.decoder.neural.memory.TestData.EN__IT;
+import static org.junit.Assert.assertEquals;
+
+public class LuceneTranslationMemoryTest_backup {
+
+    private File root;
+
+    @Before
+    public void setup() throws Throwable {
+        this.root = Files.createTempDirectory("LuceneTranslationMemoryTest_backup").toFile();
+    }
+
+    @After
+    public void teardown() throws Throwable {
+        FileUtils.deleteDirectory(this.root);
+    }
+
+    private static Set<ScoreEntry> entrySet(LuceneTranslationMemory memory) throws Throwable {
+        HashSet<ScoreEntry> result = new HashSet<>();
+        memory.dump(result::add);
+        return result;
+    }
+
+    private void testBackup(TLuceneTranslationMemory memory) throws Throwable {
+        List<TranslationUnit> units1 = TestData.tuList(0, 0, 1, EN__IT, 10);
+        List<TranslationUnit> units2 = TestData.tuList(0, 10, 2, EN__IT, 10);
+
+        File backup = new File(root, "backup");
+
+        memory.onDataReceived(units1);
+        Map<Short, Long> positions = memory.backup(backup);
+        memory.onDataReceived(units2);
+
+        assertEquals(TestData.channels(0, 9L), positions);
+        assertEquals(TestData.channels(0, 19L), memory.getLatestChannelPositions());
+
+        memory.close();
+
+        try (LuceneTranslationMemory restored = new LuceneTranslationMemory(backup, 10)) {
+            assertEquals(TestData.channels(0, 9L), restored.getLatestChannelPositions());
+            assertEquals(TLuceneTranslationMemory.asEntrySet(units1), entrySet(restored));
+        }
+    }
+
+    @Test
+    public void inMemoryIndex() throws Throwable {
+        testBackup(new TLuceneTranslationMemory());
+    }
+
+    @Test
+    public void fileSystemIndex() throws Throwable {
+        testBackup(new TLuceneTranslationMemory(new File(root, "memory")));
+    }
+
+}
@@ -0,0 +1,98 @@
+package eu.modernmt.decoder.neural.memory;
+
+import eu.modernmt.data.Deletion;
+import eu.modernmt.data.TranslationUnit;
+import eu.modernmt.decoder.neural.memory.lucene.query.rescoring.Rescorer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static eu.modernmt.decoder.neural.memory.TestData.*;
+import static org.junit.Assert.*;
+
+public class LuceneTranslationMemoryTest_docValues {
+
+    private TLuceneTranslationMemory memory;
+
+    @Before
+    public void setup() throws Throwable {
+        this.memory = new TLuceneTranslationMemory();
+
+        ArrayList<TranslationUnit> units = new ArrayList<>();
+        units.add(TestData.tu(0, 0L, 1L, EN__IT, "Hello world 1", "Ciao mondo 1", null));
+        units.add(TestData.tu(0, 1L, 2L, EN_US__IT_CH, "Hello world 2", "Ciao mondo 2", null));
+        units.add(TestData.tu(0, 2L, 3L, EN__IT, "Hello world 3", "Ciao mondo 3", null));
+        units.add(TestData.tu(0, 3L, 4L, EN__FR, "Hello world 4", "Bonjour monde 4", null));
+
+        this.memory.onDataReceived(units);
+    }
+
+    @After
+    public void teardown() throws Throwable {
+        this.memory.close();
+        this.memory = null;
+    }
+
+    @Test
+    public void rescorerReceivesCandidatesWithoutTranslation() throws Throwable {
+        ArrayList<ScoreEntry> candidates = new ArrayList<>();
+        Rescorer rescorer = (direction, input, entries, context) -> {
+            candidates.addAll(Arrays.asList(entries));
+            return entries;
+        };
+
+        ScoreEntry[] result = memory.search(null, EN__IT, TestData.sentence("Hello world"), rescorer, 10);
+
+        assertEquals(3, candidates.size());
+        for (ScoreEntry candidate : candidates) {
+            assertNull(candidate.translation);
+            assertEquals("Hello world " + candidate.memory, String.join(" ", candidate.sentence));
+        }
+
+        assertEquals(3, result.length);
+        for (ScoreEntry entry : result)
+            assertEquals("Ciao mondo " + entry.memory, String.join(" ", entry.translation));
+    }
+
+    @Test
+    public void onlyFinalEntriesAreHydratedInRescoredOrder() throws Throwable {
+        Rescorer rescorer = (direction, input, entries, context) -> {
+            for (ScoreEntry entry : entries)
+                entry.score = entry.memory;
+            Arrays.sort(entries, Collections.reverseOrder());
+            return entries;
+        };
+
+        ScoreEntry[] result = memory.search(null, EN__IT, TestData.sentence("Hello world"), rescorer, 2);
+
+        assertEquals(2, result.length);
+        assertEquals(new ScoreEntry(3L, EN__IT, "Hello world 3".split(" "), "Ciao mondo 3".split(" ")), result[0]);
+        assertEquals(3.f, result[0].score, 0.f);
+        assertEquals(new ScoreEntry(2L, EN_US__IT_CH, "Hello world 2".split(" "), "Ciao mondo 2".split(" ")), result[1]);
+        assertEquals(2.f, result[1].score, 0.f);
+    }
+
+    @Test
+    public void reverseDirectionIsReadFromDocValues() throws Throwable {
+        ScoreEntry[] result = memory.search(null, FR__EN, TestData.sentence("Bonjour monde"), 10);
+
+        assertEquals(1, result.length);
+        assertEquals(new ScoreEntry(4L, FR__EN, "Bonjour monde 4".split(" "), "Hello world 4".split(" ")), result[0]);
+    }
+
+    @Test
+    public void deletedEntriesAreNotCandidates() throws Throwable {
+        memory.onDelete(new Deletion((short) 0, 4L, 3L));
+
+        ScoreEntry[] result = memory.search(null, EN__IT, TestData.sentence("Hello world"), (Rescorer) null, 10);
+
+        assertEquals(2, result.length);
+        for (ScoreEntry entry : result)
+            assertNotEquals(3L, entry.memory);
+    }
+
+}
@@ -0,0 +1,105 @@
+package eu.modernmt.decoder.neural.memory;
+
+import eu.modernmt.data.Deletion;
+import eu.modernmt.data.TranslationUnit;
+import eu.modernmt.lang.LanguagePair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static eu.modernmt.decoder.neural.memory.TestData.*;
+import static org.junit.Assert.assertEquals;
+
+public class LuceneTranslationMemoryTest_dump {
+
+    private TLuceneTranslationMemory memory;
+
+    private final List<TranslationUnit> units1 = new ArrayList<>();
+    private final List<TranslationUnit> units2 = new ArrayList<>();
+    private final List<TranslationUnit> units3 = new ArrayList<>();
+
+    @Before
+    public void setup() throws Throwable {
+        this.memory = new TLuceneTranslationMemory();
+
+        units1.add(TestData.tu(0, 0L, 1L, EN__IT, "Hello world 1", "Ciao mondo 1", null));
+        units1.add(TestData.tu(0, 1L, 1L, EN__FR, "Hello world 1", "Bonjour monde 1", null));
+        units2.add(TestData.tu(0, 2L, 2L, EN__IT, "Hello world 2", "Ciao mondo 2", null));
+        units2.add(TestData.tu(0, 3L, 2L, IT_CH__EN_US, "Il test 2", "The test 2", null));
+        units3.add(TestData.tu(0, 4L, 3L, EN__FR, "Hello world 3", "Bonjour monde 3", null));
+
+        ArrayList<TranslationUnit> all = new ArrayList<>();
+        all.addAll(units1);
+        all.addAll(units2);
+        all.addAll(units3);
+
+        this.memory.onDataReceived(all);
+    }
+
+    @After
+    public void teardown() throws Throwable {
+        this.memory.close();
+        this.memory = null;
+    }
+
+    private Set<ScoreEntry> dump(long memory, LanguagePair direction) throws Throwable {
+        HashSet<ScoreEntry> result = new HashSet<>();
+        this.memory.dump(memory, direction, result::add);
+        return result;
+    }
+
+    @Test
+    public void dumpAll() throws Throwable {
+        Set<ScoreEntry> expected = new HashSet<>();
+        expected.addAll(TLuceneTranslationMemory.asEntrySet(units1));
+        expected.addAll(TLuceneTranslationMemory.asEntrySet(units2));
+        expected.addAll(TLuceneTranslationMemory.asEntrySet(units3));
+
+        assertEquals(expected, dump(0L, null));
+        assertEquals(expected, memory.entrySet());
+    }
+
+    @Test
+    public void dumpByMemory() throws Throwable {
+        assertEquals(TLuceneTranslationMemory.asEntrySet(units1), dump(1L, null));
+        assertEquals(TLuceneTranslationMemory.asEntrySet(units2), dump(2L, null));
+        assertEquals(0, dump(4L, null).size());
+    }
+
+    @Test
+    public void dumpByDirection() throws Throwable {
+        Set<ScoreEntry> result = dump(0L, FR__EN);
+
+        Set<ScoreEntry> expected = new HashSet<>();
+        expected.add(new ScoreEntry(1L, FR__EN, "Bonjour monde 1".split(" "), "Hello world 1".split(" ")));
+        expected.add(new ScoreEntry(3L, FR__EN, "Bonjour monde 3".split(" "), "Hello world 3".split(" ")));
+
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void dumpByMemoryAndDirection() throws Throwable {
+        Set<ScoreEntry> result = dump(2L, EN__IT);
+
+        Set<ScoreEntry> expected = new HashSet<>();
+        expected.add(new ScoreEntry(2L, EN__IT, "Hello world 2".split(" "), "Ciao mondo 2".split(" ")));
+        expected.add(new ScoreEntry(2L, EN_US__IT_CH, "The test 2".split(" "), "Il test 2".split(" ")));
+
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void deletedEntriesAreSkipped() throws Throwable {
+        memory.onDelete(new Deletion((short) 0, 5L, 1L));
+
+        assertEquals(0, dump(1L, null).size());
+        assertEquals(TLuceneTranslationMemory.asEntrySet(units2), dump(2L, null));
+        assertEquals(TLuceneTranslationMemory.asEntrySet(units3), dump(3L, null));
+    }
+
+}
@@ -0,0 +1,238 @@
+package eu.modernmt.decoder.neural.memory;
+
+import eu.modernmt.data.TranslationUnit;
+import eu.modernmt.decoder.neural.memory.lucene.DocumentBuilder;
+import eu.modernmt.decoder.neural.memory.lucene.query.DefaultQueryBuilder;
+import eu.modernmt.io.TokensOutputStream;
+import eu.modernmt.model.ContextVector;
+import org.apache.commons.io.FileUtils;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.*;
+
+import static eu.modernmt.decoder.neural.memory.TestData.*;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LuceneTranslationMemoryTest_exactMatch {
+
+    private static final UUID OWNER = new UUID(0, 1);
+
+    private File path;
+    private TLuceneTranslationMemory memory;
+
+    @Before
+    public void setup() throws Throwable {
+        this.path = Files.createTempDirectory("LuceneTranslationMemoryTest_exactMatch").toFile();
+    }
+
+    @After
+    public void teardown() throws Throwable {
+        if (this.memory != null)
+            this.memory.close();
+        this.memory = null;
+
+        FileUtils.deleteDirectory(this.path);
+    }
+
+    private static TranslationUnit[] units() {
+        return new TranslationUnit[]{
+                TestData.tu(0, 0L, null, 1L, EN__IT, "Hello world", "Ciao mondo", null),
+                TestData.tu(0, 1L, null, 2L, EN__IT, "Hello world", "Salve mondo", null),
+                TestData.tu(0, 2L, null, 2L, EN__IT, "Hello world again", "Ciao ancora mondo", null),
+                TestData.tu(0, 3L, OWNER, 3L, EN__IT, "The private test", "Il test privato", null),
+        };
+    }
+
+    @Test
+    public void exactMatchSkipsScoring() throws Throwable {
+        memory = new TLuceneTranslationMemory();
+        memory.onDataReceived(Arrays.asList(units()));
+
+        ContextVector context = new ContextVector.Builder(2).add(1L, .2f).add(2L, .8f).build();
+        ScoreEntry[] result = memory.search(null, EN__IT, TestData.sentence("Hello world"), context, 10);
+
+        // Exact matches first, then the fuzzy matches
+        assertEquals(3, result.length);
+        assertEquals(2L, result[0].memory);
+        assertArrayEquals(new String[]{"Salve", "mondo"}, result[0].translation);
+        assertEquals(1.f, result[0].score, 0.f);
+        assertEquals(1L, result[1].memory);
+        assertEquals(1.f, result[1].score, 0.f);
+        assertArrayEquals(new String[]{"Ciao", "ancora", "mondo"}, result[2].translation);
+        assertTrue(result[2].score < 1.f);
+
+        // Exact matches are indexed in both directions
+        result = memory.search(null, IT__EN, TestData.sentence("Ciao ancora mondo"), 10);
+        assertEquals(1, result.length);
+        assertEquals(1.f, result[0].score, 0.f);
+        assertArrayEquals(new String[]{"Hello", "world", "again"}, result[0].translation);
+
+        // Not exact: regular fuzzy search
+        result = memory.search(null, EN__IT, TestData.sentence("Hello world again and again"), 10);
+        assertTrue(result.length > 0);
+        for (ScoreEntry entry : result)
+            assertTrue(entry.score < 1.f);
+    }
+
+    @Test
+    public void exactMatchesAreRankedByContextBeforeTruncation() throws Throwable {
+        ArrayList<TranslationUnit> units = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            units.add(TestData.tu(0, i, null, i + 1L, EN__IT, "Hello world", "Ciao mondo " + i, null));
+
+        memory = new TLuceneTranslationMemory();
+        memory.onDataReceived(units);
+
+        ContextVector context = new ContextVector.Builder(2).add(20L, .9f).add(13L, .5f).build();
+        ScoreEntry[] result = memory.search(null, EN__IT, TestData.sentence("Hello world"), context, 2);
+
+        assertEquals(2, result.length);
+        assertEquals(20L, result[0].memory);
+        assertEquals(13L, result[1].memory);
+    }
+
+    @Test
+    public void exactMatchesBeyondLimitAcrossSegments() throws Throwable {
+        memory = new TLuceneTranslationMemory();
+
+        // One batch per commit, so that the duplicates are spread over many segments
+        for (int batch = 0; batch < 10; batch++) {
+            ArrayList<TranslationUnit> units = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                long position = batch * 50 + i;
+                units.add(TestData.tu(0, position, null, position + 1L, EN__IT, "Hello world", "Ciao mondo " + position, null));
+            }
+
+            memory.onDataReceived(units);
+        }
+
+        ContextVector context = new ContextVector.Builder(3).add(420L, .9f).add(7L, .5f).add(133L, .1f).build();
+        ScoreEntry[] result = memory.search(null, EN__IT, TestData.sentence("Hello world"), context, 4);
+
+        assertEquals(4, result.length);
+        assertEquals(420L, result[0].memory);
+        assertEquals(7L, result[1].memory);
+        assertEquals(133L, result[2].memory);
+        assertEquals(1L, result[3].memory);
+        for (ScoreEntry entry : result)
+            assertEquals(1.f, entry.score, 0.f);
+
+        // Without context, the first matches in index order
+        result = memory.search(null, EN__IT, TestData.sentence("Hello world"), 3);
+
+        assertEquals(3, result.length);
+        for (int i = 0; i < result.length; i++)
+            assertEquals(i + 1L, result[i].memory);
+    }
+
+    @Test
+    public void exactMatchesAreFilledWithFuzzyMatches() throws Throwable {
+        memory = new TLuceneTranslationMemory();
+        memory.onDataReceived(Arrays.asList(units()));
+
+        ScoreEntry[] result = memory.search(null, IT__EN, TestData.sentence("Ciao mondo"), 3);
+
+        assertEquals(2, result.length);
+        assertEquals(1.f, result[0].score, 0.f);
+        assertArrayEquals(new String[]{"Hello", "world"}, result[0].translation);
+        assertTrue(result[1].score < 1.f);
+
+        // No duplicates of the exact matches among the fuzzy ones
+        result = memory.search(null, EN__IT, TestData.sentence("Hello world"), 10);
+        assertEquals(3, result.length);
+        assertEquals(3, new HashSet<>(Arrays.asList(result)).size());
+    }
+
+    @Test
+    public void exactMatchHonorsOwner() throws Throwable {
+        memory = new TLuceneTranslationMemory();
+        memory.onDataReceived(Arrays.asList(units()));
+
+        ScoreEntry[] result = memory.search(OWNER, EN__IT, TestData.sentence("The private test"), 10);
+        assertEquals(1, result.length);
+        assertEquals(1.f, result[0].score, 0.f);
+
+        result = memory.search(new UUID(0, 2), EN__IT, TestData.sentence("The private test"), 10);
+        assertEquals(0, result.length);
+
+        result = memory.search(null, EN__IT, TestData.sentence("The private test"), 10);
+        assertEquals(0, result.length);
+    }
+
+    @Test
+    public void migrationOfLegacyIndex() throws Throwable {
+        File indexPath = new File(path, "index");
+
+        // Index without exact match hashes and without format
+        try (Directory directory = FSDirectory.open(indexPath);
+             IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(Version.LUCENE_4_10_4, new WhitespaceAnalyzer()))) {
+            for (TranslationUnit unit : units()) {
+                String hash = TestData.class.getSimpleName() + unit.channelPosition;
+                Document document = DocumentBuilder.newInstance(unit.direction, unit.owner, unit.memory,
+                        TokensOutputStream.serialize(unit.sentence, false, true),
+                        TokensOutputStream.serialize(unit.translation, false, true), "A B " + hash);
+                document.removeFields("exact_hash");
+                document.removeFields("minhash");
+                document.removeFields("memory_hash");
+
+                Document legacy = new Document();
+                for (IndexableField field : document) {
+                    if (field.fieldType().docValueType() == null)
+                        legacy.add(field);
+                }
+
+                writer.addDocument(legacy);
+            }
+
+            writer.addDocument(DocumentBuilder.newChannelsInstance(Collections.singletonMap((short) 0, 3L)));
+        }
+
+        memory = new TLuceneTranslationMemory(indexPath);
+
+        assertEquals(5, memory.size());
+        assertEquals(3L, (long) memory.getLatestChannelPositions().get((short) 0));
+        assertEquals(TLuceneTranslationMemory.asEntrySet(Arrays.asList(units())), memory.entrySet());
+
+        // Owners and hashes are preserved
+        assertEquals(3, memory.search(null, EN__IT, TestData.sentence("Hello world"), 10).length);
+        assertEquals(0, memory.search(null, EN__IT, TestData.sentence("The private test"), 10).length);
+        assertEquals(1.f, memory.search(OWNER, EN__IT, TestData.sentence("The private test"), 10)[0].score, 0.f);
+
+        IndexSearcher searcher = memory.getIndexSearcher();
+        Query hashQuery = new DefaultQueryBuilder().getByHash(3L, "A B TestData3");
+        assertEquals(1, searcher.search(hashQuery, 10).totalHits);
+
+        // Format is persisted across commits
+        memory.onDataReceived(Collections.singleton(
+                TestData.tu(0, 4L, null, 4L, EN__IT, "New entry", "Nuovo elemento", null)));
+        memory.close();
+        memory = null;
+
+        try (Directory directory = FSDirectory.open(indexPath);
+             DirectoryReader reader = DirectoryReader.open(directory)) {
+            assertEquals("2", reader.getIndexCommit().getUserData().get("index_format"));
+        }
+
+        memory = new TLuceneTranslationMemory(indexPath);
+        assertEquals(6, memory.size());
+        assertEquals(1, memory.search(null, EN__IT, TestData.sentence("New entry"), 10).length);
+    }
+
+}
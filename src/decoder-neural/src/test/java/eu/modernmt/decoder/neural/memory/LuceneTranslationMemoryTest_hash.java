@@ -1,5 +1,7 @@
 package eu.modernmt.decoder.neural.memory;
 
+import eu.modernmt.data.DataBatch;
+import eu.modernmt.data.Deletion;
 import eu.modernmt.data.TranslationUnit;
 import eu.modernmt.decoder.neural.memory.lucene.DocumentBuilder;
 import eu.modernmt.decoder.neural.memory.lucene.query.DefaultQueryBuilder;
@@ -11,9 +13,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Set;
+import java.util.*;
 
 import static eu.modernmt.decoder.neural.memory.TestData.*;
 import static org.junit.Assert.assertArrayEquals;
@@ -93,4 +93,75 @@ public class LuceneTranslationMemoryTest_hash {
 
         assertEquals(expectedEntries, memory.entrySet());
     }
+
+    @Test
+    public void addAndOverwriteInSameBatch() throws Throwable {
+        TranslationUnit original = tu(0, 0L, 1L, EN__IT, "hello world", "ciao mondo", null);
+        TranslationUnit overwrite = tu(0, 1L, 1L, EN__IT, "test sentence", "frase di prova",
+                "hello world", "ciao mondo", null);
+        memory.onDataReceived(Arrays.asList(original, overwrite));
+
+        Set<ScoreEntry> expectedEntries = TLuceneTranslationMemory.asEntrySet(Collections.singletonList(overwrite));
+
+        assertEquals(expectedEntries, memory.entrySet());
+    }
+
+    @Test
+    public void overwriteAndRevertInSameBatch() throws Throwable {
+        TranslationUnit original = tu(0, 0L, 1L, EN__IT, "hello world", "ciao mondo", null);
+        memory.onDataReceived(Collections.singletonList(original));
+
+        TranslationUnit overwrite = tu(0, 1L, 1L, EN__IT, "test sentence", "frase di prova",
+                "hello world", "ciao mondo", null);
+        TranslationUnit revert = tu(0, 2L, 1L, EN__IT, "hello world", "ciao mondo",
+                "test sentence", "frase di prova", null);
+        memory.onDataReceived(Arrays.asList(overwrite, revert));
+
+        Set<ScoreEntry> expectedEntries = TLuceneTranslationMemory.asEntrySet(Collections.singletonList(revert));
+
+        assertEquals(expectedEntries, memory.entrySet());
+    }
+
+    @Test
+    public void overwriteOnlyInSameMemory() throws Throwable {
+        TranslationUnit original1 = tu(0, 0L, 1L, EN__IT, "hello world", "ciao mondo", null);
+        TranslationUnit original2 = tu(0, 1L, 2L, EN__IT, "hello world", "ciao mondo", null);
+        TranslationUnit overwrite = tu(0, 2L, 2L, EN__IT, "test sentence", "frase di prova",
+                "hello world", "ciao mondo", null);
+        memory.onDataReceived(Arrays.asList(original1, original2, overwrite));
+
+        Set<ScoreEntry> expectedEntries = TLuceneTranslationMemory.asEntrySet(Arrays.asList(original1, overwrite));
+
+        assertEquals(expectedEntries, memory.entrySet());
+    }
+
+    @Test
+    public void deletionAfterUnitsInSameBatch() throws Throwable {
+        TranslationUnit unit1 = tu(0, 0L, 1L, EN__IT, "hello world", "ciao mondo", null);
+        TranslationUnit unit2 = tu(0, 1L, 2L, EN__IT, "test sentence", "frase di prova", null);
+        Deletion deletion = new Deletion((short) 0, 2L, 1L);
+
+        memory.onDataReceived(new DataBatch() {
+
+            @Override
+            public Collection<TranslationUnit> getTranslationUnits() {
+                return Arrays.asList(unit1, unit2);
+            }
+
+            @Override
+            public Collection<Deletion> getDeletions() {
+                return Collections.singletonList(deletion);
+            }
+
+            @Override
+            public Map<Short, Long> getChannelPositions() {
+                return TestData.channels(0, 2L);
+            }
+
+        });
+
+        Set<ScoreEntry> expectedEntries = TLuceneTranslationMemory.asEntrySet(Collections.singletonList(unit2));
+
+        assertEquals(expectedEntries, memory.entrySet());
+    }
 }
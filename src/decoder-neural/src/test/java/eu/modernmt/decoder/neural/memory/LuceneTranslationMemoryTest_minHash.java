@@ -0,0 +1,133 @@
+package eu.modernmt.decoder.neural.memory;
+
+import eu.modernmt.data.TranslationUnit;
+import eu.modernmt.decoder.neural.memory.lucene.query.MinHashQueryBuilder;
+import org.apache.commons.io.FileUtils;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.UUID;
+
+import static eu.modernmt.decoder.neural.memory.TestData.*;
+import static org.junit.Assert.*;
+
+public class LuceneTranslationMemoryTest_minHash {
+
+    private static final UUID OWNER = new UUID(0, 1);
+
+    private TLuceneTranslationMemory memory;
+
+    @Before
+    public void setup() throws Throwable {
+        this.memory = new TLuceneTranslationMemory(new MinHashQueryBuilder());
+
+        ArrayList<TranslationUnit> units = new ArrayList<>();
+        units.add(TestData.tu(0, 0L, 1L, EN__IT, "the quick brown fox jumps over the lazy dog", "la veloce volpe marrone salta sopra il cane pigro", null));
+        units.add(TestData.tu(0, 1L, 1L, EN__IT, "a completely different sentence about the weather today", "una frase completamente diversa sul tempo di oggi", null));
+        units.add(TestData.tu(0, 2L, 2L, EN__FR, "the quick brown fox jumps over the lazy dog", "le renard brun rapide saute par dessus le chien paresseux", null));
+        units.add(TestData.tu(0, 3L, OWNER, 3L, EN__IT, "the private sentence of the owner is here", "la frase privata del proprietario è qui", null));
+
+        this.memory.onDataReceived(units);
+    }
+
+    @After
+    public void teardown() throws Throwable {
+        this.memory.close();
+        this.memory = null;
+    }
+
+    @Test
+    public void fuzzyMatchIsRetrieved() throws Throwable {
+        ScoreEntry[] result = memory.search(null, EN__IT, TestData.sentence("the quick brown fox jumps over the sleepy dog"), 10);
+
+        assertEquals(1, result.length);
+        assertEquals(1L, result[0].memory);
+        assertArrayEquals("la veloce volpe marrone salta sopra il cane pigro".split(" "), result[0].translation);
+        assertTrue(result[0].score > 0.f && result[0].score < 1.f);
+    }
+
+    @Test
+    public void reverseDirection() throws Throwable {
+        ScoreEntry[] result = memory.search(null, IT__EN, TestData.sentence("la veloce volpe marrone salta sopra il cane stanco"), 10);
+
+        assertEquals(1, result.length);
+        assertArrayEquals("the quick brown fox jumps over the lazy dog".split(" "), result[0].translation);
+    }
+
+    @Test
+    public void unrelatedSentenceHasNoCandidates() throws Throwable {
+        ScoreEntry[] result = memory.search(null, EN__IT, TestData.sentence("nothing in common with any entry of this memory"), 10);
+        assertEquals(0, result.length);
+    }
+
+    @Test
+    public void privacyIsHonored() throws Throwable {
+        ScoreEntry[] result = memory.search(null, EN__IT, TestData.sentence("the private sentence of the owner is there"), 10);
+        assertEquals(0, result.length);
+
+        result = memory.search(OWNER, EN__IT, TestData.sentence("the private sentence of the owner is there"), 10);
+        assertEquals(1, result.length);
+        assertEquals(3L, result[0].memory);
+    }
+
+    private static boolean hasMinHashTerms(File path) throws IOException {
+        try (Directory directory = FSDirectory.open(path);
+             DirectoryReader reader = DirectoryReader.open(directory)) {
+            return MultiFields.getTerms(reader, "minhash") != null;
+        }
+    }
+
+    private static Map<String, String> getCommitData(File path) throws IOException {
+        try (Directory directory = FSDirectory.open(path);
+             DirectoryReader reader = DirectoryReader.open(directory)) {
+            return reader.getIndexCommit().getUserData();
+        }
+    }
+
+    @Test
+    public void bandsAreIndexedOnlyWhenEnabled() throws Throwable {
+        File path = Files.createTempDirectory("LuceneTranslationMemoryTest_minHash").toFile();
+
+        try {
+            ArrayList<TranslationUnit> units = new ArrayList<>();
+            units.add(TestData.tu(0, 0L, 1L, EN__IT, "the quick brown fox jumps over the lazy dog", "la veloce volpe marrone salta sopra il cane pigro", null));
+
+            try (TLuceneTranslationMemory memory = new TLuceneTranslationMemory(path)) {
+                memory.onDataReceived(units);
+            }
+
+            assertFalse(hasMinHashTerms(path));
+            assertFalse(getCommitData(path).containsKey("minhash"));
+
+            // Enabling the option re-indexes the existing entries with their bands
+            try (TLuceneTranslationMemory memory = new TLuceneTranslationMemory(path, new MinHashQueryBuilder())) {
+                assertEquals(1, memory.search(null, EN__IT, TestData.sentence("the quick brown fox jumps over the sleepy dog"), 10).length);
+            }
+
+            assertTrue(hasMinHashTerms(path));
+            assertEquals("true", getCommitData(path).get("minhash"));
+
+            // Disabling it requires no migration, the index is marked as missing the bands of the new entries
+            try (TLuceneTranslationMemory memory = new TLuceneTranslationMemory(path)) {
+                assertEquals(2, memory.size());
+            }
+
+            assertTrue(hasMinHashTerms(path));
+            assertFalse(getCommitData(path).containsKey("minhash"));
+            assertEquals("2", getCommitData(path).get("index_format"));
+        } finally {
+            FileUtils.deleteDirectory(path);
+        }
+    }
+
+}
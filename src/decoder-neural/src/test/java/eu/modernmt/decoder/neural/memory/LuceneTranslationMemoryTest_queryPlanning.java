@@ -0,0 +1,230 @@
+package eu.modernmt.decoder.neural.memory;
+
+import eu.modernmt.data.TranslationUnit;
+import eu.modernmt.decoder.neural.memory.lucene.DocumentBuilder;
+import eu.modernmt.decoder.neural.memory.lucene.analysis.ContentAnalyzer;
+import eu.modernmt.decoder.neural.memory.lucene.query.DefaultQueryBuilder;
+import eu.modernmt.decoder.neural.memory.lucene.query.FilterCache;
+import eu.modernmt.io.TokensOutputStream;
+import eu.modernmt.model.ContextVector;
+import eu.modernmt.model.Sentence;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static eu.modernmt.decoder.neural.memory.TestData.EN__IT;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LuceneTranslationMemoryTest_queryPlanning {
+
+    private static final UUID OWNER = new UUID(0, 1);
+    private static final String[] VOCABULARY = {"hello", "world", "the", "a", "cat", ",", ".", "!", "--", "'s", "\u00A0", "a\tb"};
+
+    private TLuceneTranslationMemory memory;
+    private DefaultQueryBuilder queryBuilder;
+
+    @Before
+    public void setup() throws Throwable {
+        this.memory = new TLuceneTranslationMemory();
+        this.queryBuilder = new DefaultQueryBuilder();
+    }
+
+    @After
+    public void teardown() throws Throwable {
+        this.memory.close();
+        this.memory = null;
+    }
+
+    private static String[] analyze(Analyzer analyzer, String text) throws IOException {
+        ArrayList<String> terms = new ArrayList<>();
+
+        try (TokenStream stream = analyzer.tokenStream("content", text)) {
+            CharTermAttribute termAttribute = stream.addAttribute(CharTermAttribute.class);
+
+            stream.reset();
+            while (stream.incrementToken())
+                terms.add(termAttribute.toString());
+            stream.end();
+        }
+
+        return terms.toArray(new String[terms.size()]);
+    }
+
+    @Test
+    public void termsFromWordsMatchAnalyzer() throws Throwable {
+        Analyzer[] analyzers = {
+                new ContentAnalyzer(0, true), new ContentAnalyzer(2, true), new ContentAnalyzer(2, false)
+        };
+
+        Random random = new Random(7);
+
+        for (int i = 0; i < 2000; i++) {
+            String[] tokens = new String[random.nextInt(8)];
+            for (int j = 0; j < tokens.length; j++)
+                tokens[j] = VOCABULARY[random.nextInt(VOCABULARY.length)];
+
+            String text = String.join(" ", tokens);
+
+            for (Analyzer analyzer : analyzers) {
+                String[] terms = ((ContentAnalyzer) analyzer).getTerms(tokens);
+
+                if (terms == null)
+                    assertTrue(Arrays.asList(tokens).contains("a\tb"));
+                else
+                    assertArrayEquals(Arrays.toString(tokens), analyze(analyzer, text), terms);
+            }
+        }
+    }
+
+    private static Query legacyQuery(Analyzer analyzer, UUID user, Sentence sentence, ContextVector context) throws IOException {
+        String fieldName = DocumentBuilder.makeContentFieldName(EN__IT);
+        int length = sentence.getWords().length;
+
+        BooleanQuery termsQuery = new BooleanQuery();
+        for (String term : analyze(analyzer, TokensOutputStream.serialize(sentence, false, true)))
+            termsQuery.add(new TermQuery(new Term(fieldName, term)), BooleanClause.Occur.SHOULD);
+        termsQuery.setMinimumNumberShouldMatch(length > DefaultQueryBuilder.SHORT_QUERY_SIZE ? Math.max(1, (int) (length * .5)) : length);
+
+        BooleanQuery privacyQuery = new BooleanQuery();
+        privacyQuery.add(DocumentBuilder.makePublicOwnerMatchingQuery(), BooleanClause.Occur.SHOULD);
+        if (user != null)
+            privacyQuery.add(DocumentBuilder.makeOwnerMatchingQuery(user), BooleanClause.Occur.SHOULD);
+        if (context != null) {
+            for (ContextVector.Entry entry : context)
+                privacyQuery.add(new TermQuery(DocumentBuilder.makeMemoryTerm(entry.memory.getId())), BooleanClause.Occur.SHOULD);
+        }
+        privacyQuery.setMinimumNumberShouldMatch(1);
+
+        return new FilteredQuery(termsQuery, new QueryWrapperFilter(privacyQuery));
+    }
+
+    private void assertSameResults(UUID user, String text, ContextVector context) throws IOException {
+        Sentence sentence = TestData.sentence(text);
+        Analyzer analyzer = new ContentAnalyzer(0, true);
+
+        Query expected = legacyQuery(analyzer, user, sentence, context);
+        Query actual = queryBuilder.bestMatchingSuggestion(analyzer, user, EN__IT, sentence, context);
+
+        IndexSearcher searcher = memory.getIndexSearcher();
+        ScoreDoc[] expectedDocs = searcher.search(expected, 1000).scoreDocs;
+        ScoreDoc[] actualDocs = searcher.search(actual, 1000).scoreDocs;
+
+        assertEquals(expectedDocs.length, actualDocs.length);
+        for (int i = 0; i < expectedDocs.length; i++) {
+            assertEquals(expectedDocs[i].doc, actualDocs[i].doc);
+            assertEquals(expectedDocs[i].score, actualDocs[i].score, 0.f);
+        }
+    }
+
+    @Test
+    public void filterFirstAndTermsFirstPlans() throws Throwable {
+        Random random = new Random(11);
+        long position = 0;
+
+        // Many segments with a small public memory, a small private memory and a large one of another user:
+        // the filter is evaluated first without context, the terms query first with it
+        for (int batch = 0; batch < 5; batch++) {
+            List<TranslationUnit> units = new ArrayList<>();
+
+            for (int i = 0; i < 5; i++) {
+                String source = "hello world " + random.nextInt(50) + " the cat";
+                units.add(TestData.tu(0, position++, null, 1L, EN__IT, source, "ciao mondo", null));
+            }
+
+            for (int i = 0; i < 3; i++) {
+                String source = "hello world " + random.nextInt(50) + " private";
+                units.add(TestData.tu(0, position++, OWNER, 2L, EN__IT, source, "ciao mondo", null));
+            }
+
+            for (int i = 0; i < 200; i++) {
+                String source = "hello world " + random.nextInt(50) + " private";
+                units.add(TestData.tu(0, position++, new UUID(0, 2), 3L, EN__IT, source, "ciao mondo", null));
+            }
+
+            memory.onDataReceived(units);
+        }
+
+        ContextVector context = new ContextVector.Builder().add(3L, .5f).build();
+
+        assertSameResults(null, "hello world", null);
+        assertSameResults(OWNER, "hello world", null);
+        assertSameResults(OWNER, "hello world 7 the cat", null);
+        assertSameResults(OWNER, "hello world private", context);
+        assertSameResults(new UUID(0, 3), "private", context);
+
+        // Cached filters must follow deletions and new segments
+        memory.onDelete(TestData.deletion(position++, 3L));
+        assertSameResults(new UUID(0, 3), "private", context);
+
+        memory.onDataReceived(Collections.singletonList(
+                TestData.tu(0, position, new UUID(0, 2), 3L, EN__IT, "hello private", "ciao mondo", null)));
+        assertSameResults(new UUID(0, 3), "private", context);
+        assertSameResults(OWNER, "hello world private", context);
+
+        // Unions are cached per user and context memories
+        Analyzer analyzer = new ContentAnalyzer(0, true);
+        Filter filter = ((FilteredQuery) queryBuilder.bestMatchingSuggestion(analyzer, OWNER, EN__IT, TestData.sentence("hello"), context)).getFilter();
+        assertSame(filter, ((FilteredQuery) queryBuilder.bestMatchingSuggestion(analyzer, OWNER, EN__IT, TestData.sentence("world"), context)).getFilter());
+    }
+
+    @Test
+    public void unionsCacheIsBoundedByMemory() throws Throwable {
+        long position = 0;
+
+        for (int batch = 0; batch < 3; batch++) {
+            List<TranslationUnit> units = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                UUID owner = i % 10 == 0 ? new UUID(0, i % 7) : null;
+                units.add(TestData.tu(0, position++, owner, i % 5 + 1L, EN__IT, "hello world " + i, "ciao mondo", null));
+            }
+
+            memory.onDataReceived(units);
+        }
+
+        // About two unions of a segment of 1000 documents
+        long maxSize = 400L;
+        FilterCache filters = new FilterCache(FilterCache.DEFAULT_CAPACITY, maxSize);
+        queryBuilder = new DefaultQueryBuilder(filters);
+
+        for (int user = 0; user < 7; user++) {
+            ContextVector context = new ContextVector.Builder().add(user % 5 + 1L, .5f).build();
+
+            assertSameResults(new UUID(0, user), "hello world", null);
+            assertSameResults(new UUID(0, user), "hello world", context);
+            assertTrue(filters.getUnionsCacheSize() > 0);
+            assertTrue(filters.getUnionsCacheSize() <= maxSize);
+        }
+
+        // Unions larger than the cache are never cached
+        filters = new FilterCache(FilterCache.DEFAULT_CAPACITY, 0L);
+        queryBuilder = new DefaultQueryBuilder(filters);
+
+        assertSameResults(new UUID(0, 1), "hello world", null);
+        assertEquals(0L, filters.getUnionsCacheSize());
+
+        // Unions are released with their segments
+        filters = new FilterCache();
+        queryBuilder = new DefaultQueryBuilder(filters);
+
+        Query query = queryBuilder.bestMatchingSuggestion(new ContentAnalyzer(0, true), new UUID(0, 1), EN__IT, TestData.sentence("hello world"), null);
+        try (DirectoryReader reader = DirectoryReader.open(memory.getIndexWriter().getDirectory())) {
+            assertTrue(new IndexSearcher(reader).search(query, 10).totalHits > 0);
+            assertTrue(filters.getUnionsCacheSize() > 0);
+        }
+
+        assertEquals(0L, filters.getUnionsCacheSize());
+    }
+
+}
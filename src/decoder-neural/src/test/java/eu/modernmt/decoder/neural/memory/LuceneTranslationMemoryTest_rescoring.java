@@ -0,0 +1,121 @@
+package eu.modernmt.decoder.neural.memory;
+
+import eu.modernmt.decoder.neural.memory.lucene.query.rescoring.F1BleuCalculator;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class LuceneTranslationMemoryTest_rescoring {
+
+    private static final String[] VOCABULARY = {"a", "b", "c", "d", "e", "the", "cat", "dog", ",", "."};
+
+    private static String[] randomSentence(Random random, int maxLength) {
+        String[] sentence = new String[random.nextInt(maxLength + 1)];
+        for (int i = 0; i < sentence.length; i++)
+            sentence[i] = VOCABULARY[random.nextInt(VOCABULARY.length)];
+        return sentence;
+    }
+
+    @Test
+    public void scoresAreIdenticalToReferenceImplementation() {
+        Random random = new Random(7);
+
+        for (int i = 0; i < 500; i++) {
+            String[] reference = randomSentence(random, 30);
+            F1BleuCalculator calculator = new F1BleuCalculator(reference);
+
+            for (int j = 0; j < 20; j++) {
+                String[] hypothesis = random.nextInt(10) == 0 ? reference.clone() : randomSentence(random, 40);
+
+                float expected = LegacyF1Bleu.calc(reference, hypothesis);
+                float actual = calculator.calc(hypothesis);
+
+                assertEquals(Float.floatToIntBits(expected), Float.floatToIntBits(actual));
+            }
+        }
+    }
+
+    @Test
+    public void scoresWithUnknownAndNullTokens() {
+        String[] reference = {"a", null, "b", "a", null, "b", "c"};
+        F1BleuCalculator calculator = new F1BleuCalculator(reference);
+
+        String[][] hypotheses = {
+                {"a", null, "b", "a", null, "b", "c"},
+                {"x", "y", "a", "b", "c"},
+                {null, null},
+                {},
+                {"a", "b", "a", "b", "c", "c", "c", "a", "b"},
+        };
+
+        for (String[] hypothesis : hypotheses) {
+            float expected = LegacyF1Bleu.calc(reference, hypothesis);
+            assertEquals(Float.floatToIntBits(expected), Float.floatToIntBits(calculator.calc(hypothesis)));
+        }
+    }
+
+    /**
+     * Straightforward implementation of F1-BLEU with string n-grams, used as ground truth
+     */
+    private static final class LegacyF1Bleu {
+
+        private static final int N = 4;
+        private static final double EPSILON = 0.1;
+
+        static float calc(String[] reference, String[] hyp) {
+            HashMap<List<String>, int[]> referenceNGrams = split(reference);
+            HashMap<List<String>, int[]> hypNGrams = split(hyp);
+
+            int numerators[] = new int[N];
+
+            for (Map.Entry<List<String>, int[]> entry : referenceNGrams.entrySet()) {
+                List<String> ngram = entry.getKey();
+                if (ngram.contains(null))
+                    continue;
+
+                int[] suggestionCount = hypNGrams.get(ngram);
+                numerators[ngram.size() - 1] += Math.min(entry.getValue()[0], suggestionCount == null ? 0 : suggestionCount[0]);
+            }
+
+            double precision = 0;
+            double recall = 0;
+
+            for (int order = 1; order <= N; ++order) {
+                precision += Math.log(smooth(numerators[order - 1], Math.max(hyp.length - order + 1, 0)));
+                recall += Math.log(smooth(numerators[order - 1], Math.max(reference.length - order + 1, 0)));
+            }
+
+            precision = Math.exp(precision / N);
+            recall = Math.exp(recall / N);
+
+            return (float) (2 * (precision * recall) / (precision + recall));
+        }
+
+        private static HashMap<List<String>, int[]> split(String[] sentence) {
+            HashMap<List<String>, int[]> counts = new HashMap<>();
+
+            for (int offset = 0; offset < sentence.length; offset++) {
+                for (int o = 1; o <= Math.min(N, sentence.length - offset); o++) {
+                    List<String> ngram = new ArrayList<>(o);
+                    for (int i = 0; i < o; i++)
+                        ngram.add(sentence[offset + i]);
+
+                    counts.computeIfAbsent(ngram, key -> new int[1])[0]++;
+                }
+            }
+
+            return counts;
+        }
+
+        private static double smooth(int num, int den) {
+            return (num + EPSILON) / (den + EPSILON);
+        }
+    }
+
+}
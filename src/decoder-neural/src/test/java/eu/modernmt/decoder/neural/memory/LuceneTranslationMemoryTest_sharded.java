@@ -0,0 +1,149 @@
+package eu.modernmt.decoder.neural.memory;
+
+import eu.modernmt.data.DataBatch;
+import eu.modernmt.data.Deletion;
+import eu.modernmt.data.TranslationUnit;
+import eu.modernmt.decoder.neural.memory.lucene.ShardedTranslationMemory;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.*;
+
+import static eu.modernmt.decoder.neural.memory.TestData.*;
+import static org.junit.Assert.*;
+
+public class LuceneTranslationMemoryTest_sharded {
+
+    private File path;
+    private ShardedTranslationMemory memory;
+
+    @Before
+    public void setup() throws Throwable {
+        this.path = Files.createTempDirectory("LuceneTranslationMemoryTest_sharded").toFile();
+        this.memory = new ShardedTranslationMemory(path, 10);
+    }
+
+    @After
+    public void teardown() throws Throwable {
+        if (this.memory != null)
+            this.memory.close();
+        this.memory = null;
+
+        FileUtils.deleteDirectory(this.path);
+    }
+
+    private static DataBatch batch(Collection<TranslationUnit> units, Collection<Deletion> deletions) {
+        HashMap<Short, Long> positions = new HashMap<>();
+        for (TranslationUnit unit : units)
+            positions.merge(unit.channel, unit.channelPosition, Math::max);
+        for (Deletion deletion : deletions)
+            positions.merge(deletion.channel, deletion.channelPosition, Math::max);
+
+        return new DataBatch() {
+            @Override
+            public Collection<TranslationUnit> getTranslationUnits() {
+                return units;
+            }
+
+            @Override
+            public Collection<Deletion> getDeletions() {
+                return deletions;
+            }
+
+            @Override
+            public Map<Short, Long> getChannelPositions() {
+                return positions;
+            }
+        };
+    }
+
+    private void setupData() throws Throwable {
+        memory.onDataReceived(batch(Arrays.asList(
+                TestData.tu(1, 0, 1, EN__IT, "Hello world 1", "Ciao mondo 1", null),
+                TestData.tu(1, 1, 1, EN__FR, "Hello world 1", "Bonjour monde 1", null),
+                TestData.tu(1, 2, 2, IT_CH__EN_US, "Ciao mondo 2", "Hello world 2", null),
+                TestData.tu(1, 3, 2, FR__EN, "Bonjour monde 2", "Hello world 2", null)
+        ), Collections.emptyList()));
+    }
+
+    @Test
+    public void routingByLanguageFamily() throws Throwable {
+        setupData();
+
+        assertEquals(2, memory.getShards().size());
+        assertSame(memory.getShard(EN__IT), memory.getShard(IT_CH__EN_US));
+
+        assertEquals(2, memory.search(null, EN__IT, TestData.sentence("Hello world"), 100).length);
+        assertEquals(2, memory.search(null, IT__EN, TestData.sentence("Ciao mondo"), 100).length);
+        assertEquals(2, memory.search(null, EN__FR, TestData.sentence("Hello world"), 100).length);
+        assertEquals(0, memory.search(null, FR__ES, TestData.sentence("Bonjour monde"), 100).length);
+
+        for (ScoreEntry entry : memory.search(null, EN__IT, TestData.sentence("Hello world"), 100))
+            assertFalse(Arrays.asList(entry.translation).contains("monde"));
+    }
+
+    @Test
+    public void deletionsAreSentToAllShards() throws Throwable {
+        setupData();
+
+        memory.onDataReceived(batch(Collections.emptyList(), Collections.singletonList(TestData.deletion(4, 1))));
+
+        ScoreEntry[] italian = memory.search(null, EN__IT, TestData.sentence("Hello world"), 100);
+        ScoreEntry[] french = memory.search(null, EN__FR, TestData.sentence("Hello world"), 100);
+
+        assertEquals(1, italian.length);
+        assertEquals(2, italian[0].memory);
+        assertEquals(1, french.length);
+        assertEquals(2, french[0].memory);
+    }
+
+    @Test
+    public void channelPositionsAfterReopen() throws Throwable {
+        setupData();
+        memory.onDataReceived(batch(Collections.singletonList(
+                TestData.tu(1, 4, 3, EN__IT, "Hello world 3", "Ciao mondo 3", null)), Collections.emptyList()));
+
+        assertEquals(Collections.singletonMap((short) 1, 4L), memory.getLatestChannelPositions());
+
+        memory.close();
+        memory = new ShardedTranslationMemory(path, 10);
+
+        assertEquals(Collections.singletonMap((short) 1, 4L), memory.getLatestChannelPositions());
+        assertEquals(2, memory.getShards().size());
+
+        // Replayed data is skipped by every shard
+        setupData();
+        assertEquals(3, memory.search(null, EN__IT, TestData.sentence("Hello world"), 100).length);
+        assertEquals(2, memory.search(null, EN__FR, TestData.sentence("Hello world"), 100).length);
+    }
+
+    @Test
+    public void backupOfAllShards() throws Throwable {
+        setupData();
+
+        File backup = Files.createTempDirectory("LuceneTranslationMemoryTest_sharded_backup").toFile();
+
+        try {
+            assertEquals(Collections.singletonMap((short) 1, 3L), memory.backup(backup));
+            assertTrue(ShardedTranslationMemory.isSharded(backup));
+
+            // Changes after the backup are not included
+            memory.onDataReceived(batch(Collections.singletonList(
+                    TestData.tu(1, 4, 3, EN__IT, "Hello world 3", "Ciao mondo 3", null)), Collections.emptyList()));
+
+            try (ShardedTranslationMemory restored = new ShardedTranslationMemory(backup, 10)) {
+                assertEquals(Collections.singletonMap((short) 1, 3L), restored.getLatestChannelPositions());
+                assertEquals(2, restored.getShards().size());
+                assertEquals(2, restored.search(null, EN__IT, TestData.sentence("Hello world"), 100).length);
+                assertEquals(2, restored.search(null, EN__FR, TestData.sentence("Hello world"), 100).length);
+            }
+        } finally {
+            FileUtils.deleteDirectory(backup);
+        }
+    }
+
+}
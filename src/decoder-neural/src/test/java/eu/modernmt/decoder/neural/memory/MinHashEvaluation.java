@@ -0,0 +1,216 @@
+package eu.modernmt.decoder.neural.memory;
+
+import eu.modernmt.data.TranslationUnit;
+import eu.modernmt.decoder.neural.memory.lucene.query.DefaultQueryBuilder;
+import eu.modernmt.decoder.neural.memory.lucene.query.MinHashQueryBuilder;
+import eu.modernmt.decoder.neural.memory.lucene.query.QueryBuilder;
+import eu.modernmt.decoder.neural.memory.lucene.query.rescoring.F1BleuCalculator;
+import eu.modernmt.model.Sentence;
+import eu.modernmt.model.corpus.MultilingualCorpus;
+import eu.modernmt.model.corpus.impl.tmx.TMXCorpus;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static eu.modernmt.decoder.neural.memory.TestData.EN__IT;
+
+/**
+ * Offline comparison of the candidate generators of the memory: the terms query of DefaultQueryBuilder
+ * and the LSH bands query of MinHashQueryBuilder. A synthetic TMX with clusters of near-duplicate entries
+ * is indexed once, then both strategies are queried with edited copies of its sentences.
+ * <p>
+ * Recall is the fraction of queries whose best suggestion is as good (by F1-BLEU) as the best entry
+ * of the whole corpus, found by exhaustive search; latency is measured on the complete search, rescoring included.
+ * <p>
+ * Usage: MinHashEvaluation [entries] [queries] [seed]
+ */
+public class MinHashEvaluation {
+
+    private static final int VOCABULARY_SIZE = 5000;
+    private static final int WARMUP_QUERIES = 200;
+
+    public static void main(String[] args) throws Throwable {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+
+        Random random = new Random(seed);
+        File workspace = Files.createTempDirectory("MinHashEvaluation").toFile();
+
+        try {
+            File tmx = new File(workspace, "corpus.tmx");
+            File index = new File(workspace, "index");
+
+            generateCorpus(new TMXCorpus(tmx), entries, random);
+            List<String[]> sources = indexCorpus(new TMXCorpus(tmx), index);
+
+            String[][] inputs = new String[queries][];
+            for (int i = 0; i < queries; i++)
+                inputs[i] = edit(sources.get(random.nextInt(sources.size())), random);
+
+            float[] oracle = new float[queries];
+            for (int i = 0; i < queries; i++)
+                oracle[i] = bestScore(inputs[i], sources);
+
+            System.out.println("Entries: " + sources.size() + ", queries: " + queries);
+            evaluate("terms  ", new DefaultQueryBuilder(), index, inputs, oracle);
+            evaluate("minhash", new MinHashQueryBuilder(), index, inputs, oracle);
+        } finally {
+            FileUtils.deleteDirectory(workspace);
+        }
+    }
+
+    // Synthetic corpus
+
+    private static String word(int id) {
+        return "w" + id;
+    }
+
+    private static String translation(String word) {
+        return "t" + word.substring(1);
+    }
+
+    private static int zipf(Random random) {
+        // Inverse of the cumulative distribution of 1/x, good enough for a skewed vocabulary
+        return (int) Math.exp(random.nextDouble() * Math.log(VOCABULARY_SIZE));
+    }
+
+    private static String[] edit(String[] sentence, Random random) {
+        ArrayList<String> words = new ArrayList<>(Arrays.asList(sentence));
+        int edits = 1 + random.nextInt(3);
+
+        for (int i = 0; i < edits && words.size() > 1; i++) {
+            int position = random.nextInt(words.size());
+
+            switch (random.nextInt(3)) {
+                case 0:
+                    words.set(position, word(zipf(random)));
+                    break;
+                case 1:
+                    words.remove(position);
+                    break;
+                default:
+                    words.add(position, word(zipf(random)));
+                    break;
+            }
+        }
+
+        return words.toArray(new String[words.size()]);
+    }
+
+    private static void generateCorpus(MultilingualCorpus corpus, int entries, Random random) throws IOException {
+        ArrayList<String[]> generated = new ArrayList<>(entries);
+        MultilingualCorpus.MultilingualLineWriter writer = null;
+
+        try {
+            writer = corpus.getContentWriter(false);
+
+            for (int i = 0; i < entries; i++) {
+                String[] source;
+
+                if (!generated.isEmpty() && random.nextFloat() < .5f) {
+                    source = edit(generated.get(random.nextInt(generated.size())), random);
+                } else {
+                    source = new String[6 + random.nextInt(25)];
+                    for (int j = 0; j < source.length; j++)
+                        source[j] = word(zipf(random));
+                }
+
+                String[] target = new String[source.length];
+                for (int j = 0; j < source.length; j++)
+                    target[j] = translation(source[j]);
+
+                generated.add(source);
+                writer.write(new MultilingualCorpus.StringPair(EN__IT, String.join(" ", source), String.join(" ", target)));
+            }
+        } finally {
+            IOUtils.closeQuietly(writer);
+        }
+    }
+
+    private static List<String[]> indexCorpus(MultilingualCorpus corpus, File index) throws IOException {
+        ArrayList<String[]> sources = new ArrayList<>();
+        ArrayList<TranslationUnit> units = new ArrayList<>();
+
+        TLuceneTranslationMemory memory = null;
+        MultilingualCorpus.MultilingualLineReader reader = null;
+
+        try {
+            memory = new TLuceneTranslationMemory(index);
+            reader = corpus.getContentReader();
+
+            MultilingualCorpus.StringPair pair;
+            while ((pair = reader.read()) != null) {
+                sources.add(pair.source.split(" "));
+                units.add(TestData.tu(0, sources.size(), 1L, pair.language, pair.source, pair.target, null));
+
+                if (units.size() == 10000) {
+                    memory.onDataReceived(units);
+                    units.clear();
+                }
+            }
+
+            if (!units.isEmpty())
+                memory.onDataReceived(units);
+        } finally {
+            IOUtils.closeQuietly(reader);
+            IOUtils.closeQuietly(memory);
+        }
+
+        return sources;
+    }
+
+    // Evaluation
+
+    private static float bestScore(String[] input, List<String[]> sources) {
+        F1BleuCalculator calculator = new F1BleuCalculator(input);
+
+        float best = 0.f;
+        for (String[] source : sources)
+            best = Math.max(best, calculator.calc(source));
+
+        return best;
+    }
+
+    private static void evaluate(String name, QueryBuilder queryBuilder, File index, String[][] inputs, float[] oracle) throws IOException {
+        Sentence[] sentences = new Sentence[inputs.length];
+        for (int i = 0; i < inputs.length; i++)
+            sentences[i] = TestData.sentence(String.join(" ", inputs[i]));
+
+        try (TLuceneTranslationMemory memory = new TLuceneTranslationMemory(index, queryBuilder)) {
+            for (int i = 0; i < Math.min(WARMUP_QUERIES, sentences.length); i++)
+                memory.search(null, EN__IT, sentences[i], 1);
+
+            long[] latencies = new long[sentences.length];
+            int hits = 0;
+
+            for (int i = 0; i < sentences.length; i++) {
+                long begin = System.nanoTime();
+                ScoreEntry[] result = memory.search(null, EN__IT, sentences[i], 1);
+                latencies[i] = System.nanoTime() - begin;
+
+                if (result.length > 0 && new F1BleuCalculator(inputs[i]).calc(result[0].sentence) >= oracle[i])
+                    hits++;
+            }
+
+            Arrays.sort(latencies);
+            long total = 0;
+            for (long latency : latencies)
+                total += latency;
+
+            System.out.println(String.format("%s  recall@1: %.3f  avg: %.3fms  p50: %.3fms  p95: %.3fms",
+                    name, hits / (double) sentences.length,
+                    total / 1e6 / latencies.length,
+                    latencies[latencies.length / 2] / 1e6,
+                    latencies[(int) (latencies.length * .95)] / 1e6));
+        }
+    }
+
+}
@@ -4,12 +4,16 @@ import eu.modernmt.data.DataBatch;
 import eu.modernmt.data.Deletion;
 import eu.modernmt.data.TranslationUnit;
 import eu.modernmt.decoder.neural.memory.lucene.LuceneTranslationMemory;
+import eu.modernmt.decoder.neural.memory.lucene.analysis.DefaultAnalyzerFactory;
+import eu.modernmt.decoder.neural.memory.lucene.query.QueryBuilder;
+import eu.modernmt.decoder.neural.memory.lucene.query.rescoring.F1BleuRescorer;
 import eu.modernmt.lang.Language;
 import eu.modernmt.lang.LanguagePair;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.store.RAMDirectory;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
@@ -22,6 +26,18 @@ public class TLuceneTranslationMemory extends LuceneTranslationMemory {
         super(new RAMDirectory(), 10);
     }
 
+    public TLuceneTranslationMemory(File path) throws IOException {
+        super(path, 10);
+    }
+
+    public TLuceneTranslationMemory(QueryBuilder queryBuilder) throws IOException {
+        super(new RAMDirectory(), queryBuilder, new F1BleuRescorer(), new DefaultAnalyzerFactory(), 10);
+    }
+
+    public TLuceneTranslationMemory(File path, QueryBuilder queryBuilder) throws IOException {
+        super(path, queryBuilder, new F1BleuRescorer(), new DefaultAnalyzerFactory(), 10);
+    }
+
     public int size() throws IOException {
         return getIndexReader().numDocs();
     }
@@ -1,22 +1,33 @@
 package eu.modernmt.persistence.cassandra;
 
 import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.RegularStatement;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.exceptions.AuthenticationException;
+import com.datastax.driver.core.exceptions.DriverException;
 import com.datastax.driver.core.exceptions.InvalidQueryException;
 import com.datastax.driver.core.exceptions.NoHostAvailableException;
 import eu.modernmt.persistence.Connection;
 import eu.modernmt.persistence.PersistenceException;
 
 import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * Created by andrea on 09/03/17.
  * A CassandraConnection object represents a connection
  * with a Cassandra DataBase.
+ * <p>
+ * A connection either owns its Session, or it borrows the Session
+ * shared by all the connections of a CassandraDatabase:
+ * in this case closing the connection leaves the Session open.
  */
 public class CassandraConnection implements Connection {
     final Session session;
+    private final ConcurrentHashMap<String, PreparedStatement> statements;
+    private final boolean shared;
 
     /**
      * This constructor builds a CassandraConnection object
@@ -30,12 +41,40 @@ public class CassandraConnection implements Connection {
      *                 If is allowed to be null too.
      */
     public CassandraConnection(Cluster cluster, String keyspace) throws PersistenceException {
+        this(connect(cluster, keyspace), new ConcurrentHashMap<>(), false);
+    }
 
+    /**
+     * This constructor builds a CassandraConnection object
+     * that borrows an already open Session and its prepared statements
+     *
+     * @param session    the shared Session
+     * @param statements the prepared statements of the shared Session, by operation
+     */
+    CassandraConnection(Session session, ConcurrentHashMap<String, PreparedStatement> statements) {
+        this(session, statements, true);
+    }
+
+    private CassandraConnection(Session session, ConcurrentHashMap<String, PreparedStatement> statements, boolean shared) {
+        this.session = session;
+        this.statements = statements;
+        this.shared = shared;
+    }
+
+    /**
+     * This method opens a new Session with a Cassandra cluster
+     *
+     * @param cluster  the cluster to connect to
+     * @param keyspace the keyspace of the Session, or null
+     * @return the new Session
+     * @throws PersistenceException
+     */
+    static Session connect(Cluster cluster, String keyspace) throws PersistenceException {
         try {
             if (keyspace == null) {
-                this.session = cluster.connect();
+                return cluster.connect();
             } else {
-                this.session = cluster.connect('"' + keyspace + '"');
+                return cluster.connect('"' + keyspace + '"');
             }
 
         } catch (NoHostAvailableException e) {
@@ -55,11 +94,40 @@ public class CassandraConnection implements Connection {
     }
 
     /**
-     * This method closes the session with the current DB
+     * This method returns the prepared version of a statement,
+     * preparing it only the first time it is requested for the Session
+     *
+     * @param operation the unique name of the operation the statement performs
+     * @param statement the supplier of the statement to prepare
+     * @return the prepared statement
+     * @throws PersistenceException
+     */
+    PreparedStatement prepare(String operation, Supplier<RegularStatement> statement) throws PersistenceException {
+        PreparedStatement prepared = statements.get(operation);
+
+        if (prepared == null) {
+            try {
+                prepared = session.prepare(statement.get());
+            } catch (DriverException e) {
+                throw CassandraUtils.unwrap(e);
+            }
+
+            PreparedStatement existing = statements.putIfAbsent(operation, prepared);
+            if (existing != null)
+                prepared = existing;
+        }
+
+        return prepared;
+    }
+
+    /**
+     * This method closes the session with the current DB,
+     * unless the session is shared
      */
     @Override
     public void close() throws IOException {
-        this.session.close();
+        if (!shared)
+            this.session.close();
     }
 
 }
@@ -2,7 +2,9 @@ package eu.modernmt.persistence.cassandra;
 
 import com.datastax.driver.core.Cluster;
 import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Session;
 import com.datastax.driver.core.SimpleStatement;
 import com.datastax.driver.core.schemabuilder.DropKeyspace;
 import com.datastax.driver.core.schemabuilder.SchemaBuilder;
@@ -10,6 +12,8 @@ import eu.modernmt.config.DatabaseConfig;
 import eu.modernmt.persistence.*;
 import org.apache.commons.io.IOUtils;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Created by andrearossi on 08/03/17.
  * A CassandraDatabase object represents the access point
@@ -31,7 +35,10 @@ public class CassandraDatabase extends Database {
     private final String host;
     private final int port;
 
-    private Cluster cluster;
+    private volatile Cluster cluster;
+    private Session session = null;
+    private final ConcurrentHashMap<String, PreparedStatement> statements = new ConcurrentHashMap<>();
+    private final CassandraIdGenerator idGenerator = new CassandraIdGenerator(this);
 
     /**
      * This method returns the default keyspace name
@@ -69,23 +76,57 @@ public class CassandraDatabase extends Database {
      * If the current cluster objec is already initialized,
      * the method closes it and rebuilds it from scratch.
      */
-    private void initCluster() {
+    private synchronized void initCluster() {
         if (this.cluster != null)
             this.cluster.close();
         this.cluster = Cluster.builder().withPort(port).addContactPoint(host).build();
+        this.session = null;
+        this.statements.clear();
+    }
+
+    /**
+     * This method closes the shared Session, if open,
+     * and discards its prepared statements
+     */
+    private synchronized void closeSession() {
+        if (this.session != null)
+            this.session.close();
+
+        this.session = null;
+        this.statements.clear();
+    }
+
+    /**
+     * This method returns the Session shared by all the cached connections,
+     * opening it the first time it is requested
+     *
+     * @return the shared Session for the keyspace
+     * @throws PersistenceException
+     */
+    private synchronized Session getSession() throws PersistenceException {
+        if (this.session == null || this.session.isClosed()) {
+            this.statements.clear();
+            this.session = CassandraConnection.connect(this.cluster, this.keyspace);
+        }
+
+        return this.session;
     }
 
     /**
      * This method provides a connection to a Cassandra DB
      *
-     * @param cached
+     * @param cached if true, the connection borrows the Session shared by this database;
+     *               else, the connection opens a new Session that is closed with it
      * @return A CassandraConnection object, that
      * can be used to establish a communication Session with the DB
      * @throws PersistenceException
      */
     @Override
     public CassandraConnection getConnection(boolean cached) throws PersistenceException {
-        return new CassandraConnection(this.cluster, this.keyspace);
+        if (cached)
+            return new CassandraConnection(getSession(), this.statements);
+        else
+            return new CassandraConnection(this.cluster, this.keyspace);
     }
 
     /**
@@ -96,7 +137,7 @@ public class CassandraDatabase extends Database {
      */
     @Override
     public MemoryDAO getMemoryDAO(Connection connection) {
-        return new CassandraMemoryDAO((CassandraConnection) connection);
+        return new CassandraMemoryDAO((CassandraConnection) connection, idGenerator);
     }
 
     /**
@@ -107,7 +148,7 @@ public class CassandraDatabase extends Database {
      */
     @Override
     public ImportJobDAO getImportJobDAO(Connection connection) {
-        return new CassandraImportJobDAO((CassandraConnection) connection);
+        return new CassandraImportJobDAO((CassandraConnection) connection, idGenerator);
     }
 
     /**
@@ -129,7 +170,10 @@ public class CassandraDatabase extends Database {
             /*ignore*/
         } finally {
             IOUtils.closeQuietly(connection);
+            idGenerator.reset();
         }
+
+        closeSession();
     }
 
     /**
@@ -187,6 +231,7 @@ public class CassandraDatabase extends Database {
             CassandraIdGenerator.initializeTableCounter(connection, TABLE_IDS);
         } finally {
             IOUtils.closeQuietly(connection);
+            idGenerator.reset();
         }
 
         /*It is necessary to close and restart the cluster object because
@@ -212,7 +257,8 @@ public class CassandraDatabase extends Database {
     }
 
     @Override
-    public void close() {
+    public synchronized void close() {
+        this.idGenerator.close();
         this.cluster.close();
     }
 
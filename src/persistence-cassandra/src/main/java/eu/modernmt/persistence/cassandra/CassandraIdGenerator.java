@@ -1,74 +1,128 @@
 package eu.modernmt.persistence.cassandra;
 
+import com.datastax.driver.core.Row;
 import com.datastax.driver.core.querybuilder.BuiltStatement;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import eu.modernmt.persistence.PersistenceException;
+import org.apache.commons.io.IOUtils;
+
+import java.util.HashMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * This class provides static methods
- * that generate sequential integer IDs
+ * This class generates sequential integer IDs
  * for objects to store in our Cassandra DB.
+ * <p>
+ * IDs are reserved from the table counters in blocks:
+ * a single lightweight transaction reserves a whole block for this node,
+ * whose IDs are then handed out from memory.
+ * The next block is reserved in background before the current one runs out.
+ * <p>
+ * IDs are unique across the cluster, but they are sequential only within the same node.
+ * Unused IDs of a block are lost when the node stops.
+ * <p>
+ * An ID can also be forced with {@link #advanceCounter(CassandraConnection, int, long)}:
+ * when it is at or below the table counter it may fall inside a block already reserved by another node,
+ * for this reason every generated ID is handed out only once its caller has claimed it
+ * (see {@link IdClaim}), and IDs that are already in use are skipped.
  */
 public class CassandraIdGenerator {
 
+    public static final int DEFAULT_BLOCK_SIZE = 100;
+    private static final int MAX_TRANSACTION_ATTEMPTS = 100;
+    private static final int MAX_CLAIM_ATTEMPTS = 100;
+
+    /**
+     * The atomic use of a generated ID, typically a conditional insert of the new object.
+     */
+    public interface IdClaim {
+
+        /**
+         * @param id the candidate ID
+         * @return true if the ID has been claimed, false if it is already in use
+         * @throws PersistenceException
+         */
+        boolean claim(long id) throws PersistenceException;
+
+    }
+
+    private final CassandraDatabase database;
+    private final int blockSize;
+    private final int refillThreshold;
+    private final HashMap<Integer, Allocator> allocators = new HashMap<>();
+    private final ExecutorService refillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "CassandraIdGenerator.refill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CassandraIdGenerator(CassandraDatabase database) {
+        this(database, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param database  the database used to open the connections for the background reservations
+     * @param blockSize the number of IDs reserved with a single transaction
+     */
+    public CassandraIdGenerator(CassandraDatabase database, int blockSize) {
+        if (blockSize < 1)
+            throw new IllegalArgumentException("Invalid block size: " + blockSize);
+
+        this.database = database;
+        this.blockSize = blockSize;
+        this.refillThreshold = Math.max(1, blockSize / 4);
+    }
+
+    private synchronized Allocator getAllocator(int tableId) {
+        return allocators.computeIfAbsent(tableId, Allocator::new);
+    }
+
     /**
      * This method generates a new ID for a new object
      * that must be stored in a certain table.
-     * The new IDs are long and are generated in a sequential way.
+     * Candidate IDs are passed to the claim until one is successfully claimed:
+     * IDs forced by other nodes inside the blocks reserved by this node are skipped this way.
      * <p>
      * This method is thread-safe.
      *
-     * @param connection the current connection with the database
-     * @param tableId    the ID of the table in which we want to store a new
-     * @return the newly generated ID,
+     * @param connection the current connection with the database,
+     *                   used if a block must be reserved synchronously
+     * @param tableId    the ID of the table in which we want to store a new object
+     * @param claim      the claim of the candidate IDs
+     * @return the newly generated and claimed ID
      * @throws PersistenceException
      */
-    public static long generate(CassandraConnection connection, int tableId) throws PersistenceException {
-        /*the table COUNTERS_TABLE has a row for each other table in our cassandra;
-        each row holds the table id and a counter marking the last ID
-        that has been employed when storing an object in that table.*/
+    public long generate(CassandraConnection connection, int tableId, IdClaim claim) throws PersistenceException {
+        Allocator allocator = getAllocator(tableId);
 
-        /*statement for getting the last ID used in the table under analysis
-         * from the Counters_table*/
-        BuiltStatement get = QueryBuilder.select("table_counter").
-                from(CassandraDatabase.COUNTERS_TABLE).
-                where(QueryBuilder.eq("table_id", tableId));
-
-
-        /*Read the last ID used in the table under analysis.
-         If it is still the same, increment it and
-         return the new incremented ID.
-         Otherwise, read again.
-         This technique lets us read and update the ID atomically,
-          so it is thread-safe (even it may be if a bit slow).*/
-        while (true) {
-
-            /* Get the the last ID used in the table under analysis*/
-            long oldCount = CassandraUtils.checkedExecute(connection, get).one().getLong("table_counter");
-
-            /* Statement for updating the last ID only if it is still the same*/
-            BuiltStatement set = QueryBuilder.update(CassandraDatabase.COUNTERS_TABLE).
-                    with(QueryBuilder.set("table_counter", (oldCount + 1L))).
-                    where(QueryBuilder.eq("table_id", tableId)).
-                    onlyIf(QueryBuilder.eq("table_counter", oldCount));
-
-            /* Try to execute the statement; if it succeeded,
-             * then it means that no-one has updated the last ID
-             * after this thread has read it, so it can use it*/
-            if (CassandraUtils.checkedExecute(connection, set).wasApplied())
-                return oldCount + 1L;
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            long id = allocator.next(connection);
+            if (claim.claim(id))
+                return id;
         }
+
+        throw new PersistenceException("Unable to generate an ID for table " + tableId +
+                ": too many IDs already in use");
     }
 
     /**
      * This method updates the current counter for a table to a given value
-     * if it is greater than the current counter for that table
+     * if it is greater than the current counter for that table.
+     * IDs lower than or equal to the new counter are never generated by this node afterwards.
+     * If the counter is advanced, no block reserved so far can contain the new counter;
+     * otherwise the forced ID may fall inside a block reserved by another node,
+     * that will skip it when its claim fails.
      *
      * @param connection the current connection with the database
-     * @param newCounter the new memories counter (if it is greater than the current one)
+     * @param tableID    the ID of the table
+     * @param newCounter the new counter (if it is greater than the current one)
+     * @return true if the counter has been advanced by this call
      * @throws PersistenceException
      */
-    public static boolean advanceCounter(CassandraConnection connection, int tableID, long newCounter) throws PersistenceException {
+    public boolean advanceCounter(CassandraConnection connection, int tableID, long newCounter) throws PersistenceException {
+        getAllocator(tableID).skipTo(newCounter);
+
         /* Statement for updating the last ID only if it smaller than the new counter*/
         BuiltStatement update = QueryBuilder.update(CassandraDatabase.COUNTERS_TABLE)
                 .with(QueryBuilder.set("table_counter", newCounter))
@@ -94,6 +148,61 @@ public class CassandraIdGenerator {
         }
     }
 
+    /**
+     * This method reserves the next block of IDs of a table with a lightweight transaction.
+     *
+     * @return the block of reserved IDs
+     * @throws PersistenceException if the transaction could not be applied
+     */
+    private Block reserve(CassandraConnection connection, int tableId) throws PersistenceException {
+        BuiltStatement get = QueryBuilder.select("table_counter").
+                from(CassandraDatabase.COUNTERS_TABLE).
+                where(QueryBuilder.eq("table_id", tableId));
+
+        long counter = CassandraUtils.checkedExecute(connection, get).one().getLong("table_counter");
+
+        for (int attempt = 0; attempt < MAX_TRANSACTION_ATTEMPTS; attempt++) {
+            BuiltStatement set = QueryBuilder.update(CassandraDatabase.COUNTERS_TABLE).
+                    with(QueryBuilder.set("table_counter", counter + blockSize)).
+                    where(QueryBuilder.eq("table_id", tableId)).
+                    onlyIf(QueryBuilder.eq("table_counter", counter));
+
+            /* A failed conditional update returns the current value:
+             * no further read is needed before retrying */
+            Row result = CassandraUtils.checkedExecute(connection, set).one();
+            if (result.getBool("[applied]"))
+                return new Block(counter + 1L, counter + blockSize);
+
+            counter = result.getLong("table_counter");
+        }
+
+        throw new PersistenceException("Unable to reserve IDs for table " + tableId +
+                ": too many concurrent updates");
+    }
+
+    private Block reserve(int tableId) throws PersistenceException {
+        CassandraConnection connection = null;
+
+        try {
+            connection = database.getConnection(true);
+            return reserve(connection, tableId);
+        } finally {
+            IOUtils.closeQuietly(connection);
+        }
+    }
+
+    /**
+     * This method discards all the reserved blocks;
+     * it must be called when the table counters are reset.
+     */
+    public synchronized void reset() {
+        allocators.clear();
+    }
+
+    public void close() {
+        refillExecutor.shutdownNow();
+    }
+
     /**
      * This method creates the necessary statements to store
      * in the counters_table a new entry for each table
@@ -115,4 +224,91 @@ public class CassandraIdGenerator {
             CassandraUtils.checkedExecute(connection, built);
         }
     }
+
+    private static final class Block {
+
+        final AtomicLong next;
+        final long last;
+
+        Block(long first, long last) {
+            this.next = new AtomicLong(first);
+            this.last = last;
+        }
+
+    }
+
+    private final class Allocator {
+
+        private final int tableId;
+        private volatile Block current = new Block(1L, 0L); // empty
+        private volatile long floor = 0L;
+        private Future<Block> pending = null;
+
+        Allocator(int tableId) {
+            this.tableId = tableId;
+        }
+
+        long next(CassandraConnection connection) throws PersistenceException {
+            while (true) {
+                Block block = current;
+                long id = block.next.getAndIncrement();
+
+                if (id <= block.last) {
+                    if (block.last - id == refillThreshold)
+                        prefetch();
+                    return id;
+                }
+
+                synchronized (this) {
+                    if (current == block)
+                        current = nextBlock(connection);
+                }
+            }
+        }
+
+        void skipTo(long counter) {
+            synchronized (this) {
+                if (counter > floor)
+                    floor = counter;
+            }
+
+            current.next.accumulateAndGet(counter + 1L, Math::max);
+        }
+
+        private synchronized void prefetch() {
+            if (pending == null) {
+                try {
+                    pending = refillExecutor.submit(() -> reserve(tableId));
+                } catch (RejectedExecutionException e) {
+                    // Generator is closing, next block will be reserved synchronously
+                }
+            }
+        }
+
+        private synchronized Block nextBlock(CassandraConnection connection) throws PersistenceException {
+            Block block = null;
+
+            if (pending != null) {
+                Future<Block> future = pending;
+                pending = null;
+
+                try {
+                    block = future.get();
+                } catch (InterruptedException e) {
+                    throw new PersistenceException("Interrupted while reserving IDs", e);
+                } catch (ExecutionException e) {
+                    // Background reservation failed, retry synchronously
+                } catch (CancellationException e) {
+                    // Generator closed, retry synchronously
+                }
+            }
+
+            if (block == null)
+                block = reserve(connection, tableId);
+
+            block.next.accumulateAndGet(floor + 1L, Math::max);
+            return block;
+        }
+
+    }
 }
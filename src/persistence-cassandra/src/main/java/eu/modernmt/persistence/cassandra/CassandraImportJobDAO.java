@@ -1,8 +1,9 @@
 package eu.modernmt.persistence.cassandra;
 
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
-import com.datastax.driver.core.querybuilder.BuiltStatement;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import eu.modernmt.model.ImportJob;
 import eu.modernmt.persistence.ImportJobDAO;
@@ -20,6 +21,7 @@ import java.util.UUID;
 public class CassandraImportJobDAO implements ImportJobDAO {
 
     private CassandraConnection connection;
+    private CassandraIdGenerator idGenerator;
 
     /**
      * This method creates a CassandraImportJobDao
@@ -28,9 +30,11 @@ public class CassandraImportJobDAO implements ImportJobDAO {
      *
      * @param connection the Cassandra Connection that the DAO will employ
      *                   to deal with the ImportJob CRUD operations.
+     * @param idGenerator the generator of the IDs for the new objects
      */
-    public CassandraImportJobDAO(CassandraConnection connection) {
+    public CassandraImportJobDAO(CassandraConnection connection, CassandraIdGenerator idGenerator) {
         this.connection = connection;
+        this.idGenerator = idGenerator;
     }
 
     /**
@@ -43,19 +47,22 @@ public class CassandraImportJobDAO implements ImportJobDAO {
      */
     @Override
     public ImportJob store(ImportJob job) throws PersistenceException {
-        long id = CassandraIdGenerator.generate(connection, CassandraDatabase.IMPORT_JOBS_TABLE_ID);
-
-        String[] columns = {"id", "memory", "\"begin\"", "end", "data_channel", "size"};
-        Object[] values = {id, job.getMemory(), job.getBegin(), job.getEnd(), job.getDataChannel(), job.getSize()};
-        BuiltStatement statement = QueryBuilder
-                .insertInto("import_jobs")
-                .values(columns, values)
-                .ifNotExists();
-
-        boolean success = CassandraUtils.checkedExecute(connection, statement).wasApplied();
-
-        if (!success)
-            throw new PersistenceException("Unable to insert import job into Cassandra Database: " + job);
+        long id = idGenerator.generate(connection, CassandraDatabase.IMPORT_JOBS_TABLE_ID, candidate -> {
+            PreparedStatement statement = connection.prepare("import_jobs.store", () -> {
+                String[] columns = {"id", "memory", "\"begin\"", "end", "data_channel", "size"};
+                Object[] values = new Object[columns.length];
+                for (int i = 0; i < values.length; i++)
+                    values[i] = QueryBuilder.bindMarker();
+
+                return QueryBuilder
+                        .insertInto(CassandraDatabase.IMPORT_JOBS_TABLE)
+                        .values(columns, values)
+                        .ifNotExists();
+            });
+
+            BoundStatement bound = statement.bind(candidate, job.getMemory(), job.getBegin(), job.getEnd(), job.getDataChannel(), job.getSize());
+            return CassandraUtils.checkedExecute(connection, bound).wasApplied();
+        });
 
         job.setId(id);
         return job;
@@ -75,12 +82,12 @@ public class CassandraImportJobDAO implements ImportJobDAO {
     public ImportJob retrieve(UUID uuid) throws PersistenceException {
         long id = ImportJob.getLongId(uuid);
 
-        BuiltStatement statement = QueryBuilder.
+        PreparedStatement statement = connection.prepare("import_jobs.retrieve", () -> QueryBuilder.
                 select().
-                from("import_jobs").
-                where(QueryBuilder.eq("id", id));
+                from(CassandraDatabase.IMPORT_JOBS_TABLE).
+                where(QueryBuilder.eq("id", QueryBuilder.bindMarker())));
 
-        ResultSet result = CassandraUtils.checkedExecute(connection, statement);
+        ResultSet result = CassandraUtils.checkedExecute(connection, statement.bind(id));
         Row row = result.one();
 
         if (row != null) return read(row);
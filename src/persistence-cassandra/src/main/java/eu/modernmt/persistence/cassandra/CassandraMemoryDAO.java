@@ -1,9 +1,7 @@
 package eu.modernmt.persistence.cassandra;
 
-import com.datastax.driver.core.ResultSet;
-import com.datastax.driver.core.Row;
+import com.datastax.driver.core.*;
 import com.datastax.driver.core.exceptions.CodecNotFoundException;
-import com.datastax.driver.core.querybuilder.BuiltStatement;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import eu.modernmt.model.Memory;
 import eu.modernmt.persistence.MemoryDAO;
@@ -21,6 +19,7 @@ import java.util.*;
 public class CassandraMemoryDAO implements MemoryDAO {
 
     private CassandraConnection connection;
+    private CassandraIdGenerator idGenerator;
 
     /**
      * This method creates a CassandraMemoryDAO
@@ -29,9 +28,11 @@ public class CassandraMemoryDAO implements MemoryDAO {
      *
      * @param connection the Cassandra Connection that the DAO will employ
      *                   to deal with the Memory CRUD operations.
+     * @param idGenerator the generator of the IDs for the new objects
      */
-    public CassandraMemoryDAO(CassandraConnection connection) {
+    public CassandraMemoryDAO(CassandraConnection connection, CassandraIdGenerator idGenerator) {
         this.connection = connection;
+        this.idGenerator = idGenerator;
     }
 
     /**
@@ -45,14 +46,16 @@ public class CassandraMemoryDAO implements MemoryDAO {
      */
     @Override
     public Memory retrieve(long id) throws PersistenceException {
-        BuiltStatement statement = QueryBuilder.select()
-                .from(CassandraDatabase.MEMORIES_TABLE)
-                .where(QueryBuilder.eq("id", id));
-
-        ResultSet result = CassandraUtils.checkedExecute(connection, statement);
+        ResultSet result = CassandraUtils.checkedExecute(connection, prepareRetrieve().bind(id));
         return read(result.one());
     }
 
+    private PreparedStatement prepareRetrieve() throws PersistenceException {
+        return connection.prepare("memories.retrieve", () -> QueryBuilder.select()
+                .from(CassandraDatabase.MEMORIES_TABLE)
+                .where(QueryBuilder.eq("id", QueryBuilder.bindMarker())));
+    }
+
     /**
      * This method reads a row returned by a query
      * to the memories table in the Cassandra DB
@@ -99,20 +102,18 @@ public class CassandraMemoryDAO implements MemoryDAO {
         if (ids.isEmpty())
             return map;
 
-        ArrayList<Long> list = new ArrayList<>(ids.size());
-        list.addAll(ids);
-        BuiltStatement statement = QueryBuilder.
-                select().
-                from(CassandraDatabase.MEMORIES_TABLE).
-                where(QueryBuilder.in("id", list));
+        /*query every partition in parallel, instead of a single multi-partition IN query*/
+        PreparedStatement statement = prepareRetrieve();
+        ArrayList<ResultSetFuture> futures = new ArrayList<>(ids.size());
 
-        /*execute the query*/
-        ResultSet result = CassandraUtils.checkedExecute(connection, statement);
+        for (Long id : ids)
+            futures.add(CassandraUtils.checkedExecuteAsync(connection, statement.bind(id)));
 
         /*create the Memory objects from the rows*/
-        while (!result.isExhausted()) {
-            Memory memory = read(result.one());
-            map.put(memory.getId(), memory);
+        for (ResultSetFuture future : futures) {
+            Memory memory = read(CassandraUtils.checkedGet(future).one());
+            if (memory != null)
+                map.put(memory.getId(), memory);
         }
 
         return map;
@@ -129,10 +130,9 @@ public class CassandraMemoryDAO implements MemoryDAO {
     public Collection<Memory> retrieveAll() throws PersistenceException {
         ArrayList<Memory> list = new ArrayList<>();
 
-        BuiltStatement statement = QueryBuilder.select().
-                from(CassandraDatabase.MEMORIES_TABLE).
-                where();
-        ResultSet result = CassandraUtils.checkedExecute(connection, statement);
+        PreparedStatement statement = connection.prepare("memories.retrieveAll", () -> QueryBuilder.select().
+                from(CassandraDatabase.MEMORIES_TABLE));
+        ResultSet result = CassandraUtils.checkedExecute(connection, statement.bind());
 
         for (Row row : result.all())
             list.add(read(row));
@@ -169,34 +169,48 @@ public class CassandraMemoryDAO implements MemoryDAO {
         long id;
 
         if (!forceId) {
-            id = CassandraIdGenerator.generate(connection, CassandraDatabase.MEMORIES_TABLE_ID);
+            id = idGenerator.generate(connection, CassandraDatabase.MEMORIES_TABLE_ID, candidate -> insert(candidate, memory));
         } else {
             id = memory.getId();
-            CassandraIdGenerator.advanceCounter(connection, CassandraDatabase.MEMORIES_TABLE_ID, id);
+            idGenerator.advanceCounter(connection, CassandraDatabase.MEMORIES_TABLE_ID, id);
+
+            if (!insert(id, memory))
+                throw new PersistenceException("Unable to insert memory into Cassandra Database: " + memory);
         }
 
-        UUID owner = memory.getOwner();
+        memory.setId(id);
 
-        String[] columns = {"id", "owner_msb", "owner_lsb", "name"};
-        Object[] values = {
-                id,
-                owner == null ? 0L : owner.getMostSignificantBits(),
-                owner == null ? 0L : owner.getLeastSignificantBits(),
-                memory.getName()};
+        return memory;
+    }
 
-        BuiltStatement statement = QueryBuilder
-                .insertInto(CassandraDatabase.MEMORIES_TABLE)
-                .values(columns, values)
-                .ifNotExists();
+    /**
+     * This method inserts a Memory object with the given ID,
+     * only if there is no other memory with the same ID
+     *
+     * @return true if the memory has been inserted
+     * @throws PersistenceException
+     */
+    private boolean insert(long id, Memory memory) throws PersistenceException {
+        UUID owner = memory.getOwner();
 
-        boolean success = CassandraUtils.checkedExecute(connection, statement).wasApplied();
+        PreparedStatement statement = connection.prepare("memories.store", () -> {
+            String[] columns = {"id", "owner_msb", "owner_lsb", "name"};
+            Object[] values = {
+                    QueryBuilder.bindMarker(), QueryBuilder.bindMarker(), QueryBuilder.bindMarker(), QueryBuilder.bindMarker()};
 
-        if (!success)
-            throw new PersistenceException("Unable to insert memory into Cassandra Database: " + memory);
+            return QueryBuilder
+                    .insertInto(CassandraDatabase.MEMORIES_TABLE)
+                    .values(columns, values)
+                    .ifNotExists();
+        });
 
-        memory.setId(id);
+        BoundStatement bound = statement.bind(
+                id,
+                owner == null ? 0L : owner.getMostSignificantBits(),
+                owner == null ? 0L : owner.getLeastSignificantBits(),
+                memory.getName());
 
-        return memory;
+        return CassandraUtils.checkedExecute(connection, bound).wasApplied();
     }
 
     /**
@@ -214,12 +228,12 @@ public class CassandraMemoryDAO implements MemoryDAO {
      */
     @Override
     public Memory update(Memory memory) throws PersistenceException {
-        BuiltStatement built = QueryBuilder.update(CassandraDatabase.MEMORIES_TABLE)
-                .with(QueryBuilder.set("name", memory.getName()))
-                .where(QueryBuilder.eq("id", memory.getId()))
-                .ifExists();
+        PreparedStatement statement = connection.prepare("memories.update", () -> QueryBuilder.update(CassandraDatabase.MEMORIES_TABLE)
+                .with(QueryBuilder.set("name", QueryBuilder.bindMarker()))
+                .where(QueryBuilder.eq("id", QueryBuilder.bindMarker()))
+                .ifExists());
 
-        ResultSet result = CassandraUtils.checkedExecute(connection, built);
+        ResultSet result = CassandraUtils.checkedExecute(connection, statement.bind(memory.getName(), memory.getId()));
 
         if (result.wasApplied())
             return memory;
@@ -237,12 +251,12 @@ public class CassandraMemoryDAO implements MemoryDAO {
      */
     @Override
     public boolean delete(long id) throws PersistenceException {
-        BuiltStatement built = QueryBuilder.delete().
+        PreparedStatement statement = connection.prepare("memories.delete", () -> QueryBuilder.delete().
                 from(CassandraDatabase.MEMORIES_TABLE).
-                where(QueryBuilder.eq("id", id)).
-                ifExists();
+                where(QueryBuilder.eq("id", QueryBuilder.bindMarker())).
+                ifExists());
 
-        ResultSet result = CassandraUtils.checkedExecute(connection, built);
+        ResultSet result = CassandraUtils.checkedExecute(connection, statement.bind(id));
 
         return result.wasApplied();
     }
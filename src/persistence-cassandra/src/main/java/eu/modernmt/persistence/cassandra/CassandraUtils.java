@@ -1,6 +1,7 @@
 package eu.modernmt.persistence.cassandra;
 
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.exceptions.*;
 import eu.modernmt.persistence.PersistenceException;
@@ -48,8 +49,39 @@ public class CassandraUtils {
         }
     }
 
+    /**
+     * This method starts the asynchronous execution of a statement
+     *
+     * @param connection the current connection with the DB
+     * @param statement  the statement to execute
+     * @return the future ResultSet of the statement, to be read with checkedGet()
+     * @throws PersistenceException
+     */
+    public static ResultSetFuture checkedExecuteAsync(CassandraConnection connection, Statement statement) throws PersistenceException {
+        try {
+            return connection.session.executeAsync(statement);
+        } catch (DriverException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * This method waits for the result of an asynchronous execution
+     * and checks for all the possible exceptions that it may throw
+     *
+     * @param future the future ResultSet returned by checkedExecuteAsync()
+     * @return the ResultSet of the statement
+     * @throws PersistenceException
+     */
+    public static ResultSet checkedGet(ResultSetFuture future) throws PersistenceException {
+        try {
+            return future.getUninterruptibly();
+        } catch (DriverException e) {
+            throw unwrap(e);
+        }
+    }
 
-    private static PersistenceException unwrap(DriverException cause) throws PersistenceException {
+    static PersistenceException unwrap(DriverException cause) {
 
         if (cause instanceof NoHostAvailableException)
             return new PersistenceException("no host in the cluster could be contacted successfully to execute this query", cause);
@@ -0,0 +1,168 @@
+package eu.modernmt.persistence.cassandra;
+
+import eu.modernmt.persistence.PersistenceException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class CassandraIdGeneratorTest {
+
+    private static final int TABLE = CassandraDatabase.MEMORIES_TABLE_ID;
+    private static final int BLOCK_SIZE = 10;
+
+    private FakeCassandraConnection.Counters counters;
+    private Set<Long> used;
+    private List<TestDatabase> nodes;
+
+    private static class TestDatabase extends CassandraDatabase {
+
+        private final FakeCassandraConnection.Counters counters;
+        final CassandraIdGenerator generator;
+
+        TestDatabase(FakeCassandraConnection.Counters counters) {
+            super("localhost", 9042, "test");
+            this.counters = counters;
+            this.generator = new CassandraIdGenerator(this, BLOCK_SIZE);
+        }
+
+        @Override
+        public CassandraConnection getConnection(boolean cached) {
+            return new FakeCassandraConnection(counters);
+        }
+
+        @Override
+        public synchronized void close() {
+            generator.close();
+            super.close();
+        }
+
+    }
+
+    @Before
+    public void setup() {
+        counters = new FakeCassandraConnection.Counters(CassandraDatabase.TABLE_IDS);
+        used = Collections.synchronizedSet(new HashSet<>());
+        nodes = new ArrayList<>();
+    }
+
+    @After
+    public void teardown() {
+        for (TestDatabase node : nodes)
+            node.close();
+    }
+
+    private TestDatabase node() {
+        TestDatabase node = new TestDatabase(counters);
+        nodes.add(node);
+        return node;
+    }
+
+    private long generate(TestDatabase node) throws PersistenceException {
+        return node.generator.generate(node.getConnection(true), TABLE, used::add);
+    }
+
+    private boolean force(TestDatabase node, long id) throws PersistenceException {
+        boolean advanced = node.generator.advanceCounter(node.getConnection(true), TABLE, id);
+        assertTrue(used.add(id));
+        return advanced;
+    }
+
+    @Test
+    public void sequentialIdsWithinTheSameNode() throws PersistenceException {
+        TestDatabase node = node();
+
+        for (long expected = 1; expected <= 3 * BLOCK_SIZE; expected++)
+            assertEquals(expected, generate(node));
+
+        assertTrue(counters.transactions.get() <= 4);
+    }
+
+    @Test
+    public void nodesReserveDisjointBlocks() throws PersistenceException {
+        TestDatabase node1 = node();
+        TestDatabase node2 = node();
+
+        assertEquals(1L, generate(node1));
+        assertEquals(BLOCK_SIZE + 1L, generate(node2));
+        assertEquals(2L, generate(node1));
+        assertEquals(BLOCK_SIZE + 2L, generate(node2));
+    }
+
+    @Test
+    public void forcedIdAboveCounterIsNeverGenerated() throws PersistenceException {
+        TestDatabase node1 = node();
+        TestDatabase node2 = node();
+
+        assertEquals(1L, generate(node1));
+        assertTrue(force(node2, 25L));
+
+        HashSet<Long> ids = new HashSet<>();
+        for (int i = 0; i < 3 * BLOCK_SIZE; i++) {
+            ids.add(generate(node1));
+            ids.add(generate(node2));
+        }
+
+        assertEquals(6 * BLOCK_SIZE, ids.size());
+        assertFalse(ids.contains(25L));
+        assertTrue(counters.get(TABLE) >= 25L);
+    }
+
+    @Test
+    public void forcedIdInsideAnotherNodeBlockIsSkipped() throws PersistenceException {
+        TestDatabase node1 = node();
+        TestDatabase node2 = node();
+
+        assertEquals(1L, generate(node1));
+
+        // The counter is already past 5: the forced ID lies inside the block of node1
+        assertFalse(force(node2, 5L));
+
+        for (long expected = 2; expected < BLOCK_SIZE; expected++) {
+            long id = generate(node1);
+            assertNotEquals(5L, id);
+            assertEquals(expected < 5 ? expected : expected + 1, id);
+        }
+    }
+
+    @Test
+    public void forcedIdInsideOwnBlockIsSkipped() throws PersistenceException {
+        TestDatabase node = node();
+
+        assertEquals(1L, generate(node));
+        assertFalse(force(node, 5L));
+        assertEquals(6L, generate(node));
+    }
+
+    @Test
+    public void concurrentGenerationOnMultipleNodes() throws Throwable {
+        List<TestDatabase> cluster = Arrays.asList(node(), node(), node());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                TestDatabase node = cluster.get(t % cluster.size());
+                futures.add(executor.submit(() -> {
+                    ArrayList<Long> ids = new ArrayList<>();
+                    for (int i = 0; i < 500; i++)
+                        ids.add(generate(node));
+                    return ids;
+                }));
+            }
+
+            HashSet<Long> ids = new HashSet<>();
+            for (Future<List<Long>> future : futures)
+                ids.addAll(future.get());
+
+            assertEquals(8 * 500, ids.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+package eu.modernmt.persistence.cassandra;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory fake of the table counters of a Cassandra database: it executes the statements of
+ * CassandraIdGenerator on a map, applying the lightweight transactions atomically.
+ */
+class FakeCassandraConnection extends CassandraConnection {
+
+    private static final Pattern SELECT = Pattern.compile(
+            "SELECT table_counter FROM " + CassandraDatabase.COUNTERS_TABLE + " WHERE table_id=(\\d+);");
+    private static final Pattern UPDATE = Pattern.compile(
+            "UPDATE " + CassandraDatabase.COUNTERS_TABLE + " SET table_counter=(\\d+) WHERE table_id=(\\d+) IF table_counter([=<])(\\d+);");
+
+    static class Counters {
+
+        private final HashMap<Integer, Long> counters = new HashMap<>();
+        final AtomicInteger transactions = new AtomicInteger(0);
+
+        Counters(int... tableIds) {
+            for (int tableId : tableIds)
+                counters.put(tableId, 0L);
+        }
+
+        synchronized long get(int tableId) {
+            return counters.get(tableId);
+        }
+
+        synchronized ResultSet execute(Statement statement) {
+            String query = statement.toString();
+
+            Matcher matcher = SELECT.matcher(query);
+            if (matcher.matches())
+                return result(counters.get(Integer.parseInt(matcher.group(1))), null);
+
+            matcher = UPDATE.matcher(query);
+            if (matcher.matches()) {
+                transactions.incrementAndGet();
+
+                long value = Long.parseLong(matcher.group(1));
+                int tableId = Integer.parseInt(matcher.group(2));
+                long condition = Long.parseLong(matcher.group(4));
+                long counter = counters.get(tableId);
+
+                boolean applied = "=".equals(matcher.group(3)) ? counter == condition : counter < condition;
+                if (applied)
+                    counters.put(tableId, value);
+
+                return result(applied ? null : counter, applied);
+            }
+
+            throw new UnsupportedOperationException("Unsupported statement: " + query);
+        }
+
+    }
+
+    FakeCassandraConnection(Counters counters) {
+        super(session(counters), new ConcurrentHashMap<>());
+    }
+
+    private static Session session(Counters counters) {
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, method, args) -> {
+                    if ("execute".equals(method.getName()) && args.length == 1 && args[0] instanceof Statement)
+                        return counters.execute((Statement) args[0]);
+                    if ("close".equals(method.getName()))
+                        return null;
+
+                    throw new UnsupportedOperationException(method.toString());
+                });
+    }
+
+    private static ResultSet result(Long counter, Boolean applied) {
+        Row row = (Row) Proxy.newProxyInstance(Row.class.getClassLoader(), new Class<?>[]{Row.class},
+                (proxy, method, args) -> {
+                    if ("getLong".equals(method.getName()) && "table_counter".equals(args[0]))
+                        return counter;
+                    if ("getBool".equals(method.getName()) && "[applied]".equals(args[0]))
+                        return applied;
+
+                    throw new UnsupportedOperationException(method.toString());
+                });
+
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    if ("one".equals(method.getName()))
+                        return row;
+                    if ("wasApplied".equals(method.getName()))
+                        return applied == null || applied;
+
+                    throw new UnsupportedOperationException(method.toString());
+                });
+    }
+
+}
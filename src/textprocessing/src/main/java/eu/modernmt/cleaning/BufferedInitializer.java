@@ -0,0 +1,81 @@
+package eu.modernmt.cleaning;
+
+import eu.modernmt.model.corpus.MultilingualCorpus;
+
+import java.util.ArrayList;
+
+/**
+ * Adapts a plain Initializer to the sharded protocol: shards just buffer their pairs,
+ * that are then replayed to the wrapped initializer in corpus order during merge().
+ */
+class BufferedInitializer implements MultilingualCorpusFilter.ShardedInitializer {
+
+    public static MultilingualCorpusFilter.ShardedInitializer wrap(MultilingualCorpusFilter.Initializer initializer) {
+        if (initializer == null)
+            return null;
+
+        if (initializer instanceof MultilingualCorpusFilter.ShardedInitializer)
+            return (MultilingualCorpusFilter.ShardedInitializer) initializer;
+        else
+            return new BufferedInitializer(initializer);
+    }
+
+    private final MultilingualCorpusFilter.Initializer initializer;
+
+    private BufferedInitializer(MultilingualCorpusFilter.Initializer initializer) {
+        this.initializer = initializer;
+    }
+
+    @Override
+    public void onBegin() {
+        initializer.onBegin();
+    }
+
+    @Override
+    public void onPair(MultilingualCorpus.StringPair pair, int index) {
+        initializer.onPair(pair, index);
+    }
+
+    @Override
+    public void onEnd() {
+        initializer.onEnd();
+    }
+
+    @Override
+    public MultilingualCorpusFilter.Initializer newShard() {
+        return new Shard();
+    }
+
+    @Override
+    public void merge(MultilingualCorpusFilter.Initializer _shard) {
+        Shard shard = (Shard) _shard;
+
+        int index = shard.beginIndex;
+        for (MultilingualCorpus.StringPair pair : shard.pairs)
+            initializer.onPair(pair, index++);
+    }
+
+    private static class Shard implements MultilingualCorpusFilter.Initializer {
+
+        private final ArrayList<MultilingualCorpus.StringPair> pairs = new ArrayList<>();
+        private int beginIndex = -1;
+
+        @Override
+        public void onBegin() {
+            // Nothing to do
+        }
+
+        @Override
+        public void onPair(MultilingualCorpus.StringPair pair, int index) {
+            if (beginIndex < 0)
+                beginIndex = index;
+            pairs.add(pair);
+        }
+
+        @Override
+        public void onEnd() {
+            // Nothing to do
+        }
+    }
+
+}
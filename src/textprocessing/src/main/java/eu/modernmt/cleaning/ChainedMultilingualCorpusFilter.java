@@ -51,10 +51,10 @@ public class ChainedMultilingualCorpusFilter implements MultilingualCorpusFilter
 
     @Override
     public Initializer getInitializer() {
-        final ArrayList<Initializer> initializers = new ArrayList<>(filters.length);
+        final ArrayList<ShardedInitializer> initializers = new ArrayList<>(filters.length);
 
         for (MultilingualCorpusFilter filter : filters) {
-            Initializer initializer = filter.getInitializer();
+            ShardedInitializer initializer = BufferedInitializer.wrap(filter.getInitializer());
             if (initializer != null)
                 initializers.add(initializer);
         }
@@ -62,7 +62,7 @@ public class ChainedMultilingualCorpusFilter implements MultilingualCorpusFilter
         if (initializers.isEmpty()) {
             return null;
         } else {
-            return new Initializer() {
+            return new ShardedInitializer() {
                 @Override
                 public void onBegin() {
                     for (Initializer initializer : initializers)
@@ -80,6 +80,22 @@ public class ChainedMultilingualCorpusFilter implements MultilingualCorpusFilter
                     for (Initializer initializer : initializers)
                         initializer.onEnd();
                 }
+
+                @Override
+                public Initializer newShard() {
+                    final Initializer[] shards = new Initializer[initializers.size()];
+                    for (int i = 0; i < shards.length; i++)
+                        shards[i] = initializers.get(i).newShard();
+
+                    return new ChainedShard(shards);
+                }
+
+                @Override
+                public void merge(Initializer shard) {
+                    Initializer[] shards = ((ChainedShard) shard).shards;
+                    for (int i = 0; i < shards.length; i++)
+                        initializers.get(i).merge(shards[i]);
+                }
             };
         }
     }
@@ -100,4 +116,31 @@ public class ChainedMultilingualCorpusFilter implements MultilingualCorpusFilter
             filter.clear();
     }
 
+    private static class ChainedShard implements Initializer {
+
+        private final Initializer[] shards;
+
+        private ChainedShard(Initializer[] shards) {
+            this.shards = shards;
+        }
+
+        @Override
+        public void onBegin() {
+            for (Initializer shard : shards)
+                shard.onBegin();
+        }
+
+        @Override
+        public void onPair(MultilingualCorpus.StringPair pair, int index) {
+            for (Initializer shard : shards)
+                shard.onPair(pair, index);
+        }
+
+        @Override
+        public void onEnd() {
+            for (Initializer shard : shards)
+                shard.onEnd();
+        }
+    }
+
 }
@@ -10,6 +10,8 @@ import eu.modernmt.cleaning.normalizers.XMLStripper;
 import eu.modernmt.model.corpus.Corpus;
 import eu.modernmt.model.corpus.MultilingualCorpus;
 
+import java.io.File;
+
 /**
  * Created by davide on 02/11/17.
  */
@@ -28,6 +30,7 @@ public class CorporaCleaning {
             options.filterNumericSentences = true;
             options.filterVerbatimTranslations = true;
             options.filterByLanguage = true;
+            options.threads = Runtime.getRuntime().availableProcessors();
             return options;
         }
 
@@ -68,12 +71,18 @@ public class CorporaCleaning {
         public boolean filterNumericSentences = false;
         public boolean filterVerbatimTranslations = false;
         public boolean filterByLanguage = false;
+        public int threads = 1;
+        public File spillDirectory = null;
 
     }
 
     public static FilteredMultilingualCorpus wrap(MultilingualCorpus corpus, Options options) {
+        return wrap(corpus, options, options.threads);
+    }
+
+    public static FilteredMultilingualCorpus wrap(MultilingualCorpus corpus, Options options, int threads) {
         ChainedMultilingualCorpusFilter filter = makeMultilingualFilter(options);
-        return new FilteredMultilingualCorpus(corpus, filter, filter);
+        return new FilteredMultilingualCorpus(corpus, filter, filter, threads);
     }
 
     public static FilteredCorpus wrap(Corpus corpus, Options options) {
@@ -119,9 +128,9 @@ public class CorporaCleaning {
         if (options.filterVerbatimTranslations)
             composer.addMultilingual(VerbatimTranslationFilter.class);
         if (options.filterOddSentences)
-            composer.add(RareNgramFilter.class);
+            composer.add(() -> new RareNgramFilter(options.spillDirectory));
         if (options.filterDrafts)
-            composer.addMultilingual(DraftFilter.class);
+            composer.addMultilingual(new DraftFilter(options.spillDirectory));
         if (options.filterBySentenceLength)
             composer.addMultilingual(SentenceLengthFilter.class);
         if (options.filterByLanguage)
@@ -136,8 +145,12 @@ public class CorporaCleaning {
 
         void add(Class<? extends CorpusFilter> clazz);
 
+        void add(MultilingualCorpusFilterAdapter.Factory factory);
+
         void addMultilingual(Class<? extends MultilingualCorpusFilter> clazz);
 
+        void addMultilingual(MultilingualCorpusFilter filter);
+
     }
 
     private static class MonolingualComposer implements Composer {
@@ -158,11 +171,21 @@ public class CorporaCleaning {
             }
         }
 
+        @Override
+        public void add(MultilingualCorpusFilterAdapter.Factory factory) {
+            builder.add(factory.create());
+        }
+
         @Override
         public void addMultilingual(Class<? extends MultilingualCorpusFilter> clazz) {
             // Ignore
         }
 
+        @Override
+        public void addMultilingual(MultilingualCorpusFilter filter) {
+            // Ignore
+        }
+
         public ChainedCorpusFilter build() {
             return builder.build();
         }
@@ -183,6 +206,11 @@ public class CorporaCleaning {
             builder.add(new MultilingualCorpusFilterAdapter(clazz));
         }
 
+        @Override
+        public void add(MultilingualCorpusFilterAdapter.Factory factory) {
+            builder.add(new MultilingualCorpusFilterAdapter(factory));
+        }
+
         @Override
         public void addMultilingual(Class<? extends MultilingualCorpusFilter> clazz) {
             try {
@@ -192,6 +220,11 @@ public class CorporaCleaning {
             }
         }
 
+        @Override
+        public void addMultilingual(MultilingualCorpusFilter filter) {
+            builder.add(filter);
+        }
+
         public ChainedMultilingualCorpusFilter build() {
             return builder.build();
         }
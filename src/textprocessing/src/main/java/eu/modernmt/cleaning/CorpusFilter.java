@@ -13,6 +13,17 @@ public interface CorpusFilter {
         void onEnd();
     }
 
+    /**
+     * Line-level counterpart of {@link MultilingualCorpusFilter.ShardedInitializer}.
+     */
+    interface ShardedInitializer extends Initializer {
+
+        Initializer newShard();
+
+        void merge(Initializer shard);
+
+    }
+
     Initializer getInitializer(Language language);
 
     boolean accept(String line, int index);
@@ -12,11 +12,24 @@ public class FilteredMultilingualCorpus extends BaseMultilingualCorpus implement
     private final MultilingualCorpus corpus;
     private final MultilingualCorpusFilter filter;
     private final CorpusNormalizer normalizer;
+    private final int threads;
 
     public FilteredMultilingualCorpus(MultilingualCorpus corpus, CorpusNormalizer normalizer, MultilingualCorpusFilter filter) {
+        this(corpus, normalizer, filter, 1);
+    }
+
+    /**
+     * With threads greater than 1, both the initialization and the filtering passes are
+     * executed in parallel: in this case normalizer and filter must be thread-safe once initialized.
+     */
+    public FilteredMultilingualCorpus(MultilingualCorpus corpus, CorpusNormalizer normalizer, MultilingualCorpusFilter filter, int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+
         this.corpus = corpus;
         this.normalizer = normalizer;
         this.filter = filter;
+        this.threads = threads;
     }
 
     @Override
@@ -36,6 +49,13 @@ public class FilteredMultilingualCorpus extends BaseMultilingualCorpus implement
 
     @Override
     public MultilingualLineReader getContentReader() throws IOException {
+        if (threads > 1) {
+            ParallelCorpusCleaner cleaner = new ParallelCorpusCleaner(corpus, normalizer, filter, threads);
+            cleaner.initialize();
+
+            return cleaner.getContentReader();
+        }
+
         this.initialize();
 
         return new MultilingualLineReader() {
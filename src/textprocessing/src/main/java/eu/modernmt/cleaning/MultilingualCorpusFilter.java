@@ -13,6 +13,19 @@ public interface MultilingualCorpusFilter {
         void onEnd();
     }
 
+    /**
+     * Initializer whose statistics can be collected over contiguous shards of the corpus in parallel:
+     * every shard receives onBegin(), onPair() and onEnd() from a single thread, then shards are
+     * merged back into this initializer in corpus order, before its own onEnd() is called.
+     */
+    interface ShardedInitializer extends Initializer {
+
+        Initializer newShard();
+
+        void merge(Initializer shard);
+
+    }
+
     Initializer getInitializer();
 
     boolean accept(MultilingualCorpus.StringPair pair, int index);
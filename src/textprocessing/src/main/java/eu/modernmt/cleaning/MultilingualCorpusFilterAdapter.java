@@ -5,6 +5,8 @@ import eu.modernmt.lang.Language;
 import eu.modernmt.model.corpus.MultilingualCorpus;
 
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MultilingualCorpusFilterAdapter implements MultilingualCorpusFilter {
 
@@ -16,7 +18,8 @@ public class MultilingualCorpusFilterAdapter implements MultilingualCorpusFilter
 
     private final Factory factory;
     private final boolean hasInitializer;
-    private final HashMap<Language, CorpusFilter> filters = new HashMap<>();
+    private final boolean hasShardedInitializer;
+    private final ConcurrentHashMap<Language, CorpusFilter> filters = new ConcurrentHashMap<>();
 
     public MultilingualCorpusFilterAdapter(Class<? extends CorpusFilter> clazz) {
         this(() -> {
@@ -30,7 +33,10 @@ public class MultilingualCorpusFilterAdapter implements MultilingualCorpusFilter
 
     public MultilingualCorpusFilterAdapter(Factory factory) {
         this.factory = factory;
-        this.hasInitializer = (factory.create().getInitializer(Language.ENGLISH) != null);
+
+        CorpusFilter.Initializer initializer = factory.create().getInitializer(Language.ENGLISH);
+        this.hasInitializer = (initializer != null);
+        this.hasShardedInitializer = (initializer instanceof CorpusFilter.ShardedInitializer);
     }
 
     @Override
@@ -38,9 +44,80 @@ public class MultilingualCorpusFilterAdapter implements MultilingualCorpusFilter
         if (!hasInitializer)
             return null;
 
-        HashMap<Language, CorpusFilter.Initializer> initializers = new HashMap<>();
+        return hasShardedInitializer ? new ShardedAdapterInitializer() : new AdapterInitializer();
+    }
+
+    private CorpusFilter getFilter(Language language) {
+        return filters.computeIfAbsent(language, (l) -> factory.create());
+    }
+
+    @Override
+    public boolean accept(MultilingualCorpus.StringPair pair, int index) {
+        CorpusFilter sourceFilter = getFilter(pair.language.source);
+        CorpusFilter targetFilter = getFilter(pair.language.target);
+
+        return sourceFilter.accept(pair.source, index) && targetFilter.accept(pair.target, index);
+    }
+
+    @Override
+    public void clear() {
+        for (CorpusFilter filter : filters.values())
+            filter.clear();
+    }
+
+    private class AdapterInitializer implements Initializer {
+
+        protected final ConcurrentHashMap<Language, CorpusFilter.Initializer> initializers = new ConcurrentHashMap<>();
+
+        @Override
+        public void onBegin() {
+            // Nothing to do
+        }
+
+        @Override
+        public void onPair(MultilingualCorpus.StringPair pair, int index) {
+            getInitializer(pair.language.source).onLine(pair.source, index);
+            getInitializer(pair.language.target).onLine(pair.target, index);
+        }
+
+        protected CorpusFilter.Initializer getInitializer(Language language) {
+            return initializers.computeIfAbsent(language, this::createInitializer);
+        }
+
+        private CorpusFilter.Initializer createInitializer(Language language) {
+            CorpusFilter.Initializer initializer = getFilter(language).getInitializer(language);
+            initializer.onBegin();
+
+            return initializer;
+        }
+
+        @Override
+        public void onEnd() {
+            for (CorpusFilter.Initializer initializer : initializers.values())
+                initializer.onEnd();
+        }
+    }
+
+    private class ShardedAdapterInitializer extends AdapterInitializer implements ShardedInitializer {
+
+        @Override
+        public Initializer newShard() {
+            return new AdapterShard();
+        }
+
+        @Override
+        public void merge(Initializer shard) {
+            for (Map.Entry<Language, CorpusFilter.Initializer> entry : ((AdapterShard) shard).shards.entrySet()) {
+                CorpusFilter.ShardedInitializer initializer =
+                        (CorpusFilter.ShardedInitializer) getInitializer(entry.getKey());
+                initializer.merge(entry.getValue());
+            }
+        }
+
+        private class AdapterShard implements Initializer {
+
+            private final HashMap<Language, CorpusFilter.Initializer> shards = new HashMap<>();
 
-        return new Initializer() {
             @Override
             public void onBegin() {
                 // Nothing to do
@@ -48,39 +125,24 @@ public class MultilingualCorpusFilterAdapter implements MultilingualCorpusFilter
 
             @Override
             public void onPair(MultilingualCorpus.StringPair pair, int index) {
-                initializers.computeIfAbsent(pair.language.source, this::createInitializer)
-                        .onLine(pair.source, index);
-                initializers.computeIfAbsent(pair.language.target, this::createInitializer)
-                        .onLine(pair.target, index);
+                shards.computeIfAbsent(pair.language.source, this::createShard).onLine(pair.source, index);
+                shards.computeIfAbsent(pair.language.target, this::createShard).onLine(pair.target, index);
             }
 
-            private CorpusFilter.Initializer createInitializer(Language language) {
-                CorpusFilter filter = filters.computeIfAbsent(language, (l) -> factory.create());
-                CorpusFilter.Initializer initializer = filter.getInitializer(language);
-                initializer.onBegin();
+            private CorpusFilter.Initializer createShard(Language language) {
+                CorpusFilter.Initializer shard =
+                        ((CorpusFilter.ShardedInitializer) getInitializer(language)).newShard();
+                shard.onBegin();
 
-                return initializer;
+                return shard;
             }
 
             @Override
             public void onEnd() {
-                for (CorpusFilter.Initializer initializer : initializers.values())
-                    initializer.onEnd();
+                for (CorpusFilter.Initializer shard : shards.values())
+                    shard.onEnd();
             }
-        };
+        }
     }
 
-    @Override
-    public boolean accept(MultilingualCorpus.StringPair pair, int index) {
-        CorpusFilter sourceFilter = filters.computeIfAbsent(pair.language.source, (l) -> factory.create());
-        CorpusFilter targetFilter = filters.computeIfAbsent(pair.language.target, (l) -> factory.create());
-
-        return sourceFilter.accept(pair.source, index) && targetFilter.accept(pair.target, index);
-    }
-
-    @Override
-    public void clear() {
-        for (CorpusFilter filter : filters.values())
-            filter.clear();
-    }
 }
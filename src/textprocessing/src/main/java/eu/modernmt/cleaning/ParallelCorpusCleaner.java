@@ -0,0 +1,205 @@
+package eu.modernmt.cleaning;
+
+import eu.modernmt.model.corpus.MultilingualCorpus;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Runs the initialization and filtering passes of a FilteredMultilingualCorpus over
+ * contiguous shards of the corpus, using a pool of worker threads.
+ * Initializer statistics are merged in corpus order and accepted pairs are returned in corpus order.
+ */
+class ParallelCorpusCleaner {
+
+    // Multiple of the language detection batch size, so that shard boundaries do not split batches
+    private static final int SHARD_SIZE = 10000;
+
+    private final MultilingualCorpus corpus;
+    private final CorpusNormalizer normalizer;
+    private final MultilingualCorpusFilter filter;
+    private final int threads;
+
+    ParallelCorpusCleaner(MultilingualCorpus corpus, CorpusNormalizer normalizer, MultilingualCorpusFilter filter, int threads) {
+        this.corpus = corpus;
+        this.normalizer = normalizer;
+        this.filter = filter;
+        this.threads = threads;
+    }
+
+    private void normalize(MultilingualCorpus.StringPair pair) {
+        if (normalizer != null) {
+            pair.source = normalizer.normalize(pair.source);
+            pair.target = normalizer.normalize(pair.target);
+        }
+    }
+
+    private static Shard readShard(MultilingualCorpus.MultilingualLineReader reader, int beginIndex) throws IOException {
+        ArrayList<MultilingualCorpus.StringPair> pairs = new ArrayList<>(SHARD_SIZE);
+
+        MultilingualCorpus.StringPair pair;
+        while (pairs.size() < SHARD_SIZE && (pair = reader.read()) != null)
+            pairs.add(pair);
+
+        return pairs.isEmpty() ? null : new Shard(beginIndex, pairs);
+    }
+
+    private static <V> V get(Future<V> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new IOException("Execution interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            else if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            else
+                throw new Error("Unexpected exception", cause);
+        }
+    }
+
+    private static void shutdown(ExecutorService executor) {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            // Nothing to do
+        }
+    }
+
+    public void initialize() throws IOException {
+        MultilingualCorpusFilter.ShardedInitializer initializer = BufferedInitializer.wrap(filter.getInitializer());
+        if (initializer == null)
+            return;
+
+        initializer.onBegin();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<MultilingualCorpusFilter.Initializer>> pending = new ArrayDeque<>();
+
+        MultilingualCorpus.MultilingualLineReader reader = null;
+
+        try {
+            reader = corpus.getContentReader();
+
+            int index = 0;
+            Shard shard;
+
+            while ((shard = readShard(reader, index)) != null) {
+                index += shard.pairs.size();
+
+                final Shard task = shard;
+                final MultilingualCorpusFilter.Initializer shardInitializer = initializer.newShard();
+
+                pending.add(executor.submit(() -> {
+                    shardInitializer.onBegin();
+
+                    int i = task.beginIndex;
+                    for (MultilingualCorpus.StringPair pair : task.pairs) {
+                        normalize(pair);
+                        shardInitializer.onPair(pair, i++);
+                    }
+
+                    shardInitializer.onEnd();
+                    return shardInitializer;
+                }));
+
+                if (pending.size() >= threads * 2)
+                    initializer.merge(get(pending.poll()));
+            }
+
+            while (!pending.isEmpty())
+                initializer.merge(get(pending.poll()));
+        } finally {
+            IOUtils.closeQuietly(reader);
+            shutdown(executor);
+        }
+
+        initializer.onEnd();
+    }
+
+    public MultilingualCorpus.MultilingualLineReader getContentReader() throws IOException {
+        return new MultilingualCorpus.MultilingualLineReader() {
+
+            private final MultilingualCorpus.MultilingualLineReader reader = corpus.getContentReader();
+            private final ExecutorService executor = Executors.newFixedThreadPool(threads);
+            private final ArrayDeque<Future<List<MultilingualCorpus.StringPair>>> pending = new ArrayDeque<>();
+
+            private Iterator<MultilingualCorpus.StringPair> current = null;
+            private boolean eof = false;
+            private int index = 0;
+
+            private void fill() throws IOException {
+                while (!eof && pending.size() < threads * 2) {
+                    Shard shard = readShard(reader, index);
+
+                    if (shard == null) {
+                        eof = true;
+                    } else {
+                        index += shard.pairs.size();
+                        pending.add(executor.submit(() -> filter(shard)));
+                    }
+                }
+            }
+
+            private List<MultilingualCorpus.StringPair> filter(Shard shard) {
+                ArrayList<MultilingualCorpus.StringPair> accepted = new ArrayList<>(shard.pairs.size());
+
+                int i = shard.beginIndex;
+                for (MultilingualCorpus.StringPair pair : shard.pairs) {
+                    normalize(pair);
+
+                    if (filter.accept(pair, i++))
+                        accepted.add(pair);
+                }
+
+                return accepted;
+            }
+
+            @Override
+            public MultilingualCorpus.StringPair read() throws IOException {
+                while (current == null || !current.hasNext()) {
+                    fill();
+
+                    if (pending.isEmpty())
+                        return null;
+
+                    current = get(pending.poll()).iterator();
+                }
+
+                return current.next();
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    reader.close();
+                } finally {
+                    shutdown(executor);
+                    filter.clear();
+                }
+            }
+        };
+    }
+
+    private static final class Shard {
+
+        private final int beginIndex;
+        private final List<MultilingualCorpus.StringPair> pairs;
+
+        private Shard(int beginIndex, List<MultilingualCorpus.StringPair> pairs) {
+            this.beginIndex = beginIndex;
+            this.pairs = pairs;
+        }
+
+    }
+
+}
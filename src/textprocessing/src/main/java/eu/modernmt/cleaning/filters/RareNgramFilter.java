@@ -1,10 +1,14 @@
 package eu.modernmt.cleaning.filters;
 
 import eu.modernmt.cleaning.CorpusFilter;
+import eu.modernmt.cleaning.filters.util.RecordSorter;
+import eu.modernmt.io.RuntimeIOException;
 import eu.modernmt.lang.Language;
-import org.jetbrains.annotations.NotNull;
+import eu.modernmt.util.LongIntHashMap;
 
-import java.util.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.regex.Pattern;
 
 /**
@@ -14,15 +18,28 @@ public class RareNgramFilter implements CorpusFilter {
 
     private static final int MIN_CORPUS_LINES = 500;
     private static final int MIN_SENTENCE_LENGTH = 30;
+    private static final int MAX_IN_MEMORY_NGRAMS = 4 * 1024 * 1024;
 
-    private HashSet<String> words = null;
+    private final File spillDirectory;
+    private LongIntHashMap words = null;
+
+    public RareNgramFilter() {
+        this(null);
+    }
+
+    /**
+     * @param spillDirectory if not null, n-gram counts exceeding the in-memory limit
+     *                       are spilled to temporary files in this directory
+     */
+    public RareNgramFilter(File spillDirectory) {
+        this.spillDirectory = spillDirectory;
+    }
 
     @Override
     public Initializer getInitializer(Language language) {
-        return new Initializer() {
+        return new ShardedInitializer() {
 
-            private final HashMap<String, Counter> map = new HashMap<>();
-            private int lines = 0;
+            private final Statistics statistics = new Statistics(spillDirectory);
 
             @Override
             public void onBegin() {
@@ -31,49 +48,89 @@ public class RareNgramFilter implements CorpusFilter {
 
             @Override
             public void onLine(String line, int index) {
-                lines++;
-
-                line = normalize(line);
-
-                if (line.length() < MIN_SENTENCE_LENGTH)
-                    return;
-
-                for (String token : tokenize(line))
-                    map.computeIfAbsent(token, key -> new Counter()).count++;
+                statistics.add(line);
             }
 
             @Override
             public void onEnd() {
-                words = lines < MIN_CORPUS_LINES ? null : filterCounts(map, .9);
+                try {
+                    words = statistics.lines < MIN_CORPUS_LINES ? null : filterCounts(statistics, .9);
+                } catch (IOException e) {
+                    throw new RuntimeIOException(e);
+                } finally {
+                    statistics.close();
+                }
             }
 
-            private HashSet<String> filterCounts(HashMap<String, Counter> vocabulary, double threshold) {
-                ArrayList<Entry> entries = new ArrayList<>(vocabulary.size());
-                for (Map.Entry<String, Counter> e : vocabulary.entrySet())
-                    entries.add(new Entry(e.getKey(), e.getValue().count));
+            @Override
+            public Initializer newShard() {
+                return new Shard();
+            }
 
-                Collections.sort(entries);
-                Collections.reverse(entries);
+            @Override
+            public void merge(Initializer shard) {
+                statistics.merge(((Shard) shard).statistics);
+            }
 
-                double size = 0;
-                for (Entry e : entries)
-                    size += e.count;
+        };
+    }
 
-                HashSet<String> result = new HashSet<>();
+    /*
+     * Selects the most frequent n-grams covering the given fraction of all occurrences.
+     * Counts are visited twice: first to find the count threshold, then to collect the n-grams.
+     */
+    private static LongIntHashMap filterCounts(Statistics statistics, double threshold) throws IOException {
+        final double[] size = new double[1];
+        final LongIntHashMap histogram = new LongIntHashMap();
+
+        statistics.forEach((key, count) -> {
+            size[0] += count;
+            histogram.increment(count, 1);
+        });
+
+        long[] counts = new long[histogram.size()];
+        int[] i = new int[1];
+        histogram.forEach((count, frequency) -> counts[i[0]++] = count);
+        Arrays.sort(counts);
+
+        // Walk counts from the highest, the n-grams with the last count are taken only until threshold
+        long minCount = 0;
+        int minCountTaken = 0;
+
+        double accumulator = 0;
+        for (int c = counts.length - 1; c >= 0; c--) {
+            long count = counts[c];
+            int frequency = histogram.get(count);
+
+            minCount = count;
+            minCountTaken = 0;
+
+            while (minCountTaken < frequency) {
+                accumulator += count;
+                minCountTaken++;
+
+                if ((accumulator / size[0]) >= threshold)
+                    break;
+            }
 
-                double accumulator = 0;
-                for (Entry e : entries) {
-                    accumulator += e.count;
-                    result.add(e.term);
+            if ((accumulator / size[0]) >= threshold)
+                break;
+        }
 
-                    if ((accumulator / size) >= threshold)
-                        break;
-                }
+        final long _minCount = minCount;
+        final int[] remaining = new int[]{minCountTaken};
+        final LongIntHashMap result = new LongIntHashMap();
 
-                return result;
+        statistics.forEach((key, count) -> {
+            if (count > _minCount) {
+                result.put(key, 1);
+            } else if (count == _minCount && remaining[0] > 0) {
+                result.put(key, 1);
+                remaining[0]--;
             }
+        });
 
-        };
+        return result;
     }
 
     private static final Pattern SKIP_CHARS_REGEX = Pattern.compile("[\\p{Punct}\\s]+");
@@ -86,21 +143,17 @@ public class RareNgramFilter implements CorpusFilter {
         return line;
     }
 
-    private static String[] tokenize(String string) {
+    private static int countTrigrams(String string) {
         int length = string.length();
         if (length < 3)
-            return new String[0];
-
-        int size = length - length % 3 - 2;
-
-        String[] result = new String[size];
+            return 0;
 
-        if (size > 0) {
-            for (int i = 0; i < size; i++)
-                result[i] = string.substring(i, i + 3);
-        }
+        return Math.max(0, length - length % 3 - 2);
+    }
 
-        return result;
+    // Packs the three UTF-16 chars of the trigram starting at i into a single key
+    private static long trigram(String string, int i) {
+        return ((long) string.charAt(i) << 32) | ((long) string.charAt(i + 1) << 16) | (long) string.charAt(i + 2);
     }
 
     @Override
@@ -118,11 +171,10 @@ public class RareNgramFilter implements CorpusFilter {
 
     private double match(String line) {
         int matches = 0;
-        int length = 0;
+        int length = countTrigrams(line);
 
-        for (String token : tokenize(line)) {
-            length++;
-            if (words.contains(token))
+        for (int i = 0; i < length; i++) {
+            if (words.containsKey(trigram(line, i)))
                 matches++;
         }
 
@@ -134,31 +186,124 @@ public class RareNgramFilter implements CorpusFilter {
         words = null;
     }
 
-    private static final class Counter {
+    private static final class Statistics {
+
+        private final LongIntHashMap map = new LongIntHashMap();
+        private final File spillDirectory;
+        private RecordSorter spilled = null;
+        private int lines = 0;
+
+        Statistics(File spillDirectory) {
+            this.spillDirectory = spillDirectory;
+        }
 
-        public long count = 0;
+        public void add(String line) {
+            lines++;
+
+            line = normalize(line);
+
+            if (line.length() < MIN_SENTENCE_LENGTH)
+                return;
+
+            int length = countTrigrams(line);
+            for (int i = 0; i < length; i++)
+                map.increment(trigram(line, i), 1);
+
+            spillIfNeeded();
+        }
+
+        public void merge(Statistics other) {
+            lines += other.lines;
+            other.map.forEach(map::increment);
+
+            spillIfNeeded();
+        }
+
+        private void spillIfNeeded() {
+            if (spillDirectory != null && map.size() >= MAX_IN_MEMORY_NGRAMS) {
+                if (spilled == null)
+                    spilled = new RecordSorter(2, MAX_IN_MEMORY_NGRAMS, spillDirectory);
+
+                map.forEach((key, count) -> {
+                    try {
+                        spilled.add(key, count);
+                    } catch (IOException e) {
+                        throw new RuntimeIOException(e);
+                    }
+                });
+                map.clear();
+            }
+        }
+
+        /*
+         * Visits the total count of every n-gram; when counts have been spilled,
+         * partial counts of the same n-gram are merged in key order.
+         */
+        public void forEach(LongIntHashMap.Visitor visitor) throws IOException {
+            if (spilled == null) {
+                map.forEach(visitor);
+                return;
+            }
+
+            if (!map.isEmpty()) {
+                map.forEach((key, count) -> {
+                    try {
+                        spilled.add(key, count);
+                    } catch (IOException e) {
+                        throw new RuntimeIOException(e);
+                    }
+                });
+                map.clear();
+            }
+
+            final long[] current = new long[]{0L, 0L};
+            final boolean[] hasCurrent = new boolean[]{false};
+
+            spilled.forEach(record -> {
+                if (hasCurrent[0] && current[0] == record[0]) {
+                    current[1] += record[1];
+                } else {
+                    if (hasCurrent[0])
+                        visitor.visit(current[0], (int) current[1]);
+
+                    current[0] = record[0];
+                    current[1] = record[1];
+                    hasCurrent[0] = true;
+                }
+            });
+
+            if (hasCurrent[0])
+                visitor.visit(current[0], (int) current[1]);
+        }
+
+        public void close() {
+            map.clear();
+
+            if (spilled != null)
+                spilled.close();
+        }
 
     }
 
-    private static final class Entry implements Comparable<Entry> {
+    private static final class Shard implements Initializer {
 
-        public final String term;
-        public final long count;
+        private final Statistics statistics = new Statistics(null);
 
-        public Entry(String term, long count) {
-            this.term = term;
-            this.count = count;
+        @Override
+        public void onBegin() {
+            // Nothing to do
         }
 
         @Override
-        public int compareTo(@NotNull Entry o) {
-            return Long.compare(count, o.count);
+        public void onLine(String line, int index) {
+            statistics.add(line);
         }
 
         @Override
-        public String toString() {
-            return term + '(' + count + ')';
+        public void onEnd() {
+            // Nothing to do
         }
+
     }
 
 }
@@ -7,6 +7,7 @@ import eu.modernmt.lang.LanguagePair;
 import eu.modernmt.model.corpus.MultilingualCorpus;
 
 import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Created by davide on 25/08/17.
@@ -29,7 +30,7 @@ public class SentenceLengthFilter implements MultilingualCorpusFilter {
 
     @Override
     public Initializer getInitializer() {
-        return new Initializer() {
+        return new ShardedInitializer() {
 
             @Override
             public void onBegin() {
@@ -38,14 +39,7 @@ public class SentenceLengthFilter implements MultilingualCorpusFilter {
 
             @Override
             public void onPair(MultilingualCorpus.StringPair pair, int index) {
-                int sourceLength = pair.source.length();
-                int targetLength = pair.target.length();
-
-                if (sourceLength <= maxLength && targetLength <= maxLength && sourceLength > 0 && targetLength > 0) {
-                    Sequence ratioSequence = lengthRatios.computeIfAbsent(pair.language, k -> new Sequence());
-
-                    ratioSequence.add(((double) WordCounter.count(pair.source, pair.language.source)) / WordCounter.count(pair.target, pair.language.target));
-                }
+                collect(lengthRatios, pair);
             }
 
             @Override
@@ -53,9 +47,31 @@ public class SentenceLengthFilter implements MultilingualCorpusFilter {
                 // Nothing to do
             }
 
+            @Override
+            public Initializer newShard() {
+                return new Shard();
+            }
+
+            @Override
+            public void merge(Initializer shard) {
+                for (Map.Entry<LanguagePair, Sequence> entry : ((Shard) shard).lengthRatios.entrySet())
+                    lengthRatios.computeIfAbsent(entry.getKey(), k -> new Sequence()).add(entry.getValue());
+            }
+
         };
     }
 
+    private void collect(HashMap<LanguagePair, Sequence> lengthRatios, MultilingualCorpus.StringPair pair) {
+        int sourceLength = pair.source.length();
+        int targetLength = pair.target.length();
+
+        if (sourceLength <= maxLength && targetLength <= maxLength && sourceLength > 0 && targetLength > 0) {
+            Sequence ratioSequence = lengthRatios.computeIfAbsent(pair.language, k -> new Sequence());
+
+            ratioSequence.add(((double) WordCounter.count(pair.source, pair.language.source)) / WordCounter.count(pair.target, pair.language.target));
+        }
+    }
+
     @Override
     public boolean accept(MultilingualCorpus.StringPair pair, int index) {
         int sourceLength = pair.source.length();
@@ -90,4 +106,25 @@ public class SentenceLengthFilter implements MultilingualCorpusFilter {
         this.lengthRatios.clear();
     }
 
+    private class Shard implements Initializer {
+
+        private final HashMap<LanguagePair, Sequence> lengthRatios = new HashMap<>();
+
+        @Override
+        public void onBegin() {
+            // Nothing to do
+        }
+
+        @Override
+        public void onPair(MultilingualCorpus.StringPair pair, int index) {
+            collect(lengthRatios, pair);
+        }
+
+        @Override
+        public void onEnd() {
+            // Nothing to do
+        }
+
+    }
+
 }
@@ -1,28 +1,57 @@
 package eu.modernmt.cleaning.filters.draft;
 
 import eu.modernmt.cleaning.MultilingualCorpusFilter;
+import eu.modernmt.io.RuntimeIOException;
 import eu.modernmt.lang.LanguagePair;
 import eu.modernmt.model.corpus.MultilingualCorpus;
 
-import java.util.Date;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Created by davide on 14/03/16.
  */
 public class DraftFilter implements MultilingualCorpusFilter {
 
+    private static final long DEFAULT_TIME_STEP = 60L * 1000L;
+
     private final HashMap<LanguagePair, DraftFilterData> filters = new HashMap<>();
+    private final File spillDirectory;
     private boolean dataReady = false;
 
+    public DraftFilter() {
+        this(null);
+    }
+
+    /**
+     * @param spillDirectory if not null, translation candidates exceeding the in-memory limit
+     *                       are spilled to temporary files in this directory
+     */
+    public DraftFilter(File spillDirectory) {
+        this.spillDirectory = spillDirectory;
+    }
+
+    private static void add(HashMap<LanguagePair, DraftFilterData> filters, File spillDirectory,
+                            MultilingualCorpus.StringPair pair, int index, long timestamp) {
+        try {
+            filters.computeIfAbsent(pair.language, k -> new DraftFilterData(spillDirectory))
+                    .add(pair.source, index, timestamp);
+        } catch (IOException e) {
+            throw new RuntimeIOException(e);
+        }
+    }
+
     @Override
     public Initializer getInitializer() {
         if (dataReady)
             return null;
 
-        return new Initializer() {
+        return new ShardedInitializer() {
 
-            private Date lastTimestamp = new Date(0L);
+            private long lastTimestamp = 0L;
 
             @Override
             public void onBegin() {
@@ -31,28 +60,59 @@ public class DraftFilter implements MultilingualCorpusFilter {
 
             @Override
             public void onPair(MultilingualCorpus.StringPair pair, int index) {
-                Date timestamp = pair.timestamp;
-                if (timestamp == null)
-                    timestamp = new Date(lastTimestamp.getTime() + 60L * 1000L);
+                long timestamp = pair.timestamp == null ?
+                        lastTimestamp + DEFAULT_TIME_STEP : pair.timestamp.getTime();
                 lastTimestamp = timestamp;
 
-                filters.computeIfAbsent(pair.language, k -> new DraftFilterData())
-                        .add(pair.source, new TranslationCandidate(index, timestamp));
+                add(filters, spillDirectory, pair, index, timestamp);
             }
 
             @Override
             public void onEnd() {
                 dataReady = true;
 
-                for (DraftFilterData filter : filters.values())
-                    filter.compile();
+                try {
+                    for (DraftFilterData filter : filters.values())
+                        filter.compile();
+                } catch (IOException e) {
+                    throw new RuntimeIOException(e);
+                }
+            }
+
+            @Override
+            public Initializer newShard() {
+                return new Shard();
+            }
+
+            @Override
+            public void merge(Initializer _shard) {
+                Shard shard = (Shard) _shard;
+
+                // Leading pairs without timestamp are relative to the last timestamp of the previous shard
+                int index = shard.beginIndex;
+                for (MultilingualCorpus.StringPair pair : shard.leadingPairs) {
+                    lastTimestamp += DEFAULT_TIME_STEP;
+                    add(filters, spillDirectory, pair, index++, lastTimestamp);
+                }
+
+                try {
+                    for (Map.Entry<LanguagePair, DraftFilterData> entry : shard.filters.entrySet()) {
+                        filters.computeIfAbsent(entry.getKey(), k -> new DraftFilterData(spillDirectory))
+                                .merge(entry.getValue());
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeIOException(e);
+                }
+
+                if (shard.hasTimestamp)
+                    lastTimestamp = shard.lastTimestamp;
             }
         };
     }
 
     @Override
     public boolean accept(MultilingualCorpus.StringPair pair, int index) {
-        return filters.get(pair.language).accept(pair.source, index);
+        return filters.get(pair.language).accept(index);
     }
 
     @Override
@@ -61,4 +121,46 @@ public class DraftFilter implements MultilingualCorpusFilter {
             filter.clear();
     }
 
+    private static class Shard implements Initializer {
+
+        private final HashMap<LanguagePair, DraftFilterData> filters = new HashMap<>();
+        private final ArrayList<MultilingualCorpus.StringPair> leadingPairs = new ArrayList<>();
+        private int beginIndex = -1;
+        private boolean hasTimestamp = false;
+        private long lastTimestamp = 0L;
+
+        @Override
+        public void onBegin() {
+            // Nothing to do
+        }
+
+        @Override
+        public void onPair(MultilingualCorpus.StringPair pair, int index) {
+            if (beginIndex < 0)
+                beginIndex = index;
+
+            long timestamp;
+
+            if (pair.timestamp != null) {
+                timestamp = pair.timestamp.getTime();
+            } else if (hasTimestamp) {
+                timestamp = lastTimestamp + DEFAULT_TIME_STEP;
+            } else {
+                leadingPairs.add(pair);
+                return;
+            }
+
+            hasTimestamp = true;
+            lastTimestamp = timestamp;
+
+            add(filters, null, pair, index, timestamp);
+        }
+
+        @Override
+        public void onEnd() {
+            // Nothing to do
+        }
+
+    }
+
 }
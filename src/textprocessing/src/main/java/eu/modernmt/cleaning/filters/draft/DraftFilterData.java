@@ -1,6 +1,10 @@
 package eu.modernmt.cleaning.filters.draft;
 
-import java.util.*;
+import eu.modernmt.cleaning.filters.util.RecordSorter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.BitSet;
 
 /**
  * Created by davide on 31/07/17.
@@ -8,13 +12,26 @@ import java.util.*;
 class DraftFilterData {
 
     private static final long MAX_TIME_BETWEEN_WORK_SESSIONS = 48L * 60L * 60L * 1000L; // 48 hours
+    private static final int MAX_IN_MEMORY_CANDIDATES = 4 * 1024 * 1024;
+
+    // Candidates are records of (source hash, timestamp, index)
+    private final RecordSorter candidates;
+    private BitSet filter = null;
+
+    DraftFilterData() {
+        this(null);
+    }
 
-    private HashMap<Long, ArrayList<TranslationCandidate>> candidatesMap = new HashMap<>();
-    private HashMap<Long, HashSet<Integer>> filter = null;
+    DraftFilterData(File spillDirectory) {
+        this.candidates = new RecordSorter(3, MAX_IN_MEMORY_CANDIDATES, spillDirectory);
+    }
 
-    public void add(String source, TranslationCandidate candidate) {
-        candidatesMap.computeIfAbsent(hash(source), k -> new ArrayList<>())
-                .add(candidate);
+    public void add(String source, int index, long timestamp) throws IOException {
+        candidates.add(hash(source), timestamp, index);
+    }
+
+    void merge(DraftFilterData other) throws IOException {
+        candidates.addAll(other.candidates);
     }
 
     private static long hash(String string) {
@@ -35,42 +52,37 @@ class DraftFilterData {
         return (long) (sx.hashCode()) << 32 | (dx.hashCode()) & 0xFFFFFFFFL;
     }
 
-    void compile() {
-        filter = new HashMap<>(candidatesMap.size());
-
-        for (Map.Entry<Long, ArrayList<TranslationCandidate>> entry : candidatesMap.entrySet()) {
-            ArrayList<TranslationCandidate> candidates = entry.getValue();
-            Collections.sort(candidates);
-
-            HashSet<Integer> filtered = new HashSet<>();
-            TranslationCandidate lastCandidate = null;
-
-            for (TranslationCandidate candidate : candidates) {
-                if (lastCandidate == null) {
-                    lastCandidate = candidate;
-                } else {
-                    if (candidate.timeDiff(lastCandidate) > MAX_TIME_BETWEEN_WORK_SESSIONS)
-                        filtered.add(lastCandidate.getIndex());
-                    lastCandidate = candidate;
-                }
+    void compile() throws IOException {
+        final BitSet filter = new BitSet();
+        final long[] last = new long[3];
+        final boolean[] hasLast = new boolean[]{false};
+
+        // Candidates are visited grouped by source and sorted by timestamp (then by index)
+        candidates.forEach(candidate -> {
+            if (hasLast[0] && last[0] == candidate[0]) {
+                if (candidate[1] - last[1] > MAX_TIME_BETWEEN_WORK_SESSIONS)
+                    filter.set((int) last[2]);
+            } else if (hasLast[0]) {
+                filter.set((int) last[2]);
             }
 
-            if (lastCandidate != null)
-                filtered.add(lastCandidate.getIndex());
+            System.arraycopy(candidate, 0, last, 0, 3);
+            hasLast[0] = true;
+        });
 
-            filter.put(entry.getKey(), filtered);
-        }
+        if (hasLast[0])
+            filter.set((int) last[2]);
 
-        candidatesMap.clear();
+        this.filter = filter;
+        this.candidates.close();
     }
 
-    boolean accept(String source, int index) {
-        HashSet<Integer> targets = filter.get(hash(source));
-        return targets != null && targets.contains(index);
+    boolean accept(int index) {
+        return filter.get(index);
     }
 
     void clear() {
-        candidatesMap.clear();
+        candidates.close();
         filter = null;
     }
 }
@@ -9,7 +9,7 @@ import java.util.List;
  */
 class Batch {
 
-    private static final int DEFAULT_BATCH_SIZE = 100;
+    static final int DEFAULT_BATCH_SIZE = 100;
 
     private final int size;
     private final StringBuilder buffer = new StringBuilder();
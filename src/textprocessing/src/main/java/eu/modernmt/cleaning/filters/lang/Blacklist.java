@@ -8,12 +8,19 @@ import java.util.ArrayList;
 class Blacklist {
 
     private final ArrayList<Range> data = new ArrayList<>();
-    private int lastCheckIndex = 0;
 
     public void add(int begin, int end) {
         data.add(new Range(begin, end));
     }
 
+    public void addAll(Blacklist other) {
+        data.addAll(other.data);
+    }
+
+    public boolean isEmpty() {
+        return data.isEmpty();
+    }
+
     public int size() {
         int size = 0;
         for (Range range : data)
@@ -22,29 +29,23 @@ class Blacklist {
     }
 
     public boolean contains(int index) {
-        if (data.isEmpty())
-            return false;
-
-        if (lastCheckIndex >= data.size())
-            lastCheckIndex = 0;
-
-        while (index > data.get(lastCheckIndex).end) {
-            lastCheckIndex++;
-            if (lastCheckIndex >= data.size()) {
-                lastCheckIndex--;
-                break;
-            }
-        }
+        // Ranges are sorted and disjoint: binary search keeps this method stateless and thread-safe
+        int low = 0;
+        int high = data.size() - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            Range range = data.get(mid);
 
-        while (index < data.get(lastCheckIndex).begin) {
-            lastCheckIndex--;
-            if (lastCheckIndex < 0) {
-                lastCheckIndex++;
-                break;
-            }
+            if (index < range.begin)
+                high = mid - 1;
+            else if (index > range.end)
+                low = mid + 1;
+            else
+                return true;
         }
 
-        return data.get(lastCheckIndex).contains(index);
+        return false;
     }
 
     static class Range {
@@ -9,6 +9,7 @@ import eu.modernmt.io.RuntimeIOException;
 import eu.modernmt.lang.Language;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 
@@ -68,9 +69,9 @@ public class OptimaizeLanguageFilter implements CorpusFilter {
         boolean isLanguageSupported = isSupported(_language);
         String language = normalizeLanguage(_language.getLanguage());
 
-        return new Initializer() {
+        return new ShardedInitializer() {
 
-            private final Batch batch = new Batch();
+            private final Detector detector = new Detector(isLanguageSupported, language);
 
             @Override
             public void onBegin() {
@@ -79,36 +80,26 @@ public class OptimaizeLanguageFilter implements CorpusFilter {
 
             @Override
             public void onLine(String line, int index) {
-                if (isLanguageSupported) {
-                    batch.add(line, index);
-
-                    if (batch.isFull())
-                        analyze(batch);
-                }
+                detector.onLine(line, index);
             }
 
-            private void analyze(Batch batch) {
-                if (batch.size() >= MIN_SIZE) {
-                    String lang = normalizeLanguage(batch.getLanguage());
-
-                    if (!language.equalsIgnoreCase(lang)) {
-                        int beginIndex = batch.getBeginIndex();
-                        int endIndex = batch.getEndIndex();
-
-                        if (blacklist == null)
-                            blacklist = new Blacklist();
+            @Override
+            public void onEnd() {
+                detector.onEnd();
 
-                        blacklist.add(beginIndex, endIndex);
-                    }
-                }
+                if (!detector.blacklist.isEmpty())
+                    blacklist = detector.blacklist;
+            }
 
-                batch.clear();
+            @Override
+            public Initializer newShard() {
+                return new ShardDetector(isLanguageSupported, language);
             }
 
             @Override
-            public void onEnd() {
-                if (!batch.isEmpty())
-                    analyze(batch);
+            public void merge(Initializer shard) {
+                // Shards are merged in corpus order, so ranges remain sorted
+                detector.merge((ShardDetector) shard);
             }
         };
     }
@@ -123,4 +114,107 @@ public class OptimaizeLanguageFilter implements CorpusFilter {
         this.blacklist = null;
     }
 
+    private static class Detector implements Initializer {
+
+        protected final boolean isLanguageSupported;
+        protected final String language;
+        protected final Blacklist blacklist = new Blacklist();
+        protected Batch batch = new Batch();
+
+        private Detector(boolean isLanguageSupported, String language) {
+            this.isLanguageSupported = isLanguageSupported;
+            this.language = language;
+        }
+
+        @Override
+        public void onBegin() {
+            // Nothing to do
+        }
+
+        @Override
+        public void onLine(String line, int index) {
+            if (isLanguageSupported) {
+                batch.add(line, index);
+
+                if (batch.isFull())
+                    analyze(batch);
+            }
+        }
+
+        protected void analyze(Batch batch) {
+            if (batch.size() >= MIN_SIZE) {
+                String lang = normalizeLanguage(batch.getLanguage());
+
+                if (!language.equalsIgnoreCase(lang))
+                    blacklist.add(batch.getBeginIndex(), batch.getEndIndex());
+            }
+
+            batch.clear();
+        }
+
+        @Override
+        public void onEnd() {
+            if (!batch.isEmpty())
+                analyze(batch);
+        }
+
+        /*
+         * The lines of a shard that fit in its first batch continue the pending batch, exactly as
+         * in a serial run. If the shard has more lines, the pending batch is analyzed together
+         * with these lines instead (it may then hold up to two batches of lines), and the last
+         * partial batch of the shard becomes the pending one.
+         */
+        private void merge(ShardDetector shard) {
+            if (shard.batches == 0 && shard.batch.isEmpty()) {
+                for (int i = 0; i < shard.head.size(); i++)
+                    onLine(shard.head.get(i), shard.headIndexes.get(i));
+            } else {
+                for (int i = 0; i < shard.head.size(); i++)
+                    batch.add(shard.head.get(i), shard.headIndexes.get(i));
+                analyze(batch);
+
+                blacklist.addAll(shard.blacklist);
+                batch = shard.batch;
+            }
+        }
+    }
+
+    /*
+     * Shards keep the lines of their first batch and their last partial batch aside: batches
+     * spanning shards boundaries are completed on merge, so that no line is left unchecked.
+     */
+    private static class ShardDetector extends Detector {
+
+        private final ArrayList<String> head = new ArrayList<>();
+        private final ArrayList<Integer> headIndexes = new ArrayList<>();
+        private int batches = 0;
+
+        private ShardDetector(boolean isLanguageSupported, String language) {
+            super(isLanguageSupported, language);
+        }
+
+        @Override
+        public void onLine(String line, int index) {
+            if (!isLanguageSupported)
+                return;
+
+            if (batches == 0 && head.size() < Batch.DEFAULT_BATCH_SIZE) {
+                head.add(line);
+                headIndexes.add(index);
+            } else {
+                batch.add(line, index);
+
+                if (batch.isFull()) {
+                    analyze(batch);
+                    batches++;
+                }
+            }
+        }
+
+        @Override
+        public void onEnd() {
+            // The last partial batch is completed on merge
+        }
+    }
+
 }
@@ -0,0 +1,336 @@
+package eu.modernmt.cleaning.filters.util;
+
+import eu.modernmt.io.RuntimeIOException;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Collects fixed-width records of primitive longs and visits them in lexicographic order.
+ * <p>
+ * If a spill directory is specified, at most maxBufferedRecords are kept in memory:
+ * when the buffer is full, records are sorted and written to a temporary run file,
+ * and forEach() merges all the runs.
+ */
+public class RecordSorter implements Closeable {
+
+    public interface Visitor {
+
+        void visit(long[] record);
+
+    }
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private final int width;
+    private final int maxBufferedRecords;
+    private final File spillDirectory;
+    private final ArrayList<File> runs = new ArrayList<>();
+
+    private long[] buffer;
+    private int bufferedRecords = 0;
+    private long spilledRecords = 0;
+
+    public RecordSorter(int width) {
+        this(width, Integer.MAX_VALUE, null);
+    }
+
+    public RecordSorter(int width, int maxBufferedRecords, File spillDirectory) {
+        if (width < 1)
+            throw new IllegalArgumentException("Invalid record width: " + width);
+        if (spillDirectory != null && maxBufferedRecords < 1)
+            throw new IllegalArgumentException("Invalid buffer size: " + maxBufferedRecords);
+
+        this.width = width;
+        this.maxBufferedRecords = spillDirectory == null ? Integer.MAX_VALUE : maxBufferedRecords;
+        this.spillDirectory = spillDirectory;
+        this.buffer = new long[width * Math.min(INITIAL_CAPACITY, this.maxBufferedRecords)];
+    }
+
+    public long size() {
+        return spilledRecords + bufferedRecords;
+    }
+
+    public void add(long a, long b) throws IOException {
+        if (width != 2)
+            throw new IllegalArgumentException("Invalid record width: 2");
+
+        int offset = reserve();
+        buffer[offset] = a;
+        buffer[offset + 1] = b;
+    }
+
+    public void add(long a, long b, long c) throws IOException {
+        if (width != 3)
+            throw new IllegalArgumentException("Invalid record width: 3");
+
+        int offset = reserve();
+        buffer[offset] = a;
+        buffer[offset + 1] = b;
+        buffer[offset + 2] = c;
+    }
+
+    public void add(long[] record) throws IOException {
+        if (width != record.length)
+            throw new IllegalArgumentException("Invalid record width: " + record.length);
+
+        int offset = reserve();
+        System.arraycopy(record, 0, buffer, offset, width);
+    }
+
+    public void addAll(RecordSorter other) throws IOException {
+        if (width != other.width)
+            throw new IllegalArgumentException("Invalid record width: " + other.width);
+
+        if (other.runs.isEmpty() && (bufferedRecords + other.bufferedRecords) <= maxBufferedRecords) {
+            ensureCapacity(bufferedRecords + other.bufferedRecords);
+            System.arraycopy(other.buffer, 0, buffer, bufferedRecords * width, other.bufferedRecords * width);
+            bufferedRecords += other.bufferedRecords;
+        } else {
+            other.forEach(record -> {
+                try {
+                    add(record);
+                } catch (IOException e) {
+                    throw new RuntimeIOException(e);
+                }
+            });
+        }
+    }
+
+    private int reserve() throws IOException {
+        if (bufferedRecords == maxBufferedRecords)
+            spill();
+
+        ensureCapacity(bufferedRecords + 1);
+        return (bufferedRecords++) * width;
+    }
+
+    private void ensureCapacity(int records) {
+        if (buffer.length < records * width) {
+            long capacity = Math.max(records, Math.min((long) maxBufferedRecords, (buffer.length / width) * 2L));
+            buffer = Arrays.copyOf(buffer, (int) (capacity * width));
+        }
+    }
+
+    private void spill() throws IOException {
+        sort();
+
+        File run = File.createTempFile("records", ".run", spillDirectory);
+        run.deleteOnExit();
+        runs.add(run);
+
+        DataOutputStream output = null;
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), 64 * 1024));
+            for (int i = 0; i < bufferedRecords * width; i++)
+                output.writeLong(buffer[i]);
+        } finally {
+            IOUtils.closeQuietly(output);
+        }
+
+        spilledRecords += bufferedRecords;
+        bufferedRecords = 0;
+    }
+
+    /**
+     * Visits all records in lexicographic order. The sorter can be visited multiple times.
+     */
+    public void forEach(Visitor visitor) throws IOException {
+        sort();
+
+        if (runs.isEmpty()) {
+            long[] record = new long[width];
+
+            for (int i = 0; i < bufferedRecords; i++) {
+                System.arraycopy(buffer, i * width, record, 0, width);
+                visitor.visit(record);
+            }
+        } else {
+            merge(visitor);
+        }
+    }
+
+    private void merge(Visitor visitor) throws IOException {
+        PriorityQueue<Source> queue = new PriorityQueue<>(runs.size() + 1);
+
+        try {
+            Source memory = new Source(null);
+            if (memory.next())
+                queue.add(memory);
+
+            for (File run : runs) {
+                Source source = new Source(run);
+                if (source.next())
+                    queue.add(source);
+                else
+                    source.close();
+            }
+
+            while (!queue.isEmpty()) {
+                Source source = queue.poll();
+                visitor.visit(source.record);
+
+                if (source.next())
+                    queue.add(source);
+                else
+                    source.close();
+            }
+        } finally {
+            for (Source source : queue)
+                source.close();
+        }
+    }
+
+    private void sort() {
+        if (width == 1)
+            Arrays.sort(buffer, 0, bufferedRecords);
+        else
+            quicksort(0, bufferedRecords - 1);
+    }
+
+    private int compare(int i, int j) {
+        int a = i * width;
+        int b = j * width;
+
+        for (int k = 0; k < width; k++) {
+            int c = Long.compare(buffer[a + k], buffer[b + k]);
+            if (c != 0)
+                return c;
+        }
+
+        return 0;
+    }
+
+    private void swap(int i, int j) {
+        int a = i * width;
+        int b = j * width;
+
+        for (int k = 0; k < width; k++) {
+            long tmp = buffer[a + k];
+            buffer[a + k] = buffer[b + k];
+            buffer[b + k] = tmp;
+        }
+    }
+
+    private int compareTo(int i, long[] record) {
+        int a = i * width;
+
+        for (int k = 0; k < width; k++) {
+            int c = Long.compare(buffer[a + k], record[k]);
+            if (c != 0)
+                return c;
+        }
+
+        return 0;
+    }
+
+    private void quicksort(int low, int high) {
+        long[] pivot = new long[width];
+
+        while (high - low > INSERTION_SORT_THRESHOLD) {
+            // Median of three as pivot
+            int mid = (low + high) >>> 1;
+            if (compare(mid, low) < 0) swap(mid, low);
+            if (compare(high, low) < 0) swap(high, low);
+            if (compare(high, mid) < 0) swap(high, mid);
+            System.arraycopy(buffer, mid * width, pivot, 0, width);
+
+            // Three-way partitioning: [low, lt) < pivot, [lt, gt] == pivot, (gt, high] > pivot
+            int lt = low;
+            int gt = high;
+            int i = low;
+
+            while (i <= gt) {
+                int c = compareTo(i, pivot);
+
+                if (c < 0)
+                    swap(lt++, i++);
+                else if (c > 0)
+                    swap(i, gt--);
+                else
+                    i++;
+            }
+
+            // Recurse on the smaller partition to bound stack depth
+            if (lt - low < high - gt) {
+                quicksort(low, lt - 1);
+                low = gt + 1;
+            } else {
+                quicksort(gt + 1, high);
+                high = lt - 1;
+            }
+        }
+
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && compare(j, j - 1) < 0; j--)
+                swap(j, j - 1);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (File run : runs)
+            FileUtils.deleteQuietly(run);
+
+        runs.clear();
+        buffer = new long[0];
+        bufferedRecords = 0;
+        spilledRecords = 0;
+    }
+
+    private class Source implements Comparable<Source>, Closeable {
+
+        private final long[] record = new long[width];
+        private final DataInputStream input;
+        private long remaining;
+        private int position = 0;
+
+        Source(File run) throws IOException {
+            if (run == null) {
+                this.input = null;
+                this.remaining = bufferedRecords;
+            } else {
+                this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(run), 64 * 1024));
+                this.remaining = run.length() / (8L * width);
+            }
+        }
+
+        boolean next() throws IOException {
+            if (remaining == 0)
+                return false;
+
+            if (input == null) {
+                System.arraycopy(buffer, position, record, 0, width);
+                position += width;
+            } else {
+                for (int k = 0; k < width; k++)
+                    record[k] = input.readLong();
+            }
+
+            remaining--;
+            return true;
+        }
+
+        @Override
+        public int compareTo(Source o) {
+            for (int k = 0; k < width; k++) {
+                int c = Long.compare(record[k], o.record[k]);
+                if (c != 0)
+                    return c;
+            }
+
+            return 0;
+        }
+
+        @Override
+        public void close() {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+}
@@ -31,6 +31,15 @@ public class Sequence {
         stddev = Double.NaN;
     }
 
+    public void add(Sequence other) {
+        sum += other.sum;
+        sum2 += other.sum2;
+        length += other.length;
+
+        avg = Double.NaN;
+        stddev = Double.NaN;
+    }
+
     public long length() {
         return length;
     }
@@ -42,8 +51,10 @@ public class Sequence {
     }
 
     public double getStandardDeviation() {
-        if (Double.isNaN(stddev))
-            stddev = Math.sqrt((sum2 / length) - (avg * avg));
+        if (Double.isNaN(stddev)) {
+            double average = getAverage();
+            stddev = Math.sqrt((sum2 / length) - (average * average));
+        }
         return stddev;
     }
 
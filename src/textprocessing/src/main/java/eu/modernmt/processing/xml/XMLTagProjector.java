@@ -64,27 +64,74 @@ public class XMLTagProjector {
         return translation;
     }
 
+    /**
+     * Alignment pre-indexed once per sentence: the range of target words aligned to every source word,
+     * and the side (source position) that decides where every target word stays with respect to a tag.
+     */
+    private static class AlignmentIndex {
+
+        private final int[] minTarget;
+        private final int[] maxTarget;
+        private final int[] firstSource;
+
+        AlignmentIndex(Alignment alignment, int targetLength) {
+            int[] sourceIndexes = alignment.getSourceIndexes();
+            int[] targetIndexes = alignment.getTargetIndexes();
+
+            int sourceLength = 0;
+            for (int source : sourceIndexes)
+                sourceLength = Math.max(sourceLength, source + 1);
+
+            this.minTarget = new int[sourceLength];
+            this.maxTarget = new int[sourceLength];
+            this.firstSource = new int[targetLength];
+            Arrays.fill(this.minTarget, Integer.MAX_VALUE);
+            Arrays.fill(this.maxTarget, -1);
+            Arrays.fill(this.firstSource, -1);
+
+            for (int i = 0; i < sourceIndexes.length; i++) {
+                int source = sourceIndexes[i];
+                int target = targetIndexes[i];
+
+                if (source >= 0) {
+                    minTarget[source] = Math.min(minTarget[source], target);
+                    maxTarget[source] = Math.max(maxTarget[source], target);
+                }
+
+                // A target word aligned on both sides of a tag stays on the side of its first alignment point
+                if (target >= 0 && target < targetLength && firstSource[target] == -1)
+                    firstSource[target] = source;
+            }
+        }
+
+        /**
+         * @return 1 if the target word should be at the left of a tag at the given source position,
+         * -1 if it should be at its right, 0 if it is not aligned
+         */
+        int side(int target, int sourcePosition) {
+            int source = firstSource[target];
+            if (source == -1)
+                return 0;
+            return source < sourcePosition ? 1 : -1;
+        }
+
+    }
+
     public static List<ExtendedTag> mapTags(Translation translation) {
         Tag[] sourceTags = translation.getSource().getTags();
-        Token[] sourceWord = translation.getSource().getWords();
         Token[] targetTokens = translation.getWords();
-        Alignment alignment = translation.getWordAlignment();
+        AlignmentIndex alignment = new AlignmentIndex(translation.getWordAlignment(), targetTokens.length);
         List<ExtendedTag> translationTags = new ArrayList<>(sourceTags.length);
-        Map<Integer, Integer> closing2opening = new HashMap<>();
 
-        Set<Integer> sourceLeftToken = new HashSet<>();
-        Set<Integer> sourceRightToken = new HashSet<>();
-        Set<Integer> targetLeftToken = new HashSet<>();
-        Set<Integer> targetRightToken = new HashSet<>();
-        Set<Integer> leftTokenIntersection = new HashSet<>();
-        Set<Integer> rightTokenIntersection = new HashSet<>();
+        int[] closing2opening = new int[sourceTags.length];
+        Arrays.fill(closing2opening, -1);
 
-        Set<Integer> alignedTags = new HashSet<Integer>();
+        BitSet alignedTags = new BitSet(sourceTags.length);
 
         for (int tagIndex = 0; tagIndex < sourceTags.length; tagIndex++) {
             Tag sourceTag = sourceTags[tagIndex];
             //If the tag has been already mapped (such as well formed closing tags), then continue
-            if (alignedTags.contains(tagIndex)) {
+            if (alignedTags.get(tagIndex)) {
                 continue;
             }
 
@@ -100,11 +147,10 @@ public class XMLTagProjector {
                 int maxPos = -1;
 
                 //Check if they contain some aligned words
-                for (int[] align : alignment) {
-                    if (align[0] >= sourcePosition && align[0] < closePosition) {
-                        minPos = Math.min(minPos, align[1]);
-                        maxPos = Math.max(maxPos, align[1]);
-                    }
+                int to = Math.min(closePosition, alignment.minTarget.length);
+                for (int source = Math.max(sourcePosition, 0); source < to; source++) {
+                    minPos = Math.min(minPos, alignment.minTarget[source]);
+                    maxPos = Math.max(maxPos, alignment.maxTarget[source]);
                 }
 
                 //If they contain no aligned words, treat the current tag as a self-closing tag
@@ -122,8 +168,8 @@ public class XMLTagProjector {
                     closingTargetTag.setPosition(maxPos);
                     translationTags.add(new ExtendedTag(closingTargetTag, closingTag.getPosition(), closingTagIndex, maxPos));
 
-                    alignedTags.add(tagIndex);
-                    alignedTags.add(closingTagIndex);
+                    alignedTags.set(tagIndex);
+                    alignedTags.set(closingTagIndex);
                 }
             } else {
                 //If not closing tag has been found, treat this tag as a self-closing tag
@@ -132,76 +178,40 @@ public class XMLTagProjector {
 
             //If it is a self-closing tag
             if (singleTag) {
-                sourceLeftToken.clear();
-                sourceRightToken.clear();
                 //Words that are at the left of the tag in the source sentence, should be at left of the mapped tag
                 //in the translation. Some reasoning for those that are at the right.
-                for (int[] align : alignment) {
-                    //If the word is at the left of the current tag
-                    if (align[0] < sourcePosition) {
-                        if (!sourceRightToken.contains(align[1])) {
-                            //Remember that it should be at the left also in the translation
-                            sourceLeftToken.add(align[1]);
-                        }
-                    } else {
-                        //It the word is at the right of the current tag
-                        if (!sourceLeftToken.contains(align[1])) {
-                            //Remember that it should be at the right also in the translation
-                            sourceRightToken.add(align[1]);
-                        }
-                    }
-                }
                 boolean openingTag = sourceTag.isOpeningTag();
-                //Find the mapped position that respects most of the left-right word-tag relationship as possible.
-                targetLeftToken.clear();
-                targetRightToken.clear();
-                leftTokenIntersection.clear();
-                rightTokenIntersection.clear();
 
+                //Find the mapped position that respects most of the left-right word-tag relationship as possible:
+                //with the tag at position 0 all the words are at its right, then they move to its left one at a time.
+                int maxScore = 0;
                 for (int i = 0; i < targetTokens.length; i++) {
-                    targetRightToken.add(i);
+                    if (alignment.side(i, sourcePosition) < 0)
+                        maxScore++;
                 }
-                rightTokenIntersection.addAll(sourceRightToken);
-                rightTokenIntersection.retainAll(targetRightToken);
-                int maxScore = rightTokenIntersection.size();
                 int bestPosition = 0;
 
-                int actualPosition = 0;
+                int score = maxScore;
                 for (int i = 0; i < targetTokens.length; i++) {
-                    actualPosition++;
-
-                    targetLeftToken.add(i);
-                    targetRightToken.remove(i);
-                    leftTokenIntersection.clear();
-                    rightTokenIntersection.clear();
-
-                    leftTokenIntersection.addAll(sourceLeftToken);
-                    leftTokenIntersection.retainAll(targetLeftToken);
-                    rightTokenIntersection.addAll(sourceRightToken);
-                    rightTokenIntersection.retainAll(targetRightToken);
-                    int score = leftTokenIntersection.size() + rightTokenIntersection.size();
+                    score += alignment.side(i, sourcePosition);
 
                     //Remember the best position and score (for opening tag prefer to shift them to the right)
                     if ((openingTag && score >= maxScore) || (!openingTag && score > maxScore)) {
                         maxScore = score;
-                        bestPosition = actualPosition;
-                    } else if (score < maxScore) {
-                        //The function that describes the score should be concave,
-                        // so we can break as soon it starts decreasing
-                        //break
+                        bestPosition = i + 1;
                     }
                 }
-                Integer openingPosition = closing2opening.get(tagIndex);
-                if (openingPosition != null) {
+                int openingPosition = closing2opening[tagIndex];
+                if (openingPosition != -1) {
                     bestPosition = Math.max(openingPosition, bestPosition);
                 } else if (closingTagIndex != -1) {
-                    closing2opening.put(closingTagIndex, bestPosition);
+                    closing2opening[closingTagIndex] = bestPosition;
                 }
                 //Map the tag to the best position
                 Tag targetTag = Tag.fromTag(sourceTag);
                 targetTag.setPosition(bestPosition);
                 translationTags.add(new ExtendedTag(targetTag, sourceTag.getPosition(), tagIndex, bestPosition));
-                alignedTags.add(tagIndex);
+                alignedTags.set(tagIndex);
             }
         }
 
@@ -0,0 +1,111 @@
+package eu.modernmt.cleaning.filters.util;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class RecordSorterTest {
+
+    private File spillDirectory;
+
+    @Before
+    public void setup() throws IOException {
+        spillDirectory = Files.createTempDirectory("RecordSorterTest").toFile();
+    }
+
+    @After
+    public void teardown() throws IOException {
+        FileUtils.deleteDirectory(spillDirectory);
+    }
+
+    private static List<long[]> random(int size, int seed) {
+        Random random = new Random(seed);
+        List<long[]> records = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++)
+            records.add(new long[]{random.nextInt(50) - 25, random.nextLong(), i});
+
+        return records;
+    }
+
+    private static List<long[]> sorted(List<long[]> records) {
+        List<long[]> result = new ArrayList<>(records);
+        result.sort(Comparator.<long[]>comparingLong(r -> r[0]).thenComparingLong(r -> r[1]).thenComparingLong(r -> r[2]));
+        return result;
+    }
+
+    private static List<long[]> visit(RecordSorter sorter) throws IOException {
+        List<long[]> result = new ArrayList<>();
+        sorter.forEach(record -> result.add(Arrays.copyOf(record, record.length)));
+        return result;
+    }
+
+    private static void assertSameRecords(List<long[]> expected, List<long[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++)
+            assertArrayEquals(expected.get(i), actual.get(i));
+    }
+
+    @Test
+    public void inMemory() throws IOException {
+        List<long[]> records = random(10000, 1);
+
+        try (RecordSorter sorter = new RecordSorter(3)) {
+            for (long[] record : records)
+                sorter.add(record[0], record[1], record[2]);
+
+            assertSameRecords(sorted(records), visit(sorter));
+        }
+    }
+
+    @Test
+    public void withSpill() throws IOException {
+        List<long[]> records = random(10000, 2);
+
+        try (RecordSorter sorter = new RecordSorter(3, 777, spillDirectory)) {
+            for (long[] record : records)
+                sorter.add(record);
+
+            assertEquals(records.size(), sorter.size());
+            assertSameRecords(sorted(records), visit(sorter));
+            assertSameRecords(sorted(records), visit(sorter));
+        }
+
+        assertEquals(0, spillDirectory.list().length);
+    }
+
+    @Test
+    public void addAll() throws IOException {
+        List<long[]> a = random(3000, 3);
+        List<long[]> b = random(4000, 4);
+
+        try (RecordSorter sorter = new RecordSorter(3, 1000, spillDirectory);
+             RecordSorter other = new RecordSorter(3)) {
+            for (long[] record : a)
+                sorter.add(record);
+            for (long[] record : b)
+                other.add(record);
+
+            sorter.addAll(other);
+
+            List<long[]> expected = new ArrayList<>(a);
+            expected.addAll(b);
+
+            assertSameRecords(sorted(expected), visit(sorter));
+        }
+    }
+
+}